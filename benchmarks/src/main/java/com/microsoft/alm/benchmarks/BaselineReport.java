@@ -0,0 +1,169 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Runs the benchmarks and compares them with a baseline, so that a change can be checked for regressions:
+ *
+ * <pre>
+ *   java -cp benchmarks/target/benchmarks.jar com.microsoft.alm.benchmarks.BaselineReport baseline.properties [regex]
+ * </pre>
+ *
+ * The first run writes the scores to the baseline file.  Later runs print each score next to its baseline and exit
+ * with {@code 1} if any is worse by more than {@code -Dbaseline.tolerance} (a fraction, 0.10 by default).  Pass
+ * {@code -Dbaseline.update=true} to replace the baseline with the new scores.  Only benchmarks matching the
+ * optional regular expression are run.
+ */
+public class BaselineReport {
+
+    static final double DEFAULT_TOLERANCE = 0.10;
+
+    public static void main(final String[] args) throws RunnerException, IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: BaselineReport <baseline file> [benchmark regex]");
+            System.exit(2);
+        }
+        final File baselineFile = new File(args[0]);
+        final String include = args.length > 1 ? args[1] : "com\\.microsoft\\.alm\\..*";
+        final double tolerance = Double.parseDouble(System.getProperty("baseline.tolerance", String.valueOf(DEFAULT_TOLERANCE)));
+        final boolean update = Boolean.getBoolean("baseline.update");
+
+        final Options options = new OptionsBuilder().include(include).build();
+        final Collection<RunResult> results = new Runner(options).run();
+
+        final Map<String, Score> current = new TreeMap<String, Score>();
+        for (final RunResult result : results) {
+            final BenchmarkParams params = result.getParams();
+            final Result primary = result.getPrimaryResult();
+            current.put(nameOf(params), new Score(primary.getScore(), primary.getScoreUnit(),
+                    params.getMode() != Mode.Throughput));
+        }
+
+        if (!baselineFile.isFile() || update) {
+            write(baselineFile, current);
+            System.out.println(report(current, new TreeMap<String, Score>(), tolerance));
+            System.out.println("Baseline written to " + baselineFile.getAbsolutePath());
+            return;
+        }
+
+        final Map<String, Score> baseline = read(baselineFile);
+        final String report = report(current, baseline, tolerance);
+        System.out.println(report);
+        if (report.contains(REGRESSION)) {
+            System.exit(1);
+        }
+    }
+
+    private static final String REGRESSION = "REGRESSION";
+
+    static String nameOf(final BenchmarkParams params) {
+        final StringBuilder sb = new StringBuilder(params.getBenchmark());
+        if (!params.getParamsKeys().isEmpty()) {
+            sb.append('(');
+            String separator = "";
+            for (final String key : params.getParamsKeys()) {
+                sb.append(separator).append(key).append('=').append(params.getParam(key));
+                separator = ",";
+            }
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return one line per benchmark with its score, the baseline score and the change, marking the ones worse than
+     *         {@code tolerance} allows with {@value #REGRESSION}
+     */
+    static String report(final Map<String, Score> current, final Map<String, Score> baseline, final double tolerance) {
+        final StringBuilder sb = new StringBuilder();
+        for (final Map.Entry<String, Score> entry : current.entrySet()) {
+            final Score score = entry.getValue();
+            final Score before = baseline.get(entry.getKey());
+            sb.append(String.format("%-100s %12.3f %-8s", entry.getKey(), score.value, score.unit));
+            if (before != null && before.unit.equals(score.unit) && before.value > 0) {
+                final double change = (score.value - before.value) / before.value;
+                final double worse = score.lowerIsBetter ? change : -change;
+                sb.append(String.format(" %12.3f %+7.1f%%", before.value, 100 * change));
+                if (worse > tolerance) {
+                    sb.append(' ').append(REGRESSION);
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    static Map<String, Score> read(final File file) throws IOException {
+        final Properties properties = new Properties();
+        final InputStream is = new FileInputStream(file);
+        try {
+            properties.load(is);
+        } finally {
+            is.close();
+        }
+        final Map<String, Score> result = new TreeMap<String, Score>();
+        for (final String name : properties.stringPropertyNames()) {
+            result.put(name, Score.parse(properties.getProperty(name)));
+        }
+        return result;
+    }
+
+    static void write(final File file, final Map<String, Score> scores) throws IOException {
+        final Properties properties = new Properties();
+        for (final Map.Entry<String, Score> entry : scores.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+        final OutputStream os = new FileOutputStream(file);
+        try {
+            properties.store(os, "JMH scores, see BaselineReport");
+        } finally {
+            os.close();
+        }
+    }
+
+    static final class Score {
+        final double value;
+        final String unit;
+        final boolean lowerIsBetter;
+
+        Score(final double value, final String unit, final boolean lowerIsBetter) {
+            this.value = value;
+            this.unit = unit;
+            this.lowerIsBetter = lowerIsBetter;
+        }
+
+        /**
+         * @param s the score as {@link #toString()} wrote it, e.g. {@code 123.4 us/op lower}
+         */
+        static Score parse(final String s) {
+            final String[] parts = s.trim().split(" ");
+            return new Score(Double.parseDouble(parts[0]), parts[1], "lower".equals(parts[2]));
+        }
+
+        @Override
+        public String toString() {
+            return value + " " + unit + " " + (lowerIsBetter ? "lower" : "higher");
+        }
+    }
+}
@@ -0,0 +1,105 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.microsoft.alm.auth.BaseAuthenticator;
+import com.microsoft.alm.auth.PromptBehavior;
+import com.microsoft.alm.helpers.ChaosHttpClient;
+import com.microsoft.alm.helpers.HttpClient;
+import com.microsoft.alm.helpers.QueryString;
+import com.microsoft.alm.helpers.StringContent;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenPair;
+import com.microsoft.alm.storage.InsecureInMemoryStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link SecretRetrieverBenchmark} on a network made slow and flaky by {@link ChaosHttpClient}: every request takes
+ * about {@code latencyMillis}, with a long tail, and {@code faultRate} of them fail with a reset connection or a 500.
+ * A failed token request makes {@code retrieve} return {@code null}; a failed validation keeps the stored token.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DegradedNetworkBenchmark {
+
+    private static final String KEY = "git:https://account.visualstudio.com";
+    private static final URI VALIDATION_URI = URI.create("https://account.visualstudio.com/_apis/connectionData");
+    private static final URI TOKEN_URI = URI.create("https://login.microsoftonline.com/common/oauth2/token");
+
+    @Param({"1", "10"})
+    public long latencyMillis;
+
+    @Param({"0", "0.1", "0.3"})
+    public double faultRate;
+
+    private InsecureInMemoryStore<Token> store;
+    private BaseAuthenticator.SecretRetriever<Token> retriever;
+
+    @Setup
+    public void setUp() {
+        final ChaosHttpClient.Rule rule = new ChaosHttpClient.Rule("")
+                .withLatency(ChaosHttpClient.Latency.exponential(latencyMillis / 2, latencyMillis - latencyMillis / 2))
+                .withConnectionResets(faultRate / 2)
+                .withStatus(500, faultRate / 2, null);
+        final HttpClient client = new ChaosHttpClient(
+                new SecretRetrieverBenchmark.CannedHttpClient(JsonBenchmark.tokenResponse()), 42,
+                Collections.singletonList(rule));
+        store = new InsecureInMemoryStore<Token>();
+        retriever = new BaseAuthenticator.SecretRetriever<Token>() {
+            @Override
+            protected Token doRetrieve() {
+                final QueryString parameters = new QueryString();
+                parameters.put("grant_type", "refresh_token");
+                parameters.put("refresh_token", "refresh");
+                try {
+                    final String response = client.getPostResponseText(TOKEN_URI, StringContent.createUrlEncoded(parameters));
+                    return new TokenPair(response).AccessToken;
+                } catch (final IOException e) {
+                    return null;
+                }
+            }
+
+            @Override
+            protected Validation validate(final Token secret, final AtomicReference<Token> secretHolder) {
+                try {
+                    client.getGetResponseText(VALIDATION_URI);
+                    return Validation.VALID;
+                } catch (final IOException e) {
+                    return classify(e);
+                }
+            }
+        };
+    }
+
+    @Benchmark
+    public Token storedToken() {
+        return retriever.retrieve(KEY, store, PromptBehavior.AUTO);
+    }
+
+    @Benchmark
+    public Token newToken() {
+        store.delete(KEY);
+        return retriever.retrieve(KEY, store, PromptBehavior.AUTO);
+    }
+}
@@ -0,0 +1,74 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenType;
+import com.microsoft.alm.storage.InsecureInMemoryStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads asking {@link InsecureInMemoryStore} for secrets, e.g. a build server cloning repositories in
+ * parallel, alone and while a few threads replace the secrets.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InMemoryStoreBenchmark {
+
+    private static final int KEYS = 64;
+
+    private final String[] keys = new String[KEYS];
+    private final Token[] tokens = new Token[KEYS];
+    private InsecureInMemoryStore<Token> store;
+
+    @Setup
+    public void setUp() {
+        store = new InsecureInMemoryStore<Token>();
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "git:https://account" + i + ".visualstudio.com";
+            tokens[i] = new Token("personal-access-token-" + i, TokenType.Personal);
+            store.add(keys[i], tokens[i]);
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Token get() {
+        return store.get(keys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(7)
+    public Token mixedGet() {
+        return store.get(keys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public boolean mixedAdd() {
+        final int i = ThreadLocalRandom.current().nextInt(KEYS);
+        return store.add(keys[i], tokens[i]);
+    }
+}
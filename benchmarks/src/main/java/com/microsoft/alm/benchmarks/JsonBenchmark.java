@@ -0,0 +1,76 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.microsoft.alm.helpers.SimpleJson;
+import com.microsoft.alm.secret.TokenPair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the response of the AAD token endpoint, which is what every sign-in and refresh ends with.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private String tokenResponse;
+
+    @Setup
+    public void setUp() {
+        tokenResponse = tokenResponse();
+    }
+
+    /**
+     * @return a token endpoint response of the usual size: JWT access and id tokens and a long refresh token
+     */
+    static String tokenResponse() {
+        return "{\"token_type\":\"Bearer\",\"scope\":\"user_impersonation\",\"expires_in\":\"3599\","
+                + "\"ext_expires_in\":\"3599\",\"expires_on\":\"1476907599\",\"not_before\":\"1476903699\","
+                + "\"resource\":\"499b84ac-1321-427f-aa17-267ca6975798\","
+                + "\"access_token\":\"" + repeat('a', 1500) + "\","
+                + "\"refresh_token\":\"" + repeat('r', 800) + "\","
+                + "\"id_token\":\"" + repeat('i', 1200) + "\"}";
+    }
+
+    static String repeat(final char c, final int count) {
+        final char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Benchmark
+    public Map<String, Object> simpleJsonParse() {
+        return SimpleJson.parse(tokenResponse);
+    }
+
+    @Benchmark
+    public TokenPair tokenPairFromJson() {
+        return new TokenPair(tokenResponse);
+    }
+
+    /**
+     * Reading a parameter other than the tokens, which {@link TokenPair} decodes on first access.
+     */
+    @Benchmark
+    public String tokenPairFromJsonThenParameter() {
+        return new TokenPair(tokenResponse).Parameters.get("expires_on");
+    }
+}
@@ -0,0 +1,71 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.microsoft.alm.secret.CompactSecretCodec;
+import com.microsoft.alm.secret.TokenPair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a keyring store spends turning a token pair into the saved string and back, with the XML format the stores
+ * used to write and with {@link CompactSecretCodec}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretCodecBenchmark {
+
+    private TokenPair tokenPair;
+    private String xml;
+    private String compact;
+
+    @Setup
+    public void setUp() {
+        // AAD access tokens are JWTs of 1-2 KB, refresh tokens are around 800 characters
+        tokenPair = new TokenPair(repeat('a', 1500), repeat('r', 800));
+        xml = TokenPair.toXmlString(tokenPair);
+        compact = CompactSecretCodec.TOKEN_PAIR.encode(tokenPair);
+    }
+
+    private static String repeat(final char c, final int count) {
+        final char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Benchmark
+    public String xmlEncode() {
+        return TokenPair.toXmlString(tokenPair);
+    }
+
+    @Benchmark
+    public TokenPair xmlDecode() {
+        return TokenPair.fromXmlString(xml);
+    }
+
+    @Benchmark
+    public String compactEncode() {
+        return CompactSecretCodec.TOKEN_PAIR.encode(tokenPair);
+    }
+
+    @Benchmark
+    public TokenPair compactDecode() {
+        return CompactSecretCodec.TOKEN_PAIR.decode(compact);
+    }
+}
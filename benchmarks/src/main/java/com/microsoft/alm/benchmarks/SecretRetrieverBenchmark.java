@@ -0,0 +1,140 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.microsoft.alm.auth.BaseAuthenticator;
+import com.microsoft.alm.auth.PromptBehavior;
+import com.microsoft.alm.helpers.HttpClient;
+import com.microsoft.alm.helpers.HttpResponse;
+import com.microsoft.alm.helpers.QueryString;
+import com.microsoft.alm.helpers.StringContent;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenPair;
+import com.microsoft.alm.storage.InsecureInMemoryStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The library's own overhead in {@link BaseAuthenticator.SecretRetriever#retrieve}: a store lookup and a
+ * validation request when the token is stored, a token request and a store update when it is not.  The HTTP client
+ * answers from memory, so the network is not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretRetrieverBenchmark {
+
+    private static final String KEY = "git:https://account.visualstudio.com";
+    private static final URI VALIDATION_URI = URI.create("https://account.visualstudio.com/_apis/connectionData");
+    private static final URI TOKEN_URI = URI.create("https://login.microsoftonline.com/common/oauth2/token");
+
+    private InsecureInMemoryStore<Token> store;
+    private BaseAuthenticator.SecretRetriever<Token> retriever;
+
+    @Setup
+    public void setUp() {
+        final HttpClient client = new CannedHttpClient(JsonBenchmark.tokenResponse());
+        store = new InsecureInMemoryStore<Token>();
+        retriever = new BaseAuthenticator.SecretRetriever<Token>() {
+            @Override
+            protected Token doRetrieve() {
+                final QueryString parameters = new QueryString();
+                parameters.put("grant_type", "refresh_token");
+                parameters.put("refresh_token", "refresh");
+                try {
+                    final String response = client.getPostResponseText(TOKEN_URI, StringContent.createUrlEncoded(parameters));
+                    return new TokenPair(response).AccessToken;
+                } catch (final IOException e) {
+                    throw new Error(e);
+                }
+            }
+
+            @Override
+            protected Validation validate(final Token secret, final AtomicReference<Token> secretHolder) {
+                try {
+                    client.getGetResponseText(VALIDATION_URI);
+                    return Validation.VALID;
+                } catch (final IOException e) {
+                    return classify(e);
+                }
+            }
+        };
+        retriever.retrieve(KEY, store, PromptBehavior.AUTO);
+    }
+
+    @Benchmark
+    public Token storedToken() {
+        return retriever.retrieve(KEY, store, PromptBehavior.AUTO);
+    }
+
+    @Benchmark
+    public Token newToken() {
+        store.delete(KEY);
+        return retriever.retrieve(KEY, store, PromptBehavior.AUTO);
+    }
+
+    /**
+     * Answers every GET with an empty object and every POST with the same token response.
+     */
+    static class CannedHttpClient implements HttpClient {
+
+        private final Map<String, String> headers = new LinkedHashMap<String, String>();
+        private final String postResponse;
+
+        CannedHttpClient(final String postResponse) {
+            this.postResponse = postResponse;
+        }
+
+        @Override
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public String getHeaderField(final URI uri, final String header) {
+            return null;
+        }
+
+        @Override
+        public String getGetResponseText(final URI uri) {
+            return "{}";
+        }
+
+        @Override
+        public String getGetResponseText(final URI uri, final int timeout) {
+            return "{}";
+        }
+
+        @Override
+        public String getPostResponseText(final URI uri, final StringContent content) {
+            return postResponse;
+        }
+
+        @Override
+        public HttpResponse getPostResponse(final URI uri, final StringContent content) {
+            final HttpResponse response = new HttpResponse();
+            response.status = 200;
+            response.responseText = postResponse;
+            return response;
+        }
+    }
+}
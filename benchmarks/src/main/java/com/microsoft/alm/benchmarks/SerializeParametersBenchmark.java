@@ -0,0 +1,48 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.microsoft.alm.helpers.QueryString;
+import com.microsoft.alm.helpers.UriHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding the form of a refresh token request, the largest body the library posts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializeParametersBenchmark {
+
+    private QueryString parameters;
+
+    @Setup
+    public void setUp() {
+        parameters = new QueryString();
+        parameters.put("grant_type", "refresh_token");
+        parameters.put("client_id", "872cd9fa-d31f-45e0-9eab-6e460a02d1f1");
+        parameters.put("resource", "499b84ac-1321-427f-aa17-267ca6975798");
+        parameters.put("redirect_uri", "urn:ietf:wg:oauth:2.0:oob");
+        parameters.put("refresh_token", JsonBenchmark.repeat('r', 800));
+    }
+
+    @Benchmark
+    public String serializeParameters() {
+        return UriHelper.serializeParameters(parameters);
+    }
+}
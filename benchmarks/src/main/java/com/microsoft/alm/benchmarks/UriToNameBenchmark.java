@@ -0,0 +1,72 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.microsoft.alm.helpers.StringHelper;
+import com.microsoft.alm.helpers.UriHelper;
+import com.microsoft.alm.secret.Secret;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The uri to key conversion every authenticator call goes through.  Run with {@code -prof gc} to see the
+ * allocations per lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UriToNameBenchmark {
+
+    @Param({"https://account.visualstudio.com/DefaultCollection/_git/repo",
+            "https://dev.azure.com/org/project/_git/repo",
+            "http://tfs.example.com:8080/tfs/DefaultCollection"})
+    public String uri;
+
+    private URI targetUri;
+    private Secret.IUriNameConversion caching;
+
+    @Setup
+    public void setUp() {
+        targetUri = URI.create(uri);
+        caching = new Secret.CachingUriNameConversion();
+        caching.convert(targetUri, "PersonalAccessToken");
+    }
+
+    /**
+     * Baseline: how {@link Secret#uriToName} built names with {@code String.format} and two trimming passes.
+     */
+    @Benchmark
+    public String format() {
+        final String trimmedHostUrl = StringHelper.trimEnd(StringHelper.trimEnd(UriHelper.getFullAccount(targetUri), '/', '\\'));
+        if (targetUri.getPort() == -1) {
+            return String.format("%1$s:%2$s://%3$s", "PersonalAccessToken", targetUri.getScheme(), trimmedHostUrl);
+        }
+        return String.format("%1$s:%2$s://%3$s:%4$s", "PersonalAccessToken", targetUri.getScheme(), trimmedHostUrl, targetUri.getPort());
+    }
+
+    @Benchmark
+    public String uriToName() {
+        return Secret.uriToName(targetUri, "PersonalAccessToken");
+    }
+
+    @Benchmark
+    public String cachingConversion() {
+        return caching.convert(targetUri, "PersonalAccessToken");
+    }
+}
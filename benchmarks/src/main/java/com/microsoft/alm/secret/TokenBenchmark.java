@@ -0,0 +1,66 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The binary form of a {@link Token}, as Credential Manager saves it.  In this package because
+ * {@link Token#serialize} and {@link Token#deserialize} are package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenBenchmark {
+
+    /**
+     * A personal access token, and an AAD access token.
+     */
+    @Param({"52", "1500"})
+    public int length;
+
+    private Token token;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        final char[] chars = new char[length];
+        Arrays.fill(chars, 'a');
+        token = new Token(new String(chars), TokenType.Access);
+        final AtomicReference<byte[]> bytesReference = new AtomicReference<byte[]>();
+        Token.serialize(token, bytesReference);
+        bytes = bytesReference.get();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        final AtomicReference<byte[]> bytesReference = new AtomicReference<byte[]>();
+        Token.serialize(token, bytesReference);
+        return bytesReference.get();
+    }
+
+    @Benchmark
+    public Token deserialize() {
+        final AtomicReference<Token> tokenReference = new AtomicReference<Token>();
+        Token.deserialize(bytes, TokenType.Access, tokenReference);
+        return tokenReference.get();
+    }
+}
@@ -0,0 +1,94 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing the XML file behind the insecure file stores, which is rewritten on every change, with as
+ * many tokens and credentials as {@code entries}.  In this package because the backend is package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsecureFileBackendBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int entries;
+
+    private InsecureFileBackend inMemory;
+    private byte[] xml;
+    private File file;
+    private InsecureFileBackend fileBacked;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        inMemory = new InsecureFileBackend(null);
+        for (int i = 0; i < entries; i++) {
+            inMemory.writeToken("git:https://account" + i + ".visualstudio.com",
+                    new Token("personal-access-token-" + i, TokenType.Personal));
+            inMemory.writeCredential("git:https://tfs" + i + ".example.com",
+                    new Credential("user" + i, "password" + i));
+        }
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        inMemory.toXml(baos);
+        xml = baos.toByteArray();
+
+        file = File.createTempFile("insecureStore", ".xml");
+        final FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(xml);
+        } finally {
+            fos.close();
+        }
+        fileBacked = new InsecureFileBackend(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public byte[] toXml() {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(xml.length);
+        inMemory.toXml(baos);
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public InsecureFileBackend fromXml() {
+        return InsecureFileBackend.fromXml(new ByteArrayInputStream(xml));
+    }
+
+    @Benchmark
+    public void save() {
+        fileBacked.save();
+    }
+}
@@ -0,0 +1,178 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the slow parts of authentication, so that a recording shows what a thread stuck
+ * in {@code HttpURLConnection} or a native keyring call was doing.  They carry the namespace of the key, never the
+ * key or the secret.
+ *
+ * The events are enabled, without stack traces, whenever a recording is running, and cost next to nothing when
+ * none is: create one, {@code begin()} it, and fill it in only if {@code shouldCommit()}.
+ */
+public final class AuthEvents {
+
+    private static final String PREFIX = "com.microsoft.alm.";
+    private static final String CATEGORY = "Java Authentication Library";
+
+    private AuthEvents() {
+    }
+
+    /**
+     * @param key a store key such as {@code git:https://account.visualstudio.com}
+     *
+     * @return the part before the first colon, e.g. {@code git}, or {@code null}
+     */
+    public static String namespaceOf(final String key) {
+        if (key == null) {
+            return null;
+        }
+        final int colon = key.indexOf(':');
+        return colon < 0 ? null : key.substring(0, colon);
+    }
+
+    @Name(PREFIX + "TokenAcquire")
+    @Label("Token Acquire")
+    @Description("Getting a new secret, from the user or an authority")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class TokenAcquire extends Event {
+        @Label("Key Namespace")
+        public String keyNamespace;
+
+        @Label("Backend")
+        @Description("The store the secret is for, or the authority asked for it")
+        public String backend;
+
+        @Label("Status")
+        public String status;
+    }
+
+    @Name(PREFIX + "TokenValidate")
+    @Label("Token Validate")
+    @Description("Checking a stored secret with the server")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class TokenValidate extends Event {
+        @Label("Key Namespace")
+        public String keyNamespace;
+
+        @Label("Backend")
+        @Description("The store the secret came from")
+        public String backend;
+
+        @Label("Status")
+        public String status;
+    }
+
+    @Name(PREFIX + "TokenRefresh")
+    @Label("Token Refresh")
+    @Description("Redeeming a refresh token")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class TokenRefresh extends Event {
+        @Label("Backend")
+        @Description("The authority's host")
+        public String backend;
+
+        @Label("Status")
+        public String status;
+    }
+
+    @Name(PREFIX + "SecretStoreRead")
+    @Label("Secret Store Read")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class SecretStoreRead extends Event {
+        @Label("Key Namespace")
+        public String keyNamespace;
+
+        @Label("Backend")
+        public String backend;
+
+        @Label("Status")
+        public String status;
+
+        /**
+         * Ends the event and commits it, if it is being recorded.
+         *
+         * @param key the key that was read or written, only its namespace is kept
+         */
+        public void finish(final String key, final String backend, final String status) {
+            end();
+            if (shouldCommit()) {
+                this.keyNamespace = namespaceOf(key);
+                this.backend = backend;
+                this.status = status;
+                commit();
+            }
+        }
+    }
+
+    @Name(PREFIX + "SecretStoreWrite")
+    @Label("Secret Store Write")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class SecretStoreWrite extends Event {
+        @Label("Key Namespace")
+        public String keyNamespace;
+
+        @Label("Backend")
+        public String backend;
+
+        @Label("Status")
+        public String status;
+
+        /**
+         * Ends the event and commits it, if it is being recorded.
+         *
+         * @param key the key that was read or written, only its namespace is kept
+         */
+        public void finish(final String key, final String backend, final String status) {
+            end();
+            if (shouldCommit()) {
+                this.keyNamespace = namespaceOf(key);
+                this.backend = backend;
+                this.status = status;
+                commit();
+            }
+        }
+    }
+
+    @Name(PREFIX + "DeviceFlowPoll")
+    @Label("Device Flow Poll")
+    @Description("One request to the token endpoint while waiting for the user to enter the device code")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class DeviceFlowPoll extends Event {
+        @Label("Host")
+        public String host;
+
+        @Label("Status")
+        public String status;
+    }
+
+    @Name(PREFIX + "HttpRequest")
+    @Label("HTTP Request")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class HttpRequest extends Event {
+        @Label("Method")
+        public String method;
+
+        @Label("Host")
+        public String host;
+
+        @Label("Status")
+        @Description("The HTTP status code, or what the request failed with")
+        public String status;
+    }
+}
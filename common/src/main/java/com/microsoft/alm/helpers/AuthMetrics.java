@@ -0,0 +1,77 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+/**
+ * Receives measurements from the authentication flows: how long each phase took, whether stores had the secret,
+ * how refreshes went and what failed.  Install an implementation with {@link AuthMetricsProvider#set}; the default
+ * one, {@link NoOpAuthMetrics}, drops everything.
+ *
+ * Implementations are called on the authenticating threads and must be thread-safe and quick.
+ */
+public interface AuthMetrics {
+
+    /**
+     * Reading a secret from a store; the source is the store's class.
+     */
+    String STORE_READ = "store.read";
+    /**
+     * Writing a secret to a store; the source is the store's class.
+     */
+    String STORE_WRITE = "store.write";
+    /**
+     * Persisting a whole store, e.g. rewriting its file; the source is the store's class.
+     */
+    String STORE_SAVE = "store.save";
+    /**
+     * Validating a stored secret with the server; the source is the store's class.
+     */
+    String VALIDATE = "validate";
+    /**
+     * Getting a new secret, e.g. by prompting the user; the source is the store's class.
+     */
+    String RETRIEVE = "retrieve";
+    /**
+     * Redeeming a refresh token; the source is the authority's host.
+     */
+    String REFRESH = "refresh";
+    /**
+     * Requesting tokens from the token endpoint; the source is the authority's host.
+     */
+    String ACQUIRE_TOKEN = "authority.token";
+    /**
+     * Creating a personal access token; the source is the account's host.
+     */
+    String GENERATE_PAT = "authority.pat";
+    /**
+     * An HTTP request; the source is the host.
+     */
+    String HTTP = "http";
+
+    /**
+     * @param phase  one of the phases above, or another name
+     * @param source what the phase ran against, e.g. a store class or a host, may be {@code null}
+     * @param nanos  how long the phase took
+     */
+    void recordLatency(final String phase, final String source, final long nanos);
+
+    /**
+     * @param source the store that was read
+     * @param hit    {@code true} if it had a secret for the key
+     */
+    void recordLookup(final String source, final boolean hit);
+
+    /**
+     * @param source    the authority that was asked
+     * @param succeeded {@code true} if a new token pair came back
+     */
+    void recordRefresh(final String source, final boolean succeeded);
+
+    /**
+     * @param phase  the phase that failed
+     * @param source what the phase ran against, may be {@code null}
+     * @param error  what it failed with
+     */
+    void recordError(final String phase, final String source, final Throwable error);
+}
@@ -0,0 +1,39 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+/**
+ * Holds the {@link AuthMetrics} the library reports to.
+ */
+public final class AuthMetricsProvider {
+
+    private static volatile AuthMetrics metrics = NoOpAuthMetrics.INSTANCE;
+
+    private AuthMetricsProvider() {
+    }
+
+    public static AuthMetrics get() {
+        return metrics;
+    }
+
+    /**
+     * @param authMetrics where measurements go from now on, {@code null} to stop recording them
+     */
+    public static void set(final AuthMetrics authMetrics) {
+        metrics = authMetrics == null ? NoOpAuthMetrics.INSTANCE : authMetrics;
+    }
+
+    /**
+     * @return a name for what a phase ran against, e.g. the class of a store
+     */
+    public static String sourceOf(final Object object) {
+        if (object == null) {
+            return null;
+        }
+        final Class<?> type = object.getClass();
+        final String simpleName = type.getSimpleName();
+        // anonymous classes have no simple name
+        return simpleName.isEmpty() ? type.getName() : simpleName;
+    }
+}
@@ -0,0 +1,286 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * An {@link HttpClient} decorator that makes the network worse on purpose, to see how timeouts, retries, caching
+ * and token refresh cope with slow or flaky identity endpoints.
+ *
+ * Each request is matched against the {@link Rule}s in order and the first one whose pattern is found in
+ * {@code host + path} (e.g. {@code login.microsoftonline.com/common/oauth2/token}) decides what happens to it:
+ * <ol>
+ *     <li>it is delayed by the rule's {@link Latency}, then</li>
+ *     <li>it may fail with a {@link SocketException} as if the connection had been reset, or</li>
+ *     <li>it may be answered with the rule's status code without reaching the delegate, or</li>
+ *     <li>it is sent, and the response body may be cut short.</li>
+ * </ol>
+ *
+ * All the dice are thrown with one {@link Random}, so a run that makes its requests one at a time injects the same
+ * faults every time it is given the same seed.  The asynchronous methods are the {@link HttpClient} defaults, which
+ * call the blocking ones, so they see the same faults.
+ */
+public class ChaosHttpClient implements HttpClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChaosHttpClient.class);
+
+    public enum Fault {
+        LATENCY,
+        CONNECTION_RESET,
+        STATUS,
+        PARTIAL_BODY
+    }
+
+    /**
+     * How long a request is held up before it is sent.
+     */
+    public abstract static class Latency {
+
+        public abstract long nextMilliseconds(final Random random);
+
+        public static Latency fixed(final long milliseconds) {
+            return uniform(milliseconds, milliseconds);
+        }
+
+        /**
+         * @return delays spread evenly between {@code minMilliseconds} and {@code maxMilliseconds}, inclusive
+         */
+        public static Latency uniform(final long minMilliseconds, final long maxMilliseconds) {
+            Debug.Assert(minMilliseconds >= 0 && minMilliseconds <= maxMilliseconds, "invalid latency range");
+
+            return new Latency() {
+                @Override
+                public long nextMilliseconds(final Random random) {
+                    if (minMilliseconds == maxMilliseconds) {
+                        return minMilliseconds;
+                    }
+                    return minMilliseconds + (long) (random.nextDouble() * (maxMilliseconds - minMilliseconds + 1));
+                }
+            };
+        }
+
+        /**
+         * @return delays of {@code baseMilliseconds} plus an exponentially distributed part averaging
+         *         {@code meanExtraMilliseconds}, i.e. mostly quick with a long tail
+         */
+        public static Latency exponential(final long baseMilliseconds, final long meanExtraMilliseconds) {
+            Debug.Assert(baseMilliseconds >= 0 && meanExtraMilliseconds >= 0, "invalid latency");
+
+            return new Latency() {
+                @Override
+                public long nextMilliseconds(final Random random) {
+                    return baseMilliseconds + (long) (-meanExtraMilliseconds * Math.log(1 - random.nextDouble()));
+                }
+            };
+        }
+    }
+
+    /**
+     * What to do to the requests whose {@code host + path} contains a match for a regular expression.
+     * Rates are probabilities between 0 and 1.
+     */
+    public static final class Rule {
+        private final Pattern pattern;
+        private Latency latency;
+        private double connectionResetRate;
+        private double statusRate;
+        private int status;
+        private String retryAfter;
+        private double partialBodyRate;
+        private final Map<Fault, AtomicLong> injected = new EnumMap<Fault, AtomicLong>(Fault.class);
+
+        public Rule(final String regex) {
+            this.pattern = Pattern.compile(regex);
+            for (final Fault fault : Fault.values()) {
+                injected.put(fault, new AtomicLong());
+            }
+        }
+
+        public Rule withLatency(final Latency latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        public Rule withConnectionResets(final double rate) {
+            this.connectionResetRate = rate;
+            return this;
+        }
+
+        /**
+         * @param status     e.g. 429, 500 or 503
+         * @param rate       the fraction of requests answered with it
+         * @param retryAfter the {@code Retry-After} header to send along, or {@code null}
+         */
+        public Rule withStatus(final int status, final double rate, final String retryAfter) {
+            this.status = status;
+            this.statusRate = rate;
+            this.retryAfter = retryAfter;
+            return this;
+        }
+
+        public Rule withPartialBodies(final double rate) {
+            this.partialBodyRate = rate;
+            return this;
+        }
+
+        /**
+         * @return how many times this rule injected {@code fault}, in all the clients it was given to.
+         */
+        public long getInjectedCount(final Fault fault) {
+            return injected.get(fault).get();
+        }
+
+        boolean matches(final URI uri) {
+            final String path = uri.getPath() == null ? "" : uri.getPath();
+            return pattern.matcher(uri.getHost() + path).find();
+        }
+    }
+
+    private final HttpClient delegate;
+    private final Random random;
+    private final List<Rule> rules;
+
+    public ChaosHttpClient(final HttpClient delegate, final long seed, final List<Rule> rules) {
+        this(delegate, new Random(seed), rules);
+    }
+
+    /**
+     * @param delegate the client that sends the requests that get through.
+     * @param random   the source of all the faults, which may be shared by several clients.
+     * @param rules    the first rule matching a request applies to it; requests matching none are left alone.
+     */
+    public ChaosHttpClient(final HttpClient delegate, final Random random, final List<Rule> rules) {
+        Debug.Assert(delegate != null, "delegate cannot be null");
+        Debug.Assert(random != null, "random cannot be null");
+        Debug.Assert(rules != null, "rules cannot be null");
+
+        this.delegate = delegate;
+        this.random = random;
+        this.rules = Collections.unmodifiableList(new ArrayList<Rule>(rules));
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return delegate.getHeaders();
+    }
+
+    @Override
+    public String getHeaderField(final URI uri, final String header) throws IOException {
+        beforeSending(uri, findRule(uri));
+        return delegate.getHeaderField(uri, header);
+    }
+
+    @Override
+    public String getGetResponseText(final URI uri) throws IOException {
+        final Rule rule = findRule(uri);
+        beforeSending(uri, rule);
+        return truncate(uri, rule, delegate.getGetResponseText(uri));
+    }
+
+    @Override
+    public String getGetResponseText(final URI uri, final int timeout) throws IOException {
+        final Rule rule = findRule(uri);
+        beforeSending(uri, rule);
+        return truncate(uri, rule, delegate.getGetResponseText(uri, timeout));
+    }
+
+    @Override
+    public String getPostResponseText(final URI uri, final StringContent content) throws IOException {
+        final Rule rule = findRule(uri);
+        beforeSending(uri, rule);
+        return truncate(uri, rule, delegate.getPostResponseText(uri, content));
+    }
+
+    @Override
+    public HttpResponse getPostResponse(final URI uri, final StringContent content) throws IOException {
+        final Rule rule = findRule(uri);
+        try {
+            beforeSending(uri, rule);
+        }
+        catch (final HttpStatusException e) {
+            // this method reports unsuccessful statuses instead of throwing
+            final HttpResponse response = new HttpResponse();
+            response.status = e.getStatusCode();
+            response.errorText = e.getMessage();
+            response.retryAfter = e.getRetryAfter();
+            return response;
+        }
+        final HttpResponse response = delegate.getPostResponse(uri, content);
+        response.responseText = truncate(uri, rule, response.responseText);
+        return response;
+    }
+
+    private Rule findRule(final URI uri) {
+        for (final Rule rule : rules) {
+            if (rule.matches(uri)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Delays the request, then throws if it is to fail before it reaches the delegate.
+     */
+    private void beforeSending(final URI uri, final Rule rule) throws IOException {
+        if (rule == null) {
+            return;
+        }
+        if (rule.latency != null) {
+            final long delay = rule.latency.nextMilliseconds(random);
+            if (delay > 0) {
+                inject(rule, Fault.LATENCY, uri);
+                try {
+                    Thread.sleep(delay);
+                }
+                catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while delaying the request to " + uri);
+                }
+            }
+        }
+        if (chance(rule.connectionResetRate)) {
+            inject(rule, Fault.CONNECTION_RESET, uri);
+            throw new SocketException("Connection reset");
+        }
+        if (chance(rule.statusRate)) {
+            inject(rule, Fault.STATUS, uri);
+            final String template = "HTTP request failed with code %1$d: %2$s";
+            final String message = String.format(template, rule.status, "injected by " + ChaosHttpClient.class.getSimpleName());
+            throw new HttpStatusException(message, rule.status, rule.retryAfter);
+        }
+    }
+
+    private String truncate(final URI uri, final Rule rule, final String body) {
+        if (rule == null || body == null || body.isEmpty() || !chance(rule.partialBodyRate)) {
+            return body;
+        }
+        inject(rule, Fault.PARTIAL_BODY, uri);
+        return body.substring(0, random.nextInt(body.length()));
+    }
+
+    private boolean chance(final double rate) {
+        return rate > 0 && random.nextDouble() < rate;
+    }
+
+    private static void inject(final Rule rule, final Fault fault, final URI uri) {
+        rule.injected.get(fault).incrementAndGet();
+        logger.debug("Injecting {} into the request to {}.", fault, uri);
+    }
+}
@@ -0,0 +1,161 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks consecutive failures per host and, once a host has failed too many times in a row,
+ * rejects requests to it for a while instead of letting every caller wait for its own timeout.
+ *
+ * After the open period, a single probe request is let through (HALF_OPEN); its outcome
+ * either closes the circuit again or re-opens it for another period.
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final ConcurrentMap<String, HostCircuit> circuits = new ConcurrentHashMap<String, HostCircuit>();
+
+    /**
+     * @param failureThreshold  how many consecutive failures open the circuit for a host.
+     * @param openMilliseconds  how long requests to that host are rejected before a probe is attempted.
+     */
+    public CircuitBreaker(final int failureThreshold, final long openMilliseconds) {
+        Debug.Assert(failureThreshold > 0, "failureThreshold must be positive");
+
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMilliseconds);
+    }
+
+    /**
+     * Must be called before sending a request to {@code host}.
+     *
+     * @param host the host the request is about to be sent to.
+     * @throws CircuitBreakerOpenException if requests to {@code host} are currently being rejected.
+     */
+    public void beforeRequest(final String host) throws CircuitBreakerOpenException {
+        final HostCircuit circuit = getCircuit(host);
+        synchronized (circuit) {
+            if (circuit.state == State.CLOSED) {
+                return;
+            }
+            final long now = System.nanoTime();
+            if (circuit.state == State.OPEN && now - circuit.openedAtNanos >= openNanos) {
+                circuit.state = State.HALF_OPEN;
+                circuit.probeInFlight = false;
+            }
+            if (circuit.state == State.HALF_OPEN && !circuit.probeInFlight) {
+                circuit.probeInFlight = true;
+                logger.debug("Sending a probe request to {}.", host);
+                return;
+            }
+        }
+        throw new CircuitBreakerOpenException(host);
+    }
+
+    /**
+     * Records that the server for {@code host} answered (any status below 500 counts).
+     *
+     * @param host the host that answered.
+     */
+    public void onSuccess(final String host) {
+        final HostCircuit circuit = getCircuit(host);
+        synchronized (circuit) {
+            if (circuit.state != State.CLOSED) {
+                logger.info("Requests to {} are succeeding again; closing the circuit.", host);
+            }
+            circuit.state = State.CLOSED;
+            circuit.consecutiveFailures = 0;
+            circuit.probeInFlight = false;
+        }
+    }
+
+    /**
+     * Records that a request to {@code host} failed at the transport level or with a 5xx status.
+     *
+     * @param host the host that failed.
+     */
+    public void onFailure(final String host) {
+        final HostCircuit circuit = getCircuit(host);
+        synchronized (circuit) {
+            circuit.consecutiveFailures++;
+            if (circuit.state == State.HALF_OPEN || circuit.consecutiveFailures >= failureThreshold) {
+                if (circuit.state != State.OPEN) {
+                    logger.warn("{} consecutive failures from {}; rejecting requests for {} ms.", circuit.consecutiveFailures, host, TimeUnit.NANOSECONDS.toMillis(openNanos));
+                }
+                circuit.state = State.OPEN;
+                circuit.openedAtNanos = System.nanoTime();
+                circuit.probeInFlight = false;
+            }
+        }
+    }
+
+    /**
+     * Records that a request to {@code host} was given up on, e.g. because the caller was interrupted,
+     * so it says nothing about the host.  If it was the probe, another request may probe instead.
+     *
+     * @param host the host the request was sent to.
+     */
+    public void onAbandoned(final String host) {
+        final HostCircuit circuit = getCircuit(host);
+        synchronized (circuit) {
+            if (circuit.state == State.HALF_OPEN) {
+                circuit.probeInFlight = false;
+            }
+        }
+    }
+
+    /**
+     * @param host the host to inspect.
+     * @return     the current state of the circuit for {@code host}.
+     */
+    public State getState(final String host) {
+        final HostCircuit circuit = circuits.get(normalize(host));
+        if (circuit == null) {
+            return State.CLOSED;
+        }
+        synchronized (circuit) {
+            return circuit.state;
+        }
+    }
+
+    private static String normalize(final String host) {
+        return host == null ? "" : host.toLowerCase(Locale.ROOT);
+    }
+
+    private HostCircuit getCircuit(final String host) {
+        final String key = normalize(host);
+        HostCircuit circuit = circuits.get(key);
+        if (circuit == null) {
+            final HostCircuit candidate = new HostCircuit();
+            circuit = circuits.putIfAbsent(key, candidate);
+            if (circuit == null) {
+                circuit = candidate;
+            }
+        }
+        return circuit;
+    }
+
+    private static final class HostCircuit {
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAtNanos;
+        private boolean probeInFlight;
+    }
+}
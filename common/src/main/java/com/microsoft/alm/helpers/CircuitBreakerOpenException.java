@@ -0,0 +1,23 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request when the {@link CircuitBreaker} for its host is open.
+ */
+public class CircuitBreakerOpenException extends IOException {
+
+    private final String host;
+
+    public CircuitBreakerOpenException(final String host) {
+        super(String.format("Requests to %1$s are temporarily suspended after repeated failures.", host));
+        this.host = host;
+    }
+
+    public String getHost() {
+        return host;
+    }
+}
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface HttpClient {
 
@@ -57,4 +58,53 @@ public interface HttpClient {
      * @throws IOException
      */
     HttpResponse getPostResponse(URI uri, StringContent content) throws IOException;
+
+    /**
+     * Asynchronous version of {@link #getGetResponseText(URI)}.
+     *
+     * The default implementation makes the blocking call on the calling thread and returns a completed future;
+     * implementations with a non-blocking transport, such as {@link JdkHttpClientImpl}, override it.
+     *
+     * @param uri target uri
+     * @return a future completed with the response, or exceptionally with the {@link IOException}
+     */
+    default CompletableFuture<String> getGetResponseTextAsync(final URI uri) {
+        try {
+            return CompletableFuture.completedFuture(getGetResponseText(uri));
+        } catch (final IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Asynchronous version of {@link #getPostResponseText(URI, StringContent)}.
+     *
+     * @param uri target uri
+     * @param content the body to post
+     * @return a future completed with the response, or exceptionally with the {@link IOException}
+     * @see #getGetResponseTextAsync(URI)
+     */
+    default CompletableFuture<String> getPostResponseTextAsync(final URI uri, final StringContent content) {
+        try {
+            return CompletableFuture.completedFuture(getPostResponseText(uri, content));
+        } catch (final IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Asynchronous version of {@link #getPostResponse(URI, StringContent)}.
+     *
+     * @param uri target uri
+     * @param content the body to post
+     * @return a future completed with the response, whatever its status
+     * @see #getGetResponseTextAsync(URI)
+     */
+    default CompletableFuture<HttpResponse> getPostResponseAsync(final URI uri, final StringContent content) {
+        try {
+            return CompletableFuture.completedFuture(getPostResponse(uri, content));
+        } catch (final IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
@@ -20,6 +20,8 @@ public class HttpClientImpl implements HttpClient {
 
     private static final Logger logger = LoggerFactory.getLogger(HttpClientImpl.class);
 
+    static final String RETRY_AFTER = "Retry-After";
+
     public final Map<String, String> Headers = new LinkedHashMap<String, String>();
 
     public HttpClientImpl(final String userAgent) {
@@ -38,7 +40,7 @@ public class HttpClientImpl implements HttpClient {
                 }
                 final String template = "HTTP request failed with code %1$d: %2$s";
                 final String message = String.format(template, statusCode, content);
-                throw new IOException(message);
+                throw new HttpStatusException(message, statusCode, connection.getHeaderField(RETRY_AFTER));
             } finally {
                 IOHelper.closeQuietly(errorStream);
             }
@@ -124,9 +126,18 @@ public class HttpClientImpl implements HttpClient {
     }
 
     private String getHeaderField(URI uri, String header, Action<HttpURLConnection> interceptor) throws IOException {
-        final HttpURLConnection connection = this.head(uri, interceptor);
+        final long start = System.nanoTime();
+        final AuthEvents.HttpRequest event = new AuthEvents.HttpRequest();
+        event.begin();
+        try {
+            final HttpURLConnection connection = this.head(uri, interceptor);
 
-        return connection.getHeaderField(header);
+            return connection.getHeaderField(header);
+        } catch (final IOException e) {
+            throw recordFailure(uri, e, event);
+        } finally {
+            recordRequest("HEAD", uri, start, event);
+        }
     }
 
     private HttpURLConnection get(final URI uri) throws IOException {
@@ -142,23 +153,41 @@ public class HttpClientImpl implements HttpClient {
 
     @Override
     public String getGetResponseText(URI uri) throws IOException {
-        final HttpURLConnection response = this.get(uri);
-        this.ensureOK(response);
+        final long start = System.nanoTime();
+        final AuthEvents.HttpRequest event = new AuthEvents.HttpRequest();
+        event.begin();
+        try {
+            final HttpURLConnection response = this.get(uri);
+            this.ensureOK(response);
 
-        return readToString(response);
+            return readToString(response);
+        } catch (final IOException e) {
+            throw recordFailure(uri, e, event);
+        } finally {
+            recordRequest("GET", uri, start, event);
+        }
     }
 
     @Override
     public String getGetResponseText(URI uri, final int timeout) throws IOException {
-        final HttpURLConnection response = this.get(uri, new Action<HttpURLConnection>() {
-            @Override
-            public void call(HttpURLConnection httpURLConnection) {
-                httpURLConnection.setConnectTimeout(timeout);
-            }
-        });
-        this.ensureOK(response);
+        final long start = System.nanoTime();
+        final AuthEvents.HttpRequest event = new AuthEvents.HttpRequest();
+        event.begin();
+        try {
+            final HttpURLConnection response = this.get(uri, new Action<HttpURLConnection>() {
+                @Override
+                public void call(HttpURLConnection httpURLConnection) {
+                    httpURLConnection.setConnectTimeout(timeout);
+                }
+            });
+            this.ensureOK(response);
 
-        return readToString(response);
+            return readToString(response);
+        } catch (final IOException e) {
+            throw recordFailure(uri, e, event);
+        } finally {
+            recordRequest("GET", uri, start, event);
+        }
     }
 
     private HttpURLConnection post(final URI uri, final StringContent content) throws IOException {
@@ -182,25 +211,67 @@ public class HttpClientImpl implements HttpClient {
 
     @Override
     public String getPostResponseText(URI uri, StringContent content) throws IOException {
-        final HttpURLConnection response = this.post(uri, content);
-        this.ensureOK(response);
+        final long start = System.nanoTime();
+        final AuthEvents.HttpRequest event = new AuthEvents.HttpRequest();
+        event.begin();
+        try {
+            final HttpURLConnection response = this.post(uri, content);
+            this.ensureOK(response);
 
-        return readToString(response);
+            return readToString(response);
+        } catch (final IOException e) {
+            throw recordFailure(uri, e, event);
+        } finally {
+            recordRequest("POST", uri, start, event);
+        }
     }
 
     @Override
     public HttpResponse getPostResponse(URI uri, StringContent content) throws IOException {
-        final HttpResponse response = new HttpResponse();
-        final HttpURLConnection conn = this.post(uri, content);
-
-        response.status = conn.getResponseCode();
-        if (isSuccessful(response.status)) {
-            response.responseText = readToString(conn);
-        } else {
-            response.errorText = readErrorToString(conn);
+        final long start = System.nanoTime();
+        final AuthEvents.HttpRequest event = new AuthEvents.HttpRequest();
+        event.begin();
+        try {
+            final HttpResponse response = new HttpResponse();
+            final HttpURLConnection conn = this.post(uri, content);
+
+            response.status = conn.getResponseCode();
+            event.status = Integer.toString(response.status);
+            if (isSuccessful(response.status)) {
+                response.responseText = readToString(conn);
+            } else {
+                response.errorText = readErrorToString(conn);
+                response.retryAfter = conn.getHeaderField(RETRY_AFTER);
+            }
+
+            return response;
+        } catch (final IOException e) {
+            throw recordFailure(uri, e, event);
+        } finally {
+            recordRequest("POST", uri, start, event);
         }
+    }
+
+    private static void recordRequest(final String method, final URI uri, final long start,
+                                      final AuthEvents.HttpRequest event) {
+        AuthMetricsProvider.get().recordLatency(AuthMetrics.HTTP, uri.getHost(), System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.method = method;
+            event.host = uri.getHost();
+            if (event.status == null) {
+                event.status = "OK";
+            }
+            event.commit();
+        }
+    }
 
-        return response;
+    private static IOException recordFailure(final URI uri, final IOException e, final AuthEvents.HttpRequest event) {
+        AuthMetricsProvider.get().recordError(AuthMetrics.HTTP, uri.getHost(), e);
+        event.status = e instanceof HttpStatusException
+                ? Integer.toString(((HttpStatusException) e).getStatusCode())
+                : e.getClass().getSimpleName();
+        return e;
     }
 
     private boolean isSuccessful(final int statusCode) {
@@ -10,4 +10,6 @@ public class HttpResponse {
     public int status;
     public String responseText;
     public String errorText;
+    /** The {@code Retry-After} header of an unsuccessful response, if any. */
+    public String retryAfter;
 }
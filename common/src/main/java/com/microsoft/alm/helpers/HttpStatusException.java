@@ -0,0 +1,34 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link HttpClient} methods when the server answered with an unexpected status code,
+ * so that callers (and decorators such as {@link RateLimitedHttpClient}) can react to the status
+ * and the {@code Retry-After} header instead of parsing the message.
+ */
+public class HttpStatusException extends IOException {
+
+    private final int statusCode;
+    private final String retryAfter;
+
+    public HttpStatusException(final String message, final int statusCode, final String retryAfter) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return the raw value of the {@code Retry-After} response header, or {@code null} if the server did not send one.
+     */
+    public String getRetryAfter() {
+        return retryAfter;
+    }
+}
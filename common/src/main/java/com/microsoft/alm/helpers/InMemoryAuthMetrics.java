@@ -0,0 +1,187 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the measurements in memory: a {@link LatencyHistogram} per phase and source, hit and miss counts per store,
+ * refresh outcomes per authority and error counts per phase and error type.
+ *
+ * {@link #toString()} lists everything, e.g. for logging on shutdown.
+ */
+public class InMemoryAuthMetrics implements AuthMetrics {
+
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> latencies
+            = new ConcurrentHashMap<String, ConcurrentMap<String, LatencyHistogram>>();
+    private final ConcurrentMap<String, Outcomes> lookups = new ConcurrentHashMap<String, Outcomes>();
+    private final ConcurrentMap<String, Outcomes> refreshes = new ConcurrentHashMap<String, Outcomes>();
+    private final ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> errors
+            = new ConcurrentHashMap<String, ConcurrentMap<String, AtomicLong>>();
+
+    @Override
+    public void recordLatency(final String phase, final String source, final long nanos) {
+        getHistogram(getSources(latencies, phase), normalize(source)).record(nanos);
+    }
+
+    @Override
+    public void recordLookup(final String source, final boolean hit) {
+        getOutcomes(lookups, normalize(source)).record(hit);
+    }
+
+    @Override
+    public void recordRefresh(final String source, final boolean succeeded) {
+        getOutcomes(refreshes, normalize(source)).record(succeeded);
+    }
+
+    @Override
+    public void recordError(final String phase, final String source, final Throwable error) {
+        final String type = error == null ? "" : error.getClass().getName();
+        ConcurrentMap<String, AtomicLong> byType = errors.get(phase);
+        if (byType == null) {
+            final ConcurrentMap<String, AtomicLong> candidate = new ConcurrentHashMap<String, AtomicLong>();
+            byType = ObjectExtensions.coalesce(errors.putIfAbsent(phase, candidate), candidate);
+        }
+        AtomicLong counter = byType.get(type);
+        if (counter == null) {
+            final AtomicLong candidate = new AtomicLong();
+            counter = ObjectExtensions.coalesce(byType.putIfAbsent(type, candidate), candidate);
+        }
+        counter.incrementAndGet();
+    }
+
+    /**
+     * @return the latencies of {@code phase} against {@code source}, or {@code null} if none were recorded
+     */
+    public LatencyHistogram getLatency(final String phase, final String source) {
+        final ConcurrentMap<String, LatencyHistogram> bySource = latencies.get(phase);
+        return bySource == null ? null : bySource.get(normalize(source));
+    }
+
+    /**
+     * @return the lookups of the store {@code source}, or {@code null} if none were recorded
+     */
+    public Outcomes getLookups(final String source) {
+        return lookups.get(normalize(source));
+    }
+
+    /**
+     * @return the refreshes against {@code source}, or {@code null} if none were recorded
+     */
+    public Outcomes getRefreshes(final String source) {
+        return refreshes.get(normalize(source));
+    }
+
+    /**
+     * @return how many times {@code phase} failed, whatever with
+     */
+    public long getErrorCount(final String phase) {
+        final ConcurrentMap<String, AtomicLong> byType = errors.get(phase);
+        long total = 0;
+        if (byType != null) {
+            for (final AtomicLong counter : byType.values()) {
+                total += counter.get();
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (final Map.Entry<String, ConcurrentMap<String, LatencyHistogram>> phase : sorted(latencies).entrySet()) {
+            for (final Map.Entry<String, LatencyHistogram> source : sorted(phase.getValue()).entrySet()) {
+                sb.append("latency ").append(phase.getKey()).append(' ').append(source.getKey())
+                        .append(": ").append(source.getValue()).append('\n');
+            }
+        }
+        for (final Map.Entry<String, Outcomes> source : sorted(lookups).entrySet()) {
+            sb.append("lookups ").append(source.getKey()).append(": ").append(source.getValue()).append('\n');
+        }
+        for (final Map.Entry<String, Outcomes> source : sorted(refreshes).entrySet()) {
+            sb.append("refreshes ").append(source.getKey()).append(": ").append(source.getValue()).append('\n');
+        }
+        for (final Map.Entry<String, ConcurrentMap<String, AtomicLong>> phase : sorted(errors).entrySet()) {
+            for (final Map.Entry<String, AtomicLong> type : sorted(phase.getValue()).entrySet()) {
+                sb.append("errors ").append(phase.getKey()).append(' ').append(type.getKey())
+                        .append(": ").append(type.getValue().get()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String normalize(final String source) {
+        return source == null ? "" : source;
+    }
+
+    private static <V> TreeMap<String, V> sorted(final Map<String, V> map) {
+        return new TreeMap<String, V>(map);
+    }
+
+    private static ConcurrentMap<String, LatencyHistogram> getSources(
+            final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> map, final String key) {
+        ConcurrentMap<String, LatencyHistogram> value = map.get(key);
+        if (value == null) {
+            final ConcurrentMap<String, LatencyHistogram> candidate = new ConcurrentHashMap<String, LatencyHistogram>();
+            value = ObjectExtensions.coalesce(map.putIfAbsent(key, candidate), candidate);
+        }
+        return value;
+    }
+
+    private static LatencyHistogram getHistogram(final ConcurrentMap<String, LatencyHistogram> map, final String key) {
+        LatencyHistogram value = map.get(key);
+        if (value == null) {
+            final LatencyHistogram candidate = new LatencyHistogram();
+            value = ObjectExtensions.coalesce(map.putIfAbsent(key, candidate), candidate);
+        }
+        return value;
+    }
+
+    private static Outcomes getOutcomes(final ConcurrentMap<String, Outcomes> map, final String key) {
+        Outcomes value = map.get(key);
+        if (value == null) {
+            final Outcomes candidate = new Outcomes();
+            value = ObjectExtensions.coalesce(map.putIfAbsent(key, candidate), candidate);
+        }
+        return value;
+    }
+
+    /**
+     * Counts of something that either works out or not, e.g. a store lookup that hits or misses.
+     */
+    public static final class Outcomes {
+        private final AtomicLong positive = new AtomicLong();
+        private final AtomicLong negative = new AtomicLong();
+
+        void record(final boolean outcome) {
+            (outcome ? positive : negative).incrementAndGet();
+        }
+
+        public long getPositive() {
+            return positive.get();
+        }
+
+        public long getNegative() {
+            return negative.get();
+        }
+
+        /**
+         * @return the share of positive outcomes, e.g. the hit ratio of a store
+         */
+        public double getRatio() {
+            final long p = positive.get();
+            final long total = p + negative.get();
+            return total == 0 ? 0 : (double) p / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d/%d (%.1f%%)", getPositive(), getPositive() + getNegative(), 100 * getRatio());
+        }
+    }
+}
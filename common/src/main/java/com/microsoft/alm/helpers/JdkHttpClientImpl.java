@@ -0,0 +1,189 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * An {@link HttpClient} built on {@link java.net.http.HttpClient}.
+ *
+ * All instances share the same underlying client, and therefore the same connection pool, so
+ * requests to the same host are multiplexed over HTTP/2 connections where the server supports it.
+ * The async methods do not hold a thread while waiting for the server.
+ */
+public class JdkHttpClientImpl implements HttpClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdkHttpClientImpl.class);
+
+    /**
+     * Headers the JDK client computes itself and refuses to have set.
+     */
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<String>(Arrays.asList(
+            "connection", "content-length", "expect", "host", "upgrade"));
+
+    public final Map<String, String> Headers = new LinkedHashMap<String, String>();
+
+    public JdkHttpClientImpl(final String userAgent) {
+        Headers.put("User-Agent", userAgent);
+    }
+
+    /**
+     * Initialization-on-demand holder: the clients are only built the first time a request is made.
+     * GETs follow redirects (like {@link HttpURLConnection}), HEADs do not, see {@link HttpClientImpl#getHeaderField}.
+     */
+    private static final class SharedClients {
+        static final java.net.http.HttpClient FOLLOW_REDIRECTS = build(java.net.http.HttpClient.Redirect.NORMAL);
+        static final java.net.http.HttpClient NO_REDIRECTS = build(java.net.http.HttpClient.Redirect.NEVER);
+
+        private static java.net.http.HttpClient build(final java.net.http.HttpClient.Redirect redirect) {
+            return java.net.http.HttpClient.newBuilder()
+                    .version(java.net.http.HttpClient.Version.HTTP_2)
+                    .followRedirects(redirect)
+                    // honours http.proxyHost & friends, like HttpURLConnection
+                    .proxy(ProxySelector.getDefault())
+                    .build();
+        }
+    }
+
+    private HttpRequest.Builder createRequest(final URI uri) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(uri);
+        copyHeaders(Headers, builder);
+        return builder;
+    }
+
+    private static void copyHeaders(final Map<String, String> headers, final HttpRequest.Builder builder) {
+        for (final Map.Entry<String, String> entry : headers.entrySet()) {
+            if (!RESTRICTED_HEADERS.contains(entry.getKey().toLowerCase())) {
+                builder.setHeader(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private HttpRequest get(final URI uri, final int timeout) {
+        final HttpRequest.Builder builder = createRequest(uri).GET();
+        if (timeout > 0) {
+            builder.timeout(Duration.ofMillis(timeout));
+        }
+        return builder.build();
+    }
+
+    private HttpRequest post(final URI uri, final StringContent content) {
+        final HttpRequest.Builder builder = createRequest(uri);
+        copyHeaders(content.Headers, builder);
+        return builder.POST(HttpRequest.BodyPublishers.ofByteArray(content.getBytes())).build();
+    }
+
+    private static <T> java.net.http.HttpResponse<T> send(final java.net.http.HttpClient client, final HttpRequest request, final java.net.http.HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+        try {
+            return client.send(request, bodyHandler);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + request.uri());
+        }
+    }
+
+    private static String ensureOK(final java.net.http.HttpResponse<String> response) throws HttpStatusException {
+        final int statusCode = response.statusCode();
+        if (statusCode != HttpURLConnection.HTTP_OK) {
+            final String template = "HTTP request failed with code %1$d: %2$s";
+            final String message = String.format(template, statusCode, response.body());
+            throw new HttpStatusException(message, statusCode, response.headers().firstValue(HttpClientImpl.RETRY_AFTER).orElse(null));
+        }
+        return response.body();
+    }
+
+    private static HttpResponse toHttpResponse(final java.net.http.HttpResponse<String> response) {
+        final HttpResponse result = new HttpResponse();
+        result.status = response.statusCode();
+        if (result.status > 199 && result.status < 300) {
+            result.responseText = response.body();
+        } else {
+            result.errorText = response.body();
+            result.retryAfter = response.headers().firstValue(HttpClientImpl.RETRY_AFTER).orElse(null);
+        }
+        return result;
+    }
+
+    private static CompletableFuture<String> ensureOKAsync(final CompletableFuture<java.net.http.HttpResponse<String>> future) {
+        return future.thenCompose(new Function<java.net.http.HttpResponse<String>, CompletableFuture<String>>() {
+            @Override
+            public CompletableFuture<String> apply(final java.net.http.HttpResponse<String> response) {
+                try {
+                    return CompletableFuture.completedFuture(ensureOK(response));
+                } catch (final HttpStatusException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return Headers;
+    }
+
+    @Override
+    public String getHeaderField(final URI uri, final String header) throws IOException {
+        final HttpRequest request = createRequest(uri).method("HEAD", HttpRequest.BodyPublishers.noBody()).build();
+        final java.net.http.HttpResponse<Void> response = send(SharedClients.NO_REDIRECTS, request, java.net.http.HttpResponse.BodyHandlers.discarding());
+        return response.headers().firstValue(header).orElse(null);
+    }
+
+    @Override
+    public String getGetResponseText(final URI uri) throws IOException {
+        return getGetResponseText(uri, 0);
+    }
+
+    @Override
+    public String getGetResponseText(final URI uri, final int timeout) throws IOException {
+        return ensureOK(send(SharedClients.FOLLOW_REDIRECTS, get(uri, timeout), java.net.http.HttpResponse.BodyHandlers.ofString()));
+    }
+
+    @Override
+    public String getPostResponseText(final URI uri, final StringContent content) throws IOException {
+        return ensureOK(send(SharedClients.FOLLOW_REDIRECTS, post(uri, content), java.net.http.HttpResponse.BodyHandlers.ofString()));
+    }
+
+    @Override
+    public HttpResponse getPostResponse(final URI uri, final StringContent content) throws IOException {
+        return toHttpResponse(send(SharedClients.FOLLOW_REDIRECTS, post(uri, content), java.net.http.HttpResponse.BodyHandlers.ofString()));
+    }
+
+    @Override
+    public CompletableFuture<String> getGetResponseTextAsync(final URI uri) {
+        return ensureOKAsync(SharedClients.FOLLOW_REDIRECTS.sendAsync(get(uri, 0), java.net.http.HttpResponse.BodyHandlers.ofString()));
+    }
+
+    @Override
+    public CompletableFuture<String> getPostResponseTextAsync(final URI uri, final StringContent content) {
+        return ensureOKAsync(SharedClients.FOLLOW_REDIRECTS.sendAsync(post(uri, content), java.net.http.HttpResponse.BodyHandlers.ofString()));
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> getPostResponseAsync(final URI uri, final StringContent content) {
+        return SharedClients.FOLLOW_REDIRECTS.sendAsync(post(uri, content), java.net.http.HttpResponse.BodyHandlers.ofString())
+                .thenApply(new Function<java.net.http.HttpResponse<String>, HttpResponse>() {
+                    @Override
+                    public HttpResponse apply(final java.net.http.HttpResponse<String> response) {
+                        return toHttpResponse(response);
+                    }
+                });
+    }
+}
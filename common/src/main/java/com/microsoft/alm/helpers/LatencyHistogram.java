@@ -0,0 +1,100 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations in nanoseconds, in the manner of HdrHistogram: values are counted in
+ * log-linear buckets, 64 per power of two, so percentiles are within about 1.6% of the recorded values whatever
+ * their magnitude, in a fixed amount of memory.  Values from 0 to 2^41 ns, about 36.6 minutes, are told apart;
+ * longer ones are counted as 36.6 minutes.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(final long nanos) {
+        final long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long currentMax;
+        while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+            // another thread raised the maximum, check again
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        final long samples = count.get();
+        return samples == 0 ? 0 : (double) sum.get() / samples;
+    }
+
+    /**
+     * @param percentile a fraction between 0 and 1, e.g. 0.99
+     *
+     * @return the highest value in the bucket that holds {@code percentile}, capped at the largest value recorded,
+     *         or {@code 0} if nothing was recorded
+     */
+    public long getPercentile(final double percentile) {
+        Debug.Assert(percentile >= 0 && percentile <= 1, "percentile must be between 0 and 1");
+
+        final long samples = count.get();
+        if (samples == 0) {
+            return 0;
+        }
+        final long target = Math.max(1, (long) Math.ceil(percentile * samples));
+        long seen = 0;
+        for (int index = 0; index < counts.length(); index++) {
+            seen += counts.get(index);
+            if (seen >= target) {
+                return Math.min(highestValueAt(index), max.get());
+            }
+        }
+        // counts are read while other threads record, so the walk can fall short of the total
+        return max.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.0f, p50=%d, p90=%d, p99=%d, max=%d (ns)",
+                getCount(), getMean(), getPercentile(0.5), getPercentile(0.9), getPercentile(0.99), getMax());
+    }
+
+    static int indexOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueAt(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,98 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the most recent response times per host so that percentiles can be used as
+ * thresholds, e.g. for deciding when to hedge a slow request.
+ */
+public class LatencyTracker {
+
+    static final int DEFAULT_WINDOW_SIZE = 128;
+    static final int DEFAULT_MIN_SAMPLES = 20;
+
+    private final int windowSize;
+    private final int minSamples;
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<String, Window>();
+
+    public LatencyTracker() {
+        this(DEFAULT_WINDOW_SIZE, DEFAULT_MIN_SAMPLES);
+    }
+
+    /**
+     * @param windowSize how many of the most recent samples are kept per host.
+     * @param minSamples how many samples are needed before a percentile is reported.
+     */
+    public LatencyTracker(final int windowSize, final int minSamples) {
+        Debug.Assert(windowSize > 0, "windowSize must be positive");
+        Debug.Assert(minSamples <= windowSize, "minSamples cannot exceed windowSize");
+
+        this.windowSize = windowSize;
+        this.minSamples = minSamples;
+    }
+
+    public void record(final String host, final long milliseconds) {
+        final Window window = getWindow(host);
+        synchronized (window) {
+            window.samples[window.next] = milliseconds;
+            window.next = (window.next + 1) % windowSize;
+            if (window.count < windowSize) {
+                window.count++;
+            }
+        }
+    }
+
+    /**
+     * @param host       the host to inspect.
+     * @param percentile a fraction between 0 and 1, e.g. 0.95.
+     * @return           the latency in milliseconds at {@code percentile}, or -1 if too few samples were recorded.
+     */
+    public long getPercentile(final String host, final double percentile) {
+        final Window window = windows.get(normalize(host));
+        if (window == null) {
+            return -1;
+        }
+        final long[] sorted;
+        synchronized (window) {
+            if (window.count < minSamples) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(window.samples, window.count);
+        }
+        Arrays.sort(sorted);
+        final int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String normalize(final String host) {
+        return host == null ? "" : host.toLowerCase();
+    }
+
+    private Window getWindow(final String host) {
+        final String key = normalize(host);
+        Window window = windows.get(key);
+        if (window == null) {
+            final Window candidate = new Window(windowSize);
+            window = windows.putIfAbsent(key, candidate);
+            if (window == null) {
+                window = candidate;
+            }
+        }
+        return window;
+    }
+
+    private static final class Window {
+        private final long[] samples;
+        private int next;
+        private int count;
+
+        Window(final int size) {
+            samples = new long[size];
+        }
+    }
+}
@@ -0,0 +1,615 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A JSON reader that supports nested objects and arrays without eagerly materializing them.
+ *
+ * Parsing only records where each member starts and ends in the source {@link CharSequence};
+ * values are decoded when they are accessed, so large members that are never read (such as the
+ * {@code id_token} in a token response) are never copied.  Nested objects and arrays are returned
+ * as views over the same source and are only indexed when they are accessed.
+ */
+public class LazyJson {
+
+    static final int MAX_DEPTH = 64;
+
+    private LazyJson() {
+        // not intended to be used as an instance class
+    }
+
+    /**
+     * Parses the top-level JSON object in the input.  Empty or blank input yields an empty object.
+     *
+     * @param input the JSON text
+     * @return a lazily-decoded view over the input
+     * @throws IllegalArgumentException if the input is not a well-formed JSON object
+     */
+    public static JsonObject parse(final CharSequence input) {
+        Debug.Assert(input != null, "The input parameter is null");
+
+        final int start = skipWhitespace(input, 0);
+        if (start == input.length()) {
+            return new JsonObject("{}", 0);
+        }
+        if (input.charAt(start) != '{') {
+            error(input, start);
+        }
+        final JsonObject result = new JsonObject(input, start);
+        final int end = skipWhitespace(input, result.end);
+        if (end != input.length()) {
+            error(input, end);
+        }
+        return result;
+    }
+
+    /**
+     * Parses a top-level JSON array, such as the payload of a list API.
+     *
+     * @param input the JSON text
+     * @return a lazily-decoded view over the input
+     * @throws IllegalArgumentException if the input is not a well-formed JSON array
+     */
+    public static JsonArray parseArray(final CharSequence input) {
+        Debug.Assert(input != null, "The input parameter is null");
+
+        final int start = skipWhitespace(input, 0);
+        if (start == input.length() || input.charAt(start) != '[') {
+            error(input, start);
+        }
+        final JsonArray result = new JsonArray(input, start);
+        final int end = skipWhitespace(input, result.end);
+        if (end != input.length()) {
+            error(input, end);
+        }
+        return result;
+    }
+
+    /**
+     * An object whose members are decoded on demand.
+     */
+    public static final class JsonObject {
+        private final CharSequence source;
+        private final int start;
+        private final int end;
+        // four entries per member: key start, key end (exclusive, without quotes), value start, value end
+        private int[] spans;
+        private int count;
+
+        JsonObject(final CharSequence source, final int start) {
+            this.source = source;
+            this.start = start;
+            this.spans = new int[16];
+            this.end = index();
+        }
+
+        private int index() {
+            int pos = skipWhitespace(source, start + 1);
+            while (true) {
+                if (pos >= source.length()) {
+                    error(source, pos);
+                }
+                final char c = source.charAt(pos);
+                if (c == '}') {
+                    return pos + 1;
+                }
+                if (c != '"') {
+                    error(source, pos);
+                }
+                final int keyStart = pos + 1;
+                final int keyEnd = skipString(source, pos) - 1;
+                pos = skipWhitespace(source, keyEnd + 1);
+                if (pos >= source.length() || source.charAt(pos) != ':') {
+                    error(source, pos);
+                }
+                final int valueStart = skipWhitespace(source, pos + 1);
+                final int valueEnd = skipValue(source, valueStart);
+                add(keyStart, keyEnd, valueStart, valueEnd);
+
+                pos = skipWhitespace(source, valueEnd);
+                if (pos < source.length() && source.charAt(pos) == ',') {
+                    pos = skipWhitespace(source, pos + 1);
+                }
+                else if (pos >= source.length() || source.charAt(pos) != '}') {
+                    error(source, pos);
+                }
+            }
+        }
+
+        private void add(final int keyStart, final int keyEnd, final int valueStart, final int valueEnd) {
+            final int offset = count * 4;
+            if (offset + 4 > spans.length) {
+                spans = Arrays.copyOf(spans, spans.length * 2);
+            }
+            spans[offset] = keyStart;
+            spans[offset + 1] = keyEnd;
+            spans[offset + 2] = valueStart;
+            spans[offset + 3] = valueEnd;
+            count++;
+        }
+
+        private int indexOf(final String key) {
+            // the last occurrence wins, consistent with SimpleJson
+            for (int i = count - 1; i >= 0; i--) {
+                if (LazyJson.keyEquals(source, spans[i * 4], spans[i * 4 + 1], key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the number of members in this object
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * @param key the member name
+         * @return {@code true} if the member is present, even if its value is {@code null}
+         */
+        public boolean has(final String key) {
+            return indexOf(key) != -1;
+        }
+
+        /**
+         * @return the member names, in document order
+         */
+        public List<String> keys() {
+            final List<String> result = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(getKey(i));
+            }
+            return result;
+        }
+
+        /**
+         * @param index the zero-based member position, in document order
+         * @return the decoded name of the member
+         */
+        public String getKey(final int index) {
+            checkIndex(index);
+            return decodeString(source, spans[index * 4], spans[index * 4 + 1]);
+        }
+
+        /**
+         * @param index the zero-based member position, in document order
+         * @return the decoded value of the member, as per {@link #get(String)}
+         */
+        public Object getValue(final int index) {
+            checkIndex(index);
+            return decodeValue(source, spans[index * 4 + 2], spans[index * 4 + 3]);
+        }
+
+        /**
+         * @param index the zero-based member position, in document order
+         * @param key the member name
+         * @return {@code true} if the member at that position has the given name
+         */
+        public boolean keyEquals(final int index, final String key) {
+            checkIndex(index);
+            return LazyJson.keyEquals(source, spans[index * 4], spans[index * 4 + 1], key);
+        }
+
+        private void checkIndex(final int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            }
+        }
+
+        CharSequence getRawValue(final int index) {
+            return new Slice(source, spans[index * 4 + 2], spans[index * 4 + 3]);
+        }
+
+        /**
+         * Decodes a member.
+         *
+         * @param key the member name
+         * @return a {@link String}, {@link Double}, {@link Boolean}, {@link JsonObject}, {@link JsonArray},
+         *         or {@code null} if the value is the {@code null} literal or the member is missing
+         */
+        public Object get(final String key) {
+            final int index = indexOf(key);
+            return index == -1 ? null : getValue(index);
+        }
+
+        /**
+         * Returns the undecoded text of a member's value without copying it.
+         *
+         * @param key the member name
+         * @return the raw value text, or {@code null} if the member is missing
+         */
+        public CharSequence getRaw(final String key) {
+            final int index = indexOf(key);
+            return index == -1 ? null : getRawValue(index);
+        }
+
+        public String getString(final String key, final String defaultValue) {
+            final Object value = get(key);
+            return value instanceof String ? (String) value : defaultValue;
+        }
+
+        public double getNumber(final String key, final double defaultValue) {
+            final Object value = get(key);
+            return value instanceof Double ? (Double) value : defaultValue;
+        }
+
+        public boolean getBoolean(final String key, final boolean defaultValue) {
+            final Object value = get(key);
+            return value instanceof Boolean ? (Boolean) value : defaultValue;
+        }
+
+        public JsonObject getObject(final String key) {
+            final Object value = get(key);
+            return value instanceof JsonObject ? (JsonObject) value : null;
+        }
+
+        public JsonArray getArray(final String key) {
+            final Object value = get(key);
+            return value instanceof JsonArray ? (JsonArray) value : null;
+        }
+
+        /**
+         * @return the JSON text of this object, as found in the source
+         */
+        @Override
+        public String toString() {
+            return source.subSequence(start, end).toString();
+        }
+    }
+
+    /**
+     * An array whose elements are decoded on demand.
+     */
+    public static final class JsonArray extends AbstractList<Object> {
+        private final CharSequence source;
+        private final int start;
+        private final int end;
+        // two entries per element: value start, value end
+        private int[] spans;
+        private int count;
+
+        JsonArray(final CharSequence source, final int start) {
+            this.source = source;
+            this.start = start;
+            this.spans = new int[16];
+            this.end = index();
+        }
+
+        private int index() {
+            int pos = skipWhitespace(source, start + 1);
+            while (true) {
+                if (pos >= source.length()) {
+                    error(source, pos);
+                }
+                if (source.charAt(pos) == ']') {
+                    return pos + 1;
+                }
+                final int valueEnd = skipValue(source, pos);
+                final int offset = count * 2;
+                if (offset + 2 > spans.length) {
+                    spans = Arrays.copyOf(spans, spans.length * 2);
+                }
+                spans[offset] = pos;
+                spans[offset + 1] = valueEnd;
+                count++;
+
+                pos = skipWhitespace(source, valueEnd);
+                if (pos < source.length() && source.charAt(pos) == ',') {
+                    pos = skipWhitespace(source, pos + 1);
+                }
+                else if (pos >= source.length() || source.charAt(pos) != ']') {
+                    error(source, pos);
+                }
+            }
+        }
+
+        /**
+         * Decodes an element.
+         *
+         * @param index the zero-based element position
+         * @return a {@link String}, {@link Double}, {@link Boolean}, {@link JsonObject}, {@link JsonArray},
+         *         or {@code null}
+         */
+        @Override
+        public Object get(final int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            }
+            return decodeValue(source, spans[index * 2], spans[index * 2 + 1]);
+        }
+
+        public JsonObject getObject(final int index) {
+            final Object value = get(index);
+            return value instanceof JsonObject ? (JsonObject) value : null;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        /**
+         * @return the text between the square brackets, as {@link SimpleJson} reported arrays
+         */
+        public String getInnerText() {
+            return source.subSequence(start + 1, end - 1).toString();
+        }
+
+        /**
+         * @return the JSON text of this array, as found in the source
+         */
+        @Override
+        public String toString() {
+            return source.subSequence(start, end).toString();
+        }
+    }
+
+    /**
+     * A read-only window into another {@link CharSequence} that does not copy the characters.
+     */
+    static final class Slice implements CharSequence {
+        private final CharSequence source;
+        private final int start;
+        private final int end;
+
+        Slice(final CharSequence source, final int start, final int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return source.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int from, final int to) {
+            return new Slice(source, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return source.subSequence(start, end).toString();
+        }
+    }
+
+    static void error(final CharSequence input, final int pos) {
+        final String message = pos < input.length()
+                ? "Unexpected character '" + input.charAt(pos) + "' at position " + pos + "."
+                : "Unexpected end of input at position " + pos + ".";
+        throw new IllegalArgumentException(message);
+    }
+
+    static int skipWhitespace(final CharSequence input, int pos) {
+        final int length = input.length();
+        while (pos < length && SimpleJson.isInsignificantWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @return the position after the closing quote of the string that starts at {@code pos}
+     */
+    static int skipString(final CharSequence input, final int pos) {
+        final int length = input.length();
+        int i = pos + 1;
+        while (i < length) {
+            final char c = input.charAt(i);
+            if (c == '"') {
+                return i + 1;
+            }
+            i += (c == '\\') ? 2 : 1;
+        }
+        error(input, length);
+        return -1;
+    }
+
+    /**
+     * @return the position after the value that starts at {@code pos}
+     */
+    static int skipValue(final CharSequence input, final int pos) {
+        if (pos >= input.length()) {
+            error(input, pos);
+        }
+        final char c = input.charAt(pos);
+        if (c == '"') {
+            return skipString(input, pos);
+        }
+        if (c == '{' || c == '[') {
+            return skipContainer(input, pos);
+        }
+        if (SimpleJson.isMinus(c) || SimpleJson.isDigit(c)) {
+            int i = pos + 1;
+            while (i < input.length()) {
+                final char n = input.charAt(i);
+                if (!(SimpleJson.isDigit(n) || SimpleJson.isExp(n) || SimpleJson.isPeriod(n))) {
+                    break;
+                }
+                i++;
+            }
+            return i;
+        }
+        if (SimpleJson.isLiteralStart(c)) {
+            int i = pos + 1;
+            while (i < input.length() && Character.isLetter(input.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+        error(input, pos);
+        return -1;
+    }
+
+    private static int skipContainer(final CharSequence input, final int pos) {
+        // only bracket pairing is checked here; the members are validated when the container is indexed.
+        // one bit per nesting level records whether it was opened by '{' (set) or '[' (clear)
+        final int length = input.length();
+        long openers = 0;
+        int depth = 0;
+        int i = pos;
+        while (i < length) {
+            final char c = input.charAt(i);
+            if (c == '"') {
+                i = skipString(input, i);
+                continue;
+            }
+            if (c == '{' || c == '[') {
+                if (depth == MAX_DEPTH) {
+                    throw new IllegalArgumentException("Nesting deeper than " + MAX_DEPTH + " levels at position " + i + ".");
+                }
+                openers = (openers << 1) | (c == '{' ? 1 : 0);
+                depth++;
+            }
+            else if (c == '}' || c == ']') {
+                if ((c == '}') != ((openers & 1) == 1)) {
+                    error(input, i);
+                }
+                openers >>>= 1;
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        error(input, length);
+        return -1;
+    }
+
+    static boolean keyEquals(final CharSequence input, final int start, final int end, final String key) {
+        final int length = end - start;
+        boolean escaped = false;
+        if (length == key.length()) {
+            int i = 0;
+            for (; i < length; i++) {
+                final char c = input.charAt(start + i);
+                if (c == '\\') {
+                    escaped = true;
+                    break;
+                }
+                if (c != key.charAt(i)) {
+                    return false;
+                }
+            }
+            if (!escaped) {
+                return true;
+            }
+        }
+        else {
+            for (int i = start; i < end; i++) {
+                if (input.charAt(i) == '\\') {
+                    escaped = true;
+                    break;
+                }
+            }
+        }
+        return escaped && key.equals(decodeString(input, start, end));
+    }
+
+    static Object decodeValue(final CharSequence input, final int start, final int end) {
+        final char c = input.charAt(start);
+        if (c == '"') {
+            return decodeString(input, start + 1, end - 1);
+        }
+        if (c == '{') {
+            return new JsonObject(input, start);
+        }
+        if (c == '[') {
+            return new JsonArray(input, start);
+        }
+        if (SimpleJson.isLiteralStart(c)) {
+            return SimpleJson.decodeLiteral(input.subSequence(start, end).toString());
+        }
+        try {
+            return Double.parseDouble(input.subSequence(start, end).toString());
+        }
+        catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number '" + input.subSequence(start, end) + "'.", e);
+        }
+    }
+
+    static String decodeString(final CharSequence input, final int start, final int end) {
+        int firstEscape = -1;
+        for (int i = start; i < end; i++) {
+            if (input.charAt(i) == '\\') {
+                firstEscape = i;
+                break;
+            }
+        }
+        if (firstEscape == -1) {
+            return input.subSequence(start, end).toString();
+        }
+
+        final StringBuilder sb = new StringBuilder(end - start);
+        sb.append(input, start, firstEscape);
+        int i = firstEscape;
+        while (i < end) {
+            final char c = input.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                i++;
+                continue;
+            }
+            if (i + 1 >= end) {
+                error(input, i);
+            }
+            final char e = input.charAt(i + 1);
+            switch (e) {
+                case '"':
+                case '\\':
+                case '/':
+                    sb.append(e);
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (i + 6 > end) {
+                        error(input, end);
+                    }
+                    int codeUnit = 0;
+                    for (int h = i + 2; h < i + 6; h++) {
+                        final int digit = Character.digit(input.charAt(h), 16);
+                        if (digit == -1) {
+                            error(input, h);
+                        }
+                        codeUnit = codeUnit * 16 + digit;
+                    }
+                    sb.append((char) codeUnit);
+                    i += 4;
+                    break;
+                default:
+                    error(input, i + 1);
+            }
+            i += 2;
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,31 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+/**
+ * Drops every measurement; the default {@link AuthMetrics}.
+ */
+public final class NoOpAuthMetrics implements AuthMetrics {
+
+    public static final NoOpAuthMetrics INSTANCE = new NoOpAuthMetrics();
+
+    private NoOpAuthMetrics() {
+    }
+
+    @Override
+    public void recordLatency(final String phase, final String source, final long nanos) {
+    }
+
+    @Override
+    public void recordLookup(final String source, final boolean hit) {
+    }
+
+    @Override
+    public void recordRefresh(final String source, final boolean succeeded) {
+    }
+
+    @Override
+    public void recordError(final String phase, final String source, final Throwable error) {
+    }
+}
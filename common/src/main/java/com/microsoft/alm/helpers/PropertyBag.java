@@ -8,11 +8,36 @@ import java.util.LinkedHashMap;
 public class PropertyBag extends LinkedHashMap<String, Object> {
 
     public static PropertyBag fromJson(final String input) {
+        return fromJson(LazyJson.parse(input));
+    }
+
+    /**
+     * Copies the members of a JSON object into a new {@link PropertyBag}, decoding every value
+     * the same way {@link SimpleJson} did: arrays become the text between their square brackets and
+     * nested objects become nested {@link PropertyBag} instances.
+     *
+     * @param json the parsed JSON object
+     * @return a bag with one entry per member
+     */
+    public static PropertyBag fromJson(final LazyJson.JsonObject json) {
         final PropertyBag result = new PropertyBag();
-        SimpleJson.parse(input, result);
+        final int size = json.size();
+        for (int i = 0; i < size; i++) {
+            result.put(json.getKey(i), toBagValue(json.getValue(i)));
+        }
         return result;
     }
 
+    static Object toBagValue(final Object value) {
+        if (value instanceof LazyJson.JsonArray) {
+            return ((LazyJson.JsonArray) value).getInnerText();
+        }
+        if (value instanceof LazyJson.JsonObject) {
+            return fromJson((LazyJson.JsonObject) value);
+        }
+        return value;
+    }
+
     public int readOptionalInteger(final String key, final int defaultValue) {
         final int result;
         if (containsKey(key)) {
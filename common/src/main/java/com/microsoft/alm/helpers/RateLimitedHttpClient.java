@@ -0,0 +1,257 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * An {@link HttpClient} decorator that admits every request through a (typically shared)
+ * {@link RateLimiter} and, when the server answers 429 or 503, backs the whole host off
+ * for the {@code Retry-After} delay (or a jittered exponential delay) before retrying.
+ * POSTs are only retried after a 429 that carries a {@code Retry-After}.
+ */
+public class RateLimitedHttpClient implements HttpClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitedHttpClient.class);
+
+    static final int HTTP_TOO_MANY_REQUESTS = 429;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    private final HttpClient delegate;
+    private final RateLimiter rateLimiter;
+    private final int maxRetries;
+
+    public RateLimitedHttpClient(final HttpClient delegate, final RateLimiter rateLimiter) {
+        this(delegate, rateLimiter, DEFAULT_MAX_RETRIES);
+    }
+
+    public RateLimitedHttpClient(final HttpClient delegate, final RateLimiter rateLimiter, final int maxRetries) {
+        Debug.Assert(delegate != null, "delegate cannot be null");
+        Debug.Assert(rateLimiter != null, "rateLimiter cannot be null");
+
+        this.delegate = delegate;
+        this.rateLimiter = rateLimiter;
+        this.maxRetries = maxRetries;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return delegate.getHeaders();
+    }
+
+    @Override
+    public String getHeaderField(final URI uri, final String header) throws IOException {
+        return execute(uri, true, new Request<String>() {
+            @Override
+            public String send() throws IOException {
+                return delegate.getHeaderField(uri, header);
+            }
+        });
+    }
+
+    @Override
+    public String getGetResponseText(final URI uri) throws IOException {
+        return execute(uri, true, new Request<String>() {
+            @Override
+            public String send() throws IOException {
+                return delegate.getGetResponseText(uri);
+            }
+        });
+    }
+
+    @Override
+    public String getGetResponseText(final URI uri, final int timeout) throws IOException {
+        return execute(uri, true, new Request<String>() {
+            @Override
+            public String send() throws IOException {
+                return delegate.getGetResponseText(uri, timeout);
+            }
+        });
+    }
+
+    @Override
+    public String getPostResponseText(final URI uri, final StringContent content) throws IOException {
+        return execute(uri, false, new Request<String>() {
+            @Override
+            public String send() throws IOException {
+                return delegate.getPostResponseText(uri, content);
+            }
+        });
+    }
+
+    @Override
+    public HttpResponse getPostResponse(final URI uri, final StringContent content) throws IOException {
+        final Request<HttpResponse> request = new Request<HttpResponse>() {
+            @Override
+            public HttpResponse send() throws IOException {
+                return delegate.getPostResponse(uri, content);
+            }
+        };
+        final String host = uri.getHost();
+        for (int attempt = 0; ; attempt++) {
+            rateLimiter.acquire(host);
+            final HttpResponse response = request.send();
+            if (!isThrottled(response.status)
+                    || backOff(host, false, attempt, response.status, response.retryAfter) < 0) {
+                return response;
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> getGetResponseTextAsync(final URI uri) {
+        return executeAsync(uri.getHost(), true, 0, new AsyncRequest<String>() {
+            @Override
+            public CompletableFuture<String> send() {
+                return delegate.getGetResponseTextAsync(uri);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> getPostResponseTextAsync(final URI uri, final StringContent content) {
+        return executeAsync(uri.getHost(), false, 0, new AsyncRequest<String>() {
+            @Override
+            public CompletableFuture<String> send() {
+                return delegate.getPostResponseTextAsync(uri, content);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> getPostResponseAsync(final URI uri, final StringContent content) {
+        return executeAsync(uri.getHost(), false, 0, new AsyncRequest<HttpResponse>() {
+            @Override
+            public CompletableFuture<HttpResponse> send() {
+                return delegate.getPostResponseAsync(uri, content);
+            }
+        });
+    }
+
+    /**
+     * Admission may still block the calling thread while the host is over its budget (that is the
+     * point of the bounded queue), but back-off delays between retries do not hold a thread.
+     */
+    private <T> CompletableFuture<T> executeAsync(final String host, final boolean idempotent, final int attempt, final AsyncRequest<T> request) {
+        try {
+            rateLimiter.acquire(host);
+        } catch (final IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return request.send().handle(new BiFunction<T, Throwable, CompletableFuture<T>>() {
+            @Override
+            public CompletableFuture<T> apply(final T result, final Throwable throwable) {
+                final Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                final int status;
+                final String retryAfter;
+                if (cause == null) {
+                    if (!(result instanceof HttpResponse)) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    status = ((HttpResponse) result).status;
+                    retryAfter = ((HttpResponse) result).retryAfter;
+                }
+                else {
+                    if (!(cause instanceof HttpStatusException)) {
+                        return CompletableFuture.failedFuture(cause);
+                    }
+                    status = ((HttpStatusException) cause).getStatusCode();
+                    retryAfter = ((HttpStatusException) cause).getRetryAfter();
+                }
+                if (!isThrottled(status)) {
+                    return cause == null ? CompletableFuture.completedFuture(result) : CompletableFuture.<T>failedFuture(cause);
+                }
+                final long delay = backOff(host, idempotent, attempt, status, retryAfter);
+                if (delay < 0) {
+                    return cause == null ? CompletableFuture.completedFuture(result) : CompletableFuture.<T>failedFuture(cause);
+                }
+                final Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+                return CompletableFuture.supplyAsync(new Supplier<CompletableFuture<T>>() {
+                    @Override
+                    public CompletableFuture<T> get() {
+                        return executeAsync(host, idempotent, attempt + 1, request);
+                    }
+                }, delayed).thenCompose(Function.<CompletableFuture<T>>identity());
+            }
+        }).thenCompose(Function.<CompletableFuture<T>>identity());
+    }
+
+    private <T> T execute(final URI uri, final boolean idempotent, final Request<T> request) throws IOException {
+        final String host = uri.getHost();
+        for (int attempt = 0; ; attempt++) {
+            rateLimiter.acquire(host);
+            try {
+                return request.send();
+            }
+            catch (final HttpStatusException e) {
+                if (!isThrottled(e.getStatusCode())
+                        || backOff(host, idempotent, attempt, e.getStatusCode(), e.getRetryAfter()) < 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Holds requests to {@code host} off for everyone, and decides whether this request is sent again.
+     *
+     * A GET or HEAD can always be retried.  A POST (a token redemption, a PAT creation, ...) is only retried after a
+     * 429 with a usable {@code Retry-After}, which tells us the server did not act on it; a 503 may come from a
+     * server, or a proxy, that already had.
+     *
+     * @return the delay before the request is retried, or -1 if it is not retried: it is not safe to, it has been
+     *         retried enough, or the delay is longer than the rate limiter lets a caller wait, in which case the
+     *         caller gets the throttled response rather than a generic rejection from the limiter.
+     */
+    private long backOff(final String host, final boolean idempotent, final int attempt, final int status, final String retryAfter) {
+        final long delay = RateLimiter.computeBackoffMilliseconds(attempt, retryAfter);
+        rateLimiter.backOff(host, delay, status);
+        if (attempt >= maxRetries || !isRetryable(idempotent, status, retryAfter)) {
+            logger.info("HTTP {} from {}; holding requests off for {} ms.", status, host, delay);
+            return -1;
+        }
+        if (delay > rateLimiter.getWaitLimitMilliseconds()) {
+            logger.info("HTTP {} from {}; holding requests off for {} ms, longer than they may wait.", status, host, delay);
+            return -1;
+        }
+        logger.info("HTTP {} from {}; retrying in {} ms (attempt {} of {}).", status, host, delay, attempt + 1, maxRetries);
+        return delay;
+    }
+
+    static boolean isRetryable(final boolean idempotent, final int status, final String retryAfter) {
+        if (idempotent) {
+            return true;
+        }
+        return status == HTTP_TOO_MANY_REQUESTS && RateLimiter.parseRetryAfter(retryAfter, System.currentTimeMillis()) >= 0;
+    }
+
+    static boolean isThrottled(final int status) {
+        return status == HTTP_TOO_MANY_REQUESTS || status == HttpURLConnection.HTTP_UNAVAILABLE;
+    }
+
+    private interface Request<T> {
+        T send() throws IOException;
+    }
+
+    private interface AsyncRequest<T> {
+        CompletableFuture<T> send();
+    }
+}
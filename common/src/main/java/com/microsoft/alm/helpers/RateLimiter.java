@@ -0,0 +1,324 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for outbound HTTP requests, keyed by host.
+ *
+ * Each host gets a token bucket that refills at a steady rate up to a burst size.
+ * Callers that find the bucket empty wait their turn, but only up to a bounded number of
+ * waiters per host and a bounded amount of time, after which the request fails fast rather
+ * than piling on to a server that is already struggling.
+ * When a server answers 429 or 503, {@link #backOff(String, long, int)} closes the host's bucket
+ * for everyone until the server-requested (or jittered exponential) delay has elapsed; callers that
+ * cannot wait that long get the server's status back instead of a generic rejection.
+ */
+public class RateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiter.class);
+
+    static final long BASE_BACKOFF_MILLISECONDS = 500;
+    static final long MAX_BACKOFF_MILLISECONDS = 60 * 1000;
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final int maxQueueDepth;
+    private final long maxWaitMilliseconds;
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * @param permitsPerSecond    the steady rate at which requests to a single host are admitted.
+     * @param burst               how many requests to a single host can be admitted back-to-back.
+     * @param maxQueueDepth       how many callers may wait for a single host before new ones are rejected.
+     * @param maxWaitMilliseconds how long a caller waits for admission before giving up.
+     */
+    public RateLimiter(final double permitsPerSecond, final int burst, final int maxQueueDepth, final long maxWaitMilliseconds) {
+        Debug.Assert(permitsPerSecond > 0, "permitsPerSecond must be positive");
+        Debug.Assert(burst > 0, "burst must be positive");
+
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.maxQueueDepth = maxQueueDepth;
+        this.maxWaitMilliseconds = maxWaitMilliseconds;
+    }
+
+    /**
+     * Blocks until a request to {@code host} may be sent.
+     *
+     * @param host the host the request is about to be sent to.
+     * @throws RateLimiterRejectedException if too many callers are already waiting for that host, or the wait would
+     *                                      exceed the configured maximum; its status is the 429 or 503 the host is
+     *                                      backed off after, if that is why.
+     * @throws InterruptedIOException        if the thread was interrupted.
+     */
+    public void acquire(final String host) throws IOException {
+        final Bucket bucket = getBucket(host);
+        final long startNanos = System.nanoTime();
+        final long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(maxWaitMilliseconds);
+        boolean waited = false;
+
+        synchronized (bucket) {
+            try {
+                while (true) {
+                    final long now = System.nanoTime();
+                    final long delayNanos = bucket.tryTake(now);
+                    if (delayNanos == 0) {
+                        break;
+                    }
+                    if (now + delayNanos > deadlineNanos) {
+                        rejectedCount.incrementAndGet();
+                        if (bucket.blockedStatus != 0 && bucket.blockedUntilNanos - now > 0) {
+                            final long seconds = (TimeUnit.NANOSECONDS.toMillis(bucket.blockedUntilNanos - now) + 999) / 1000;
+                            throw new RateLimiterRejectedException(String.format("Requests to %1$s are held off for %2$d s after HTTP %3$d.", host, seconds, bucket.blockedStatus),
+                                    host, bucket.blockedStatus, String.valueOf(seconds));
+                        }
+                        throw new RateLimiterRejectedException(String.format("Gave up waiting %1$d ms to send a request to %2$s.", maxWaitMilliseconds, host),
+                                host, RateLimitedHttpClient.HTTP_TOO_MANY_REQUESTS, null);
+                    }
+                    if (!waited) {
+                        if (bucket.waiters >= maxQueueDepth) {
+                            rejectedCount.incrementAndGet();
+                            throw new RateLimiterRejectedException(String.format("Too many requests are waiting to be sent to %1$s.", host),
+                                    host, RateLimitedHttpClient.HTTP_TOO_MANY_REQUESTS, null);
+                        }
+                        waited = true;
+                        bucket.waiters++;
+                        queueDepth.incrementAndGet();
+                        logger.debug("Waiting {} ms to send a request to {} ({} waiting).", TimeUnit.NANOSECONDS.toMillis(delayNanos), host, bucket.waiters);
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(bucket, delayNanos);
+                }
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to send a request to " + host);
+            }
+            finally {
+                if (waited) {
+                    bucket.waiters--;
+                    queueDepth.decrementAndGet();
+                }
+            }
+        }
+
+        if (waited) {
+            recordWait(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Stops admitting requests to {@code host} for the given delay, for all callers.
+     *
+     * @param host              the host that asked us to slow down.
+     * @param delayMilliseconds how long to hold off.
+     */
+    public void backOff(final String host, final long delayMilliseconds) {
+        backOff(host, delayMilliseconds, 0);
+    }
+
+    /**
+     * Stops admitting requests to {@code host} for the given delay, for all callers, because the
+     * server answered {@code status}.  Callers that cannot wait that long fail with that status.
+     *
+     * @param host              the host that asked us to slow down.
+     * @param delayMilliseconds how long to hold off.
+     * @param status            the status the server answered, e.g. 429.
+     */
+    public void backOff(final String host, final long delayMilliseconds, final int status) {
+        final Bucket bucket = getBucket(host);
+        synchronized (bucket) {
+            final long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMilliseconds);
+            if (until - bucket.blockedUntilNanos > 0) {
+                bucket.blockedUntilNanos = until;
+                bucket.blockedStatus = status;
+            }
+            bucket.tokens = 0;
+            bucket.notifyAll();
+        }
+        logger.debug("Backing off requests to {} for {} ms.", host, delayMilliseconds);
+    }
+
+    /**
+     * Computes how long to hold off before retrying.
+     *
+     * @param attempt           the zero-based retry attempt.
+     * @param retryAfterHeader  the raw {@code Retry-After} header value, or {@code null}.
+     * @return                  the server-requested delay plus up to 10% jitter when the header is usable,
+     *                          otherwise an exponential delay with "equal jitter" capped at {@link #MAX_BACKOFF_MILLISECONDS}.
+     */
+    public static long computeBackoffMilliseconds(final int attempt, final String retryAfterHeader) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long retryAfter = parseRetryAfter(retryAfterHeader, System.currentTimeMillis());
+        if (retryAfter >= 0) {
+            return Math.min(MAX_BACKOFF_MILLISECONDS, retryAfter + random.nextLong(retryAfter / 10 + 1));
+        }
+        final long exponential = Math.min(MAX_BACKOFF_MILLISECONDS, BASE_BACKOFF_MILLISECONDS << Math.min(attempt, 16));
+        final long half = exponential / 2;
+        return half + random.nextLong(half + 1);
+    }
+
+    /**
+     * Parses a {@code Retry-After} header, which is either a number of seconds or an HTTP-date.
+     *
+     * @param value           the header value.
+     * @param nowMilliseconds the current time, used to turn an HTTP-date into a delay.
+     * @return                the delay in milliseconds (never negative), or -1 if the value is missing or malformed.
+     */
+    public static long parseRetryAfter(final String value, final long nowMilliseconds) {
+        if (StringHelper.isNullOrWhiteSpace(value)) {
+            return -1;
+        }
+        final String trimmed = value.trim();
+        if (Character.isDigit(trimmed.charAt(0))) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(trimmed));
+            }
+            catch (final NumberFormatException ignored) {
+                return -1;
+            }
+        }
+        try {
+            final ZonedDateTime date = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, date.toInstant().toEpochMilli() - nowMilliseconds);
+        }
+        catch (final DateTimeParseException ignored) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return how long a caller waits for admission before giving up.
+     */
+    public long getWaitLimitMilliseconds() {
+        return maxWaitMilliseconds;
+    }
+
+    /**
+     * @return the number of callers currently waiting for admission, across all hosts.
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @param host the host to inspect.
+     * @return     the number of callers currently waiting to send a request to {@code host}.
+     */
+    public int getQueueDepth(final String host) {
+        final Bucket bucket = buckets.get(host);
+        if (bucket == null) {
+            return 0;
+        }
+        synchronized (bucket) {
+            return bucket.waiters;
+        }
+    }
+
+    /**
+     * @return how many requests had to wait before being admitted.
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * @return the cumulative time, in milliseconds, that admitted requests spent waiting.
+     */
+    public long getTotalWaitMilliseconds() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    /**
+     * @return the longest time, in milliseconds, that a single admitted request spent waiting.
+     */
+    public long getMaxWaitMilliseconds() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    /**
+     * @return how many requests were rejected because the queue was full or the wait too long.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private void recordWait(final long nanos) {
+        waitCount.incrementAndGet();
+        totalWaitNanos.addAndGet(nanos);
+        long max;
+        do {
+            max = maxWaitNanos.get();
+        }
+        while (nanos > max && !maxWaitNanos.compareAndSet(max, nanos));
+    }
+
+    private Bucket getBucket(final String host) {
+        final String key = host == null ? "" : host.toLowerCase(Locale.ROOT);
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            final Bucket candidate = new Bucket(burst, System.nanoTime());
+            bucket = buckets.putIfAbsent(key, candidate);
+            if (bucket == null) {
+                bucket = candidate;
+            }
+        }
+        return bucket;
+    }
+
+    private final class Bucket {
+        private double tokens;
+        private long lastRefillNanos;
+        private long blockedUntilNanos;
+        private int blockedStatus;
+        private int waiters;
+
+        Bucket(final double tokens, final long nowNanos) {
+            this.tokens = tokens;
+            this.lastRefillNanos = nowNanos;
+            this.blockedUntilNanos = nowNanos;
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise how many nanoseconds until one might be available.
+         */
+        long tryTake(final long nowNanos) {
+            if (blockedUntilNanos - nowNanos > 0) {
+                lastRefillNanos = blockedUntilNanos;
+                return blockedUntilNanos - nowNanos;
+            }
+            final long elapsed = nowNanos - lastRefillNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(burst, tokens + elapsed * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+                lastRefillNanos = nowNanos;
+            }
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) * TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        }
+    }
+}
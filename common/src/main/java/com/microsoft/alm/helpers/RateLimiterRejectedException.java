@@ -0,0 +1,23 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+/**
+ * Thrown by {@link RateLimiter#acquire(String)} instead of sending a request, so it says nothing about the health of
+ * the host.  The status is the one the host was backed off after, or 429 when the limiter itself turned the request
+ * away.
+ */
+public class RateLimiterRejectedException extends HttpStatusException {
+
+    private final String host;
+
+    public RateLimiterRejectedException(final String message, final String host, final int statusCode, final String retryAfter) {
+        super(message, statusCode, retryAfter);
+        this.host = host;
+    }
+
+    public String getHost() {
+        return host;
+    }
+}
@@ -0,0 +1,393 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * An {@link HttpClient} decorator that makes transient failures less visible to callers.
+ *
+ * <ul>
+ *     <li>Idempotent requests (HEAD and GET) are retried with jittered exponential backoff after
+ *     transport errors and 500/502/504 responses; POST requests are only retried when the connection
+ *     could not be established, since the server may otherwise have acted on them.</li>
+ *     <li>A per-host {@link CircuitBreaker} rejects requests to a host that keeps failing.</li>
+ *     <li>When a hedging {@link Executor} is supplied, a GET still outstanding after the host's
+ *     95th percentile latency is sent a second time and the first successful answer wins.</li>
+ * </ul>
+ *
+ * 429 and 503 are left to {@link RateLimitedHttpClient}, which knows how to honour {@code Retry-After}; requests
+ * it turns away before they are sent ({@link RateLimiterRejectedException}) do not count against the host.
+ */
+public class ResilientHttpClient implements HttpClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResilientHttpClient.class);
+
+    public static final int DEFAULT_MAX_RETRIES = 2;
+    static final double HEDGE_PERCENTILE = 0.95;
+
+    private final HttpClient delegate;
+    private final CircuitBreaker circuitBreaker;
+    private final LatencyTracker latencyTracker;
+    private final int maxRetries;
+    private final Executor hedgeExecutor;
+
+    /**
+     * @param delegate       the client that actually sends the requests.
+     * @param circuitBreaker the (typically shared) per-host circuit breaker.
+     * @param latencyTracker the (typically shared) per-host latency history used to decide when to hedge.
+     * @param maxRetries     how many times a failed request may be retried.
+     * @param hedgeExecutor  runs hedged GETs, or {@code null} to disable hedging.
+     */
+    public ResilientHttpClient(final HttpClient delegate, final CircuitBreaker circuitBreaker, final LatencyTracker latencyTracker, final int maxRetries, final Executor hedgeExecutor) {
+        Debug.Assert(delegate != null, "delegate cannot be null");
+        Debug.Assert(circuitBreaker != null, "circuitBreaker cannot be null");
+        Debug.Assert(latencyTracker != null, "latencyTracker cannot be null");
+
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.latencyTracker = latencyTracker;
+        this.maxRetries = maxRetries;
+        this.hedgeExecutor = hedgeExecutor;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return delegate.getHeaders();
+    }
+
+    @Override
+    public String getHeaderField(final URI uri, final String header) throws IOException {
+        return execute(uri, true, false, new Request<String>() {
+            @Override
+            public String send() throws IOException {
+                return delegate.getHeaderField(uri, header);
+            }
+        });
+    }
+
+    @Override
+    public String getGetResponseText(final URI uri) throws IOException {
+        return execute(uri, true, true, new Request<String>() {
+            @Override
+            public String send() throws IOException {
+                return delegate.getGetResponseText(uri);
+            }
+        });
+    }
+
+    @Override
+    public String getGetResponseText(final URI uri, final int timeout) throws IOException {
+        return execute(uri, true, true, new Request<String>() {
+            @Override
+            public String send() throws IOException {
+                return delegate.getGetResponseText(uri, timeout);
+            }
+        });
+    }
+
+    @Override
+    public String getPostResponseText(final URI uri, final StringContent content) throws IOException {
+        return execute(uri, false, false, new Request<String>() {
+            @Override
+            public String send() throws IOException {
+                return delegate.getPostResponseText(uri, content);
+            }
+        });
+    }
+
+    @Override
+    public HttpResponse getPostResponse(final URI uri, final StringContent content) throws IOException {
+        return execute(uri, false, false, new Request<HttpResponse>() {
+            @Override
+            public HttpResponse send() throws IOException {
+                return delegate.getPostResponse(uri, content);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> getGetResponseTextAsync(final URI uri) {
+        return executeAsync(uri.getHost(), true, 0, new AsyncRequest<String>() {
+            @Override
+            public CompletableFuture<String> send() {
+                return delegate.getGetResponseTextAsync(uri);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> getPostResponseTextAsync(final URI uri, final StringContent content) {
+        return executeAsync(uri.getHost(), false, 0, new AsyncRequest<String>() {
+            @Override
+            public CompletableFuture<String> send() {
+                return delegate.getPostResponseTextAsync(uri, content);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> getPostResponseAsync(final URI uri, final StringContent content) {
+        return executeAsync(uri.getHost(), false, 0, new AsyncRequest<HttpResponse>() {
+            @Override
+            public CompletableFuture<HttpResponse> send() {
+                return delegate.getPostResponseAsync(uri, content);
+            }
+        });
+    }
+
+    /**
+     * Same policy as {@link #execute(URI, boolean, boolean, Request)}, minus hedging: an async caller
+     * is not blocked by a slow response in the first place.
+     */
+    private <T> CompletableFuture<T> executeAsync(final String host, final boolean idempotent, final int attempt, final AsyncRequest<T> request) {
+        try {
+            circuitBreaker.beforeRequest(host);
+        }
+        catch (final CircuitBreakerOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        final long start = System.nanoTime();
+        final CompletableFuture<T> sent;
+        try {
+            sent = request.send();
+        }
+        catch (final RuntimeException e) {
+            circuitBreaker.onFailure(host);
+            throw e;
+        }
+        catch (final Error e) {
+            circuitBreaker.onAbandoned(host);
+            throw e;
+        }
+        return sent.handle(new BiFunction<T, Throwable, CompletableFuture<T>>() {
+            @Override
+            public CompletableFuture<T> apply(final T result, final Throwable throwable) {
+                final Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                if (cause instanceof RateLimiterRejectedException || cause instanceof Error) {
+                    // the request was never sent, or we cannot tell how far it got
+                    circuitBreaker.onAbandoned(host);
+                    return CompletableFuture.failedFuture(cause);
+                }
+                if (cause == null) {
+                    latencyTracker.record(host, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    if (result instanceof HttpResponse && isServerError(((HttpResponse) result).status)) {
+                        circuitBreaker.onFailure(host);
+                    }
+                    else {
+                        circuitBreaker.onSuccess(host);
+                    }
+                    return CompletableFuture.completedFuture(result);
+                }
+
+                final boolean retryable;
+                if (cause instanceof HttpStatusException) {
+                    final int status = ((HttpStatusException) cause).getStatusCode();
+                    if (isServerError(status)) {
+                        circuitBreaker.onFailure(host);
+                    }
+                    else {
+                        circuitBreaker.onSuccess(host);
+                    }
+                    retryable = idempotent && isTransient(status);
+                }
+                else {
+                    circuitBreaker.onFailure(host);
+                    retryable = cause instanceof IOException
+                            && (idempotent || cause instanceof ConnectException || cause instanceof UnknownHostException);
+                }
+                if (!retryable || attempt >= maxRetries) {
+                    return CompletableFuture.failedFuture(cause);
+                }
+                final long delay = RateLimiter.computeBackoffMilliseconds(attempt, null);
+                logger.info("Request to {} failed ({}); retrying in {} ms (attempt {} of {}).", host, cause.getMessage(), delay, attempt + 1, maxRetries);
+                final Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+                return CompletableFuture.supplyAsync(new Supplier<CompletableFuture<T>>() {
+                    @Override
+                    public CompletableFuture<T> get() {
+                        return executeAsync(host, idempotent, attempt + 1, request);
+                    }
+                }, delayed).thenCompose(Function.<CompletableFuture<T>>identity());
+            }
+        }).thenCompose(Function.<CompletableFuture<T>>identity());
+    }
+
+    private <T> T execute(final URI uri, final boolean idempotent, final boolean hedgeable, final Request<T> request) throws IOException {
+        final String host = uri.getHost();
+        for (int attempt = 0; ; attempt++) {
+            circuitBreaker.beforeRequest(host);
+            final long start = System.nanoTime();
+            final boolean retryable;
+            final IOException failure;
+            try {
+                final T result = hedgeable && hedgeExecutor != null ? sendHedged(host, request) : request.send();
+                latencyTracker.record(host, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                // getPostResponse() reports errors through the status rather than an exception
+                if (result instanceof HttpResponse && isServerError(((HttpResponse) result).status)) {
+                    circuitBreaker.onFailure(host);
+                }
+                else {
+                    circuitBreaker.onSuccess(host);
+                }
+                return result;
+            }
+            catch (final RateLimiterRejectedException e) {
+                // the request was never sent, so it says nothing about the host
+                circuitBreaker.onAbandoned(host);
+                throw e;
+            }
+            catch (final HttpStatusException e) {
+                if (isServerError(e.getStatusCode())) {
+                    circuitBreaker.onFailure(host);
+                }
+                else {
+                    circuitBreaker.onSuccess(host);
+                }
+                retryable = idempotent && isTransient(e.getStatusCode());
+                failure = e;
+            }
+            catch (final IOException e) {
+                if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+                    circuitBreaker.onAbandoned(host);
+                    throw e;
+                }
+                circuitBreaker.onFailure(host);
+                retryable = idempotent || e instanceof ConnectException || e instanceof UnknownHostException;
+                failure = e;
+            }
+            catch (final RuntimeException e) {
+                circuitBreaker.onFailure(host);
+                throw e;
+            }
+            catch (final Error e) {
+                circuitBreaker.onAbandoned(host);
+                throw e;
+            }
+
+            if (!retryable || attempt >= maxRetries) {
+                throw failure;
+            }
+            final long delay = RateLimiter.computeBackoffMilliseconds(attempt, null);
+            logger.info("Request to {} failed ({}); retrying in {} ms (attempt {} of {}).", host, failure.getMessage(), delay, attempt + 1, maxRetries);
+            try {
+                Thread.sleep(delay);
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry a request to " + host);
+            }
+        }
+    }
+
+    private <T> T sendHedged(final String host, final Request<T> request) throws IOException {
+        final long threshold = latencyTracker.getPercentile(host, HEDGE_PERCENTILE);
+        if (threshold < 0) {
+            return request.send();
+        }
+
+        final CompletableFuture<T> winner = new CompletableFuture<T>();
+        final AtomicInteger outstanding = new AtomicInteger(1);
+        submit(request, winner, outstanding);
+        try {
+            return winner.get(threshold, TimeUnit.MILLISECONDS);
+        }
+        catch (final TimeoutException e) {
+            outstanding.incrementAndGet();
+            if (!winner.isDone()) {
+                logger.debug("Request to {} is slower than {} ms; sending a hedged request.", host, threshold);
+                submit(request, winner, outstanding);
+            }
+            return await(winner);
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a response from " + host);
+        }
+        catch (final ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private <T> void submit(final Request<T> request, final CompletableFuture<T> winner, final AtomicInteger outstanding) {
+        hedgeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    winner.complete(request.send());
+                }
+                catch (final Throwable t) {
+                    // only report a failure once nobody else can still succeed
+                    if (outstanding.decrementAndGet() == 0) {
+                        winner.completeExceptionally(t);
+                    }
+                }
+            }
+        });
+    }
+
+    private static <T> T await(final CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a response");
+        }
+        catch (final ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static IOException unwrap(final ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+
+    static boolean isServerError(final int status) {
+        return status >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+    }
+
+    static boolean isTransient(final int status) {
+        return status == HttpURLConnection.HTTP_INTERNAL_ERROR
+                || status == HttpURLConnection.HTTP_BAD_GATEWAY
+                || status == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+    }
+
+    private interface Request<T> {
+        T send() throws IOException;
+    }
+
+    private interface AsyncRequest<T> {
+        CompletableFuture<T> send();
+    }
+}
@@ -9,6 +9,8 @@ import java.util.Map;
 /**
  * A very simple JSON [de-]serializer that only handles a dictionary of scalars
  * (string, number, true, false, null).
+ *
+ * See {@link LazyJson} for documents with nested objects and arrays.
  */
 public class SimpleJson {
 
@@ -18,6 +18,7 @@ public class UriHelper {
 
     private static final Pattern PAIR_SEPARATOR = Pattern.compile("&");
     private static final Pattern NAME_VALUE_SEPARATOR = Pattern.compile("=");
+    private static final Pattern IPV4_LOOPBACK = Pattern.compile("^127(\\.\\d{1,3}){3}$");
 
     public static final String UTF_8 = "UTF-8";
 
@@ -122,4 +123,34 @@ public class UriHelper {
         }
         return uri.getHost();
     }
+
+    /**
+     * The root of the account's REST APIs, e.g. {@code https://dev.azure.com/org} or
+     * {@code https://account.visualstudio.com}, keeping the port of {@code uri} if it has one.
+     *
+     * The scheme is always https, unless {@code uri} is plain http to the loopback interface,
+     * such as a local stand-in for the service, so that tokens never go out in the clear.
+     *
+     * @param uri an account, organization or repository url
+     * @return the scheme, host, port and account, without a trailing slash
+     */
+    public static String getAccountBaseUrl(final URI uri) {
+        final String host = uri.getHost();
+        final String fullAccount = getFullAccount(uri);
+        final boolean plainHttp = "http".equalsIgnoreCase(uri.getScheme()) && isLoopback(host);
+
+        final StringBuilder sb = new StringBuilder(plainHttp ? "http" : "https").append("://").append(host);
+        if (uri.getPort() != -1) {
+            sb.append(':').append(uri.getPort());
+        }
+        sb.append(fullAccount, host.length(), fullAccount.length());
+        return sb.toString();
+    }
+
+    /**
+     * Only loopback literals count: a DNS name such as {@code 127.example.com} could resolve anywhere.
+     */
+    static boolean isLoopback(final String host) {
+        return "localhost".equalsIgnoreCase(host) || IPV4_LOOPBACK.matcher(host).matches() || "[::1]".equals(host);
+    }
 }
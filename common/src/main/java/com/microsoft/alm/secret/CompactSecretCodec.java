@@ -0,0 +1,156 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.StringHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Encodes secrets as a versioned binary record in base64, e.g. {@code alm1:AAAA...}, instead of an XML document.
+ *
+ * Strings are written as a 4-byte length followed by their UTF-8 bytes; a {@link Token} is written in the layout of
+ * {@link Token#serialize} (type, target identity, value).  Since the prefix can never start an XML document,
+ * {@link #decode} recognizes its own format and returns {@code null} for anything else, such as secrets saved by an
+ * older version.
+ */
+public abstract class CompactSecretCodec<E extends Secret> implements SecretCodec<E> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompactSecretCodec.class);
+
+    static final String PREFIX = "alm1:";
+
+    public static final CompactSecretCodec<Credential> CREDENTIAL = new CompactSecretCodec<Credential>() {
+        @Override
+        protected byte[] toBytes(final Credential credential) {
+            final byte[] username = utf8(credential.Username);
+            final byte[] password = utf8(credential.Password);
+            final ByteBuffer buffer = ByteBuffer.allocate(8 + username.length + password.length);
+            put(buffer, username);
+            put(buffer, password);
+            return buffer.array();
+        }
+
+        @Override
+        protected Credential fromBytes(final ByteBuffer buffer) {
+            final String username = getString(buffer);
+            final String password = getString(buffer);
+            return new Credential(username, password);
+        }
+    };
+
+    /**
+     * Only the token values are kept, like the XML format did; {@link TokenPair#Parameters} are not.
+     */
+    public static final CompactSecretCodec<TokenPair> TOKEN_PAIR = new CompactSecretCodec<TokenPair>() {
+        @Override
+        protected byte[] toBytes(final TokenPair tokenPair) {
+            final byte[] accessToken = utf8(tokenPair.AccessToken.Value);
+            final byte[] refreshToken = utf8(tokenPair.RefreshToken.Value);
+            final ByteBuffer buffer = ByteBuffer.allocate(8 + accessToken.length + refreshToken.length);
+            put(buffer, accessToken);
+            put(buffer, refreshToken);
+            return buffer.array();
+        }
+
+        @Override
+        protected TokenPair fromBytes(final ByteBuffer buffer) {
+            final String accessToken = getString(buffer);
+            final String refreshToken = getString(buffer);
+            return new TokenPair(accessToken, refreshToken);
+        }
+    };
+
+    /**
+     * @param type the type of the tokens, which is checked when decoding
+     *
+     * @return a codec for tokens of {@code type}
+     */
+    public static CompactSecretCodec<Token> forToken(final TokenType type) {
+        Debug.Assert(type != null, "type cannot be null");
+
+        return new CompactSecretCodec<Token>() {
+            @Override
+            protected byte[] toBytes(final Token token) {
+                final AtomicReference<byte[]> bytes = new AtomicReference<byte[]>();
+                if (!Token.serialize(token, bytes)) {
+                    throw new IllegalArgumentException("The token could not be serialized.");
+                }
+                return bytes.get();
+            }
+
+            @Override
+            protected Token fromBytes(final ByteBuffer buffer) {
+                final byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                if (bytes.length < 4 || TokenType.fromValue(Integer.reverseBytes(ByteBuffer.wrap(bytes).getInt())) != type) {
+                    throw new IllegalArgumentException("The token is not of type " + type);
+                }
+                final AtomicReference<Token> token = new AtomicReference<Token>();
+                Token.deserialize(bytes, type, token);
+                return token.get();
+            }
+        };
+    }
+
+    protected abstract byte[] toBytes(final E secret);
+
+    /**
+     * @throws RuntimeException if the bytes are not a valid record
+     */
+    protected abstract E fromBytes(final ByteBuffer buffer);
+
+    @Override
+    public String encode(final E secret) {
+        Debug.Assert(secret != null, "secret cannot be null");
+
+        return PREFIX + Base64.getEncoder().encodeToString(toBytes(secret));
+    }
+
+    @Override
+    public E decode(final String encoded) {
+        Debug.Assert(encoded != null, "encoded cannot be null");
+
+        if (!encoded.startsWith(PREFIX)) {
+            return null;
+        }
+        try {
+            final byte[] bytes = Base64.getDecoder().decode(encoded.substring(PREFIX.length()));
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            final E secret = fromBytes(buffer);
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Unexpected bytes after the secret.");
+            }
+            return secret;
+        } catch (final RuntimeException e) {
+            logger.debug("Failed to decode a secret in the compact format.", e);
+            return null;
+        }
+    }
+
+    private static byte[] utf8(final String value) {
+        return value == null ? new byte[0] : StringHelper.UTF8GetBytes(value);
+    }
+
+    private static void put(final ByteBuffer buffer, final byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        final String value = StringHelper.UTF8GetString(buffer.array(), buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
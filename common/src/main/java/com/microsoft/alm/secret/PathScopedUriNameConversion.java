@@ -0,0 +1,185 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+import com.microsoft.alm.helpers.Debug;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Stores secrets under any path depth, e.g. one credential for {@code https://dev.azure.com/org/projectA} and
+ * another for the rest of {@code https://dev.azure.com/org}.
+ *
+ * Scopes are registered up front with {@link #addScope(URI)}.  A uri is converted to the key of the longest registered
+ * scope that is a prefix of it, found by walking a trie of path segments (so the cost grows with the number of
+ * segments in the uri, not with the number of scopes), and each lookup costs a single store round-trip.  Uris
+ * outside every scope fall back to another conversion, {@link Secret#DefaultUriNameConversion} unless specified.
+ *
+ * Hosts and path segments are matched ignoring case, like Azure DevOps and TFS do.
+ *
+ * Use it with any authenticator through {@code setUriToKeyConversion}.
+ */
+public class PathScopedUriNameConversion implements Secret.IUriNameConversion {
+
+    private static final Logger logger = LoggerFactory.getLogger(PathScopedUriNameConversion.class);
+
+    private final Secret.IUriNameConversion fallback;
+    private final ConcurrentMap<String, Node> roots = new ConcurrentHashMap<String, Node>();
+
+    public PathScopedUriNameConversion() {
+        this(Secret.DefaultUriNameConversion);
+    }
+
+    /**
+     * @param fallback converts the uris that are not in any registered scope.
+     */
+    public PathScopedUriNameConversion(final Secret.IUriNameConversion fallback) {
+        Debug.Assert(fallback != null, "fallback cannot be null");
+
+        this.fallback = fallback;
+    }
+
+    /**
+     * Registers a scope: uris under it, which are not also under a longer scope, are converted to its key.
+     *
+     * @param scope a hierarchical uri such as {@code https://dev.azure.com/org/projectA}
+     */
+    public void addScope(final URI scope) {
+        Debug.Assert(scope != null && scope.getHost() != null, "scope must have a host");
+
+        Node node = getOrAdd(roots, authorityOf(scope));
+        final String path = pathOf(scope);
+        for (int start = nextSegment(path, 0); start < path.length(); start = nextSegment(path, start)) {
+            final int end = segmentEnd(path, start);
+            node = getOrAdd(node.children, path.substring(start, end).toLowerCase(Locale.ROOT));
+            start = end;
+        }
+        node.name = nameOf(scope, path);
+        logger.debug("Added scope: {}", node.name);
+    }
+
+    /**
+     * @param scope a scope previously registered with {@link #addScope(URI)}
+     *
+     * @return {@code true} if the scope was registered
+     */
+    public boolean removeScope(final URI scope) {
+        Debug.Assert(scope != null && scope.getHost() != null, "scope must have a host");
+
+        final Node node = find(scope, true);
+        if (node == null || node.name == null) {
+            return false;
+        }
+        // the node stays in the trie, it is only a path to longer scopes now
+        node.name = null;
+        return true;
+    }
+
+    /**
+     * @param targetUri the uri being authenticated
+     *
+     * @return the name of the longest registered scope that {@code targetUri} is under, without namespace, or
+     *         {@code null} if it is not in any scope
+     */
+    public String findScope(final URI targetUri) {
+        final Node node = find(targetUri, false);
+        return node == null ? null : node.name;
+    }
+
+    @Override
+    public String convert(final URI targetUri, final String namespace) {
+        Debug.Assert(targetUri != null, "The targetUri parameter is null");
+
+        final String scope = targetUri.getHost() == null ? null : findScope(targetUri);
+        if (scope == null) {
+            return fallback.convert(targetUri, namespace);
+        }
+        return namespace + ":" + scope;
+    }
+
+    /**
+     * @param exact {@code true} to only return the node for the whole path; {@code false} to return the deepest
+     *              named node along the path
+     */
+    private Node find(final URI uri, final boolean exact) {
+        Node node = roots.get(authorityOf(uri));
+        Node longest = node != null && node.name != null ? node : null;
+        final String path = pathOf(uri);
+        for (int start = nextSegment(path, 0); node != null && start < path.length(); start = nextSegment(path, start)) {
+            final int end = segmentEnd(path, start);
+            node = node.children.get(path.substring(start, end).toLowerCase(Locale.ROOT));
+            if (node != null && node.name != null) {
+                longest = node;
+            }
+            start = end;
+        }
+        return exact ? node : longest;
+    }
+
+    private static Node getOrAdd(final ConcurrentMap<String, Node> nodes, final String key) {
+        Node node = nodes.get(key);
+        if (node == null) {
+            final Node candidate = new Node();
+            node = nodes.putIfAbsent(key, candidate);
+            if (node == null) {
+                node = candidate;
+            }
+        }
+        return node;
+    }
+
+    private static String authorityOf(final URI uri) {
+        final String authority = uri.getScheme() + "://" + uri.getHost();
+        return (uri.getPort() == -1 ? authority : authority + ":" + uri.getPort()).toLowerCase(Locale.ROOT);
+    }
+
+    private static String pathOf(final URI uri) {
+        final String path = uri.getRawPath();
+        return path == null ? "" : path;
+    }
+
+    /**
+     * The scope's uri without query, fragment, user info, or trailing slashes.
+     */
+    private static String nameOf(final URI scope, final String path) {
+        final StringBuilder builder = new StringBuilder(authorityOf(scope).length() + path.length());
+        builder.append(scope.getScheme()).append("://").append(scope.getHost());
+        if (scope.getPort() != -1) {
+            builder.append(':').append(scope.getPort());
+        }
+        for (int start = nextSegment(path, 0); start < path.length(); start = nextSegment(path, start)) {
+            final int end = segmentEnd(path, start);
+            builder.append('/').append(path, start, end);
+            start = end;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the index of the first character of the next non-empty segment at or after {@code from},
+     *         or the length of the path if there is none
+     */
+    private static int nextSegment(final String path, final int from) {
+        int index = from;
+        while (index < path.length() && path.charAt(index) == '/') {
+            index++;
+        }
+        return index;
+    }
+
+    private static int segmentEnd(final String path, final int start) {
+        final int slash = path.indexOf('/', start);
+        return slash == -1 ? path.length() : slash;
+    }
+
+    private static final class Node {
+        private final ConcurrentMap<String, Node> children = new ConcurrentHashMap<String, Node>();
+        private volatile String name;
+    }
+}
@@ -10,45 +10,145 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public abstract class Secret {
 
     private static final Logger logger = LoggerFactory.getLogger(Secret.class);
 
+    /**
+     * Builds the name a secret for {@code targetUri} is stored under: {@code namespace:scheme://account[:port]},
+     * where the account is the host, or {@code host/organization} for Azure DevOps hosts.
+     *
+     * @param targetUri the url to build the name for
+     * @param namespace the kind of secret, usually the authentication type
+     *
+     * @return the name of the secret
+     */
     public static String uriToName(final URI targetUri, final String namespace) {
-        final String TokenNameBaseFormat = "%1$s:%2$s://%3$s";
-        final String TokenNamePortFormat = TokenNameBaseFormat + ":%4$s";
-
         Debug.Assert(targetUri != null, "The targetUri parameter is null");
 
-        logger.debug("Secret::uriToName");
+        final String scheme = targetUri.getScheme();
+        final String host = targetUri.getHost();
+        final String path = targetUri.getPath();
+        final int port = targetUri.getPort();
+        // namespace + "://" + ":" + port, with room for an organization and a port
+        final StringBuilder builder = new StringBuilder(
+                String.valueOf(namespace).length() + String.valueOf(scheme).length() + String.valueOf(host).length() + 32
+                        + (path == null ? 0 : path.length()));
+
+        builder.append(namespace).append(':').append(scheme).append("://");
+        final int accountStart = builder.length();
+        appendFullAccount(builder, targetUri, host, path);
 
-        String targetName = null;
         // trim any trailing slashes and/or whitespace for compat with git-credential-winstore
-        String trimmedHostUrl = StringHelper.trimEnd(StringHelper.trimEnd(UriHelper.getFullAccount(targetUri), '/', '\\'));
+        int accountEnd = builder.length();
+        while (accountEnd > accountStart && (builder.charAt(accountEnd - 1) == '/' || builder.charAt(accountEnd - 1) == '\\')) {
+            accountEnd--;
+        }
+        while (accountEnd > accountStart && Character.isWhitespace(builder.charAt(accountEnd - 1))) {
+            accountEnd--;
+        }
+        builder.setLength(accountEnd);
 
-        if (targetUri.getPort() == -1 /* isDefaultPort */) {
-            targetName = String.format(TokenNameBaseFormat, namespace, targetUri.getScheme(), trimmedHostUrl);
-        } else {
-            targetName = String.format(TokenNamePortFormat, namespace, targetUri.getScheme(), trimmedHostUrl, targetUri.getPort());
+        if (port != -1 /* isDefaultPort */) {
+            builder.append(':').append(port);
         }
 
+        final String targetName = builder.toString();
         logger.debug("   target name = {}", targetName);
 
         return targetName;
     }
 
+    /**
+     * Same as {@link UriHelper#getFullAccount(URI)}, without splitting the path.
+     */
+    private static void appendFullAccount(final StringBuilder builder, final URI targetUri,
+                                          final String host, final String path) {
+        builder.append(host);
+        if (!UriHelper.isAzureHost(targetUri)) {
+            return;
+        }
+        // the organization is the second "/"-separated segment of the path, as long as the path has a
+        // non-empty segment past the first one; otherwise, check for the mseng@azure.com case
+        final int firstSlash = path.indexOf('/');
+        if (firstSlash != -1) {
+            for (int i = firstSlash + 1; i < path.length(); i++) {
+                if (path.charAt(i) != '/') {
+                    final int secondSlash = path.indexOf('/', firstSlash + 1);
+                    builder.append('/').append(path, firstSlash + 1, secondSlash == -1 ? path.length() : secondSlash);
+                    return;
+                }
+            }
+        }
+        final String userInfo = targetUri.getUserInfo();
+        if (!StringHelper.isNullOrWhiteSpace(userInfo)) {
+            builder.append('/').append(userInfo);
+        }
+    }
+
     public interface IUriNameConversion {
         String convert(final URI targetUri, final String namespace);
     }
 
-    public static IUriNameConversion DefaultUriNameConversion = new IUriNameConversion() {
+    public static IUriNameConversion DefaultUriNameConversion = new CachingUriNameConversion();
+
+    /**
+     * Remembers the names built by {@link Secret#uriToName}, since authenticators convert the same few uris over and
+     * over.  Lookups do not allocate: names are cached per namespace, by the uri's string form (which {@link URI}
+     * keeps), rather than by {@link URI#equals}, which ignores the case of the host and would hand back a name built
+     * from a differently cased uri.
+     *
+     * Each namespace holds at most {@code maxEntries} names; when it is full, it is emptied and starts over.
+     */
+    public static class CachingUriNameConversion implements IUriNameConversion {
+
+        public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+        private final int maxEntries;
+        private final ConcurrentMap<String, ConcurrentMap<String, String>> names
+                = new ConcurrentHashMap<String, ConcurrentMap<String, String>>();
+
+        public CachingUriNameConversion() {
+            this(DEFAULT_MAX_ENTRIES);
+        }
+
+        public CachingUriNameConversion(final int maxEntries) {
+            Debug.Assert(maxEntries > 0, "maxEntries must be positive");
+
+            this.maxEntries = maxEntries;
+        }
 
         @Override
         public String convert(final URI targetUri, final String namespace) {
-            return Secret.uriToName(targetUri, namespace);
+            Debug.Assert(targetUri != null, "The targetUri parameter is null");
+
+            if (namespace == null) {
+                return Secret.uriToName(targetUri, null);
+            }
+            ConcurrentMap<String, String> namespaceNames = names.get(namespace);
+            if (namespaceNames == null) {
+                final ConcurrentMap<String, String> candidate = new ConcurrentHashMap<String, String>();
+                namespaceNames = names.putIfAbsent(namespace, candidate);
+                if (namespaceNames == null) {
+                    namespaceNames = candidate;
+                }
+            }
+
+            final String uri = targetUri.toString();
+            String name = namespaceNames.get(uri);
+            if (name == null) {
+                name = Secret.uriToName(targetUri, namespace);
+                if (namespaceNames.size() >= maxEntries) {
+                    namespaceNames.clear();
+                }
+                namespaceNames.put(uri, name);
+            }
+            return name;
         }
-    };
+    }
 
     public static class PrefixedUriNameConversion implements IUriNameConversion {
 
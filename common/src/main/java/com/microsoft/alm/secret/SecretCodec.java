@@ -0,0 +1,27 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+/**
+ * Turns a secret into the string a store saves, and back.
+ *
+ * @param <E> a secret
+ */
+public interface SecretCodec<E extends Secret> {
+
+    /**
+     * @param secret the secret to save
+     *
+     * @return the string to save
+     */
+    String encode(final E secret);
+
+    /**
+     * @param encoded a saved string
+     *
+     * @return the secret, or {@code null} if {@code encoded} is not in this codec's format, so that the caller can
+     *         try another one
+     */
+    E decode(final String encoded);
+}
@@ -96,12 +96,15 @@ public class Token extends Secret {
 
     UUID targetIdentity = Guid.Empty;
 
+    long validTo;
+
     public static Token fromXml(final Node tokenNode) {
         Token value;
 
         String tokenValue = null;
         TokenType tokenType = null;
         UUID targetIdentity = Guid.Empty;
+        long validTo = 0;
 
         final NodeList propertyNodes = tokenNode.getChildNodes();
         for (int v = 0; v < propertyNodes.getLength(); v++) {
@@ -113,10 +116,13 @@ public class Token extends Secret {
                 tokenValue = XmlHelper.getText(propertyNode);
             } else if ("targetIdentity".equals(propertyName)) {
                 targetIdentity = UUID.fromString(XmlHelper.getText(propertyNode));
+            } else if ("validTo".equals(propertyName)) {
+                validTo = Long.parseLong(XmlHelper.getText(propertyNode));
             }
         }
         value = new Token(tokenValue, tokenType);
         value.setTargetIdentity(targetIdentity);
+        value.setValidTo(validTo);
         return value;
     }
 
@@ -139,6 +145,12 @@ public class Token extends Secret {
             targetIdentityNode.appendChild(targetIdentityValue);
             valueNode.appendChild(targetIdentityNode);
         }
+        if (this.validTo != 0) {
+            final Element validToNode = document.createElement("validTo");
+            final Text validToValue = document.createTextNode(Long.toString(this.validTo));
+            validToNode.appendChild(validToValue);
+            valueNode.appendChild(validToNode);
+        }
         return valueNode;
     }
 
@@ -153,6 +165,17 @@ public class Token extends Secret {
         this.targetIdentity = targetIdentity;
     }
 
+    /**
+     * @return when the token stops being valid, in milliseconds since the epoch, or {@code 0} if unknown
+     */
+    public long getValidTo() {
+        return validTo;
+    }
+
+    public void setValidTo(final long validTo) {
+        this.validTo = validTo;
+    }
+
     /**
      * Compares an object to this {@link Token} for equality.
      *
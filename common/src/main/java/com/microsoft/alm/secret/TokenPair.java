@@ -4,6 +4,7 @@
 package com.microsoft.alm.secret;
 
 import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.LazyJson;
 import com.microsoft.alm.helpers.PropertyBag;
 import com.microsoft.alm.helpers.StringHelper;
 import com.microsoft.alm.helpers.XmlHelper;
@@ -17,9 +18,14 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 public class TokenPair extends Secret {
     private static final Map<String, String> EMPTY_MAP = Collections.unmodifiableMap(new LinkedHashMap<String, String>(0));
@@ -42,7 +48,20 @@ public class TokenPair extends Secret {
     }
 
     public TokenPair(final String accessTokenResponse) {
-        this(PropertyBag.fromJson(accessTokenResponse));
+        this(LazyJson.parse(accessTokenResponse));
+    }
+
+    /**
+     * Creates a new {@link TokenPair} from a parsed token response.  The remaining members of the
+     * response are exposed through {@link #Parameters} without being decoded up front, so that large
+     * values such as the {@code id_token} are only copied when they are read.
+     *
+     * @param accessTokenResponse the parsed JSON response from the token endpoint
+     */
+    public TokenPair(final LazyJson.JsonObject accessTokenResponse) {
+        this.AccessToken = new Token(accessTokenResponse.getString(ACCESS_TOKEN, null), TokenType.Access);
+        this.RefreshToken = new Token(accessTokenResponse.getString(REFRESH_TOKEN, null), TokenType.Refresh);
+        this.Parameters = new LazyParameters(accessTokenResponse);
     }
 
     public TokenPair(final PropertyBag bag) {
@@ -207,4 +226,101 @@ public class TokenPair extends Secret {
     public static boolean operatorNotEquals(final TokenPair pair1, final TokenPair pair2) {
         return !operatorEquals(pair1, pair2);
     }
+
+    /**
+     * Read-only view of the token response members other than the tokens themselves.
+     * Values are decoded on every read and never cached.  A repeated member appears once, where it first
+     * occurs, with the value it last occurs with, the same as in a {@link TokenPair} built from a {@link PropertyBag}.
+     */
+    static final class LazyParameters extends AbstractMap<String, String> {
+        private final LazyJson.JsonObject json;
+        private final String[] keys;
+        private final int[] valueIndexes;
+
+        LazyParameters(final LazyJson.JsonObject json) {
+            this.json = json;
+            final LinkedHashMap<String, Integer> lastIndexes = new LinkedHashMap<String, Integer>();
+            for (int i = 0; i < json.size(); i++) {
+                if (!isToken(i)) {
+                    lastIndexes.put(json.getKey(i), i);
+                }
+            }
+            this.keys = new String[lastIndexes.size()];
+            this.valueIndexes = new int[lastIndexes.size()];
+            int parameter = 0;
+            for (final Map.Entry<String, Integer> entry : lastIndexes.entrySet()) {
+                keys[parameter] = entry.getKey();
+                valueIndexes[parameter] = entry.getValue();
+                parameter++;
+            }
+        }
+
+        private boolean isToken(final int index) {
+            return json.keyEquals(index, ACCESS_TOKEN) || json.keyEquals(index, REFRESH_TOKEN);
+        }
+
+        private static boolean isToken(final Object key) {
+            return ACCESS_TOKEN.equals(key) || REFRESH_TOKEN.equals(key);
+        }
+
+        static String toParameterValue(final Object value) {
+            if (value instanceof LazyJson.JsonArray) {
+                return ((LazyJson.JsonArray) value).getInnerText();
+            }
+            if (value instanceof LazyJson.JsonObject) {
+                return PropertyBag.fromJson((LazyJson.JsonObject) value).toString();
+            }
+            return value == null ? null : value.toString();
+        }
+
+        @Override
+        public String get(final Object key) {
+            if (!(key instanceof String) || isToken(key)) {
+                return null;
+            }
+            return toParameterValue(json.get((String) key));
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return key instanceof String && !isToken(key) && json.has((String) key);
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<Entry<String, String>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < keys.length;
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            final int current = next++;
+                            return new SimpleImmutableEntry<String, String>(keys[current],
+                                    toParameterValue(json.getValue(valueIndexes[current])));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return keys.length;
+                }
+            };
+        }
+    }
 }
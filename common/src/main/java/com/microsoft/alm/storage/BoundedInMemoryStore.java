@@ -0,0 +1,301 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.Func;
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.Secret;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An in-memory store that holds at most a fixed number of secrets, weighing at most an (approximate) number of
+ * bytes, evicting the least recently used ones first.  Secrets can also be given a time to live.
+ *
+ * Meant for long running processes that see an open-ended set of accounts, where {@link InsecureInMemoryStore}
+ * would grow forever.
+ */
+public class BoundedInMemoryStore<E extends Secret> implements EnumerableSecretStore<E> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedInMemoryStore.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    // rough 64-bit JVM figures, with compressed oops
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int STRING_OVERHEAD = 40;
+    private static final int MAP_ENTRY_OVERHEAD = 64;
+
+    /**
+     * Approximates how many bytes of heap a secret (and its key) retain, by adding up its strings and objects.
+     */
+    public static final Func<Secret, Long> APPROXIMATE_SIZE = new Func<Secret, Long>() {
+        @Override
+        public Long call(final Secret secret) {
+            return estimateSize(secret);
+        }
+    };
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long timeToLiveMillis;
+    private final Func<Secret, Long> weigher;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, Entry<E>> entries = new LinkedHashMap<String, Entry<E>>(16, 0.75f, true);
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public BoundedInMemoryStore() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, 0);
+    }
+
+    /**
+     * @param maxEntries       how many secrets are kept at most.
+     * @param maxBytes         how many bytes, approximately, the secrets and their keys may retain.
+     * @param timeToLiveMillis how long after being added a secret expires, {@code 0} to keep it until it is evicted.
+     */
+    public BoundedInMemoryStore(final int maxEntries, final long maxBytes, final long timeToLiveMillis) {
+        this(maxEntries, maxBytes, timeToLiveMillis, APPROXIMATE_SIZE);
+    }
+
+    /**
+     * @param maxEntries       how many secrets are kept at most.
+     * @param maxBytes         how many bytes the secrets and their keys may weigh.
+     * @param timeToLiveMillis how long after being added a secret expires, {@code 0} to keep it until it is evicted.
+     * @param weigher          how many bytes a secret weighs, not counting its key.
+     */
+    public BoundedInMemoryStore(final int maxEntries, final long maxBytes, final long timeToLiveMillis,
+                                final Func<Secret, Long> weigher) {
+        Debug.Assert(maxEntries > 0, "maxEntries must be positive");
+        Debug.Assert(maxBytes > 0, "maxBytes must be positive");
+        Debug.Assert(timeToLiveMillis >= 0, "timeToLiveMillis cannot be negative");
+        Debug.Assert(weigher != null, "weigher cannot be null");
+
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.weigher = weigher;
+    }
+
+    @Override
+    public E get(final String key) {
+        synchronized (lock) {
+            final Entry<E> entry = entries.get(key);
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            if (isExpired(entry, currentTimeMillis())) {
+                remove(key);
+                expirations++;
+                misses++;
+                return null;
+            }
+            hits++;
+            return entry.secret;
+        }
+    }
+
+    @Override
+    public boolean delete(final String key) {
+        synchronized (lock) {
+            remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Adds the secret and evicts the least recently used secrets until the store is within its bounds again.
+     * A secret that would not fit even in an empty store is not added (and replaces nothing).
+     */
+    @Override
+    public boolean add(final String key, final E secret) {
+        Debug.Assert(key != null, "key cannot be null");
+        Debug.Assert(secret != null, "secret cannot be null");
+
+        final long entryWeight = sizeOf(key) + MAP_ENTRY_OVERHEAD + weigher.call(secret);
+        if (entryWeight > maxBytes) {
+            logger.warn("Secret for key: {} weighs about {} bytes, more than the whole store may hold, not storing it.",
+                    key, entryWeight);
+            return false;
+        }
+        synchronized (lock) {
+            remove(key);
+            entries.put(key, new Entry<E>(secret, entryWeight, currentTimeMillis()));
+            weight += entryWeight;
+            evictToFit();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    /**
+     * Lists the keys without counting as a use of their secrets; expired secrets are left out.
+     */
+    @Override
+    public Set<String> getKeys() {
+        synchronized (lock) {
+            final long now = currentTimeMillis();
+            final Set<String> keys = new HashSet<String>();
+            for (final Map.Entry<String, Entry<E>> entry : entries.entrySet()) {
+                if (!isExpired(entry.getValue(), now)) {
+                    keys.add(entry.getKey());
+                }
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * Removes the expired secrets now, rather than when they are next looked up.
+     *
+     * @return how many secrets were removed.
+     */
+    public int purgeExpired() {
+        if (timeToLiveMillis == 0) {
+            return 0;
+        }
+        int purged = 0;
+        synchronized (lock) {
+            final long now = currentTimeMillis();
+            final Iterator<Entry<E>> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                final Entry<E> entry = iterator.next();
+                if (isExpired(entry, now)) {
+                    iterator.remove();
+                    weight -= entry.weight;
+                    purged++;
+                }
+            }
+            expirations += purged;
+        }
+        return purged;
+    }
+
+    public Stats getStats() {
+        synchronized (lock) {
+            return new Stats(entries.size(), weight, hits, misses, evictions, expirations);
+        }
+    }
+
+    /**
+     * Extensibility point, for tests.
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private boolean isExpired(final Entry<E> entry, final long now) {
+        return timeToLiveMillis > 0 && now - entry.addedAt >= timeToLiveMillis;
+    }
+
+    private void remove(final String key) {
+        final Entry<E> removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    private void evictToFit() {
+        final Iterator<Map.Entry<String, Entry<E>>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxBytes) && iterator.hasNext()) {
+            final Map.Entry<String, Entry<E>> eldest = iterator.next();
+            logger.debug("Evicting secret for key: {}.", eldest.getKey());
+            iterator.remove();
+            weight -= eldest.getValue().weight;
+            evictions++;
+        }
+    }
+
+    static long estimateSize(final Secret secret) {
+        if (secret instanceof Credential) {
+            final Credential credential = (Credential) secret;
+            return OBJECT_OVERHEAD + sizeOf(credential.Username) + sizeOf(credential.Password);
+        }
+        if (secret instanceof Token) {
+            // the type, and the target identity
+            return 2 * OBJECT_OVERHEAD + 16 + sizeOf(((Token) secret).Value);
+        }
+        if (secret instanceof TokenPair) {
+            final TokenPair tokenPair = (TokenPair) secret;
+            long size = OBJECT_OVERHEAD + estimateSize(tokenPair.AccessToken) + estimateSize(tokenPair.RefreshToken);
+            if (tokenPair.Parameters != null) {
+                size += OBJECT_OVERHEAD;
+                for (final Map.Entry<String, String> parameter : tokenPair.Parameters.entrySet()) {
+                    size += MAP_ENTRY_OVERHEAD + sizeOf(parameter.getKey()) + sizeOf(parameter.getValue());
+                }
+            }
+            return size;
+        }
+        return secret == null ? 0 : OBJECT_OVERHEAD;
+    }
+
+    private static long sizeOf(final String value) {
+        // assume the worst case of UTF-16 storage, compact strings would halve this for ASCII
+        return value == null ? 0 : STRING_OVERHEAD + 2L * value.length();
+    }
+
+    /**
+     * A snapshot of the store's size and counters.
+     */
+    public static final class Stats {
+        public final int size;
+        public final long weight;
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final long expirations;
+
+        Stats(final int size, final long weight, final long hits, final long misses,
+              final long evictions, final long expirations) {
+            this.size = size;
+            this.weight = weight;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+        }
+
+        public double getHitRate() {
+            final long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("size=%d, weight=%d, hits=%d, misses=%d, evictions=%d, expirations=%d",
+                    size, weight, hits, misses, evictions, expirations);
+        }
+    }
+
+    private static final class Entry<E> {
+        private final E secret;
+        private final long weight;
+        private final long addedAt;
+
+        Entry(final E secret, final long weight, final long addedAt) {
+            this.secret = secret;
+            this.weight = weight;
+            this.addedAt = addedAt;
+        }
+    }
+}
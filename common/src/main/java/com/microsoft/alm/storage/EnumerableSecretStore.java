@@ -0,0 +1,21 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.secret.Secret;
+
+import java.util.Set;
+
+/**
+ * A secret store that can list the keys it holds, so that its secrets can be copied elsewhere.
+ *
+ * @param <E> a secret
+ */
+public interface EnumerableSecretStore<E extends Secret> extends SecretStore<E> {
+
+    /**
+     * @return a snapshot of the keys of the secrets in this store, which later changes to the store do not affect
+     */
+    Set<String> getKeys();
+}
@@ -0,0 +1,29 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.secret.Secret;
+
+/**
+ * A store that keeps {@link SecretMetadata} for its secrets and can purge the ones that expired.
+ *
+ * @param <E> a secret
+ */
+public interface ExpiringSecretStore<E extends Secret> extends SecretStore<E> {
+
+    /**
+     * @return the metadata of the secret for {@code key}, or {@code null} if there is no such secret
+     */
+    SecretMetadata getMetadata(final String key);
+
+    /**
+     * Removes up to {@code maxEntries} secrets that expired, or that were not read for {@code maxIdleMillis}.
+     *
+     * @param maxIdleMillis how long a secret may go unread, {@code 0} to only purge expired secrets
+     * @param maxEntries    how many secrets to remove at most, so that the store is not held for long
+     *
+     * @return how many secrets were removed
+     */
+    int purgeExpired(final long maxIdleMillis, final int maxEntries);
+}
@@ -7,13 +7,23 @@ import com.microsoft.alm.secret.Credential;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Set;
+
 import static com.microsoft.alm.helpers.LoggingHelper.logError;
 
-public class InsecureFileBackedCredentialStore implements SecretStore<Credential> {
+public class InsecureFileBackedCredentialStore implements EnumerableSecretStore<Credential>, ExpiringSecretStore<Credential> {
 
     private static Logger logger = LoggerFactory.getLogger(InsecureFileBackedCredentialStore.class);
 
-    private static InsecureFileBackend fileBackend = InsecureFileBackend.getInstance();
+    private final InsecureFileBackend fileBackend;
+
+    public InsecureFileBackedCredentialStore() {
+        this(InsecureFileBackend.getInstance());
+    }
+
+    InsecureFileBackedCredentialStore(final InsecureFileBackend fileBackend) {
+        this.fileBackend = fileBackend;
+    }
 
     @Override
     public Credential get(String key) {
@@ -38,6 +48,21 @@ public class InsecureFileBackedCredentialStore implements SecretStore<Credential
         }
     }
 
+    @Override
+    public Set<String> getKeys() {
+        return fileBackend.getCredentialKeys();
+    }
+
+    @Override
+    public SecretMetadata getMetadata(final String key) {
+        return fileBackend.getCredentialMetadata(key);
+    }
+
+    @Override
+    public int purgeExpired(final long maxIdleMillis, final int maxEntries) {
+        return fileBackend.purgeExpiredCredentials(maxIdleMillis, maxEntries);
+    }
+
     @Override
     public boolean isSecure() {
         return false;
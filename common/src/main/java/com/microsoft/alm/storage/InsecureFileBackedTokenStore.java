@@ -7,13 +7,23 @@ import com.microsoft.alm.secret.Token;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Set;
+
 import static com.microsoft.alm.helpers.LoggingHelper.logError;
 
-public class InsecureFileBackedTokenStore implements SecretStore<Token> {
+public class InsecureFileBackedTokenStore implements EnumerableSecretStore<Token>, ExpiringSecretStore<Token> {
 
     private static Logger logger = LoggerFactory.getLogger(InsecureFileBackedTokenStore.class);
 
-    private static InsecureFileBackend fileBackend = InsecureFileBackend.getInstance();
+    private final InsecureFileBackend fileBackend;
+
+    public InsecureFileBackedTokenStore() {
+        this(InsecureFileBackend.getInstance());
+    }
+
+    InsecureFileBackedTokenStore(final InsecureFileBackend fileBackend) {
+        this.fileBackend = fileBackend;
+    }
 
     @Override
     public Token get(String key) {
@@ -37,6 +47,21 @@ public class InsecureFileBackedTokenStore implements SecretStore<Token> {
         }
     }
 
+    @Override
+    public Set<String> getKeys() {
+        return fileBackend.getTokenKeys();
+    }
+
+    @Override
+    public SecretMetadata getMetadata(final String key) {
+        return fileBackend.getTokenMetadata(key);
+    }
+
+    @Override
+    public int purgeExpired(final long maxIdleMillis, final int maxEntries) {
+        return fileBackend.purgeExpiredTokens(maxIdleMillis, maxEntries);
+    }
+
     @Override
     public boolean isSecure() {
         return false;
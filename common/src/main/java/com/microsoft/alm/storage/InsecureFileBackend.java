@@ -3,11 +3,15 @@
 
 package com.microsoft.alm.storage;
 
+import com.microsoft.alm.helpers.AuthEvents;
+import com.microsoft.alm.helpers.AuthMetrics;
+import com.microsoft.alm.helpers.AuthMetricsProvider;
 import com.microsoft.alm.helpers.Environment;
 import com.microsoft.alm.helpers.IOHelper;
 import com.microsoft.alm.helpers.SystemHelper;
 import com.microsoft.alm.helpers.XmlHelper;
 import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.Secret;
 import com.microsoft.alm.secret.Token;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,7 +35,10 @@ import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import static com.microsoft.alm.helpers.LoggingHelper.logError;
 
@@ -41,10 +48,14 @@ class InsecureFileBackend {
 
     public static final String PROGRAM_FOLDER_NAME = "VSTeamServicesAuthPlugin";
 
+    private static final String SOURCE = InsecureFileBackend.class.getSimpleName();
+
     private final File backingFile;
 
     final Map<String, Token> Tokens = new HashMap<String, Token>();
     final Map<String, Credential> Credentials = new HashMap<String, Credential>();
+    final Map<String, SecretMetadata> TokenMetadata = new HashMap<String, SecretMetadata>();
+    final Map<String, SecretMetadata> CredentialMetadata = new HashMap<String, SecretMetadata>();
 
     private static InsecureFileBackend instance;
 
@@ -78,6 +89,12 @@ class InsecureFileBackend {
 
                     this.Credentials.clear();
                     this.Credentials.putAll(clone.Credentials);
+
+                    this.TokenMetadata.clear();
+                    this.TokenMetadata.putAll(clone.TokenMetadata);
+
+                    this.CredentialMetadata.clear();
+                    this.CredentialMetadata.putAll(clone.CredentialMetadata);
                 }
             } catch (final FileNotFoundException e) {
                 logger.info("backingFile {} did not exist", backingFile.getAbsolutePath());
@@ -90,14 +107,18 @@ class InsecureFileBackend {
     void save() {
         if (backingFile != null) {
             // TODO: 449510: consider creating a backup of the file, if it exists, before overwriting it
+            final AuthMetrics metrics = AuthMetricsProvider.get();
+            final long start = System.nanoTime();
             FileOutputStream fos = null;
             try {
                 fos = new FileOutputStream(backingFile);
                 toXml(fos);
             } catch (final FileNotFoundException e) {
+                metrics.recordError(AuthMetrics.STORE_SAVE, SOURCE, e);
                 throw new Error("Error during save()", e);
             } finally {
                 IOHelper.closeQuietly(fos);
+                metrics.recordLatency(AuthMetrics.STORE_SAVE, SOURCE, System.nanoTime() - start);
             }
 
             if (!backingFile.setReadable(false, false)
@@ -128,8 +149,10 @@ class InsecureFileBackend {
                     continue;
                 if ("Tokens".equals(tokensOrCredentials.getNodeName())) {
                     result.Tokens.clear();
+                    result.TokenMetadata.clear();
                 } else if ("Credentials".equals(tokensOrCredentials.getNodeName())) {
                     result.Credentials.clear();
+                    result.CredentialMetadata.clear();
                 } else continue;
                 final NodeList entryList = tokensOrCredentials.getChildNodes();
                 for (int e = 0; e < entryList.getLength(); e++) {
@@ -166,6 +189,7 @@ class InsecureFileBackend {
             }
         }
         result.Credentials.put(key, value);
+        result.CredentialMetadata.put(key, loadMetadata(entryNode, value, result.currentTimeMillis()));
     }
 
     private static void loadToken(final InsecureFileBackend result, final Node entryNode) {
@@ -183,6 +207,33 @@ class InsecureFileBackend {
             }
         }
         result.Tokens.put(key, value);
+        result.TokenMetadata.put(key, loadMetadata(entryNode, value, result.currentTimeMillis()));
+    }
+
+    /**
+     * Entries saved before metadata was kept are treated as if they were added and used when they are loaded.
+     */
+    private static SecretMetadata loadMetadata(final Node entryNode, final Secret value, final long now) {
+        final Element entryElement = (Element) entryNode;
+        final long createdAt = readTime(entryElement, "created", now);
+        final long lastUsedAt = readTime(entryElement, "lastUsed", createdAt);
+        final long expiresAt = readTime(entryElement, "expires", SecretMetadata.deriveExpiry(value, createdAt));
+        return new SecretMetadata(createdAt, lastUsedAt, expiresAt);
+    }
+
+    private static long readTime(final Element element, final String attributeName, final long defaultValue) {
+        final String value = element.getAttribute(attributeName);
+        return value.isEmpty() ? defaultValue : Long.parseLong(value);
+    }
+
+    private static void writeMetadata(final Element entryNode, final SecretMetadata metadata) {
+        if (metadata != null) {
+            entryNode.setAttribute("created", Long.toString(metadata.createdAt));
+            entryNode.setAttribute("lastUsed", Long.toString(metadata.lastUsedAt));
+            if (metadata.expiresAt != 0) {
+                entryNode.setAttribute("expires", Long.toString(metadata.expiresAt));
+            }
+        }
     }
 
     void toXml(final OutputStream destination) {
@@ -212,6 +263,7 @@ class InsecureFileBackend {
         final Element tokensNode = document.createElement("Tokens");
         for (final Map.Entry<String, Token> entry : Tokens.entrySet()) {
             final Element entryNode = document.createElement("entry");
+            writeMetadata(entryNode, TokenMetadata.get(entry.getKey()));
 
             final Element keyNode = document.createElement("key");
             final Text keyValue = document.createTextNode(entry.getKey());
@@ -234,6 +286,7 @@ class InsecureFileBackend {
         final Element credentialsNode = document.createElement("Credentials");
         for (final Map.Entry<String, Credential> entry : Credentials.entrySet()) {
             final Element entryNode = document.createElement("entry");
+            writeMetadata(entryNode, CredentialMetadata.get(entry.getKey()));
 
             final Element keyNode = document.createElement("key");
             final Text keyValue = document.createTextNode(entry.getKey());
@@ -254,31 +307,134 @@ class InsecureFileBackend {
     public synchronized boolean delete(final String targetName) {
         if (Tokens.containsKey(targetName)) {
             Tokens.remove(targetName);
+            TokenMetadata.remove(targetName);
             save();
         } else if (Credentials.containsKey(targetName)) {
             Credentials.remove(targetName);
+            CredentialMetadata.remove(targetName);
             save();
         }
 
         return true;
     }
 
+    /**
+     * @return the credential, or {@code null} if there is none or it expired
+     */
     public synchronized Credential readCredentials(final String targetName) {
-        return Credentials.get(targetName);
+        return touch(targetName, Credentials, CredentialMetadata) ? Credentials.get(targetName) : null;
     }
 
+    /**
+     * @return the token, or {@code null} if there is none or it expired, which saves validating a dead token
+     */
     public synchronized Token readToken(final String targetName) {
-        return Tokens.get(targetName);
+        return touch(targetName, Tokens, TokenMetadata) ? Tokens.get(targetName) : null;
+    }
+
+    public synchronized SecretMetadata getCredentialMetadata(final String targetName) {
+        return CredentialMetadata.get(targetName);
+    }
+
+    public synchronized SecretMetadata getTokenMetadata(final String targetName) {
+        return TokenMetadata.get(targetName);
+    }
+
+    public synchronized Set<String> getCredentialKeys() {
+        return new HashSet<String>(Credentials.keySet());
+    }
+
+    public synchronized Set<String> getTokenKeys() {
+        return new HashSet<String>(Tokens.keySet());
     }
 
     public synchronized void writeCredential(final String targetName, final Credential credentials) {
-        Credentials.put(targetName, credentials);
-        save();
+        final AuthEvents.SecretStoreWrite event = new AuthEvents.SecretStoreWrite();
+        event.begin();
+        String status = "FAILED";
+        try {
+            Credentials.put(targetName, credentials);
+            CredentialMetadata.put(targetName, SecretMetadata.forNewSecret(credentials, currentTimeMillis()));
+            save();
+            status = "OK";
+        } finally {
+            event.finish(targetName, SOURCE, status);
+        }
     }
 
     public synchronized void writeToken(final String targetName, final Token token) {
-        Tokens.put(targetName, token);
-        save();
+        final AuthEvents.SecretStoreWrite event = new AuthEvents.SecretStoreWrite();
+        event.begin();
+        String status = "FAILED";
+        try {
+            Tokens.put(targetName, token);
+            TokenMetadata.put(targetName, SecretMetadata.forNewSecret(token, currentTimeMillis()));
+            save();
+            status = "OK";
+        } finally {
+            event.finish(targetName, SOURCE, status);
+        }
+    }
+
+    /**
+     * Removes up to {@code maxEntries} credentials that expired or went unread for {@code maxIdleMillis},
+     * saving the file once.
+     */
+    public synchronized int purgeExpiredCredentials(final long maxIdleMillis, final int maxEntries) {
+        return purgeExpired(Credentials, CredentialMetadata, maxIdleMillis, maxEntries);
+    }
+
+    /**
+     * Removes up to {@code maxEntries} tokens that expired or went unread for {@code maxIdleMillis},
+     * saving the file once.
+     */
+    public synchronized int purgeExpiredTokens(final long maxIdleMillis, final int maxEntries) {
+        return purgeExpired(Tokens, TokenMetadata, maxIdleMillis, maxEntries);
+    }
+
+    /**
+     * Extensibility point, for tests.
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Records the read in memory only; the time is saved along with the next change, rather than on every read.
+     */
+    private boolean touch(final String targetName, final Map<String, ? extends Secret> secrets,
+                          final Map<String, SecretMetadata> metadata) {
+        final SecretMetadata entry = metadata.get(targetName);
+        if (entry == null) {
+            return secrets.containsKey(targetName);
+        }
+        final long now = currentTimeMillis();
+        if (entry.isExpired(now)) {
+            logger.debug("Secret for key: {} expired, ignoring it.", targetName);
+            return false;
+        }
+        metadata.put(targetName, entry.touch(now));
+        return true;
+    }
+
+    private int purgeExpired(final Map<String, ? extends Secret> secrets, final Map<String, SecretMetadata> metadata,
+                             final long maxIdleMillis, final int maxEntries) {
+        final long now = currentTimeMillis();
+        int purged = 0;
+        final Iterator<Map.Entry<String, SecretMetadata>> iterator = metadata.entrySet().iterator();
+        while (purged < maxEntries && iterator.hasNext()) {
+            final Map.Entry<String, SecretMetadata> entry = iterator.next();
+            if (entry.getValue().isExpired(now) || entry.getValue().isIdle(now, maxIdleMillis)) {
+                logger.debug("Purging secret for key: {} ({}).", entry.getKey(), entry.getValue());
+                iterator.remove();
+                secrets.remove(entry.getKey());
+                purged++;
+            }
+        }
+        if (purged > 0) {
+            save();
+        }
+        return purged;
     }
 
     private static File getBackingFile() {
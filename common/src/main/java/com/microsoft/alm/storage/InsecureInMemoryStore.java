@@ -5,10 +5,12 @@ package com.microsoft.alm.storage;
 
 import com.microsoft.alm.secret.Secret;
 
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
-public class InsecureInMemoryStore<E extends Secret> implements SecretStore<E> {
+public class InsecureInMemoryStore<E extends Secret> implements EnumerableSecretStore<E> {
 
     private final ConcurrentMap<String, E> store;
 
@@ -32,7 +34,13 @@ public class InsecureInMemoryStore<E extends Secret> implements SecretStore<E> {
 
     @Override
     public boolean add(final String key, final E secret) {
-        return store.put(key, secret) != null;
+        store.put(key, secret);
+        return true;
+    }
+
+    @Override
+    public Set<String> getKeys() {
+        return new HashSet<String>(store.keySet());
     }
 
     @Override
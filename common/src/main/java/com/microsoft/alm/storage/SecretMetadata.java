@@ -0,0 +1,89 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.secret.Secret;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenPair;
+
+/**
+ * When a stored secret was added, last read and stops being valid, in milliseconds since the epoch.
+ */
+public final class SecretMetadata {
+
+    /**
+     * How long, in seconds, the refresh token of an OAuth2 token response stays valid; not every server sends it.
+     */
+    static final String REFRESH_TOKEN_EXPIRES_IN = "refresh_token_expires_in";
+
+    public final long createdAt;
+    public final long lastUsedAt;
+    /**
+     * {@code 0} if the secret does not expire, or it is not known when it does.
+     */
+    public final long expiresAt;
+
+    public SecretMetadata(final long createdAt, final long lastUsedAt, final long expiresAt) {
+        this.createdAt = createdAt;
+        this.lastUsedAt = lastUsedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * @param secret the secret being added
+     * @param now    when it is being added
+     *
+     * @return the metadata of a secret added {@code now}
+     */
+    public static SecretMetadata forNewSecret(final Secret secret, final long now) {
+        return new SecretMetadata(now, now, deriveExpiry(secret, now));
+    }
+
+    /**
+     * Works out when a secret expires: a token's {@link Token#getValidTo() validity}, or, for a token pair, how long
+     * the refresh token lasts, since the access token is renewed with it.
+     *
+     * @return when the secret expires, or {@code 0} if that is not known
+     */
+    public static long deriveExpiry(final Secret secret, final long now) {
+        if (secret instanceof Token) {
+            return ((Token) secret).getValidTo();
+        }
+        if (secret instanceof TokenPair) {
+            final TokenPair tokenPair = (TokenPair) secret;
+            if (tokenPair.RefreshToken.getValidTo() != 0) {
+                return tokenPair.RefreshToken.getValidTo();
+            }
+            final String expiresIn = tokenPair.Parameters == null ? null : tokenPair.Parameters.get(REFRESH_TOKEN_EXPIRES_IN);
+            if (expiresIn != null) {
+                try {
+                    return now + 1000 * Long.parseLong(expiresIn.trim());
+                } catch (final NumberFormatException ignored) {
+                    // not a number, treat as unknown
+                }
+            }
+        }
+        return 0;
+    }
+
+    public SecretMetadata touch(final long now) {
+        return new SecretMetadata(createdAt, now, expiresAt);
+    }
+
+    public boolean isExpired(final long now) {
+        return expiresAt != 0 && now >= expiresAt;
+    }
+
+    /**
+     * @param maxIdleMillis how long a secret may go unread, {@code 0} for ever
+     */
+    public boolean isIdle(final long now, final long maxIdleMillis) {
+        return maxIdleMillis > 0 && now - lastUsedAt >= maxIdleMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("createdAt=%d, lastUsedAt=%d, expiresAt=%d", createdAt, lastUsedAt, expiresAt);
+    }
+}
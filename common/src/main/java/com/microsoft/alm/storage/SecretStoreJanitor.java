@@ -0,0 +1,114 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.helpers.Debug;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static com.microsoft.alm.helpers.LoggingHelper.logError;
+
+/**
+ * Purges expired, and optionally long unused, secrets from stores in the background, so that a store, and the cost
+ * of saving it, grows with the secrets that are still alive rather than with every secret it was ever given.
+ *
+ * Secrets are purged in batches of {@code batchSize}, each one holding the store, and saving it, once.
+ */
+public class SecretStoreJanitor implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecretStoreJanitor.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final List<ExpiringSecretStore<?>> stores;
+    private final long maxIdleMillis;
+    private final int batchSize;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Purges expired secrets only.
+     */
+    public SecretStoreJanitor(final List<? extends ExpiringSecretStore<?>> stores) {
+        this(stores, 0, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param stores        the stores to purge
+     * @param maxIdleMillis how long a secret may go unread before it is purged, {@code 0} to keep it until it expires
+     * @param batchSize     how many secrets to purge at a time
+     */
+    public SecretStoreJanitor(final List<? extends ExpiringSecretStore<?>> stores, final long maxIdleMillis,
+                              final int batchSize) {
+        Debug.Assert(stores != null, "stores cannot be null");
+        Debug.Assert(maxIdleMillis >= 0, "maxIdleMillis cannot be negative");
+        Debug.Assert(batchSize > 0, "batchSize must be positive");
+
+        this.stores = new ArrayList<ExpiringSecretStore<?>>(stores);
+        this.maxIdleMillis = maxIdleMillis;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Purges the stores now, batch after batch, until a batch comes back short.
+     *
+     * @return how many secrets were purged
+     */
+    public int sweep() {
+        int total = 0;
+        for (final ExpiringSecretStore<?> store : stores) {
+            int purged;
+            do {
+                purged = store.purgeExpired(maxIdleMillis, batchSize);
+                total += purged;
+            } while (purged == batchSize);
+        }
+        if (total > 0) {
+            logger.info("Purged {} expired secrets.", total);
+        }
+        return total;
+    }
+
+    /**
+     * Sweeps every {@code intervalMillis} on a daemon thread, starting one interval from now, until closed.
+     */
+    public synchronized void start(final long intervalMillis) {
+        Debug.Assert(intervalMillis > 0, "intervalMillis must be positive");
+        Debug.Assert(scheduler == null, "The janitor was already started");
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "secret-janitor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sweep();
+                } catch (final Throwable t) {
+                    logError(logger, "Failed to purge expired secrets, will try again.", t);
+                }
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers
+
+import groovy.transform.CompileStatic
+import org.junit.Assert
+import org.junit.Test
+
+/**
+ * A class to test {@see LazyJson}.
+ */
+@CompileStatic
+public class LazyJsonTest {
+
+    private static void assertParseError(final String expectedMessage, final String input) {
+        try {
+            LazyJson.parse(input)
+        }
+        catch (final IllegalArgumentException actual) {
+            assert expectedMessage == actual.message
+            return;
+        }
+        Assert.fail("Expected IllegalArgumentException with message: " + expectedMessage)
+    }
+
+    @Test public void parse_emptyString() {
+        final actual = LazyJson.parse("  ")
+
+        assert 0 == actual.size()
+    }
+
+    @Test public void parse_scalars() {
+        final actual = LazyJson.parse(/{"s":"v\"x", "n":-4.2e1, "t":true, "f":false, "z":null,}/)
+
+        assert 5 == actual.size()
+        assert ["s", "n", "t", "f", "z"] == actual.keys()
+        assert 'v"x' == actual.get("s")
+        assert -42d == actual.get("n")
+        assert true == actual.get("t")
+        assert false == actual.get("f")
+        assert null == actual.get("z")
+        assert actual.has("z")
+        assert !actual.has("missing")
+    }
+
+    @Test public void parse_escapedString() {
+        final actual = LazyJson.parse('{"name":"\\/\\b\\f\\"\\n\\r\\t\\u20AC\\\\"}')
+
+        assert "/\b\f\"\n\r\t€\\" == actual.get("name")
+    }
+
+    @Test public void parse_nestedObjectsAndArrays() {
+        final input = """
+{
+    "count": 2,
+    "value": [
+        { "accountName": "one", "properties": { "region": "eus" } },
+        { "accountName": "two", "tags": [1, [2, 3], "}"] }
+    ]
+}
+"""
+        final actual = LazyJson.parse(input)
+
+        final accounts = actual.getArray("value")
+        assert 2 == accounts.size()
+        assert "one" == accounts.getObject(0).getString("accountName", null)
+        assert "eus" == accounts.getObject(0).getObject("properties").getString("region", null)
+        final tags = accounts.getObject(1).getArray("tags")
+        assert 3 == tags.size()
+        assert 1d == tags.get(0)
+        assert [2d, 3d] == (List) tags.get(1)
+        assert "}" == tags.get(2)
+    }
+
+    @Test public void parseArray_topLevel() {
+        final actual = LazyJson.parseArray(/[ {"a":1}, "b" ]/)
+
+        assert 2 == actual.size()
+        assert 1d == actual.getObject(0).getNumber("a", 0)
+        assert "b" == actual.get(1)
+    }
+
+    @Test public void getRaw_doesNotDecode() {
+        final actual = LazyJson.parse(/{"id_token":"eyJ0eXAiA","x":[1, 2]}/)
+
+        assert /"eyJ0eXAiA"/ == actual.getRaw("id_token").toString()
+        assert "[1, 2]" == actual.getRaw("x").toString()
+        assert null == actual.getRaw("missing")
+    }
+
+    @Test public void parse_unusedValuesAreNotValidated() {
+        final actual = LazyJson.parse(/{"bad":"\q", "good":"value"}/)
+
+        assert "value" == actual.get("good")
+        try {
+            actual.get("bad")
+            Assert.fail("Expected IllegalArgumentException")
+        }
+        catch (final IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test public void parse_escapedKey() {
+        final actual = LazyJson.parse('{"a\\u0062c":1}')
+
+        assert actual.has("abc")
+        assert ["abc"] == actual.keys()
+    }
+
+    @Test public void parse_error_notAnObject() {
+        assertParseError("Unexpected character '[' at position 0.", /[/)
+    }
+
+    @Test public void parse_error_missingColon() {
+        assertParseError("Unexpected character '=' at position 6.", /{"key"=1}/)
+    }
+
+    @Test public void parse_error_badNumber() {
+        assertParseError("Unexpected character 'a' at position 8.", /{"key":3a}/)
+    }
+
+    @Test public void parse_error_unterminated() {
+        assertParseError("Unexpected end of input at position 13.", /{"key":"value/)
+        assertParseError("Unexpected character '}' at position 12.", /{"key":[1, 2}/)
+    }
+
+    @Test public void parse_error_trailingGarbage() {
+        assertParseError("Unexpected character ';' at position 15.", /{"key":"value"};/)
+    }
+}
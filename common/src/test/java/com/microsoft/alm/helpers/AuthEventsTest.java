@@ -0,0 +1,58 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+public class AuthEventsTest {
+
+    @Test
+    public void namespaceOf() {
+        Assert.assertEquals("git", AuthEvents.namespaceOf("git:https://account.visualstudio.com"));
+        Assert.assertNull(AuthEvents.namespaceOf("no-namespace"));
+        Assert.assertNull(AuthEvents.namespaceOf(null));
+    }
+
+    @Test
+    public void finish_keepsOnlyTheNamespace() throws Exception {
+        final File file = File.createTempFile("auth-events", ".jfr");
+        try {
+            final Recording recording = new Recording();
+            try {
+                recording.enable(AuthEvents.SecretStoreWrite.class);
+                recording.start();
+
+                final AuthEvents.SecretStoreWrite event = new AuthEvents.SecretStoreWrite();
+                event.begin();
+                event.finish("git:https://account.visualstudio.com", "InsecureFileBackend", "OK");
+
+                recording.stop();
+                recording.dump(file.toPath());
+            } finally {
+                recording.close();
+            }
+
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+            RecordedEvent written = null;
+            for (final RecordedEvent candidate : events) {
+                if ("com.microsoft.alm.SecretStoreWrite".equals(candidate.getEventType().getName())) {
+                    written = candidate;
+                }
+            }
+            Assert.assertNotNull(written);
+            Assert.assertEquals("git", written.getString("keyNamespace"));
+            Assert.assertEquals("InsecureFileBackend", written.getString("backend"));
+            Assert.assertEquals("OK", written.getString("status"));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A class to test {@link ChaosHttpClient}.
+ */
+public class ChaosHttpClientTest {
+
+    private static final URI TOKEN_ENDPOINT = URI.create("https://login.example.com/common/oauth2/token");
+    private static final URI VALIDATION_ENDPOINT = URI.create("https://account.example.com/_apis/connectionData");
+    private static final String BODY = "{\"access_token\":\"secret\"}";
+
+    /**
+     * Answers every request with the same body and counts them.
+     */
+    static class CannedHttpClient implements HttpClient {
+        final Map<String, String> headers = new LinkedHashMap<String, String>();
+        int calls;
+
+        @Override
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public String getHeaderField(final URI uri, final String header) {
+            calls++;
+            return "value";
+        }
+
+        @Override
+        public String getGetResponseText(final URI uri) {
+            calls++;
+            return BODY;
+        }
+
+        @Override
+        public String getGetResponseText(final URI uri, final int timeout) {
+            return getGetResponseText(uri);
+        }
+
+        @Override
+        public String getPostResponseText(final URI uri, final StringContent content) {
+            return getGetResponseText(uri);
+        }
+
+        @Override
+        public HttpResponse getPostResponse(final URI uri, final StringContent content) {
+            final HttpResponse response = new HttpResponse();
+            response.status = 200;
+            response.responseText = getGetResponseText(uri);
+            return response;
+        }
+    }
+
+    @Test
+    public void requestsMatchingNoRuleAreLeftAlone() throws IOException {
+        final CannedHttpClient delegate = new CannedHttpClient();
+        final ChaosHttpClient.Rule rule = new ChaosHttpClient.Rule("oauth2/token").withConnectionResets(1);
+        final ChaosHttpClient cut = new ChaosHttpClient(delegate, 1, Collections.singletonList(rule));
+
+        Assert.assertEquals(BODY, cut.getGetResponseText(VALIDATION_ENDPOINT));
+        Assert.assertEquals(1, delegate.calls);
+        Assert.assertSame(delegate.headers, cut.getHeaders());
+    }
+
+    @Test
+    public void connectionResetsDoNotReachTheDelegate() throws IOException {
+        final CannedHttpClient delegate = new CannedHttpClient();
+        final ChaosHttpClient.Rule rule = new ChaosHttpClient.Rule("oauth2/token").withConnectionResets(1);
+        final ChaosHttpClient cut = new ChaosHttpClient(delegate, 1, Collections.singletonList(rule));
+
+        try {
+            cut.getPostResponseText(TOKEN_ENDPOINT, null);
+            Assert.fail("A SocketException should have been thrown");
+        }
+        catch (final SocketException e) {
+            Assert.assertEquals("Connection reset", e.getMessage());
+        }
+        Assert.assertEquals(0, delegate.calls);
+        Assert.assertEquals(1, rule.getInjectedCount(ChaosHttpClient.Fault.CONNECTION_RESET));
+    }
+
+    @Test
+    public void statusesAreThrownOrReturnedLikeTheRealClient() throws IOException {
+        final CannedHttpClient delegate = new CannedHttpClient();
+        final ChaosHttpClient.Rule rule = new ChaosHttpClient.Rule("login\\.example\\.com").withStatus(429, 1, "2");
+        final ChaosHttpClient cut = new ChaosHttpClient(delegate, 1, Collections.singletonList(rule));
+
+        try {
+            cut.getGetResponseText(TOKEN_ENDPOINT);
+            Assert.fail("An HttpStatusException should have been thrown");
+        }
+        catch (final HttpStatusException e) {
+            Assert.assertEquals(429, e.getStatusCode());
+            Assert.assertEquals("2", e.getRetryAfter());
+        }
+        final HttpResponse response = cut.getPostResponse(TOKEN_ENDPOINT, null);
+
+        Assert.assertEquals(429, response.status);
+        Assert.assertEquals("2", response.retryAfter);
+        Assert.assertNull(response.responseText);
+        Assert.assertEquals(0, delegate.calls);
+        Assert.assertEquals(2, rule.getInjectedCount(ChaosHttpClient.Fault.STATUS));
+    }
+
+    @Test
+    public void partialBodiesAreShorterPrefixes() throws IOException {
+        final CannedHttpClient delegate = new CannedHttpClient();
+        final ChaosHttpClient.Rule rule = new ChaosHttpClient.Rule(".*").withPartialBodies(1);
+        final ChaosHttpClient cut = new ChaosHttpClient(delegate, 1, Collections.singletonList(rule));
+
+        for (int i = 0; i < 20; i++) {
+            final String actual = cut.getPostResponse(TOKEN_ENDPOINT, null).responseText;
+            Assert.assertTrue(actual, actual.length() < BODY.length());
+            Assert.assertTrue(actual, BODY.startsWith(actual));
+        }
+        Assert.assertEquals(20, delegate.calls);
+        Assert.assertEquals(20, rule.getInjectedCount(ChaosHttpClient.Fault.PARTIAL_BODY));
+    }
+
+    @Test
+    public void latencyDelaysTheRequest() throws IOException {
+        final ChaosHttpClient.Rule rule = new ChaosHttpClient.Rule("oauth2").withLatency(ChaosHttpClient.Latency.fixed(50));
+        final ChaosHttpClient cut = new ChaosHttpClient(new CannedHttpClient(), 1, Collections.singletonList(rule));
+
+        final long start = System.currentTimeMillis();
+        cut.getHeaderField(TOKEN_ENDPOINT, "Date");
+
+        Assert.assertTrue(System.currentTimeMillis() - start >= 45);
+        Assert.assertEquals(1, rule.getInjectedCount(ChaosHttpClient.Fault.LATENCY));
+    }
+
+    @Test
+    public void theFirstMatchingRuleApplies() throws IOException {
+        final CannedHttpClient delegate = new CannedHttpClient();
+        final ChaosHttpClient.Rule token = new ChaosHttpClient.Rule("oauth2/token");
+        final ChaosHttpClient.Rule everything = new ChaosHttpClient.Rule("").withConnectionResets(1);
+        final ChaosHttpClient cut = new ChaosHttpClient(delegate, 1, Arrays.asList(token, everything));
+
+        Assert.assertEquals(BODY, cut.getGetResponseText(TOKEN_ENDPOINT));
+        try {
+            cut.getGetResponseText(VALIDATION_ENDPOINT);
+            Assert.fail("A SocketException should have been thrown");
+        }
+        catch (final SocketException ignored) {
+        }
+        Assert.assertEquals(1, delegate.calls);
+    }
+
+    @Test
+    public void theSameSeedInjectsTheSameFaults() {
+        Assert.assertEquals(outcomes(7), outcomes(7));
+        Assert.assertNotEquals(outcomes(7), outcomes(8));
+    }
+
+    private static List<String> outcomes(final long seed) {
+        final ChaosHttpClient.Rule rule = new ChaosHttpClient.Rule(".*")
+                .withConnectionResets(0.2).withStatus(503, 0.2, null).withPartialBodies(0.2);
+        final ChaosHttpClient cut = new ChaosHttpClient(new CannedHttpClient(), seed, Collections.singletonList(rule));
+        final List<String> result = new ArrayList<String>();
+        for (int i = 0; i < 50; i++) {
+            try {
+                result.add(cut.getGetResponseText(TOKEN_ENDPOINT));
+            }
+            catch (final IOException e) {
+                result.add(e.getClass().getSimpleName());
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void latencyDistributions() {
+        final Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            final long uniform = ChaosHttpClient.Latency.uniform(10, 20).nextMilliseconds(random);
+            Assert.assertTrue(uniform >= 10 && uniform <= 20);
+            Assert.assertTrue(ChaosHttpClient.Latency.exponential(5, 10).nextMilliseconds(random) >= 5);
+        }
+        Assert.assertEquals(7, ChaosHttpClient.Latency.fixed(7).nextMilliseconds(random));
+    }
+}
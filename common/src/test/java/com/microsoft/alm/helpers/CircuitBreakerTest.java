@@ -0,0 +1,97 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A class to test {@link CircuitBreaker}.
+ */
+public class CircuitBreakerTest {
+
+    private static final String HOST = "login.example.com";
+
+    @Test
+    public void opensAfterConsecutiveFailures() throws Exception {
+        final CircuitBreaker cut = new CircuitBreaker(3, 60000);
+
+        cut.onFailure(HOST);
+        cut.onFailure(HOST);
+        cut.onSuccess(HOST);
+        cut.onFailure(HOST);
+        cut.onFailure(HOST);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, cut.getState(HOST));
+        cut.beforeRequest(HOST);
+
+        cut.onFailure(HOST);
+
+        Assert.assertEquals(CircuitBreaker.State.OPEN, cut.getState(HOST));
+        try {
+            cut.beforeRequest(HOST);
+            Assert.fail("A CircuitBreakerOpenException should have been thrown");
+        }
+        catch (final CircuitBreakerOpenException e) {
+            Assert.assertEquals(HOST, e.getHost());
+        }
+        cut.beforeRequest("other.example.com");
+    }
+
+    @Test
+    public void halfOpenAllowsSingleProbe() throws Exception {
+        final CircuitBreaker cut = new CircuitBreaker(1, 50);
+        cut.onFailure(HOST);
+        Thread.sleep(100);
+
+        cut.beforeRequest(HOST);
+
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, cut.getState(HOST));
+        try {
+            cut.beforeRequest(HOST);
+            Assert.fail("Only one probe should be allowed");
+        }
+        catch (final CircuitBreakerOpenException expected) {
+        }
+        cut.onSuccess(HOST);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, cut.getState(HOST));
+        cut.beforeRequest(HOST);
+    }
+
+    @Test
+    public void failedProbeReopens() throws Exception {
+        final CircuitBreaker cut = new CircuitBreaker(5, 50);
+        for (int i = 0; i < 5; i++) {
+            cut.onFailure(HOST);
+        }
+        Thread.sleep(100);
+        cut.beforeRequest(HOST);
+
+        cut.onFailure(HOST);
+
+        Assert.assertEquals(CircuitBreaker.State.OPEN, cut.getState(HOST));
+    }
+
+    @Test
+    public void abandonedProbeAllowsAnotherProbe() throws Exception {
+        final CircuitBreaker cut = new CircuitBreaker(1, 50);
+        cut.onFailure(HOST);
+        Thread.sleep(100);
+        cut.beforeRequest(HOST);
+
+        cut.onAbandoned(HOST);
+
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, cut.getState(HOST));
+        cut.beforeRequest(HOST);
+    }
+
+    @Test
+    public void abandonedRequestDoesNotCloseAnOpenCircuit() throws Exception {
+        final CircuitBreaker cut = new CircuitBreaker(1, 60000);
+        cut.onFailure(HOST);
+
+        cut.onAbandoned(HOST);
+
+        Assert.assertEquals(CircuitBreaker.State.OPEN, cut.getState(HOST));
+    }
+}
@@ -0,0 +1,67 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+public class InMemoryAuthMetricsTest {
+
+    @After
+    public void tearDown() {
+        AuthMetricsProvider.set(null);
+    }
+
+    @Test
+    public void records() {
+        final InMemoryAuthMetrics cut = new InMemoryAuthMetrics();
+
+        cut.recordLatency(AuthMetrics.STORE_READ, "InsecureInMemoryStore", 2000);
+        cut.recordLatency(AuthMetrics.STORE_READ, "InsecureInMemoryStore", 4000);
+        cut.recordLatency(AuthMetrics.HTTP, null, 1000000);
+        cut.recordLookup("InsecureInMemoryStore", true);
+        cut.recordLookup("InsecureInMemoryStore", true);
+        cut.recordLookup("InsecureInMemoryStore", false);
+        cut.recordRefresh("login.microsoftonline.com", false);
+        cut.recordError(AuthMetrics.HTTP, "example.com", new SocketTimeoutException());
+        cut.recordError(AuthMetrics.HTTP, "example.com", new IOException());
+
+        Assert.assertEquals(2, cut.getLatency(AuthMetrics.STORE_READ, "InsecureInMemoryStore").getCount());
+        Assert.assertEquals(4000, cut.getLatency(AuthMetrics.STORE_READ, "InsecureInMemoryStore").getMax());
+        Assert.assertEquals(1, cut.getLatency(AuthMetrics.HTTP, null).getCount());
+        Assert.assertNull(cut.getLatency(AuthMetrics.VALIDATE, "InsecureInMemoryStore"));
+        Assert.assertEquals(2.0 / 3, cut.getLookups("InsecureInMemoryStore").getRatio(), 1e-9);
+        Assert.assertEquals(1, cut.getRefreshes("login.microsoftonline.com").getNegative());
+        Assert.assertEquals(2, cut.getErrorCount(AuthMetrics.HTTP));
+        Assert.assertEquals(0, cut.getErrorCount(AuthMetrics.REFRESH));
+
+        final String report = cut.toString();
+        Assert.assertTrue(report, report.contains("latency store.read InsecureInMemoryStore: count=2"));
+        Assert.assertTrue(report, report.contains("lookups InsecureInMemoryStore: 2/3"));
+        Assert.assertTrue(report, report.contains("errors http java.net.SocketTimeoutException: 1"));
+    }
+
+    @Test
+    public void provider_defaultsToNoOp() {
+        Assert.assertSame(NoOpAuthMetrics.INSTANCE, AuthMetricsProvider.get());
+
+        final InMemoryAuthMetrics metrics = new InMemoryAuthMetrics();
+        AuthMetricsProvider.set(metrics);
+        Assert.assertSame(metrics, AuthMetricsProvider.get());
+
+        AuthMetricsProvider.set(null);
+        Assert.assertSame(NoOpAuthMetrics.INSTANCE, AuthMetricsProvider.get());
+    }
+
+    @Test
+    public void sourceOf_namesAnonymousClasses() {
+        Assert.assertEquals("InMemoryAuthMetrics", AuthMetricsProvider.sourceOf(new InMemoryAuthMetrics()));
+        Assert.assertEquals(getClass().getName() + "$1", AuthMetricsProvider.sourceOf(new Object() { }));
+        Assert.assertNull(AuthMetricsProvider.sourceOf(null));
+    }
+}
@@ -0,0 +1,161 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class to test {@link JdkHttpClientImpl}.
+ */
+public class JdkHttpClientImplTest {
+
+    private HttpServer server;
+    private URI baseUri;
+
+    private static void respond(final HttpExchange exchange, final int status, final String body) throws IOException {
+        final byte[] bytes = StringHelper.UTF8GetBytes(body);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        final OutputStream os = exchange.getResponseBody();
+        try {
+            os.write(bytes);
+        } finally {
+            IOHelper.closeQuietly(os);
+        }
+    }
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/echo", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final String body = IOHelper.readToString(exchange.getRequestBody()).trim();
+                final String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+                final String userAgent = exchange.getRequestHeaders().getFirst("User-Agent");
+                respond(exchange, 200, exchange.getRequestMethod() + "|" + userAgent + "|" + contentType + "|" + body);
+            }
+        });
+        server.createContext("/throttled", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().add("Retry-After", "7");
+                respond(exchange, 429, "slow down");
+            }
+        });
+        server.createContext("/redirect", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().add("Location", "/echo");
+                exchange.getResponseHeaders().add("X-VSS-ResourceTenant", "tenant");
+                respond(exchange, 302, "");
+            }
+        });
+        server.start();
+        baseUri = URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void getGetResponseText_followsRedirects() throws IOException {
+        final JdkHttpClientImpl cut = new JdkHttpClientImpl("test-agent");
+
+        final String actual = cut.getGetResponseText(baseUri.resolve("/redirect"));
+
+        Assert.assertEquals("GET|test-agent|null|", actual);
+    }
+
+    @Test
+    public void getHeaderField_doesNotFollowRedirects() throws IOException {
+        final JdkHttpClientImpl cut = new JdkHttpClientImpl("test-agent");
+
+        final String actual = cut.getHeaderField(baseUri.resolve("/redirect"), "X-VSS-ResourceTenant");
+
+        Assert.assertEquals("tenant", actual);
+    }
+
+    @Test
+    public void getPostResponseText_sendsContent() throws IOException {
+        final JdkHttpClientImpl cut = new JdkHttpClientImpl("test-agent");
+        final QueryString parameters = new QueryString();
+        parameters.put("grant_type", "refresh_token");
+
+        final String actual = cut.getPostResponseText(baseUri.resolve("/echo"), StringContent.createUrlEncoded(parameters));
+
+        Assert.assertEquals("POST|test-agent|application/x-www-form-urlencoded; charset=UTF-8|grant_type=refresh_token", actual);
+    }
+
+    @Test
+    public void getGetResponseText_statusError() throws IOException {
+        final JdkHttpClientImpl cut = new JdkHttpClientImpl("test-agent");
+
+        try {
+            cut.getGetResponseText(baseUri.resolve("/throttled"));
+            Assert.fail("An HttpStatusException should have been thrown");
+        } catch (final HttpStatusException e) {
+            Assert.assertEquals(429, e.getStatusCode());
+            Assert.assertEquals("7", e.getRetryAfter());
+            Assert.assertEquals("HTTP request failed with code 429: slow down", e.getMessage());
+        }
+    }
+
+    @Test
+    public void getPostResponseAsync_reportsErrorsThroughStatus() throws Exception {
+        final JdkHttpClientImpl cut = new JdkHttpClientImpl("test-agent");
+
+        final HttpResponse actual = cut.getPostResponseAsync(baseUri.resolve("/throttled"), StringContent.createJson("{}")).get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(429, actual.status);
+        Assert.assertEquals("slow down", actual.errorText);
+        Assert.assertEquals("7", actual.retryAfter);
+        Assert.assertNull(actual.responseText);
+    }
+
+    @Test
+    public void getGetResponseTextAsync_failsWithStatusException() throws Exception {
+        final JdkHttpClientImpl cut = new JdkHttpClientImpl("test-agent");
+
+        try {
+            cut.getGetResponseTextAsync(baseUri.resolve("/throttled")).get(10, TimeUnit.SECONDS);
+            Assert.fail("The future should have completed exceptionally");
+        } catch (final ExecutionException e) {
+            Assert.assertEquals(429, ((HttpStatusException) e.getCause()).getStatusCode());
+        }
+    }
+
+    @Test
+    public void getGetResponseTextAsync_manyInFlight() throws Exception {
+        final List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < 50; i++) {
+            final JdkHttpClientImpl cut = new JdkHttpClientImpl("agent-" + i);
+            futures.add(cut.getGetResponseTextAsync(baseUri.resolve("/echo")));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            Assert.assertEquals("GET|agent-" + i + "|null|", futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets_coverEveryValueWithBoundedError() {
+        for (long value = 0; value < LatencyHistogram.MAX_VALUE; value = value * 3 / 2 + 1) {
+            final int index = LatencyHistogram.indexOf(value);
+            final long highest = LatencyHistogram.highestValueAt(index);
+
+            Assert.assertTrue(value + " above its bucket", value <= highest);
+            Assert.assertTrue(value + " below its bucket", index == 0 || LatencyHistogram.highestValueAt(index - 1) < value);
+            Assert.assertTrue(value + " imprecise", highest - value <= value / 64);
+        }
+    }
+
+    @Test
+    public void getPercentile_uniformValues() {
+        final LatencyHistogram cut = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            cut.record(micros * 1000);
+        }
+
+        Assert.assertEquals(1000, cut.getCount());
+        Assert.assertEquals(1000000, cut.getMax());
+        Assert.assertEquals(500500, cut.getMean(), 0.5);
+        assertWithin(500000, cut.getPercentile(0.5));
+        assertWithin(990000, cut.getPercentile(0.99));
+        Assert.assertEquals(1000000, cut.getPercentile(1));
+        assertWithin(1000, cut.getPercentile(0));
+    }
+
+    @Test
+    public void record_clampsOutOfRangeValues() {
+        final LatencyHistogram cut = new LatencyHistogram();
+
+        cut.record(-5);
+        cut.record(Long.MAX_VALUE);
+
+        Assert.assertEquals(0, cut.getPercentile(0.5));
+        Assert.assertEquals(LatencyHistogram.MAX_VALUE, cut.getPercentile(1));
+    }
+
+    @Test
+    public void getPercentile_empty() {
+        Assert.assertEquals(0, new LatencyHistogram().getPercentile(0.99));
+    }
+
+    private static void assertWithin(final long expected, final long actual) {
+        Assert.assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual - expected <= expected / 64);
+    }
+}
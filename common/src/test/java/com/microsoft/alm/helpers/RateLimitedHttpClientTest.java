@@ -0,0 +1,265 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class to test {@link RateLimitedHttpClient}.
+ */
+public class RateLimitedHttpClientTest {
+
+    private static final URI TOKEN_ENDPOINT = URI.create("https://login.example.com/common/oauth2/token");
+
+    /**
+     * Replays canned status codes; anything other than 200 is reported the way {@link HttpClientImpl} does.
+     */
+    static class ScriptedHttpClient implements HttpClient {
+        final Map<String, String> headers = new LinkedHashMap<String, String>();
+        final Queue<Integer> statuses = new LinkedList<Integer>();
+        String retryAfter;
+        int calls;
+
+        ScriptedHttpClient(final Integer... statuses) {
+            for (final Integer status : statuses) {
+                this.statuses.add(status);
+            }
+        }
+
+        @Override
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public String getHeaderField(final URI uri, final String header) throws IOException {
+            return getGetResponseText(uri);
+        }
+
+        @Override
+        public String getGetResponseText(final URI uri) throws IOException {
+            final HttpResponse response = getPostResponse(uri, null);
+            if (response.status != 200) {
+                throw new HttpStatusException("HTTP request failed with code " + response.status + ": ", response.status, response.retryAfter);
+            }
+            return response.responseText;
+        }
+
+        @Override
+        public String getGetResponseText(final URI uri, final int timeout) throws IOException {
+            return getGetResponseText(uri);
+        }
+
+        @Override
+        public String getPostResponseText(final URI uri, final StringContent content) throws IOException {
+            return getGetResponseText(uri);
+        }
+
+        @Override
+        public HttpResponse getPostResponse(final URI uri, final StringContent content) throws IOException {
+            calls++;
+            final HttpResponse response = new HttpResponse();
+            response.status = statuses.remove();
+            if (response.status == 200) {
+                response.responseText = "ok";
+            }
+            else {
+                response.errorText = "throttled";
+                response.retryAfter = retryAfter;
+            }
+            return response;
+        }
+    }
+
+    @Test
+    public void getGetResponseText_retriesAfterTooManyRequests() throws IOException {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(429, 503, 200);
+        delegate.retryAfter = "0";
+        final RateLimitedHttpClient cut = new RateLimitedHttpClient(delegate, new RateLimiter(100, 10, 10, 5000));
+
+        final String actual = cut.getGetResponseText(TOKEN_ENDPOINT);
+
+        Assert.assertEquals("ok", actual);
+        Assert.assertEquals(3, delegate.calls);
+    }
+
+    @Test
+    public void getPostResponse_honoursRetryAfter() throws IOException {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(429, 200);
+        delegate.retryAfter = "1";
+        final RateLimiter rateLimiter = new RateLimiter(100, 10, 10, 5000);
+        final RateLimitedHttpClient cut = new RateLimitedHttpClient(delegate, rateLimiter);
+
+        final long start = System.currentTimeMillis();
+        final HttpResponse actual = cut.getPostResponse(TOKEN_ENDPOINT, null);
+
+        Assert.assertEquals(200, actual.status);
+        Assert.assertTrue(System.currentTimeMillis() - start >= 900);
+        Assert.assertEquals(1, rateLimiter.getWaitCount());
+    }
+
+    @Test
+    public void getPostResponse_givesUpAfterMaxRetries() throws IOException {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(429, 429, 429);
+        delegate.retryAfter = "0";
+        final RateLimitedHttpClient cut = new RateLimitedHttpClient(delegate, new RateLimiter(100, 10, 10, 5000), 2);
+
+        final HttpResponse actual = cut.getPostResponse(TOKEN_ENDPOINT, null);
+
+        Assert.assertEquals(429, actual.status);
+        Assert.assertEquals(3, delegate.calls);
+    }
+
+    @Test
+    public void getPostResponse_serviceUnavailableIsNotRetried() throws IOException {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(503, 200);
+        delegate.retryAfter = "0";
+        final RateLimitedHttpClient cut = new RateLimitedHttpClient(delegate, new RateLimiter(100, 10, 10, 5000));
+
+        final HttpResponse actual = cut.getPostResponse(TOKEN_ENDPOINT, null);
+
+        Assert.assertEquals(503, actual.status);
+        Assert.assertEquals(1, delegate.calls);
+    }
+
+    @Test
+    public void getPostResponseText_tooManyRequestsWithoutRetryAfterIsNotRetried() throws IOException {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(429, 200);
+        final RateLimitedHttpClient cut = new RateLimitedHttpClient(delegate, new RateLimiter(100, 10, 10, 5000));
+
+        try {
+            cut.getPostResponseText(TOKEN_ENDPOINT, null);
+            Assert.fail("An HttpStatusException should have been thrown");
+        }
+        catch (final HttpStatusException e) {
+            Assert.assertEquals(429, e.getStatusCode());
+        }
+        Assert.assertEquals(1, delegate.calls);
+    }
+
+    @Test
+    public void getPostResponseAsync_serviceUnavailableIsNotRetried() throws Exception {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(503, 200);
+        delegate.retryAfter = "0";
+        final RateLimitedHttpClient cut = new RateLimitedHttpClient(delegate, new RateLimiter(100, 10, 10, 5000));
+
+        final HttpResponse actual = cut.getPostResponseAsync(TOKEN_ENDPOINT, null).get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(503, actual.status);
+        Assert.assertEquals(1, delegate.calls);
+    }
+
+    @Test
+    public void isRetryable() {
+        Assert.assertTrue(RateLimitedHttpClient.isRetryable(true, 503, null));
+        Assert.assertTrue(RateLimitedHttpClient.isRetryable(true, 429, null));
+        Assert.assertTrue(RateLimitedHttpClient.isRetryable(false, 429, "0"));
+        Assert.assertFalse(RateLimitedHttpClient.isRetryable(false, 429, null));
+        Assert.assertFalse(RateLimitedHttpClient.isRetryable(false, 429, "soon"));
+        Assert.assertFalse(RateLimitedHttpClient.isRetryable(false, 503, "0"));
+    }
+
+    @Test
+    public void getPostResponseText_otherErrorsAreNotRetried() throws IOException {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(400, 200);
+        final RateLimitedHttpClient cut = new RateLimitedHttpClient(delegate, new RateLimiter(100, 10, 10, 5000));
+
+        try {
+            cut.getPostResponseText(TOKEN_ENDPOINT, null);
+            Assert.fail("An HttpStatusException should have been thrown");
+        }
+        catch (final HttpStatusException e) {
+            Assert.assertEquals(400, e.getStatusCode());
+        }
+        Assert.assertEquals(1, delegate.calls);
+    }
+
+    @Test
+    public void getPostResponseAsync_retriesAfterTooManyRequests() throws Exception {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(429, 200);
+        delegate.retryAfter = "0";
+        final RateLimitedHttpClient cut = new RateLimitedHttpClient(delegate, new RateLimiter(100, 10, 10, 5000));
+
+        final HttpResponse actual = cut.getPostResponseAsync(TOKEN_ENDPOINT, null).get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(200, actual.status);
+        Assert.assertEquals(2, delegate.calls);
+    }
+
+    @Test
+    public void getGetResponseTextAsync_otherErrorsAreNotRetried() throws Exception {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(404, 200);
+        final RateLimitedHttpClient cut = new RateLimitedHttpClient(delegate, new RateLimiter(100, 10, 10, 5000));
+
+        try {
+            cut.getGetResponseTextAsync(TOKEN_ENDPOINT).get(10, TimeUnit.SECONDS);
+            Assert.fail("The future should have completed exceptionally");
+        }
+        catch (final ExecutionException e) {
+            Assert.assertEquals(404, ((HttpStatusException) e.getCause()).getStatusCode());
+        }
+        Assert.assertEquals(1, delegate.calls);
+    }
+
+    @Test
+    public void getPostResponseText_retryAfterLongerThanTheWaitLimitKeepsTheStatus() throws IOException {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(429, 200);
+        delegate.retryAfter = "45";
+        final RateLimitedHttpClient cut = new RateLimitedHttpClient(delegate, new RateLimiter(100, 10, 10, 30 * 1000));
+
+        final long start = System.currentTimeMillis();
+        try {
+            cut.getPostResponseText(TOKEN_ENDPOINT, null);
+            Assert.fail("An HttpStatusException should have been thrown");
+        }
+        catch (final HttpStatusException e) {
+            Assert.assertEquals(429, e.getStatusCode());
+            Assert.assertEquals("45", e.getRetryAfter());
+        }
+        // the host is still held off, and callers learn why
+        try {
+            cut.getGetResponseText(TOKEN_ENDPOINT);
+            Assert.fail("An HttpStatusException should have been thrown");
+        }
+        catch (final HttpStatusException e) {
+            Assert.assertEquals(429, e.getStatusCode());
+            Assert.assertTrue(e.getRetryAfter(), Long.parseLong(e.getRetryAfter()) > 30);
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+        Assert.assertEquals(1, delegate.calls);
+    }
+
+    @Test
+    public void getPostResponse_retryAfterLongerThanTheWaitLimitReturnsTheResponse() throws IOException {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(429, 200);
+        delegate.retryAfter = "45";
+        final RateLimitedHttpClient cut = new RateLimitedHttpClient(delegate, new RateLimiter(100, 10, 10, 30 * 1000));
+
+        final HttpResponse actual = cut.getPostResponse(TOKEN_ENDPOINT, null);
+
+        Assert.assertEquals(429, actual.status);
+        Assert.assertEquals("45", actual.retryAfter);
+        Assert.assertEquals(1, delegate.calls);
+    }
+
+    @Test
+    public void getHeaders_returnsDelegateReference() {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient();
+        final RateLimitedHttpClient cut = new RateLimitedHttpClient(delegate, new RateLimiter(100, 10, 10, 5000));
+
+        cut.getHeaders().put("Authorization", "Bearer x");
+
+        Assert.assertEquals("Bearer x", delegate.headers.get("Authorization"));
+    }
+}
@@ -0,0 +1,189 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class to test {@link RateLimiter}.
+ */
+public class RateLimiterTest {
+
+    private static final String HOST = "login.example.com";
+
+    @Test
+    public void parseRetryAfter_seconds() {
+        Assert.assertEquals(120000, RateLimiter.parseRetryAfter("120", 0));
+        Assert.assertEquals(0, RateLimiter.parseRetryAfter(" 0 ", 0));
+    }
+
+    @Test
+    public void parseRetryAfter_httpDate() {
+        // Wed, 21 Oct 2015 07:28:00 GMT
+        final long date = 1445412480000L;
+
+        Assert.assertEquals(5000, RateLimiter.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT", date - 5000));
+        Assert.assertEquals(0, RateLimiter.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT", date + 5000));
+    }
+
+    @Test
+    public void parseRetryAfter_missingOrMalformed() {
+        Assert.assertEquals(-1, RateLimiter.parseRetryAfter(null, 0));
+        Assert.assertEquals(-1, RateLimiter.parseRetryAfter("", 0));
+        Assert.assertEquals(-1, RateLimiter.parseRetryAfter("soon", 0));
+        Assert.assertEquals(-1, RateLimiter.parseRetryAfter("12abc", 0));
+    }
+
+    @Test
+    public void computeBackoffMilliseconds_honoursRetryAfterWithJitter() {
+        for (int i = 0; i < 100; i++) {
+            final long actual = RateLimiter.computeBackoffMilliseconds(0, "2");
+            Assert.assertTrue(actual >= 2000 && actual <= 2200);
+        }
+    }
+
+    @Test
+    public void computeBackoffMilliseconds_exponentialWithoutRetryAfter() {
+        for (int attempt = 0; attempt < 20; attempt++) {
+            final long ceiling = Math.min(RateLimiter.MAX_BACKOFF_MILLISECONDS, RateLimiter.BASE_BACKOFF_MILLISECONDS << attempt);
+            final long actual = RateLimiter.computeBackoffMilliseconds(attempt, null);
+            Assert.assertTrue(actual >= ceiling / 2 && actual <= ceiling);
+        }
+    }
+
+    @Test
+    public void acquire_burstIsFreeThenThrottled() throws IOException {
+        final RateLimiter cut = new RateLimiter(10, 3, 10, 5000);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            cut.acquire(HOST);
+        }
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 3 immediately, then 2 more at 10/s
+        Assert.assertTrue(elapsedMillis >= 150);
+        Assert.assertEquals(2, cut.getWaitCount());
+        Assert.assertTrue(cut.getMaxWaitMilliseconds() >= 50);
+        Assert.assertEquals(0, cut.getQueueDepth());
+    }
+
+    @Test
+    public void acquire_hostsAreIndependent() throws IOException {
+        final RateLimiter cut = new RateLimiter(0.1, 1, 10, 5000);
+
+        cut.acquire(HOST);
+        cut.acquire("app.vssps.example.com");
+
+        Assert.assertEquals(0, cut.getWaitCount());
+    }
+
+    @Test
+    public void acquire_giveUpWhenWaitTooLong() throws IOException {
+        final RateLimiter cut = new RateLimiter(0.1, 1, 10, 100);
+        cut.acquire(HOST);
+
+        try {
+            cut.acquire(HOST);
+            Assert.fail("An IOException should have been thrown");
+        }
+        catch (final IOException e) {
+            Assert.assertEquals(1, cut.getRejectedCount());
+        }
+    }
+
+    @Test
+    public void acquire_rejectWhenQueueFull() throws Exception {
+        final RateLimiter cut = new RateLimiter(0.5, 1, 1, 10000);
+        cut.acquire(HOST);
+        final CountDownLatch started = new CountDownLatch(1);
+        final Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    cut.acquire(HOST);
+                }
+                catch (final IOException ignored) {
+                }
+            }
+        });
+        waiter.start();
+        started.await();
+        while (cut.getQueueDepth(HOST) == 0) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, cut.getQueueDepth());
+
+        try {
+            cut.acquire(HOST);
+            Assert.fail("An IOException should have been thrown");
+        }
+        catch (final IOException e) {
+            Assert.assertEquals("Too many requests are waiting to be sent to " + HOST + ".", e.getMessage());
+        }
+        finally {
+            waiter.interrupt();
+            waiter.join();
+        }
+    }
+
+    @Test
+    public void backOff_blocksHostForEveryone() throws IOException {
+        final RateLimiter cut = new RateLimiter(100, 10, 10, 5000);
+
+        cut.backOff(HOST, 300);
+        final long start = System.nanoTime();
+        cut.acquire(HOST);
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assert.assertTrue(elapsedMillis >= 250);
+        Assert.assertEquals(1, cut.getWaitCount());
+    }
+
+    @Test
+    public void backOff_longerThanTheWaitLimitFailsWithTheStatus() throws IOException {
+        final RateLimiter cut = new RateLimiter(100, 10, 10, 30 * 1000);
+
+        cut.backOff(HOST, 45 * 1000, 429);
+
+        try {
+            cut.acquire(HOST);
+            Assert.fail("An HttpStatusException should have been thrown");
+        }
+        catch (final HttpStatusException e) {
+            Assert.assertEquals(429, e.getStatusCode());
+            Assert.assertEquals("45", e.getRetryAfter());
+        }
+        Assert.assertEquals(1, cut.getRejectedCount());
+    }
+
+    @Test
+    public void backOff_hostNamesAreCaseInsensitiveInAnyLocale() throws IOException {
+        final Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            final RateLimiter cut = new RateLimiter(100, 10, 10, 30 * 1000);
+
+            cut.backOff("LOGIN.MICROSOFTONLINE.COM", 45 * 1000, 429);
+
+            try {
+                cut.acquire("login.microsoftonline.com");
+                Assert.fail("An HttpStatusException should have been thrown");
+            }
+            catch (final HttpStatusException e) {
+                Assert.assertEquals(429, e.getStatusCode());
+            }
+        }
+        finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class to test {@link ResilientHttpClient}.
+ */
+public class ResilientHttpClientTest {
+
+    private static final String HOST = "app.vssps.example.com";
+    private static final URI ENDPOINT = URI.create("https://" + HOST + "/_apis/connectionData");
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Each call pops the next outcome: an exception is thrown, anything else is the response text.
+     */
+    static class ScriptedHttpClient implements HttpClient {
+        final Map<String, String> headers = new LinkedHashMap<String, String>();
+        final Queue<Object> outcomes = new LinkedList<Object>();
+        final AtomicInteger calls = new AtomicInteger();
+        long delayMilliseconds;
+
+        ScriptedHttpClient(final Object... outcomes) {
+            for (final Object outcome : outcomes) {
+                this.outcomes.add(outcome);
+            }
+        }
+
+        private String next() throws IOException {
+            calls.incrementAndGet();
+            final Object outcome;
+            synchronized (outcomes) {
+                outcome = outcomes.isEmpty() ? "ok" : outcomes.remove();
+            }
+            if (delayMilliseconds > 0 && "slow".equals(outcome)) {
+                try {
+                    Thread.sleep(delayMilliseconds);
+                }
+                catch (final InterruptedException ignored) {
+                }
+            }
+            if (outcome instanceof IOException) {
+                throw (IOException) outcome;
+            }
+            if (outcome instanceof RuntimeException) {
+                throw (RuntimeException) outcome;
+            }
+            if (outcome instanceof Error) {
+                throw (Error) outcome;
+            }
+            return (String) outcome;
+        }
+
+        @Override
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public String getHeaderField(final URI uri, final String header) throws IOException {
+            return next();
+        }
+
+        @Override
+        public String getGetResponseText(final URI uri) throws IOException {
+            return next();
+        }
+
+        @Override
+        public String getGetResponseText(final URI uri, final int timeout) throws IOException {
+            return next();
+        }
+
+        @Override
+        public String getPostResponseText(final URI uri, final StringContent content) throws IOException {
+            return next();
+        }
+
+        @Override
+        public HttpResponse getPostResponse(final URI uri, final StringContent content) throws IOException {
+            final HttpResponse response = new HttpResponse();
+            response.responseText = next();
+            response.status = 200;
+            return response;
+        }
+    }
+
+    private static HttpStatusException status(final int code) {
+        return new HttpStatusException("HTTP request failed with code " + code + ": ", code, null);
+    }
+
+    @Test
+    public void get_retriesTransientFailures() throws IOException {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(new IOException("reset"), status(502), "ok");
+        final ResilientHttpClient cut = new ResilientHttpClient(delegate, new CircuitBreaker(5, 60000), new LatencyTracker(), 2, null);
+
+        final String actual = cut.getGetResponseText(ENDPOINT);
+
+        Assert.assertEquals("ok", actual);
+        Assert.assertEquals(3, delegate.calls.get());
+    }
+
+    @Test
+    public void get_clientErrorsAreNotRetried() throws IOException {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(status(401), "ok");
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(1, 60000);
+        final ResilientHttpClient cut = new ResilientHttpClient(delegate, circuitBreaker, new LatencyTracker(), 2, null);
+
+        try {
+            cut.getGetResponseText(ENDPOINT);
+            Assert.fail("An HttpStatusException should have been thrown");
+        }
+        catch (final HttpStatusException e) {
+            Assert.assertEquals(401, e.getStatusCode());
+        }
+        Assert.assertEquals(1, delegate.calls.get());
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(HOST));
+    }
+
+    @Test
+    public void post_onlyRetriedWhenNotSent() throws IOException {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(new ConnectException("refused"), new IOException("reset"), "ok");
+        final ResilientHttpClient cut = new ResilientHttpClient(delegate, new CircuitBreaker(5, 60000), new LatencyTracker(), 2, null);
+
+        try {
+            cut.getPostResponseText(ENDPOINT, null);
+            Assert.fail("An IOException should have been thrown");
+        }
+        catch (final IOException e) {
+            Assert.assertEquals("reset", e.getMessage());
+        }
+        Assert.assertEquals(2, delegate.calls.get());
+    }
+
+    @Test
+    public void circuitOpensAndRejectsWithoutCallingServer() throws IOException {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(status(500), status(500), status(500), "ok");
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(2, 60000);
+        final ResilientHttpClient cut = new ResilientHttpClient(delegate, circuitBreaker, new LatencyTracker(), 5, null);
+
+        try {
+            cut.getGetResponseText(ENDPOINT);
+            Assert.fail("A CircuitBreakerOpenException should have been thrown");
+        }
+        catch (final CircuitBreakerOpenException e) {
+            Assert.assertEquals(HOST, e.getHost());
+        }
+        Assert.assertEquals(2, delegate.calls.get());
+    }
+
+    @Test
+    public void interruptedProbeLetsTheHostBeProbedAgain() throws Exception {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(new InterruptedIOException("interrupted"), "ok");
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(1, 50);
+        final ResilientHttpClient cut = new ResilientHttpClient(delegate, circuitBreaker, new LatencyTracker(), 0, null);
+        circuitBreaker.onFailure(HOST);
+        Thread.sleep(100);
+
+        try {
+            cut.getGetResponseText(ENDPOINT);
+            Assert.fail("An InterruptedIOException should have been thrown");
+        }
+        catch (final InterruptedIOException expected) {
+        }
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState(HOST));
+
+        Assert.assertEquals("ok", cut.getGetResponseText(ENDPOINT));
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(HOST));
+        Assert.assertEquals(2, delegate.calls.get());
+    }
+
+    @Test
+    public void failedProbeLetsTheHostBeProbedAgain() throws Exception {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient(new AssertionError("bug"), new IllegalStateException("bug"), "ok");
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(1, 50);
+        final ResilientHttpClient cut = new ResilientHttpClient(delegate, circuitBreaker, new LatencyTracker(), 0, null);
+        circuitBreaker.onFailure(HOST);
+        Thread.sleep(100);
+
+        try {
+            cut.getGetResponseText(ENDPOINT);
+            Assert.fail("An AssertionError should have been thrown");
+        }
+        catch (final AssertionError expected) {
+        }
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState(HOST));
+
+        try {
+            cut.getGetResponseText(ENDPOINT);
+            Assert.fail("An IllegalStateException should have been thrown");
+        }
+        catch (final IllegalStateException expected) {
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(HOST));
+        Thread.sleep(100);
+
+        Assert.assertEquals("ok", cut.getGetResponseText(ENDPOINT));
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(HOST));
+        Assert.assertEquals(3, delegate.calls.get());
+    }
+
+    @Test
+    public void rateLimiterRejectionsDoNotCountAsFailures() throws Exception {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient();
+        final RateLimiter rateLimiter = new RateLimiter(100, 10, 10, 1000);
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(1, 60000);
+        final ResilientHttpClient cut = new ResilientHttpClient(new RateLimitedHttpClient(delegate, rateLimiter),
+                circuitBreaker, new LatencyTracker(), 2, null);
+        rateLimiter.backOff(HOST, 45 * 1000, 503);
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                cut.getGetResponseText(ENDPOINT);
+                Assert.fail("A RateLimiterRejectedException should have been thrown");
+            }
+            catch (final RateLimiterRejectedException e) {
+                Assert.assertEquals(503, e.getStatusCode());
+            }
+        }
+        try {
+            cut.getGetResponseTextAsync(ENDPOINT).get(10, TimeUnit.SECONDS);
+            Assert.fail("The future should have completed exceptionally");
+        }
+        catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RateLimiterRejectedException);
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(HOST));
+        Assert.assertEquals(0, delegate.calls.get());
+    }
+
+    @Test
+    public void get_hedgesRequestsSlowerThanP95() throws IOException {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient("slow", "fast");
+        delegate.delayMilliseconds = 5000;
+        final LatencyTracker latencyTracker = new LatencyTracker(10, 10);
+        for (int i = 0; i < 10; i++) {
+            latencyTracker.record(HOST, 50);
+        }
+        final ResilientHttpClient cut = new ResilientHttpClient(delegate, new CircuitBreaker(5, 60000), latencyTracker, 0, executor);
+
+        final long start = System.currentTimeMillis();
+        final String actual = cut.getGetResponseText(ENDPOINT);
+
+        Assert.assertEquals("fast", actual);
+        Assert.assertTrue(System.currentTimeMillis() - start < 4000);
+        Assert.assertEquals(2, delegate.calls.get());
+    }
+
+    @Test
+    public void get_noHedgingWithoutHistory() throws IOException {
+        final ScriptedHttpClient delegate = new ScriptedHttpClient("only");
+        final ResilientHttpClient cut = new ResilientHttpClient(delegate, new CircuitBreaker(5, 60000), new LatencyTracker(), 0, executor);
+
+        Assert.assertEquals("only", cut.getGetResponseText(ENDPOINT));
+        Assert.assertEquals(1, delegate.calls.get());
+    }
+}
@@ -149,6 +149,24 @@ public class UriHelperTest {
         Assert.assertEquals("google.com", UriHelper.getFullAccount( URI.create("https://mseng@google.com")));
     }
 
+    @Test
+    public void getAccountBaseUrl() {
+        Assert.assertEquals("https://account.visualstudio.com", UriHelper.getAccountBaseUrl(URI.create("https://account.visualstudio.com/DefaultCollection/_git/repo")));
+        Assert.assertEquals("https://dev.azure.com/org", UriHelper.getAccountBaseUrl(URI.create("https://dev.azure.com/org/project/_git/repo")));
+        Assert.assertEquals("https://tfs.example.com:8443", UriHelper.getAccountBaseUrl(URI.create("https://tfs.example.com:8443/tfs")));
+        Assert.assertEquals("https://account.visualstudio.com", UriHelper.getAccountBaseUrl(URI.create("http://account.visualstudio.com/")));
+        Assert.assertEquals("http://127.0.0.1:8080", UriHelper.getAccountBaseUrl(URI.create("http://127.0.0.1:8080/org")));
+        Assert.assertEquals("http://localhost:8080", UriHelper.getAccountBaseUrl(URI.create("http://localhost:8080")));
+        Assert.assertEquals("http://[::1]:8080", UriHelper.getAccountBaseUrl(URI.create("http://[::1]:8080/org")));
+    }
+
+    @Test
+    public void getAccountBaseUrl_dnsNamesLookingLikeLoopbackUseHttps() {
+        Assert.assertEquals("https://127.example.com", UriHelper.getAccountBaseUrl(URI.create("http://127.example.com/org")));
+        Assert.assertEquals("https://127.0.0.1.example.com", UriHelper.getAccountBaseUrl(URI.create("http://127.0.0.1.example.com")));
+        Assert.assertEquals("https://localhost.example.com", UriHelper.getAccountBaseUrl(URI.create("http://localhost.example.com")));
+    }
+
     @Test
     public void IsOrganization_tests() {
         Assert.assertEquals(true, UriHelper.isAzureHost( URI.create("https://msft.azure.com/account1/blah")));
@@ -0,0 +1,62 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.UUID;
+
+public class CompactSecretCodecTest {
+
+    @Test
+    public void credential_roundTrip() {
+        final Credential credential = new Credential("j.travolta", "swördfish:<&>\"");
+
+        final String encoded = CompactSecretCodec.CREDENTIAL.encode(credential);
+
+        Assert.assertTrue(encoded.startsWith(CompactSecretCodec.PREFIX));
+        Assert.assertEquals(credential, CompactSecretCodec.CREDENTIAL.decode(encoded));
+    }
+
+    @Test
+    public void tokenPair_roundTrip() {
+        final TokenPair tokenPair = new TokenPair("access", "refresh");
+
+        final TokenPair decoded = CompactSecretCodec.TOKEN_PAIR.decode(CompactSecretCodec.TOKEN_PAIR.encode(tokenPair));
+
+        Assert.assertEquals(tokenPair, decoded);
+        Assert.assertEquals(TokenType.Access, decoded.AccessToken.Type);
+        Assert.assertEquals(TokenType.Refresh, decoded.RefreshToken.Type);
+    }
+
+    @Test
+    public void token_roundTripKeepsTargetIdentity() {
+        final Token token = new Token("pat", TokenType.Personal);
+        final UUID targetIdentity = UUID.randomUUID();
+        token.setTargetIdentity(targetIdentity);
+        final CompactSecretCodec<Token> codec = CompactSecretCodec.forToken(TokenType.Personal);
+
+        final Token decoded = codec.decode(codec.encode(token));
+
+        Assert.assertEquals(token, decoded);
+        Assert.assertEquals(targetIdentity, decoded.getTargetIdentity());
+    }
+
+    @Test
+    public void token_otherTypeIsNotDecoded() {
+        final String encoded = CompactSecretCodec.forToken(TokenType.Access).encode(new Token("access", TokenType.Access));
+
+        Assert.assertNull(CompactSecretCodec.forToken(TokenType.Personal).decode(encoded));
+    }
+
+    @Test
+    public void decode_otherFormatsAreLeftToTheCaller() {
+        Assert.assertNull(CompactSecretCodec.TOKEN_PAIR.decode(TokenPair.toXmlString(new TokenPair("access", "refresh"))));
+        Assert.assertNull(CompactSecretCodec.CREDENTIAL.decode(CompactSecretCodec.PREFIX + "not base64!"));
+        // truncated
+        final String encoded = CompactSecretCodec.CREDENTIAL.encode(new Credential("user", "password"));
+        Assert.assertNull(CompactSecretCodec.CREDENTIAL.decode(encoded.substring(0, encoded.length() - 4)));
+    }
+}
@@ -0,0 +1,63 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+
+public class PathScopedUriNameConversionTest {
+
+    private PathScopedUriNameConversion underTest;
+
+    @Before
+    public void setUp() {
+        underTest = new PathScopedUriNameConversion();
+        underTest.addScope(URI.create("https://dev.azure.com/org"));
+        underTest.addScope(URI.create("https://dev.azure.com/org/projectA/"));
+        underTest.addScope(URI.create("http://tfs.example.com:8080/tfs/Collection/Team"));
+    }
+
+    @Test
+    public void convert_longestScopeWins() {
+        Assert.assertEquals("git:https://dev.azure.com/org/projectA",
+                underTest.convert(URI.create("https://dev.azure.com/org/projectA/_git/repo"), "git"));
+        Assert.assertEquals("git:https://dev.azure.com/org/projectA",
+                underTest.convert(URI.create("https://dev.azure.com/org/projectA"), "git"));
+    }
+
+    @Test
+    public void convert_fallsBackToTheParentScope() {
+        Assert.assertEquals("git:https://dev.azure.com/org",
+                underTest.convert(URI.create("https://dev.azure.com/org/projectB/_git/repo"), "git"));
+        // a segment that only starts like a scope's is not under it
+        Assert.assertEquals("git:https://dev.azure.com/org",
+                underTest.convert(URI.create("https://dev.azure.com/org/projectAB"), "git"));
+    }
+
+    @Test
+    public void convert_outsideEveryScopeUsesTheFallback() {
+        final URI outside = URI.create("http://tfs.example.com:8080/tfs/Collection/Other");
+
+        Assert.assertEquals(Secret.uriToName(outside, "git"), underTest.convert(outside, "git"));
+        Assert.assertNull(underTest.findScope(URI.create("https://other.visualstudio.com/org/projectA")));
+    }
+
+    @Test
+    public void convert_ignoresCaseAndRepeatedSlashes() {
+        Assert.assertEquals("OAuth2:http://tfs.example.com:8080/tfs/Collection/Team",
+                underTest.convert(URI.create("http://TFS.example.com:8080/tfs//collection/TEAM/_git/x"), "OAuth2"));
+    }
+
+    @Test
+    public void removeScope_uncoversTheParentScope() {
+        Assert.assertTrue(underTest.removeScope(URI.create("https://dev.azure.com/org/projectA")));
+        Assert.assertFalse(underTest.removeScope(URI.create("https://dev.azure.com/org/projectA")));
+
+        Assert.assertEquals("https://dev.azure.com/org",
+                underTest.findScope(URI.create("https://dev.azure.com/org/projectA/_git/repo")));
+    }
+}
@@ -0,0 +1,91 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+import com.microsoft.alm.helpers.StringHelper;
+import com.microsoft.alm.helpers.UriHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URI;
+
+public class SecretTest {
+
+    private static final String[] URIS = {
+            "https://account.visualstudio.com",
+            "https://account.visualstudio.com/",
+            "https://account.visualstudio.com/DefaultCollection/_git/repo",
+            "http://tfs.example.com:8080/tfs/DefaultCollection",
+            "https://tfs.example.com:443",
+            "https://dev.azure.com/org",
+            "https://dev.azure.com/org/",
+            "https://dev.azure.com/org/project/_git/repo",
+            "https://dev.azure.com//org",
+            "https://dev.azure.com/",
+            "https://dev.azure.com",
+            "https://mseng@dev.azure.com",
+            "https://mseng@dev.azure.com/",
+            "https://mseng@dev.azure.com/org/project",
+            "https://DEV.AZURE.COM:8443/org%20name%20/x",
+            "https://org.visualstudio.azure.org/org/",
+    };
+
+    /**
+     * How names were built before {@link Secret#uriToName} was rewritten around a single builder.
+     */
+    private static String formatName(final URI targetUri, final String namespace) {
+        final String trimmedHostUrl = StringHelper.trimEnd(StringHelper.trimEnd(UriHelper.getFullAccount(targetUri), '/', '\\'));
+        if (targetUri.getPort() == -1) {
+            return String.format("%1$s:%2$s://%3$s", namespace, targetUri.getScheme(), trimmedHostUrl);
+        }
+        return String.format("%1$s:%2$s://%3$s:%4$s", namespace, targetUri.getScheme(), trimmedHostUrl, targetUri.getPort());
+    }
+
+    @Test
+    public void uriToName_sameAsFormatting() {
+        for (final String uri : URIS) {
+            final URI targetUri = URI.create(uri);
+
+            Assert.assertEquals(uri, formatName(targetUri, "git"), Secret.uriToName(targetUri, "git"));
+        }
+    }
+
+    @Test
+    public void uriToName_azureOrganization() {
+        Assert.assertEquals("PersonalAccessToken:https://dev.azure.com/org",
+                Secret.uriToName(URI.create("https://dev.azure.com/org/project/_git/repo"), "PersonalAccessToken"));
+        Assert.assertEquals("git:https://dev.azure.com/mseng",
+                Secret.uriToName(URI.create("https://mseng@dev.azure.com"), "git"));
+    }
+
+    @Test
+    public void uriToName_withoutHost() {
+        // file: uris, and host names java.net.URI will not parse, such as ones with an underscore
+        Assert.assertEquals("git:file://null", Secret.uriToName(URI.create("file:///home/user/repo.git"), "git"));
+        Assert.assertEquals("git:http://null", Secret.uriToName(URI.create("http://my_host/"), "git"));
+        Assert.assertEquals("git:http://null",
+                new Secret.CachingUriNameConversion(4).convert(URI.create("http://my_host/"), "git"));
+    }
+
+    @Test
+    public void cachingConversion_sameAsUriToName() {
+        final Secret.CachingUriNameConversion underTest = new Secret.CachingUriNameConversion(4);
+        for (int pass = 0; pass < 2; pass++) {
+            for (final String uri : URIS) {
+                final URI targetUri = URI.create(uri);
+
+                Assert.assertEquals(Secret.uriToName(targetUri, "OAuth2"), underTest.convert(targetUri, "OAuth2"));
+                Assert.assertEquals(Secret.uriToName(targetUri, "git"), underTest.convert(targetUri, "git"));
+            }
+        }
+    }
+
+    @Test
+    public void cachingConversion_hostCaseIsPreserved() {
+        final Secret.CachingUriNameConversion underTest = new Secret.CachingUriNameConversion();
+
+        Assert.assertEquals("git:https://Example.com", underTest.convert(URI.create("https://Example.com"), "git"));
+        Assert.assertEquals("git:https://example.com", underTest.convert(URI.create("https://example.com"), "git"));
+    }
+}
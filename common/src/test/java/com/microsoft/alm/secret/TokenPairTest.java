@@ -3,6 +3,7 @@
 
 package com.microsoft.alm.secret;
 
+import com.microsoft.alm.helpers.PropertyBag;
 import com.microsoft.alm.helpers.StringHelperTest;
 import com.microsoft.alm.helpers.XmlHelper;
 import org.junit.Assert;
@@ -68,4 +69,51 @@ public class TokenPairTest {
         Assert.assertEquals("example", actual.Parameters.get("token_type"));
     }
 
+    @Test
+    public void accessTokenResponse_nestedAndLargeParameters() {
+        final String input =
+            "{\"token_type\":\"Bearer\",\"scope\":[\"a\", \"b\"],\"access_token\":\"AT\"," +
+            "\"ext\":{\"n\":1},\"refresh_token\":\"RT\",\"id_token\":\"eyJ0eXAiOiJKV1Qi\"}";
+
+        final TokenPair actual = new TokenPair(input);
+
+        Assert.assertEquals("AT", actual.AccessToken.Value);
+        Assert.assertEquals("RT", actual.RefreshToken.Value);
+        Assert.assertEquals(4, actual.Parameters.size());
+        Assert.assertFalse(actual.Parameters.containsKey("access_token"));
+        Assert.assertEquals("\"a\", \"b\"", actual.Parameters.get("scope"));
+        Assert.assertEquals("{n=1.0}", actual.Parameters.get("ext"));
+        Assert.assertEquals("eyJ0eXAiOiJKV1Qi", actual.Parameters.get("id_token"));
+        Assert.assertEquals("[token_type, scope, ext, id_token]", actual.Parameters.keySet().toString());
+    }
+
+    @Test
+    public void accessTokenResponse_repeatedParametersLastOneWins() {
+        final String input =
+            "{\"token_type\":\"bearer\",\"access_token\":\"AT\",\"expires_in\":60," +
+            "\"token_type\":\"Bearer\",\"refresh_token\":\"RT\",\"expires_in\":3600}";
+
+        final TokenPair actual = new TokenPair(input);
+
+        Assert.assertEquals(2, actual.Parameters.size());
+        Assert.assertEquals("Bearer", actual.Parameters.get("token_type"));
+        Assert.assertEquals("3600.0", actual.Parameters.get("expires_in"));
+        Assert.assertEquals("{token_type=Bearer, expires_in=3600.0}", actual.Parameters.toString());
+        Assert.assertEquals(actual.Parameters.size(), actual.Parameters.entrySet().size());
+    }
+
+    @Test
+    public void accessTokenResponse_sameParametersAsPropertyBag() {
+        final String input =
+            "{\"token_type\":\"Bearer\",\"scope\":[\"a\", \"b\"],\"access_token\":\"AT\"," +
+            "\"ext\":{\"n\":1,\"inner\":{\"flag\":true,\"list\":[1, 2]}},\"refresh_token\":\"RT\"," +
+            "\"scope\":\"openid\",\"id_token\":\"eyJ0eXAiOiJKV1Qi\"}";
+
+        final TokenPair lazy = new TokenPair(input);
+        final TokenPair eager = new TokenPair(PropertyBag.fromJson(input));
+
+        Assert.assertEquals(eager.Parameters, lazy.Parameters);
+        Assert.assertEquals(eager.Parameters.toString(), lazy.Parameters.toString());
+        Assert.assertEquals("{n=1.0, inner={flag=true, list=1, 2}}", lazy.Parameters.get("ext"));
+    }
 }
@@ -0,0 +1,120 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.helpers.Func;
+import com.microsoft.alm.secret.Secret;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenPair;
+import com.microsoft.alm.secret.TokenType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedInMemoryStoreTest {
+
+    private static Token token(final String value) {
+        return new Token(value, TokenType.Personal);
+    }
+
+    @Test
+    public void add_evictsLeastRecentlyUsedPastMaxEntries() {
+        final BoundedInMemoryStore<Token> underTest = new BoundedInMemoryStore<Token>(2, Long.MAX_VALUE, 0);
+        underTest.add("a", token("1"));
+        underTest.add("b", token("2"));
+        // "a" is now more recently used than "b"
+        underTest.get("a");
+
+        underTest.add("c", token("3"));
+
+        assertNotNull(underTest.get("a"));
+        assertNull(underTest.get("b"));
+        assertNotNull(underTest.get("c"));
+        final BoundedInMemoryStore.Stats stats = underTest.getStats();
+        assertEquals(2, stats.size);
+        assertEquals(1, stats.evictions);
+        assertEquals(3, stats.hits);
+        assertEquals(1, stats.misses);
+    }
+
+    @Test
+    public void add_evictsPastMaxBytes() {
+        final Func<Secret, Long> hundredBytes = new Func<Secret, Long>() {
+            @Override
+            public Long call(final Secret secret) {
+                return 100L;
+            }
+        };
+        // every entry weighs 100 bytes plus its key and map entry, so two of them fit but not three
+        final BoundedInMemoryStore<Token> underTest = new BoundedInMemoryStore<Token>(10, 500, 0, hundredBytes);
+        underTest.add("a", token("1"));
+        underTest.add("b", token("2"));
+        underTest.add("c", token("3"));
+
+        assertNull(underTest.get("a"));
+        assertEquals(2, underTest.getStats().size);
+        assertTrue(underTest.getStats().weight <= 500);
+    }
+
+    @Test
+    public void add_secretLargerThanTheBudgetIsNotStored() {
+        final BoundedInMemoryStore<Token> underTest = new BoundedInMemoryStore<Token>(10, 200, 0);
+
+        assertFalse(underTest.add("a", token(new String(new char[200]))));
+
+        assertNull(underTest.get("a"));
+        assertEquals(0, underTest.getStats().size);
+        assertEquals(0, underTest.getStats().weight);
+    }
+
+    @Test
+    public void add_secretLargerThanTheBudgetReplacesNothing() {
+        final BoundedInMemoryStore<Token> underTest = new BoundedInMemoryStore<Token>(10, 400, 0);
+        assertTrue(underTest.add("a", token("small")));
+        final long weight = underTest.getStats().weight;
+
+        assertFalse(underTest.add("a", token(new String(new char[400]))));
+
+        assertEquals("small", underTest.get("a").Value);
+        assertEquals(1, underTest.getStats().size);
+        assertEquals(weight, underTest.getStats().weight);
+    }
+
+    @Test
+    public void get_expiredSecretIsRemoved() {
+        final long[] now = {0};
+        final BoundedInMemoryStore<Token> underTest = new BoundedInMemoryStore<Token>(10, Long.MAX_VALUE, 1000) {
+            @Override
+            protected long currentTimeMillis() {
+                return now[0];
+            }
+        };
+        underTest.add("a", token("1"));
+        underTest.add("b", token("2"));
+
+        now[0] = 999;
+        assertNotNull(underTest.get("a"));
+        now[0] = 1000;
+        assertNull(underTest.get("a"));
+        assertEquals(1, underTest.purgeExpired());
+
+        final BoundedInMemoryStore.Stats stats = underTest.getStats();
+        assertEquals(0, stats.size);
+        assertEquals(0, stats.weight);
+        assertEquals(2, stats.expirations);
+    }
+
+    @Test
+    public void estimateSize_countsTokenPairParameters() {
+        final TokenPair bare = new TokenPair("access", "refresh");
+        final TokenPair withParameters = new TokenPair("{\"access_token\":\"access\",\"refresh_token\":\"refresh\","
+                + "\"id_token\":\"" + new String(new char[1000]) + "\"}");
+
+        assertTrue(BoundedInMemoryStore.estimateSize(withParameters) > BoundedInMemoryStore.estimateSize(bare) + 2000);
+    }
+}
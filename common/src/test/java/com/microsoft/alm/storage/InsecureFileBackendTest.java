@@ -12,6 +12,8 @@ import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class InsecureFileBackendTest {
 
@@ -69,6 +71,99 @@ public class InsecureFileBackendTest {
         verifyTestData(actual);
     }
 
+    @Test
+    public void serialization_keepsMetadata() {
+        final AtomicLong now = new AtomicLong(1000);
+        final InsecureFileBackend input = withClock(now);
+        final Token pat = new Token("pat", TokenType.Personal);
+        pat.setValidTo(50000);
+        input.writeToken("bravo", pat);
+        input.writeCredential("delta", new Credential("douglas.adams", "42"));
+        now.set(2000);
+        input.readToken("bravo");
+
+        final InsecureFileBackend actual = clone(input);
+
+        final SecretMetadata tokenMetadata = actual.TokenMetadata.get("bravo");
+        Assert.assertEquals(1000, tokenMetadata.createdAt);
+        Assert.assertEquals(2000, tokenMetadata.lastUsedAt);
+        Assert.assertEquals(50000, tokenMetadata.expiresAt);
+        Assert.assertEquals(50000, actual.Tokens.get("bravo").getValidTo());
+        Assert.assertEquals(0, actual.CredentialMetadata.get("delta").expiresAt);
+    }
+
+    @Test
+    public void fromXml_entriesWithoutMetadataAreTreatedAsNew() {
+        final String xmlString =
+                "<?xml version='1.0' encoding='UTF-8' standalone='yes'?>\n" +
+                        "<insecureStore>\n" +
+                        "    <Tokens/>\n" +
+                        "    <Credentials>\n" +
+                        "        <entry>\n" +
+                        "            <key>git:https://server.example.com</key>\n" +
+                        "            <value>\n" +
+                        "                <Password>swordfish</Password>\n" +
+                        "                <Username>j.travolta</Username>\n" +
+                        "            </value>\n" +
+                        "        </entry>\n" +
+                        "    </Credentials>\n" +
+                        "</insecureStore>";
+        final long before = System.currentTimeMillis();
+
+        final InsecureFileBackend actual = InsecureFileBackend.fromXml(new ByteArrayInputStream(xmlString.getBytes()));
+
+        final SecretMetadata metadata = actual.CredentialMetadata.get("git:https://server.example.com");
+        Assert.assertTrue(metadata.createdAt >= before);
+        Assert.assertEquals(metadata.createdAt, metadata.lastUsedAt);
+        Assert.assertEquals(0, metadata.expiresAt);
+    }
+
+    @Test
+    public void readToken_expiredTokenIsNotReturned() {
+        final AtomicLong now = new AtomicLong(1000);
+        final InsecureFileBackend cut = withClock(now);
+        final Token pat = new Token("pat", TokenType.Personal);
+        pat.setValidTo(5000);
+        cut.writeToken("bravo", pat);
+
+        Assert.assertEquals(pat, cut.readToken("bravo"));
+        now.set(5000);
+        Assert.assertNull(cut.readToken("bravo"));
+    }
+
+    @Test
+    public void purgeExpiredTokens_removesExpiredAndIdleTokensInBatches() {
+        final AtomicLong now = new AtomicLong(1000);
+        final InsecureFileBackend cut = withClock(now);
+        for (int i = 0; i < 3; i++) {
+            final Token pat = new Token("pat" + i, TokenType.Personal);
+            pat.setValidTo(5000);
+            cut.writeToken("expiring" + i, pat);
+        }
+        cut.writeToken("idle", new Token("idle", TokenType.Personal));
+        cut.writeToken("used", new Token("used", TokenType.Personal));
+        cut.writeCredential("credential", new Credential("douglas.adams", "42"));
+        now.set(9000);
+        cut.readToken("used");
+
+        Assert.assertEquals(2, cut.purgeExpiredTokens(0, 2));
+        Assert.assertEquals(1, cut.purgeExpiredTokens(0, 2));
+        Assert.assertEquals(0, cut.purgeExpiredTokens(0, 2));
+        Assert.assertEquals(1, cut.purgeExpiredTokens(5000, 2));
+
+        Assert.assertEquals(Collections.singleton("used"), cut.getTokenKeys());
+        Assert.assertEquals(Collections.singleton("used"), cut.TokenMetadata.keySet());
+        Assert.assertNotNull(cut.readCredentials("credential"));
+    }
+
+    static InsecureFileBackend withClock(final AtomicLong now) {
+        return new InsecureFileBackend(null) {
+            @Override
+            protected long currentTimeMillis() {
+                return now.get();
+            }
+        };
+    }
 
     private static void initializeTestData(final InsecureFileBackend input) {
         final Token inputBravo = new Token("42", TokenType.Test);
@@ -0,0 +1,65 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SecretStoreJanitorTest {
+
+    @Test
+    public void sweep_purgesEveryStoreInBatches() {
+        final AtomicLong now = new AtomicLong(1000);
+        final InsecureFileBackend backend = InsecureFileBackendTest.withClock(now);
+        final InsecureFileBackedTokenStore tokenStore = new InsecureFileBackedTokenStore(backend);
+        final InsecureFileBackedCredentialStore credentialStore = new InsecureFileBackedCredentialStore(backend);
+        for (int i = 0; i < 7; i++) {
+            final Token pat = new Token("pat" + i, TokenType.Personal);
+            pat.setValidTo(2000);
+            tokenStore.add("expiring" + i, pat);
+        }
+        tokenStore.add("live", new Token("live", TokenType.Personal));
+        credentialStore.add("idle", new Credential("douglas.adams", "42"));
+        now.set(10000);
+        tokenStore.get("live");
+
+        final SecretStoreJanitor cut = new SecretStoreJanitor(Arrays.asList(tokenStore, credentialStore), 5000, 3);
+
+        Assert.assertEquals(8, cut.sweep());
+        Assert.assertEquals(0, cut.sweep());
+        Assert.assertNotNull(tokenStore.get("live"));
+        Assert.assertNull(credentialStore.getMetadata("idle"));
+        Assert.assertEquals(10000, tokenStore.getMetadata("live").lastUsedAt);
+    }
+
+    @Test
+    public void start_sweepsInTheBackground() throws InterruptedException {
+        final AtomicLong now = new AtomicLong(1000);
+        final InsecureFileBackedTokenStore tokenStore
+                = new InsecureFileBackedTokenStore(InsecureFileBackendTest.withClock(now));
+        final Token pat = new Token("pat", TokenType.Personal);
+        pat.setValidTo(2000);
+        tokenStore.add("expiring", pat);
+        now.set(3000);
+
+        final SecretStoreJanitor cut = new SecretStoreJanitor(Arrays.asList(tokenStore));
+        try {
+            cut.start(10);
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (tokenStore.getMetadata("expiring") != null) {
+                Assert.assertTrue("the janitor did not run", System.currentTimeMillis() < deadline);
+                Thread.sleep(5);
+            }
+        } finally {
+            cut.close();
+        }
+        Assert.assertTrue(tokenStore.getKeys().isEmpty());
+    }
+}
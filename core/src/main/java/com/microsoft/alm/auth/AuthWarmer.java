@@ -0,0 +1,175 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth;
+
+import com.microsoft.alm.auth.oauth.AzureAuthority;
+import com.microsoft.alm.auth.oauth.Global;
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.HttpClient;
+import com.microsoft.alm.secret.Secret;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Does the work of a first request ahead of time, for accounts a service knows it is going to talk to.
+ *
+ * For every account, in parallel and without ever prompting, it opens a connection to the account host (and to
+ * the authority host, once), detects the AAD tenant, and reads the stored secret through the authenticator,
+ * which validates it and refreshes it if needed.  Uris that map to the same store key are warmed once.
+ */
+public class AuthWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthWarmer.class);
+
+    static final int DEFAULT_PARALLELISM = 8;
+
+    public enum Readiness {
+        /**
+         * A valid secret is cached, the first request will not need to prompt or refresh.
+         */
+        READY,
+
+        /**
+         * No usable secret is stored; the first request will have to prompt.
+         */
+        NO_SECRET,
+
+        /**
+         * Warming up failed, see the log.
+         */
+        FAILED
+    }
+
+    private final Authenticator authenticator;
+    private final Executor executor;
+
+    /**
+     * Warms up on a pool of {@value #DEFAULT_PARALLELISM} daemon threads.
+     */
+    public AuthWarmer(final Authenticator authenticator) {
+        this(authenticator, Executors.newFixedThreadPool(DEFAULT_PARALLELISM, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "auth-warmer-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }));
+    }
+
+    public AuthWarmer(final Authenticator authenticator, final Executor executor) {
+        Debug.Assert(authenticator != null, "authenticator cannot be null");
+        Debug.Assert(executor != null, "executor cannot be null");
+
+        this.authenticator = authenticator;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts warming up the specified accounts and returns immediately.
+     *
+     * @param uris
+     *      account uris
+     *
+     * @return the readiness of every uri in {@code uris}, completed once its account is warm.
+     */
+    public Map<URI, CompletableFuture<Readiness>> warm(final Collection<URI> uris) {
+        Debug.Assert(uris != null, "uris cannot be null");
+
+        final boolean usesAzureAuthority = authenticator.isOAuth2TokenSupported() || authenticator.isPersonalAccessTokenSupported();
+        if (usesAzureAuthority) {
+            CompletableFuture.runAsync(new Runnable() {
+                @Override
+                public void run() {
+                    preconnect(URI.create(AzureAuthority.AuthorityHostUrlBase + "/"));
+                }
+            }, executor);
+        }
+
+        final Map<String, CompletableFuture<Readiness>> byKey = new HashMap<String, CompletableFuture<Readiness>>();
+        final Map<URI, CompletableFuture<Readiness>> result = new LinkedHashMap<URI, CompletableFuture<Readiness>>();
+        for (final URI uri : uris) {
+            Debug.Assert(uri != null, "uri cannot be null");
+            final String key = authenticator.getUriToKeyConversion().convert(uri, authenticator.getAuthType());
+            CompletableFuture<Readiness> readiness = byKey.get(key);
+            if (readiness == null) {
+                readiness = CompletableFuture.supplyAsync(new Supplier<Readiness>() {
+                    @Override
+                    public Readiness get() {
+                        return warm(uri, usesAzureAuthority);
+                    }
+                }, executor).exceptionally(new Function<Throwable, Readiness>() {
+                    @Override
+                    public Readiness apply(final Throwable throwable) {
+                        // authenticators report I/O problems as Errors
+                        logger.warn("Failed to warm up {}.", uri, throwable);
+                        return Readiness.FAILED;
+                    }
+                });
+                byKey.put(key, readiness);
+            }
+            result.put(uri, readiness);
+        }
+        logger.info("Warming up {} uris, {} distinct keys.", result.size(), byKey.size());
+        return result;
+    }
+
+    private Readiness warm(final URI uri, final boolean usesAzureAuthority) {
+        try {
+            preconnect(uri);
+            if (usesAzureAuthority) {
+                AzureAuthority.detectTenantId(uri);
+            }
+
+            final Secret secret;
+            if (authenticator.isCredentialSupported()) {
+                secret = authenticator.getCredential(uri, PromptBehavior.NEVER);
+            } else if (authenticator.isOAuth2TokenSupported()) {
+                secret = authenticator.getOAuth2TokenPair(uri, PromptBehavior.NEVER);
+            } else if (authenticator.isPersonalAccessTokenSupported()) {
+                // scope and display name are only used to create a token, which NEVER does not do
+                secret = authenticator.getPersonalAccessToken(uri, null, null, PromptBehavior.NEVER);
+            } else {
+                secret = null;
+            }
+
+            final Readiness readiness = secret != null ? Readiness.READY : Readiness.NO_SECRET;
+            logger.debug("{} is {}.", uri, readiness);
+            return readiness;
+        } catch (final IOException e) {
+            logger.warn("Failed to warm up {}.", uri, e);
+            return Readiness.FAILED;
+        }
+    }
+
+    /**
+     * Resolves the host and completes the TCP and TLS handshakes, leaving the connection in the keep-alive pool.
+     */
+    private static void preconnect(final URI uri) {
+        final URI root = URI.create(uri.getScheme() + "://" + uri.getAuthority() + "/");
+        final HttpClient client = Global.getHttpClientFactory().createHttpClient();
+        try {
+            client.getHeaderField(root, "Date");
+        } catch (final IOException e) {
+            // best effort, the real request will report the problem
+            logger.debug("Could not pre-connect to {}.", root, e);
+        }
+    }
+}
@@ -8,11 +8,17 @@ import com.microsoft.alm.secret.Secret;
 import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.secret.TokenPair;
 import com.microsoft.alm.secret.VsoTokenScope;
+import com.microsoft.alm.helpers.AuthEvents;
+import com.microsoft.alm.helpers.AuthMetrics;
+import com.microsoft.alm.helpers.AuthMetricsProvider;
 import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.HttpStatusException;
 import com.microsoft.alm.storage.SecretStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.net.URI;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -28,6 +34,8 @@ public abstract class BaseAuthenticator implements Authenticator {
 
     protected Secret.IUriNameConversion uriToKeyConversion = Secret.DefaultUriNameConversion;
 
+    protected StaleWhileRevalidate revalidationPolicy;
+
     @Override
     public Secret.IUriNameConversion getUriToKeyConversion() {
         return uriToKeyConversion;
@@ -38,6 +46,19 @@ public abstract class BaseAuthenticator implements Authenticator {
         uriToKeyConversion = conversion;
     }
 
+    public StaleWhileRevalidate getRevalidationPolicy() {
+        return revalidationPolicy;
+    }
+
+    /**
+     * @param policy
+     *      lets stored secrets be served while they are revalidated in the background, {@code null} (the default)
+     *      validates every stored secret before returning it
+     */
+    public void setRevalidationPolicy(final StaleWhileRevalidate policy) {
+        revalidationPolicy = policy;
+    }
+
     @Override
     public boolean isCredentialSupported() {
         return false;
@@ -137,6 +158,28 @@ public abstract class BaseAuthenticator implements Authenticator {
      * Common pattern to retrieve a secret from store based on supplied prompt behavior
      */
     public static abstract class SecretRetriever<E extends Secret> {
+
+        /**
+         * Outcome of validating a stored secret.
+         */
+        public enum Validation {
+            /**
+             * The secret (or the one put in the holder) is good to use.
+             */
+            VALID,
+
+            /**
+             * The secret was definitively rejected and should be removed from the store.
+             */
+            INVALID,
+
+            /**
+             * The secret could not be checked, e.g. the validation endpoint timed out or could not be reached.
+             * It is kept in the store.
+             */
+            UNKNOWN
+        }
+
         /**
          * Standard synchronized access to store.  Extensibility point that
          * can be overridden
@@ -173,6 +216,42 @@ public abstract class BaseAuthenticator implements Authenticator {
             return true;
         }
 
+        /**
+         * Verification of the secret that can tell a rejected secret from one that could not be checked.
+         * Defaults to {@link #tryGetValidated}, which cannot.
+         *
+         * This is an extensibility point.
+         *
+         * @param secret
+         *    The secret to validate
+         *
+         * @param secretHolder
+         *    This holder should contain a reference to a valid secret
+         *
+         * @return the outcome of the validation
+         */
+        protected Validation validate(final E secret, final AtomicReference<E> secretHolder) {
+            return tryGetValidated(secret, secretHolder) ? Validation.VALID : Validation.INVALID;
+        }
+
+        /**
+         * Maps a failed validation request to its outcome: only 401 and 403 mean the secret was rejected.
+         *
+         * @param e
+         *    what the validation request failed with
+         *
+         * @return {@link Validation#INVALID} or {@link Validation#UNKNOWN}
+         */
+        protected static Validation classify(final IOException e) {
+            if (e instanceof HttpStatusException) {
+                final int statusCode = ((HttpStatusException) e).getStatusCode();
+                if (statusCode == HttpURLConnection.HTTP_UNAUTHORIZED || statusCode == HttpURLConnection.HTTP_FORBIDDEN) {
+                    return Validation.INVALID;
+                }
+            }
+            return Validation.UNKNOWN;
+        }
+
         /**
          * How the secret is generated / retrieved.  This is the real work
          *
@@ -222,34 +301,58 @@ public abstract class BaseAuthenticator implements Authenticator {
          */
         public E retrieve(final String key, final SecretStore<E> store,
                                                 final PromptBehavior promptBehavior) {
+            return retrieve(key, store, promptBehavior, null);
+        }
+
+        /**
+         * The main logic for retrieving a key, serving stored secrets while they are revalidated.
+         *
+         * @param key
+         *      key for that credentials are saved under
+         * @param store
+         *      a secret store that holds credentials
+         * @param promptBehavior
+         *      determines whether we should prompt or not if we don't have a credential for the specified key
+         * @param revalidationPolicy
+         *      how long a stored secret may be served without waiting for its validation, nullable
+         *
+         * @return secret
+         *      secret to be saved in the store
+         */
+        public E retrieve(final String key, final SecretStore<E> store,
+                          final PromptBehavior promptBehavior, final StaleWhileRevalidate revalidationPolicy) {
             logger.debug("Retrieving secret with key: {}, and prompt behavior: {}.", key, promptBehavior.name());
 
+            final AuthMetrics metrics = AuthMetricsProvider.get();
+            final String source = AuthMetricsProvider.sourceOf(store);
             E secret = null;
             if (promptBehavior != PromptBehavior.ALWAYS) {
                 // Not ALWAYS prompt, so let's read from the store for any cached secret
                 logger.debug("Reading secret from store for key: {}", key);
+                final long readStart = System.nanoTime();
                 secret = readFromStore(key, store);
+                metrics.recordLatency(AuthMetrics.STORE_READ, source, System.nanoTime() - readStart);
+                metrics.recordLookup(source, secret != null);
 
                 if (secret != null) {
-                    final AtomicReference<E> secretHolder = new AtomicReference<E>();
-                    secretHolder.set(secret);
-
-                    // Verify this secret is valid
-                    if (tryGetValidated(secret, secretHolder)) {
-                        final E validatedSecret = secretHolder.get();
-
-                        // The secret maybe different now, e.g. we could use the refresh token to generate
-                        // a new Access Token
-                        if (!validatedSecret.equals(secret)) {
-                            store.delete(key);
-                            store.add(key, validatedSecret);
-
-                            secret = validatedSecret;
-                        }
+                    if (revalidationPolicy != null && revalidationPolicy.isFresh(key, secret)) {
+                        logger.debug("Secret for key: {} was validated recently.", key);
+                    } else if (revalidationPolicy != null && revalidationPolicy.isServable(key, secret)) {
+                        logger.debug("Returning stored secret for key: {}, revalidating it in the background.", key);
+                        final E servedSecret = secret;
+                        revalidationPolicy.revalidate(key, new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    validateStored(key, store, servedSecret, revalidationPolicy);
+                                } catch (final RuntimeException e) {
+                                    logger.warn("Failed to revalidate secret for key: {}.", key, e);
+                                }
+                            }
+                        });
                     } else {
-                        secret = null;
-                        // Remove the invalid secret from store
-                        store.delete(key);
+                        // Verify this secret is valid
+                        secret = validateStored(key, store, secret, revalidationPolicy);
                     }
                 }
             }
@@ -265,12 +368,108 @@ public abstract class BaseAuthenticator implements Authenticator {
                 // Either ALWAYS prompt, or we don't have any secret cached for this key
                 // AUTO-retrieves when necessary
                 logger.debug("Retrieving secret.");
-                secret = doRetrieve();
+                final long retrieveStart = System.nanoTime();
+                final AuthEvents.TokenAcquire event = new AuthEvents.TokenAcquire();
+                event.begin();
+                String status = "FAILED";
+                try {
+                    secret = doRetrieve();
+                    status = secret == null ? "NONE" : "ACQUIRED";
+                } catch (final RuntimeException e) {
+                    metrics.recordError(AuthMetrics.RETRIEVE, source, e);
+                    throw e;
+                } finally {
+                    metrics.recordLatency(AuthMetrics.RETRIEVE, source, System.nanoTime() - retrieveStart);
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.keyNamespace = AuthEvents.namespaceOf(key);
+                        event.backend = source;
+                        event.status = status;
+                        event.commit();
+                    }
+                }
 
                 // Store it so we don't have to retrieve again
+                final long writeStart = System.nanoTime();
                 store(key, store, secret);
+                if (secret != null) {
+                    metrics.recordLatency(AuthMetrics.STORE_WRITE, source, System.nanoTime() - writeStart);
+                }
+                if (secret != null && revalidationPolicy != null) {
+                    revalidationPolicy.confirm(key, secret);
+                }
+            }
+
+            return secret;
+        }
+
+        /**
+         * Validates a stored secret and updates the store with the outcome.  The store is only changed if it still
+         * holds {@code secret}, since a background revalidation can race with a new secret being stored.
+         *
+         * @return the secret to use, {@code null} if it was rejected
+         */
+        private E validateStored(final String key, final SecretStore<E> store, final E secret,
+                                 final StaleWhileRevalidate revalidationPolicy) {
+            final AtomicReference<E> secretHolder = new AtomicReference<E>();
+            secretHolder.set(secret);
+
+            final AuthMetrics metrics = AuthMetricsProvider.get();
+            final String source = AuthMetricsProvider.sourceOf(store);
+            final long validateStart = System.nanoTime();
+            final AuthEvents.TokenValidate event = new AuthEvents.TokenValidate();
+            event.begin();
+            Validation validation = null;
+            try {
+                validation = validate(secret, secretHolder);
+            } catch (final RuntimeException e) {
+                metrics.recordError(AuthMetrics.VALIDATE, source, e);
+                throw e;
+            } finally {
+                metrics.recordLatency(AuthMetrics.VALIDATE, source, System.nanoTime() - validateStart);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.keyNamespace = AuthEvents.namespaceOf(key);
+                    event.backend = source;
+                    event.status = validation == null ? "FAILED" : validation.name();
+                    event.commit();
+                }
+            }
+            if (validation == Validation.VALID) {
+                final E validatedSecret = secretHolder.get();
+
+                // The secret maybe different now, e.g. we could use the refresh token to generate
+                // a new Access Token
+                if (!validatedSecret.equals(secret)) {
+                    synchronized (store) {
+                        if (secret.equals(store.get(key))) {
+                            store.delete(key);
+                            store.add(key, validatedSecret);
+                        }
+                    }
+                }
+                if (revalidationPolicy != null) {
+                    revalidationPolicy.confirm(key, validatedSecret);
+                }
+                return validatedSecret;
+            }
+
+            if (validation == Validation.INVALID) {
+                logger.debug("Secret for key: {} was rejected, removing it from the store.", key);
+                // Remove the invalid secret from store
+                synchronized (store) {
+                    if (secret.equals(store.get(key))) {
+                        store.delete(key);
+                    }
+                }
+                if (revalidationPolicy != null) {
+                    revalidationPolicy.forget(key);
+                }
+                return null;
             }
 
+            // Could not tell, e.g. the validation endpoint is down: a good secret should not be thrown away for that
+            logger.debug("Could not validate secret for key: {}, keeping it.", key);
             return secret;
         }
     }
@@ -0,0 +1,60 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth;
+
+import com.microsoft.alm.helpers.ChaosHttpClient;
+import com.microsoft.alm.helpers.HttpClient;
+import com.microsoft.alm.helpers.RateLimiter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An {@link HttpClientFactory} whose clients inject latency and faults with {@link ChaosHttpClient}, to measure how
+ * the authenticators degrade on a bad network, e.g.
+ *
+ * <pre>
+ *   Global.setHttpClientFactory(new ChaosHttpClientFactory(42,
+ *           new ChaosHttpClient.Rule("oauth2/token").withLatency(ChaosHttpClient.Latency.exponential(20, 80))
+ *                   .withConnectionResets(0.05).withStatus(500, 0.05, null)));
+ * </pre>
+ *
+ * The faults are injected beneath the rate limiter, if one is given, so injected 429s and 503s are backed off from
+ * like real ones.
+ * All the clients created by the same factory share its rules and seeded {@link Random}.
+ */
+public class ChaosHttpClientFactory extends HttpClientFactory {
+
+    private final Random random;
+    private final List<ChaosHttpClient.Rule> rules;
+
+    public ChaosHttpClientFactory(final long seed, final ChaosHttpClient.Rule... rules) {
+        this(seed, Arrays.asList(rules));
+    }
+
+    public ChaosHttpClientFactory(final long seed, final List<ChaosHttpClient.Rule> rules) {
+        this(null, seed, rules);
+    }
+
+    /**
+     * @param rateLimiter see {@link HttpClientFactory#HttpClientFactory(RateLimiter)}.
+     */
+    public ChaosHttpClientFactory(final RateLimiter rateLimiter, final long seed, final List<ChaosHttpClient.Rule> rules) {
+        super(rateLimiter);
+        this.random = new Random(seed);
+        this.rules = Collections.unmodifiableList(new ArrayList<ChaosHttpClient.Rule>(rules));
+    }
+
+    @Override
+    protected HttpClient createTransportHttpClient() {
+        return new ChaosHttpClient(super.createTransportHttpClient(), random, rules);
+    }
+
+    public List<ChaosHttpClient.Rule> getRules() {
+        return rules;
+    }
+}
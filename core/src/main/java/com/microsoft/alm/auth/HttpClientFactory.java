@@ -6,10 +6,60 @@ package com.microsoft.alm.auth;
 import com.microsoft.alm.auth.oauth.Global;
 import com.microsoft.alm.helpers.HttpClient;
 import com.microsoft.alm.helpers.HttpClientImpl;
+import com.microsoft.alm.helpers.JdkHttpClientImpl;
+import com.microsoft.alm.helpers.RateLimitedHttpClient;
+import com.microsoft.alm.helpers.RateLimiter;
+import com.microsoft.alm.helpers.SettingsHelper;
 
 public class HttpClientFactory {
 
+    /**
+     * Setting this property to {@value #JDK_HTTP_CLIENT_IMPLEMENTATION} selects {@link JdkHttpClientImpl},
+     * which shares one HTTP/2-capable connection pool and has non-blocking async methods.
+     */
+    public static final String HTTP_CLIENT_IMPLEMENTATION_PROPERTY_NAME = "httpClientImplementation";
+    public static final String JDK_HTTP_CLIENT_IMPLEMENTATION = "jdk";
+
+    private final RateLimiter rateLimiter;
+
+    /**
+     * Creates clients that send requests as soon as they are made.
+     */
+    public HttpClientFactory() {
+        this(null);
+    }
+
+    /**
+     * Creates clients that admit every request through {@code rateLimiter}, so that all calls to the same
+     * host (token refreshes, device flow polls, account lookups, ...) draw from the same budget, e.g.
+     * {@code Global.setHttpClientFactory(new HttpClientFactory(new RateLimiter(10, 20, 64, 30 * 1000)))}.
+     *
+     * @param rateLimiter the limiter shared by all the clients, or {@code null} for none.
+     */
+    public HttpClientFactory(final RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
     public HttpClient createHttpClient() {
-        return new HttpClientImpl(Global.getUserAgent());
+        final HttpClient client = createTransportHttpClient();
+        return rateLimiter == null ? client : new RateLimitedHttpClient(client, rateLimiter);
+    }
+
+    /**
+     * @return the client that talks to the network, before rate limiting is added to it.
+     */
+    protected HttpClient createTransportHttpClient() {
+        final String implementation = SettingsHelper.getInstance().getProperty(HTTP_CLIENT_IMPLEMENTATION_PROPERTY_NAME);
+        return JDK_HTTP_CLIENT_IMPLEMENTATION.equalsIgnoreCase(implementation)
+                ? new JdkHttpClientImpl(Global.getUserAgent())
+                : new HttpClientImpl(Global.getUserAgent());
+    }
+
+    /**
+     * @return the {@link RateLimiter} used for outbound requests, e.g. to report its queue depth and wait times,
+     *         or {@code null} if requests are not rate limited.
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
     }
 }
@@ -0,0 +1,75 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth;
+
+import com.microsoft.alm.helpers.CircuitBreaker;
+import com.microsoft.alm.helpers.HttpClient;
+import com.microsoft.alm.helpers.LatencyTracker;
+import com.microsoft.alm.helpers.ResilientHttpClient;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link HttpClientFactory} whose clients retry transient failures, stop calling hosts that
+ * keep failing and, optionally, hedge slow GETs.
+ *
+ * Install it with {@code Global.setHttpClientFactory(new ResilientHttpClientFactory())}.
+ * The circuit breaker and latency history are shared by all clients created by the same factory.
+ */
+public class ResilientHttpClientFactory extends HttpClientFactory {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLISECONDS = 30 * 1000;
+
+    private final CircuitBreaker circuitBreaker;
+    private final LatencyTracker latencyTracker = new LatencyTracker();
+    private final int maxRetries;
+    private final Executor hedgeExecutor;
+
+    public ResilientHttpClientFactory() {
+        this(ResilientHttpClient.DEFAULT_MAX_RETRIES, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLISECONDS, false);
+    }
+
+    /**
+     * @param maxRetries       how many times a failed request may be retried.
+     * @param failureThreshold how many consecutive failures stop requests to a host.
+     * @param openMilliseconds how long requests to a failing host are stopped before a probe is sent.
+     * @param hedgeGets        whether GETs slower than the host's p95 latency are sent a second time.
+     */
+    public ResilientHttpClientFactory(final int maxRetries, final int failureThreshold, final long openMilliseconds, final boolean hedgeGets) {
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openMilliseconds);
+        this.maxRetries = maxRetries;
+        this.hedgeExecutor = hedgeGets ? createHedgeExecutor() : null;
+    }
+
+    @Override
+    public HttpClient createHttpClient() {
+        return new ResilientHttpClient(super.createHttpClient(), circuitBreaker, latencyTracker, maxRetries, hedgeExecutor);
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public LatencyTracker getLatencyTracker() {
+        return latencyTracker;
+    }
+
+    private static ExecutorService createHedgeExecutor() {
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "http-hedge-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -0,0 +1,161 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth;
+
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.secret.Secret;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets a {@link BaseAuthenticator.SecretRetriever} hand out a stored secret without waiting for the validation
+ * endpoint, as long as the secret was confirmed valid recently enough.
+ *
+ * The age of a secret is the time since it was last confirmed valid in this process (validated, refreshed or
+ * freshly retrieved).  Up to {@code freshMillis} the secret is served as is; up to {@code maxStalenessMillis} it is
+ * served right away and revalidated in the background; past that (or if it was never confirmed) it is validated
+ * before it is returned.  Either way, only a definitive rejection removes a secret from the store, a timeout or an
+ * unreachable endpoint never does.
+ */
+public class StaleWhileRevalidate {
+
+    public static final long DEFAULT_FRESH_MILLIS = 60 * 1000;
+    public static final long DEFAULT_MAX_STALENESS_MILLIS = 60 * 60 * 1000;
+
+    private final long freshMillis;
+    private final long maxStalenessMillis;
+    private final Executor executor;
+
+    private final ConcurrentMap<String, Confirmation> confirmations = new ConcurrentHashMap<String, Confirmation>();
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+
+    public StaleWhileRevalidate() {
+        this(DEFAULT_FRESH_MILLIS, DEFAULT_MAX_STALENESS_MILLIS);
+    }
+
+    /**
+     * Revalidates on a shared pool of daemon threads.
+     */
+    public StaleWhileRevalidate(final long freshMillis, final long maxStalenessMillis) {
+        this(freshMillis, maxStalenessMillis, null);
+    }
+
+    /**
+     * @param freshMillis        how long after a confirmation a secret is served without revalidating it.
+     * @param maxStalenessMillis how long after a confirmation a secret may still be served before it is revalidated.
+     * @param executor           runs the background revalidations, {@code null} for a shared pool of daemon threads.
+     */
+    public StaleWhileRevalidate(final long freshMillis, final long maxStalenessMillis, final Executor executor) {
+        Debug.Assert(freshMillis >= 0, "freshMillis cannot be negative");
+        Debug.Assert(maxStalenessMillis >= freshMillis, "maxStalenessMillis cannot be shorter than freshMillis");
+
+        this.freshMillis = freshMillis;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.executor = executor;
+    }
+
+    public long getMaxStalenessMillis() {
+        return maxStalenessMillis;
+    }
+
+    /**
+     * @return {@code true} if {@code secret} was confirmed valid less than {@code freshMillis} ago.
+     */
+    boolean isFresh(final String key, final Secret secret) {
+        final long age = getAge(key, secret);
+        return age >= 0 && age <= freshMillis;
+    }
+
+    /**
+     * @return {@code true} if {@code secret} was confirmed valid less than {@code maxStalenessMillis} ago.
+     */
+    boolean isServable(final String key, final Secret secret) {
+        final long age = getAge(key, secret);
+        return age >= 0 && age <= maxStalenessMillis;
+    }
+
+    void confirm(final String key, final Secret secret) {
+        confirmations.put(key, new Confirmation(secret, currentTimeMillis()));
+    }
+
+    void forget(final String key) {
+        confirmations.remove(key);
+    }
+
+    /**
+     * Runs {@code revalidation} in the background, unless one is already running for {@code key}.
+     */
+    void revalidate(final String key, final Runnable revalidation) {
+        if (!revalidating.add(key)) {
+            return;
+        }
+        try {
+            getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        revalidation.run();
+                    } finally {
+                        revalidating.remove(key);
+                    }
+                }
+            });
+        } catch (final RuntimeException e) {
+            revalidating.remove(key);
+            throw e;
+        }
+    }
+
+    /**
+     * Extensibility point, for tests.
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private long getAge(final String key, final Secret secret) {
+        final Confirmation confirmation = confirmations.get(key);
+        if (confirmation == null || !confirmation.secret.equals(secret)) {
+            // someone else put this secret in the store, we know nothing about it
+            return -1;
+        }
+        return currentTimeMillis() - confirmation.confirmedAt;
+    }
+
+    private Executor getExecutor() {
+        return executor != null ? executor : Revalidators.EXECUTOR;
+    }
+
+    private static final class Confirmation {
+        private final Secret secret;
+        private final long confirmedAt;
+
+        Confirmation(final Secret secret, final long confirmedAt) {
+            this.secret = secret;
+            this.confirmedAt = confirmedAt;
+        }
+    }
+
+    /**
+     * Initialization-on-demand holder: no thread is created until the first background revalidation.
+     */
+    private static final class Revalidators {
+        static final Executor EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "secret-revalidator-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -19,6 +19,8 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -33,6 +35,11 @@ public class AzureAuthority {
      */
     public static final String AuthorityHostUrlBase = "https://login.microsoftonline.com";
 
+    /**
+     * Setting that replaces {@link #AuthorityHostUrlBase}, e.g. to sign in against a local stand-in.
+     */
+    public static final String AUTHORITY_HOST_URL_PROPERTY = "AUTH_LIB_AUTHORITY_HOST_URL";
+
     /**
      * Common tenant for discovery of real tenant
      */
@@ -51,6 +58,12 @@ public class AzureAuthority {
     private static final String VSTS_BASE_DOMAIN = "visualstudio.com";
     private static final String VSTS_RESOURCE_TENANT_HEADER = "X-VSS-ResourceTenant";
 
+    /**
+     * Tenant ids already detected, by account host.  An account does not move between tenants, so they are kept for
+     * the life of the process.  A missing header is not remembered: it may come from an error or a proxy page.
+     */
+    private static final ConcurrentMap<String, UUID> TENANT_IDS = new ConcurrentHashMap<String, UUID>();
+
     private final UserAgent userAgent;
     private final AzureDeviceFlow azureDeviceFlow;
 
@@ -60,7 +73,14 @@ public class AzureAuthority {
      * Creates a new {@link AzureAuthority} with the default authority host url.
      */
     public AzureAuthority() {
-        this(DefaultAuthorityHostUrl);
+        this(getAuthorityHostUrlBase() + "/" + CommonTenant);
+    }
+
+    /**
+     * @return the {@link #AUTHORITY_HOST_URL_PROPERTY} setting, or {@link #AuthorityHostUrlBase} if it is not set
+     */
+    public static String getAuthorityHostUrlBase() {
+        return StringHelper.trimEnd(SettingsHelper.getInstance().getProperty(AUTHORITY_HOST_URL_PROPERTY, AuthorityHostUrlBase), '/');
     }
 
     /**
@@ -184,12 +204,19 @@ public class AzureAuthority {
 
         if (StringHelper.endsWithIgnoreCase(targetUri.getHost(), VSTS_BASE_DOMAIN) ||
                 UriHelper.isAzureHost(targetUri)) {
+            final String host = targetUri.getHost().toLowerCase();
+            final UUID known = TENANT_IDS.get(host);
+            if (known != null) {
+                return known;
+            }
+
             final HttpClient client = Global.getHttpClientFactory().createHttpClient();
             final String tenant = client.getHeaderField(targetUri, VSTS_RESOURCE_TENANT_HEADER);
 
             if (!StringHelper.isNullOrWhiteSpace(tenant)) {
                 if (Guid.tryParse(tenant, tenantId)) {
                     if (!Guid.Empty.equals(tenantId.get())) {
+                        TENANT_IDS.put(host, tenantId.get());
                         return tenantId.get();
                     }
                 }
@@ -200,12 +227,21 @@ public class AzureAuthority {
     }
 
     private TokenPair doAcquireToken(final URI tokenEndpoint, final StringContent requestContent) throws IOException {
-        final HttpClient client = Global.getHttpClientFactory().createHttpClient();
+        final AuthMetrics metrics = AuthMetricsProvider.get();
+        final long start = System.nanoTime();
+        try {
+            final HttpClient client = Global.getHttpClientFactory().createHttpClient();
 
-        final String responseContent = client.getPostResponseText(tokenEndpoint, requestContent);
-        final TokenPair tokenPair = new TokenPair(responseContent);
+            final String responseContent = client.getPostResponseText(tokenEndpoint, requestContent);
+            final TokenPair tokenPair = new TokenPair(responseContent);
 
-        return tokenPair;
+            return tokenPair;
+        } catch (final IOException e) {
+            metrics.recordError(AuthMetrics.ACQUIRE_TOKEN, tokenEndpoint.getHost(), e);
+            throw e;
+        } finally {
+            metrics.recordLatency(AuthMetrics.ACQUIRE_TOKEN, tokenEndpoint.getHost(), System.nanoTime() - start);
+        }
     }
 
     /**
@@ -239,8 +275,10 @@ public class AzureAuthority {
             return tokens;
         }
 
+        final URI tokenEndpoint = createTokenEndpointUri(authorityHostUrl);
+        final AuthEvents.TokenAcquire event = new AuthEvents.TokenAcquire();
+        event.begin();
         try {
-            final URI tokenEndpoint = createTokenEndpointUri(authorityHostUrl);
             final StringContent requestContent = createTokenRequest(resource, clientId, authorizationCode, redirectUri, correlationId);
 
             tokens = doAcquireToken(tokenEndpoint, requestContent);
@@ -250,6 +288,8 @@ public class AzureAuthority {
             // TODO: 449248: silently catching the exception here seems horribly wrong
             logger.debug("   token acquisition failed.");
             logger.debug("   IOException: {}", e);
+        } finally {
+            commitTokenAcquire(event, tokenEndpoint, tokens);
         }
         return tokens;
     }
@@ -264,25 +304,57 @@ public class AzureAuthority {
      */
     public TokenPair acquireTokenByRefreshToken(final String clientId, final String resource,
                                                 final Token refreshToken) {
+        try {
+            return redeemRefreshToken(clientId, resource, refreshToken);
+        } catch (IOException e) {
+            // TODO: 449248: silently catching the exception here seems horribly wrong - again
+            logger.debug("   token acquisition failed.");
+            logger.debug("   IOException: {}", e);
+            return null;
+        }
+    }
+
+    /**
+     * Acquires an access token from the authority using a previously acquired refresh token, letting the caller
+     * tell a refresh token the authority rejected from one it could not be asked about.
+     *
+     * @param clientId     Identifier of the client requesting the token.
+     * @param resource     Identifier of the target resource that is the recipient of the requested token.
+     * @param refreshToken The {@link Token} of type {@link TokenType#Refresh}.
+     * @return the new {@link TokenPair}
+     * @throws IOException an {@link HttpStatusException} if the authority answered with an error, or whatever kept
+     *                     the request from getting an answer
+     */
+    public TokenPair redeemRefreshToken(final String clientId, final String resource,
+                                        final Token refreshToken) throws IOException {
         Debug.Assert(!StringHelper.isNullOrWhiteSpace(clientId), "The clientId parameter is null or empty");
         Debug.Assert(!StringHelper.isNullOrWhiteSpace(resource), "The resource parameter is null or empty");
         Debug.Assert(refreshToken != null, "The refreshToken parameter is null");
 
-        logger.debug("AzureAuthority::acquireTokenByRefreshToken");
+        logger.debug("AzureAuthority::redeemRefreshToken");
 
         final URI tokenEndpoint = createTokenEndpointUri(authorityHostUrl);
         final StringContent requestContent = createTokenRequestByRefreshToken(resource, clientId, refreshToken);
 
+        final AuthMetrics metrics = AuthMetricsProvider.get();
+        final long start = System.nanoTime();
+        final AuthEvents.TokenRefresh event = new AuthEvents.TokenRefresh();
+        event.begin();
+        TokenPair tokenPair = null;
         try {
-            final TokenPair tokenPair = doAcquireToken(tokenEndpoint, requestContent);
-            return tokenPair;
-        } catch (IOException e) {
-            // TODO: 449248: silently catching the exception here seems horribly wrong - again
-            logger.debug("   token acquisition failed.");
-            logger.debug("   IOException: {}", e);
+            tokenPair = doAcquireToken(tokenEndpoint, requestContent);
+        } finally {
+            metrics.recordLatency(AuthMetrics.REFRESH, tokenEndpoint.getHost(), System.nanoTime() - start);
+            metrics.recordRefresh(tokenEndpoint.getHost(), tokenPair != null);
+            event.end();
+            if (event.shouldCommit()) {
+                event.backend = tokenEndpoint.getHost();
+                event.status = tokenPair != null ? "REFRESHED" : "FAILED";
+                event.commit();
+            }
         }
 
-        return null;
+        return tokenPair;
     }
 
     public TokenPair acquireToken(final String clientId, final String resource, final URI redirectUri,
@@ -303,12 +375,32 @@ public class AzureAuthority {
         callback.call(response);
 
         final URI tokenEndpoint = createTokenEndpointUri(authorityHostUrl);
-        final TokenPair tokens = azureDeviceFlow.requestToken(tokenEndpoint, clientId, response);
+        final AuthEvents.TokenAcquire event = new AuthEvents.TokenAcquire();
+        event.begin();
+        TokenPair tokens = null;
+        try {
+            tokens = azureDeviceFlow.requestToken(tokenEndpoint, clientId, response);
+        } finally {
+            commitTokenAcquire(event, tokenEndpoint, tokens);
+        }
 
         logger.debug("   token acquisition succeeded.");
         return tokens;
     }
 
+    /**
+     * Records the redemption of an authorization code, or the polling for a device code to be entered.
+     */
+    private static void commitTokenAcquire(final AuthEvents.TokenAcquire event, final URI tokenEndpoint,
+                                           final TokenPair tokens) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.backend = tokenEndpoint.getHost();
+            event.status = tokens != null ? "ACQUIRED" : "FAILED";
+            event.commit();
+        }
+    }
+
     private String acquireAuthorizationCode(final String resource, final String clientId, final URI redirectUri,
                                             final String queryParameters) throws AuthorizationException {
         final String expectedState = UUID.randomUUID().toString();
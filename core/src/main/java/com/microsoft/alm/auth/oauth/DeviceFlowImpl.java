@@ -3,6 +3,7 @@
 
 package com.microsoft.alm.auth.oauth;
 
+import com.microsoft.alm.helpers.AuthEvents;
 import com.microsoft.alm.helpers.HttpClient;
 import com.microsoft.alm.helpers.HttpResponse;
 import com.microsoft.alm.helpers.PropertyBag;
@@ -19,6 +20,7 @@ import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.util.Calendar;
+import java.util.concurrent.CompletableFuture;
 
 public class DeviceFlowImpl implements DeviceFlow {
 
@@ -69,12 +71,7 @@ public class DeviceFlowImpl implements DeviceFlow {
 
     @Override
     public TokenPair requestToken(final URI tokenEndpoint, final String clientId, final DeviceFlowResponse deviceFlowResponse) throws AuthorizationException {
-        final QueryString bodyParameters = new QueryString();
-        bodyParameters.put(OAuthParameter.GRANT_TYPE, OAuthParameter.DEVICE_CODE);
-        bodyParameters.put(OAuthParameter.CODE, deviceFlowResponse.getDeviceCode());
-        bodyParameters.put(OAuthParameter.CLIENT_ID, clientId);
-        contributeTokenRequestParameters(bodyParameters);
-        final StringContent requestBody = StringContent.createUrlEncoded(bodyParameters);
+        final StringContent requestBody = createTokenRequestBody(clientId, deviceFlowResponse);
 
         final int intervalSeconds = deviceFlowResponse.getInterval();
         int intervalMilliseconds = intervalSeconds * 1000;
@@ -88,7 +85,7 @@ public class DeviceFlowImpl implements DeviceFlow {
             }
 
             try {
-                final HttpResponse response = client.getPostResponse(tokenEndpoint, requestBody);
+                final HttpResponse response = pollTokenEndpoint(client, tokenEndpoint, requestBody);
 
                 if (response.status == HttpURLConnection.HTTP_OK) {
                     responseText = response.responseText;
@@ -116,10 +113,7 @@ public class DeviceFlowImpl implements DeviceFlow {
                             }
                             continue;
                         }
-                        final String errorDescription = bag.readOptionalString(OAuthParameter.ERROR_DESCRIPTION, null);
-                        final String errorUriString = bag.readOptionalString(OAuthParameter.ERROR_URI, null);
-                        final URI errorUri = errorUriString == null ? null : URI.create(errorUriString);
-                        throw new AuthorizationException(errorCode, errorDescription, errorUri, null);
+                        throw createAuthorizationException(errorCode, bag);
                     }
                     else {
                         throw new Error("Token endpoint returned HTTP " + response.status + ":\n" + errorResponseText);
@@ -141,6 +135,72 @@ public class DeviceFlowImpl implements DeviceFlow {
         return tokenPair;
     }
 
+    /**
+     * Polls the token endpoint on the shared {@link DeviceFlowPoller} instead of blocking the calling thread.
+     *
+     * @param tokenEndpoint      the URI of the token endpoint.
+     * @param clientId           the identifier of the client (application).
+     * @param deviceFlowResponse the response obtained from {@link #requestAuthorization(URI, String, String)}.
+     *
+     * @return                   a future that completes with the {@link TokenPair} once the user
+     *                           has completed the device flow, or exceptionally if it was denied,
+     *                           cancelled or the code expired.
+     */
+    public CompletableFuture<TokenPair> requestTokenAsync(final URI tokenEndpoint, final String clientId, final DeviceFlowResponse deviceFlowResponse) {
+        return DeviceFlowPoller.getDefault().poll(this, tokenEndpoint, clientId, deviceFlowResponse);
+    }
+
+    StringContent createTokenRequestBody(final String clientId, final DeviceFlowResponse deviceFlowResponse) {
+        final QueryString bodyParameters = new QueryString();
+        bodyParameters.put(OAuthParameter.GRANT_TYPE, OAuthParameter.DEVICE_CODE);
+        bodyParameters.put(OAuthParameter.CODE, deviceFlowResponse.getDeviceCode());
+        bodyParameters.put(OAuthParameter.CLIENT_ID, clientId);
+        contributeTokenRequestParameters(bodyParameters);
+        return StringContent.createUrlEncoded(bodyParameters);
+    }
+
+    /**
+     * Posts the device code to the token endpoint once, recording the attempt.
+     */
+    static HttpResponse pollTokenEndpoint(final HttpClient client, final URI tokenEndpoint,
+                                          final StringContent requestBody) throws IOException {
+        final AuthEvents.DeviceFlowPoll event = new AuthEvents.DeviceFlowPoll();
+        event.begin();
+        HttpResponse response = null;
+        try {
+            response = client.getPostResponse(tokenEndpoint, requestBody);
+            return response;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.host = tokenEndpoint.getHost();
+                event.status = describePoll(response);
+                event.commit();
+            }
+        }
+    }
+
+    private static String describePoll(final HttpResponse response) {
+        if (response == null) {
+            return "FAILED";
+        }
+        if (response.status == HttpURLConnection.HTTP_BAD_REQUEST && response.errorText != null) {
+            try {
+                return PropertyBag.fromJson(response.errorText).readOptionalString(OAuthParameter.ERROR_CODE, "unknown_error");
+            } catch (final RuntimeException ignored) {
+                // not JSON, fall back to the status code
+            }
+        }
+        return Integer.toString(response.status);
+    }
+
+    static AuthorizationException createAuthorizationException(final String errorCode, final PropertyBag bag) {
+        final String errorDescription = bag.readOptionalString(OAuthParameter.ERROR_DESCRIPTION, null);
+        final String errorUriString = bag.readOptionalString(OAuthParameter.ERROR_URI, null);
+        final URI errorUri = errorUriString == null ? null : URI.create(errorUriString);
+        return new AuthorizationException(errorCode, errorDescription, errorUri, null);
+    }
+
     /**
      * Allows subclasses to augment the request to the token endpoint with additional parameters.
      *
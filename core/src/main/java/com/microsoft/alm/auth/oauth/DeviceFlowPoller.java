@@ -0,0 +1,190 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.oauth;
+
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.HttpClient;
+import com.microsoft.alm.helpers.HttpResponse;
+import com.microsoft.alm.helpers.PropertyBag;
+import com.microsoft.alm.helpers.StringContent;
+import com.microsoft.alm.oauth2.useragent.AuthorizationException;
+import com.microsoft.alm.secret.TokenPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Polls the token endpoint for any number of pending device codes from a shared
+ * {@link ScheduledExecutorService}, so that waiting for the user to complete the device flow
+ * does not hold a thread per request.
+ *
+ * Each poll is a short task that re-schedules itself after the interval dictated by the server:
+ * "authorization_pending" keeps the current interval and "slow_down" doubles it, matching
+ * {@link DeviceFlowImpl#requestToken(URI, String, DeviceFlowResponse)}.
+ */
+public class DeviceFlowPoller {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceFlowPoller.class);
+
+    private static final int DEFAULT_THREAD_COUNT = 2;
+    private static DeviceFlowPoller defaultPoller = null;
+
+    private final ScheduledExecutorService scheduler;
+
+    public DeviceFlowPoller(final ScheduledExecutorService scheduler) {
+        Debug.Assert(scheduler != null, "scheduler cannot be null");
+
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @return the process-wide poller, backed by a small pool of daemon threads created on first use.
+     */
+    public static synchronized DeviceFlowPoller getDefault() {
+        if (defaultPoller == null) {
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(DEFAULT_THREAD_COUNT, new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "device-flow-poller-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            defaultPoller = new DeviceFlowPoller(executor);
+        }
+        return defaultPoller;
+    }
+
+    /**
+     * Starts polling the token endpoint for the device code in {@code deviceFlowResponse}.
+     *
+     * Polling stops when the token is acquired, the server reports an error other than
+     * "authorization_pending" or "slow_down", the code expires, the user calls
+     * {@link DeviceFlowResponse#requestCancel()}, or the returned future is cancelled.
+     *
+     * @param deviceFlow         the {@link DeviceFlowImpl} that builds the token request and the {@link TokenPair}.
+     * @param tokenEndpoint      the URI of the token endpoint.
+     * @param clientId           the identifier of the client (application).
+     * @param deviceFlowResponse the response obtained from the device endpoint.
+     *
+     * @return                   a future completed with the {@link TokenPair}, or exceptionally with an
+     *                           {@link AuthorizationException} (including "request_cancelled" and "code_expired").
+     */
+    public CompletableFuture<TokenPair> poll(final DeviceFlowImpl deviceFlow, final URI tokenEndpoint, final String clientId, final DeviceFlowResponse deviceFlowResponse) {
+        Debug.Assert(deviceFlow != null, "deviceFlow cannot be null");
+        Debug.Assert(tokenEndpoint != null, "tokenEndpoint cannot be null");
+        Debug.Assert(deviceFlowResponse != null, "deviceFlowResponse cannot be null");
+
+        final PollTask task = new PollTask(deviceFlow, tokenEndpoint, clientId, deviceFlowResponse);
+        task.scheduleNext(0);
+        return task.result;
+    }
+
+    private final class PollTask implements Runnable {
+
+        private final CompletableFuture<TokenPair> result = new CompletableFuture<TokenPair>();
+        private final DeviceFlowImpl deviceFlow;
+        private final URI tokenEndpoint;
+        private final DeviceFlowResponse deviceFlowResponse;
+        private final StringContent requestBody;
+        private final HttpClient client;
+        private final long expiresAtMillis;
+        private long intervalMilliseconds;
+        private boolean polled = false;
+        private volatile ScheduledFuture<?> pending;
+
+        PollTask(final DeviceFlowImpl deviceFlow, final URI tokenEndpoint, final String clientId, final DeviceFlowResponse deviceFlowResponse) {
+            this.deviceFlow = deviceFlow;
+            this.tokenEndpoint = tokenEndpoint;
+            this.deviceFlowResponse = deviceFlowResponse;
+            this.requestBody = deviceFlow.createTokenRequestBody(clientId, deviceFlowResponse);
+            this.client = Global.getHttpClientFactory().createHttpClient();
+            this.expiresAtMillis = deviceFlowResponse.getExpiresAt().getTimeInMillis();
+            this.intervalMilliseconds = deviceFlowResponse.getInterval() * 1000L;
+
+            // a caller cancelling the future should not leave a poll queued on the scheduler
+            result.whenComplete(new BiConsumer<TokenPair, Throwable>() {
+                @Override
+                public void accept(final TokenPair tokenPair, final Throwable throwable) {
+                    final ScheduledFuture<?> scheduled = pending;
+                    if (scheduled != null) {
+                        scheduled.cancel(false);
+                    }
+                }
+            });
+        }
+
+        void scheduleNext(final long delayMilliseconds) {
+            if (result.isDone()) {
+                return;
+            }
+            pending = scheduler.schedule(this, delayMilliseconds, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            if (result.isDone()) {
+                return;
+            }
+            if (deviceFlowResponse.cancelRequestedByUser()) {
+                result.completeExceptionally(new AuthorizationException("request_cancelled", "Stop polling for Token.", null, null));
+                return;
+            }
+            if (polled && System.currentTimeMillis() > expiresAtMillis) {
+                result.completeExceptionally(new AuthorizationException("code_expired", "The verification code expired.", null, null));
+                return;
+            }
+            polled = true;
+
+            try {
+                final HttpResponse response = DeviceFlowImpl.pollTokenEndpoint(client, tokenEndpoint, requestBody);
+
+                if (response.status == HttpURLConnection.HTTP_OK) {
+                    final TokenPair tokenPair = deviceFlow.buildTokenPair(response.responseText);
+                    deviceFlowResponse.setTokenAcquired();
+                    result.complete(tokenPair);
+                }
+                else if (response.status == HttpURLConnection.HTTP_BAD_REQUEST) {
+                    final PropertyBag bag = PropertyBag.fromJson(response.errorText);
+                    final String errorCode = bag.readOptionalString(OAuthParameter.ERROR_CODE, "unknown_error");
+                    if (OAuthParameter.ERROR_AUTHORIZATION_PENDING.equals(errorCode)) {
+                        scheduleNext(intervalMilliseconds);
+                    }
+                    else if (OAuthParameter.ERROR_SLOW_DOWN.equals(errorCode)) {
+                        intervalMilliseconds *= 2;
+                        logger.debug("Token endpoint asked to slow down; polling every {} ms.", intervalMilliseconds);
+                        scheduleNext(intervalMilliseconds);
+                    }
+                    else {
+                        result.completeExceptionally(DeviceFlowImpl.createAuthorizationException(errorCode, bag));
+                    }
+                }
+                else {
+                    result.completeExceptionally(new Error("Token endpoint returned HTTP " + response.status + ":\n" + response.errorText));
+                }
+            }
+            catch (final IOException e) {
+                result.completeExceptionally(new Error(e));
+            }
+            catch (final RuntimeException e) {
+                // the scheduler swallows exceptions, so make sure the caller hears about it
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -8,7 +8,6 @@ import com.microsoft.alm.auth.HttpClientFactory;
 public final class Global {
 
     private static HttpClientFactory httpClientFactory = new HttpClientFactory();
-    private static String userAgent = null;
 
     /**
      * Creates the correct user-agent string for HTTP calls.
@@ -21,18 +20,21 @@ public final class Global {
      * .0-SNAPSHOT
      */
     public static String getUserAgent() {
-        if (userAgent == null) {
-            // http://stackoverflow.com/a/6773868/
-            final String version = Global.class.getPackage().getImplementationVersion();
-            userAgent = String.format("java-auth-library (%1$s; %2$s; %3$s) %4$s/%5$s auth-library/%6$s",
-                    System.getProperty("os.name"), // "Windows Server 2012 R2", "Mac OS X", "Linux"
-                    System.getProperty("os.version"), // "6.3", "10.10.5", "3.19.0-28-generic"
-                    System.getProperty("os.arch"), // "amd64", "x86_64", "amd64"
-                    System.getProperty("java.vm.name"), // "Java HotSpot(TM) 64-Bit Server VM", "OpenJDK 64-Bit Server VM"
-                    System.getProperty("java.runtime.version"), // "1.8.0_60-b27", "1.7.0_71-b14", "1.7.0_79-b14"
-                    version);
-        }
-        return userAgent;
+        return UserAgent.VALUE;
+    }
+
+    /**
+     * Initialization-on-demand holder: built once, on first use, without locking afterwards.
+     */
+    private static final class UserAgent {
+        // http://stackoverflow.com/a/6773868/
+        static final String VALUE = String.format("java-auth-library (%1$s; %2$s; %3$s) %4$s/%5$s auth-library/%6$s",
+                System.getProperty("os.name"), // "Windows Server 2012 R2", "Mac OS X", "Linux"
+                System.getProperty("os.version"), // "6.3", "10.10.5", "3.19.0-28-generic"
+                System.getProperty("os.arch"), // "amd64", "x86_64", "amd64"
+                System.getProperty("java.vm.name"), // "Java HotSpot(TM) 64-Bit Server VM", "OpenJDK 64-Bit Server VM"
+                System.getProperty("java.runtime.version"), // "1.8.0_60-b27", "1.7.0_71-b14", "1.7.0_79-b14"
+                Global.class.getPackage().getImplementationVersion());
     }
 
     public static HttpClientFactory getHttpClientFactory() {
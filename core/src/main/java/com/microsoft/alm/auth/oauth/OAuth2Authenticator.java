@@ -11,6 +11,7 @@ import com.microsoft.alm.helpers.Action;
 import com.microsoft.alm.helpers.Debug;
 import com.microsoft.alm.helpers.HttpClient;
 import com.microsoft.alm.helpers.HttpClientImpl;
+import com.microsoft.alm.helpers.HttpStatusException;
 import com.microsoft.alm.helpers.SettingsHelper;
 import com.microsoft.alm.helpers.StringHelper;
 import com.microsoft.alm.oauth2.useragent.AuthorizationException;
@@ -23,6 +24,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.net.URI;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
@@ -40,6 +42,12 @@ public class OAuth2Authenticator extends BaseAuthenticator {
     public final static String VALIDATION_ENDPOINT = APP_VSSPS_VISUALSTUDIO + "/_apis/connectionData";
     public static final String VSTS_RESOURCE = "499b84ac-1321-427f-aa17-267ca6975798";
 
+    /**
+     * Setting that replaces {@link #APP_VSSPS_VISUALSTUDIO} as the server that validates tokens and serves the
+     * user's profile and accounts, e.g. a local stand-in.  Secrets are still stored under the usual key.
+     */
+    public static final String VSSPS_URL_PROPERTY = "AUTH_LIB_VSSPS_URL";
+
     public static final String SWT_PROIVDER_NAME = "StandardWidgetToolkit";
     public static final String JAVAFX_PROVIDER_NAME = "JavaFx";
 
@@ -167,51 +175,63 @@ public class OAuth2Authenticator extends BaseAuthenticator {
 
         final SecretRetriever<TokenPair> secretRetriever = new SecretRetriever<TokenPair>() {
 
-            private boolean validateAccessToken(final Token accessToken, final URI validationEndpoint) {
+            private Validation validateAccessToken(final Token accessToken, final URI validationEndpoint) {
                 final HttpClient client = Global.getHttpClientFactory().createHttpClient();
                 accessToken.contributeHeader(client.getHeaders());
                 try {
                     final String response = client.getGetResponseText(validationEndpoint);
 
-                    return true;
+                    return Validation.VALID;
                 } catch (IOException e) {
                     logger.debug("Validation failed with IOException.", e);
+                    return classify(e);
                 }
-
-                return false;
             }
 
             @Override
-            protected boolean tryGetValidated(final TokenPair tokenPair, final AtomicReference<TokenPair> holder) {
+            protected Validation validate(final TokenPair tokenPair, final AtomicReference<TokenPair> holder) {
                 Debug.Assert(tokenPair != null, "TokenPair is null");
                 Debug.Assert(holder != null, "Holder is null");
 
-                final URI validationEndpoint = URI.create(VALIDATION_ENDPOINT);
-                boolean valid = false;
+                final URI validationEndpoint = URI.create(getVsspsUrl() + "/_apis/connectionData");
+                Validation validation = Validation.INVALID;
 
                 if (tokenPair.AccessToken != null && !StringHelper.isNullOrEmpty(tokenPair.AccessToken.Value)) {
                     logger.debug("Validating stored OAuth2 Access Token...");
-                    valid = validateAccessToken(tokenPair.AccessToken, validationEndpoint);
+                    validation = validateAccessToken(tokenPair.AccessToken, validationEndpoint);
                 }
 
-                if (!valid && tokenPair.RefreshToken != null
+                if (validation == Validation.UNKNOWN) {
+                    // the endpoint is unreachable, refreshing would not fare any better
+                    logger.debug("OAuth2 Access Token could not be validated.");
+                    return validation;
+                }
+
+                if (validation == Validation.INVALID && tokenPair.RefreshToken != null
                         && !StringHelper.isNullOrEmpty(tokenPair.RefreshToken.Value)) {
                     logger.debug("OAuth2 Access Token is not valid, and we have a refresh token, try refreshing...");
 
-                    final TokenPair renewedTokenPair =
-                            getAzureAuthority(uri).acquireTokenByRefreshToken(clientId, resource, tokenPair.RefreshToken);
+                    final TokenPair renewedTokenPair;
+                    try {
+                        renewedTokenPair =
+                                getAzureAuthority(uri).redeemRefreshToken(clientId, resource, tokenPair.RefreshToken);
+                    } catch (final IOException e) {
+                        // unless the authority rejected it, the refresh token may well be good: keep the pair
+                        logger.debug("Refreshing failed with IOException.", e);
+                        return classifyRefresh(e);
+                    }
 
                     if (renewedTokenPair != null
                             && renewedTokenPair.AccessToken.Value != null
                             && renewedTokenPair.RefreshToken.Value != null) {
                         logger.debug("OAuth2 Access Token refreshed successfully.");
-                        valid = true;
+                        validation = Validation.VALID;
                         holder.set(renewedTokenPair);
                     }
                 }
 
-                logger.debug("OAuth2 Access Token is {}.", valid ? "valid" : "invalid.");
-                return valid;
+                logger.debug("OAuth2 Access Token is {}.", validation == Validation.VALID ? "valid" : "invalid.");
+                return validation;
             }
 
             @Override
@@ -232,14 +252,14 @@ public class OAuth2Authenticator extends BaseAuthenticator {
                     if (favorSwtBrowser) {
                         logger.debug("Prefer SWT Browser, download SWT Runtime if it is not available.");
                         if (oAuth2UseragentValidator.isOnlyMissingRuntimeFromSwtProvider()) {
-                            SwtJarLoader.tryGetSwtJar(swtRuntime);
+                            provisionSwtRuntime(swtRuntime);
                         }
                     }
 
                     if (!favorDeviceFlow) {
                         if (oAuth2UseragentValidator.isOAuth2ProviderAvailable()
                                 || (oAuth2UseragentValidator.isOnlyMissingRuntimeFromSwtProvider()
-                                && SwtJarLoader.tryGetSwtJar(swtRuntime))) {
+                                && provisionSwtRuntime(swtRuntime))) {
                             try {
                                 logger.info("Using oauth2-useragent providers to retrieve AAD token.");
                                 return getAzureAuthority(uri).acquireToken(clientId, resource, redirectUri, POPUP_QUERY_PARAM);
@@ -281,18 +301,50 @@ public class OAuth2Authenticator extends BaseAuthenticator {
             }
         };
 
-        return secretRetriever.retrieve(key, getStore(), promptBehavior);
+        return secretRetriever.retrieve(key, getStore(), promptBehavior, revalidationPolicy);
     }
 
     public boolean signOut() {
         return super.signOut(APP_VSSPS_VISUALSTUDIO);
     }
 
+    /**
+     * @return the {@link #VSSPS_URL_PROPERTY} setting, or {@link #APP_VSSPS_VISUALSTUDIO} if it is not set,
+     *         without a trailing slash
+     */
+    public static String getVsspsUrl() {
+        final String url = SettingsHelper.getInstance().getProperty(VSSPS_URL_PROPERTY);
+        return url == null ? APP_VSSPS_VISUALSTUDIO.toString() : StringHelper.trimEnd(url, '/');
+    }
+
     // For unit test
     /*default*/ void setAzureAuthorityProvider(final AzureAuthorityProvider azureAuthorityProvider) {
         this.azureAuthorityProvider = azureAuthorityProvider;
     }
 
+    private static boolean provisionSwtRuntime(final AtomicReference<File> swtRuntime) {
+        final boolean provisioned = SwtJarLoader.tryGetSwtJar(swtRuntime);
+        if (provisioned) {
+            // the runtime is no longer missing
+            OAuth2UseragentValidator.invalidate();
+        }
+        return provisioned;
+    }
+
+    /**
+     * Maps a failed refresh to its outcome: the authority answers a refresh token it will not redeem with a 400
+     * ({@code invalid_grant}) or a 401, anything else says nothing about the refresh token.
+     */
+    static SecretRetriever.Validation classifyRefresh(final IOException e) {
+        if (e instanceof HttpStatusException) {
+            final int statusCode = ((HttpStatusException) e).getStatusCode();
+            if (statusCode == HttpURLConnection.HTTP_BAD_REQUEST || statusCode == HttpURLConnection.HTTP_UNAUTHORIZED) {
+                return SecretRetriever.Validation.INVALID;
+            }
+        }
+        return SecretRetriever.Validation.UNKNOWN;
+    }
+
     private AzureAuthority getAzureAuthority(final URI uri) {
         try {
             return this.azureAuthorityProvider.getAzureAuthority(uri);
@@ -308,6 +360,8 @@ public class OAuth2Authenticator extends BaseAuthenticator {
         private SecretStore store;
         private String tenantId = AzureAuthority.CommonTenant;
         private Action<DeviceFlowResponse> deviceFlowCallback;
+        private boolean prefetchSwtRuntime;
+        private boolean scanProvidersInBackground;
 
         public OAuth2AuthenticatorBuilder manage(final String resource) {
             Debug.Assert(resource != null, "resource cannot be null");
@@ -346,6 +400,24 @@ public class OAuth2Authenticator extends BaseAuthenticator {
             return this;
         }
 
+        /**
+         * Start downloading the SWT runtime in the background when the SWT browser is the preferred
+         * oauth2-useragent provider, so that the first interactive login does not wait for it.
+         */
+        public OAuth2AuthenticatorBuilder prefetchSwtRuntime() {
+            this.prefetchSwtRuntime = true;
+            return this;
+        }
+
+        /**
+         * Start scanning for oauth2-useragent providers in the background, so that the first interactive login
+         * does not wait for the scan.
+         */
+        public OAuth2AuthenticatorBuilder scanProvidersInBackground() {
+            this.scanProvidersInBackground = true;
+            return this;
+        }
+
         public OAuth2Authenticator build() {
             if (this.clientId == null) {
                 throw new IllegalStateException("ClientId not set");
@@ -361,6 +433,15 @@ public class OAuth2Authenticator extends BaseAuthenticator {
 
             final OAuth2UseragentValidator oAuth2UseragentValidator = new OAuth2UseragentValidator();
 
+            if (this.scanProvidersInBackground) {
+                OAuth2UseragentValidator.scanInBackground();
+            }
+
+            if (this.prefetchSwtRuntime && SWT_PROIVDER_NAME.equals(
+                    SettingsHelper.getInstance().getProperty(USER_AGENT_PROVIDER_PROPERTY_NAME, JAVAFX_PROVIDER_NAME))) {
+                SwtJarLoader.prefetchInBackground();
+            }
+
             return new OAuth2Authenticator(this.resource, this.clientId, this.redirectUri, this.store,
                     oAuth2UseragentValidator, this.deviceFlowCallback);
         }
@@ -7,16 +7,27 @@ import com.microsoft.alm.oauth2.useragent.Provider;
 import com.microsoft.alm.oauth2.useragent.ProviderScanner;
 import com.microsoft.alm.oauth2.useragent.StandardWidgetToolkitProvider;
 import com.microsoft.alm.oauth2.useragent.UserAgentImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class verifies the availability of OAuth2-useragent on the current platform
+ *
+ * Scanning for providers probes the classpath and the environment, so the result is taken once per process and
+ * shared by every instance, until {@link #invalidate()} is called after the SWT runtime has been provisioned.
  */
 public class OAuth2UseragentValidator {
 
-    private final ProviderScanner scanner = new UserAgentImpl();
+    private static final Logger logger = LoggerFactory.getLogger(OAuth2UseragentValidator.class);
+
+    private static final AtomicReference<FutureTask<Capabilities>> CAPABILITIES = new AtomicReference<FutureTask<Capabilities>>();
 
     /**
      * Determines if oauth2 useragent can be used on the current running system.
@@ -26,19 +37,94 @@ public class OAuth2UseragentValidator {
      */
     public boolean isOAuth2ProviderAvailable() {
         // not tests are worthy adding since I don't control this implementation
-        final Provider provider = scanner.findCompatibleProvider();
-
-        return provider != null;
+        return getCapabilities().providerAvailable;
     }
 
     public boolean isOnlyMissingRuntimeFromSwtProvider() {
+        return getCapabilities().onlyMissingSwtRuntime;
+    }
+
+    /**
+     * Starts scanning for providers on a daemon thread, so that the first login finds the result ready.
+     */
+    public static void scanInBackground() {
+        final FutureTask<Capabilities> task = newScan();
+        if (CAPABILITIES.compareAndSet(null, task)) {
+            final Thread thread = new Thread(task, "oauth2-useragent-scan");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Forgets the last scan, e.g. because the SWT runtime jar has just been downloaded.
+     */
+    public static void invalidate() {
+        logger.debug("Provider capabilities invalidated.");
+        CAPABILITIES.set(null);
+    }
+
+    private static Capabilities getCapabilities() {
+        FutureTask<Capabilities> task = CAPABILITIES.get();
+        if (task == null) {
+            final FutureTask<Capabilities> candidate = newScan();
+            if (CAPABILITIES.compareAndSet(null, candidate)) {
+                candidate.run();
+            }
+            task = CAPABILITIES.get();
+            if (task == null) {
+                // invalidated in the meantime; the result is still newer than the invalidation
+                task = candidate;
+                task.run();
+            }
+        }
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Error(e);
+        } catch (final ExecutionException e) {
+            // the scan failed, e.g. on an unrecognized JVM version; let the next call try again
+            CAPABILITIES.compareAndSet(task, null);
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new Error(cause);
+        }
+    }
+
+    private static FutureTask<Capabilities> newScan() {
+        return new FutureTask<Capabilities>(new Callable<Capabilities>() {
+            @Override
+            public Capabilities call() {
+                return scan(new UserAgentImpl());
+            }
+        });
+    }
+
+    static Capabilities scan(final ProviderScanner scanner) {
+        logger.debug("Scanning for oauth2-useragent providers.");
+        final boolean providerAvailable = scanner.findCompatibleProvider() != null;
+
+        boolean onlyMissingSwtRuntime = false;
         final Map<Provider, List<String>> unmetProviderRequirements = scanner.getUnmetProviderRequirements();
         final List<String> unmetSwtProviderRequirement = unmetProviderRequirements.get(Provider.STANDARD_WIDGET_TOOLKIT);
 
         if (unmetSwtProviderRequirement != null && unmetSwtProviderRequirement.size() == 1) {
-            return unmetSwtProviderRequirement.get(0).contains(StandardWidgetToolkitProvider.getDefaultSwtJarPath());
+            onlyMissingSwtRuntime = unmetSwtProviderRequirement.get(0).contains(StandardWidgetToolkitProvider.getDefaultSwtJarPath());
         }
 
-        return false;
+        return new Capabilities(providerAvailable, onlyMissingSwtRuntime);
+    }
+
+    static final class Capabilities {
+        final boolean providerAvailable;
+        final boolean onlyMissingSwtRuntime;
+
+        Capabilities(final boolean providerAvailable, final boolean onlyMissingSwtRuntime) {
+            this.providerAvailable = providerAvailable;
+            this.onlyMissingSwtRuntime = onlyMissingSwtRuntime;
+        }
     }
 }
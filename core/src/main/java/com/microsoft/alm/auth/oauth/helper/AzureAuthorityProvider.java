@@ -20,7 +20,7 @@ public class AzureAuthorityProvider {
 
     public AzureAuthority getAzureAuthority(final URI uri) throws IOException {
         if (uri == OAuth2Authenticator.APP_VSSPS_VISUALSTUDIO) {
-            return AzureAuthority.DefaultAzureAuthority;
+            return getDefaultAzureAuthority();
         }
 
         logger.debug("Lookup tenant id for {}", uri);
@@ -28,10 +28,18 @@ public class AzureAuthorityProvider {
         logger.debug("tenant id for {} is {}", uri, tenantId);
         if (tenantId == null) {
             // backed by MSA account
-            return AzureAuthority.DefaultAzureAuthority;
+            return getDefaultAzureAuthority();
         }
 
-        return new AzureAuthority(AzureAuthority.AuthorityHostUrlBase + "/" + tenantId);
+        return new AzureAuthority(AzureAuthority.getAuthorityHostUrlBase() + "/" + tenantId);
+    }
+
+    private static AzureAuthority getDefaultAzureAuthority() {
+        // the shared instance was created with the authority host url of the time, which may since have been overridden
+        if (AzureAuthority.DefaultAuthorityHostUrl.equals(AzureAuthority.getAuthorityHostUrlBase() + "/" + AzureAuthority.CommonTenant)) {
+            return AzureAuthority.DefaultAzureAuthority;
+        }
+        return new AzureAuthority();
     }
 
 }
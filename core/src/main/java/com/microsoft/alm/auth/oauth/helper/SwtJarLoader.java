@@ -4,15 +4,20 @@
 package com.microsoft.alm.auth.oauth.helper;
 
 import com.microsoft.alm.helpers.IOHelper;
+import com.microsoft.alm.helpers.StringHelper;
 import com.microsoft.alm.helpers.SystemHelper;
 import com.microsoft.alm.oauth2.useragent.StandardWidgetToolkitProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.Collections;
@@ -23,26 +28,25 @@ import java.util.concurrent.atomic.AtomicReference;
 public class SwtJarLoader {
     private static final Logger logger = LoggerFactory.getLogger(SwtJarLoader.class);
 
-    private static final String BASE_URL = "https://az771546.vo.msecnd.net/swt-binary-for-auth-library/";
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
 
-    private static String jarName;
-    private static File targetSwtJar;
+    private static final String BASE_URL = "https://az771546.vo.msecnd.net/swt-binary-for-auth-library/";
 
     private static String SWT_VERSION="4.4.2";
 
+    /**
+     * Initialization-on-demand holder: the platform is only inspected, and the oauth2-useragent
+     * classes only loaded, once an SWT jar is actually needed.
+     */
+    private static final class Target {
+        static final String JAR_NAME = getJarName(SystemHelper.isWindows(), SystemHelper.isLinux(), SystemHelper.isMac(),
+                System.getProperty("os.arch").contains("64"));
+        static final File SWT_JAR = new File(StandardWidgetToolkitProvider.getDefaultSwtJarPath());
+    }
+
     static final Map<String, Long> CRC32_HASHES;
 
     static {
-        boolean isWindows = SystemHelper.isWindows();
-        boolean isMac = SystemHelper.isMac();
-        boolean isLinux = SystemHelper.isLinux();
-
-        boolean isx64 = System.getProperty("os.arch").contains("64");
-
-        jarName = getJarName(isWindows, isLinux, isMac, isx64);
-
-        targetSwtJar = new File(StandardWidgetToolkitProvider.getDefaultSwtJarPath());
-
         Map<String, Long> hashes = new HashMap<String, Long>();
 
         //CRC32 Hashes of 4.4.2 SWT jar
@@ -77,50 +81,131 @@ public class SwtJarLoader {
         return jarName;
     }
 
-    public static boolean tryGetSwtJar(final AtomicReference<File> swtJarReference) {
-        //precondition: swt runtime jar is not present on the system
-        final String swtJarUrl = BASE_URL + jarName;
-        logger.info("Downloading {}", swtJarUrl);
+    /**
+     * The jar last verified in this process, so that repeated checks during a login flow do not re-hash it.
+     */
+    private static volatile VerifiedJar verifiedJar;
 
+    private static final Object PROVISIONING_LOCK = new Object();
+
+    private static final int BUFFER_SIZE = 65536;
+    private static final int TIMEOUT_MILLISECONDS = 30000;
+
+    static final String PARTIAL_SUFFIX = ".part";
+    static final String VERIFIED_SUFFIX = ".verified";
+
+    /**
+     * Makes sure the SWT runtime jar for this platform is present and intact, downloading it if needed.
+     *
+     * A jar that was verified before, in this process or (through a small marker file next to it) in an earlier
+     * one, is accepted by its size and modification time without being hashed again.  An interrupted download is
+     * resumed where it stopped.  Concurrent callers share a single download.
+     *
+     * @param swtJarReference receives the jar, or {@code null} if it could not be provisioned.
+     * @return {@code true} if the jar is available.
+     */
+    public static boolean tryGetSwtJar(final AtomicReference<File> swtJarReference) {
+        final String jarName = Target.JAR_NAME;
+        final File targetSwtJar = Target.SWT_JAR;
         try {
-            final HttpURLConnection cloudSwtUrlConn = (HttpURLConnection) new URL(swtJarUrl).openConnection();
-            final int statusCode = cloudSwtUrlConn.getResponseCode();
-            if (statusCode != 200) {
-                throw new IOException(String.format("Failed to download SWT Runtime jar from %s.  Server return code is " +
-                        "%d", swtJarUrl, statusCode));
+            final boolean provisioned = provision(new URL(BASE_URL + jarName), targetSwtJar, CRC32_HASHES.get(jarName));
+            swtJarReference.set(provisioned ? targetSwtJar : null);
+            return provisioned;
+        } catch (final IOException ioe) {
+            logger.warn("Failed to download SWT Runtime jar.", ioe);
+        }
+
+        swtJarReference.set(null);
+        return false;
+    }
+
+    /**
+     * Starts provisioning the SWT runtime jar on a daemon thread, so that a later interactive login finds it
+     * ready (or joins the download already in progress) instead of starting one.
+     */
+    public static void prefetchInBackground() {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                tryGetSwtJar(new AtomicReference<File>());
             }
+        }, "swt-runtime-prefetch");
+        thread.setDaemon(true);
+        thread.start();
+    }
 
-            // Make sure the parent folder exists
-            final File parent = targetSwtJar.getParentFile();
-            if (parent != null && !parent.exists()) {
-                parent.mkdirs();
+    static boolean provision(final URL source, final File target, final Long expectedCrc32) throws IOException {
+        if (expectedCrc32 == null) {
+            throw new IOException("No known hash for " + source);
+        }
+        if (isVerified(target, expectedCrc32)) {
+            return true;
+        }
+        synchronized (PROVISIONING_LOCK) {
+            // another caller may have finished the download while we waited
+            if (isVerified(target, expectedCrc32)) {
+                return true;
             }
 
-            targetSwtJar.createNewFile();
-            final FileOutputStream fos = new FileOutputStream(targetSwtJar);
-            final InputStream is = cloudSwtUrlConn.getInputStream();
+            final File partial = new File(target.getPath() + PARTIAL_SUFFIX);
+            download(source, partial);
 
-            IOHelper.copyStream(is, fos);
+            if (!isValid(partial, expectedCrc32)) {
+                logger.warn("Downloaded SWT Runtime jar is corrupted, discarding it.");
+                cleanup(partial);
+                return false;
+            }
+            cleanup(target);
+            if (!partial.renameTo(target)) {
+                cleanup(partial);
+                throw new IOException("Could not move " + partial + " to " + target);
+            }
+            markVerified(target, expectedCrc32);
+            return true;
+        }
+    }
 
-            IOHelper.closeQuietly(is);
-            IOHelper.closeQuietly(fos);
+    private static void download(final URL source, final File partial) throws IOException {
+        // Make sure the parent folder exists
+        final File parent = partial.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
 
-            if (isValid(targetSwtJar)) {
-                swtJarReference.set(targetSwtJar);
-                return true;
-            } else {
-                // if target jar is corrupted, cleanup
-                cleanup(targetSwtJar);
-            }
+        final long resumeFrom = partial.isFile() ? partial.length() : 0;
+        final HttpURLConnection connection = (HttpURLConnection) source.openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLISECONDS);
+        connection.setReadTimeout(TIMEOUT_MILLISECONDS);
+        if (resumeFrom > 0) {
+            connection.setRequestProperty("Range", "bytes=" + resumeFrom + "-");
+        }
 
-        } catch (IOException ioe) {
-            logger.warn("Failed to download SWT Runtime jar.", ioe);
-            // if we failed during downloading, remove partial file
-            cleanup(targetSwtJar);
+        final int statusCode = connection.getResponseCode();
+        final boolean append;
+        if (statusCode == HttpURLConnection.HTTP_PARTIAL && resumeFrom > 0) {
+            logger.info("Resuming download of {} at byte {}", source, resumeFrom);
+            append = true;
+        } else if (statusCode == HttpURLConnection.HTTP_OK) {
+            logger.info("Downloading {}", source);
+            append = false;
+        } else if (statusCode == HTTP_RANGE_NOT_SATISFIABLE) {
+            // the partial file is complete already, or longer than the jar; let verification decide
+            connection.disconnect();
+            return;
+        } else {
+            throw new IOException(String.format("Failed to download SWT Runtime jar from %s.  Server return code is " +
+                    "%d", source, statusCode));
         }
 
-        swtJarReference.set(null);
-        return false;
+        final InputStream is = new BufferedInputStream(connection.getInputStream(), BUFFER_SIZE);
+        final OutputStream fos = new BufferedOutputStream(new FileOutputStream(partial, append), BUFFER_SIZE);
+        try {
+            // on failure the partial file is kept, so that the next attempt resumes from it
+            IOHelper.copyStream(is, fos);
+        } finally {
+            IOHelper.closeQuietly(is);
+            IOHelper.closeQuietly(fos);
+        }
     }
 
     private static void cleanup(final File target) {
@@ -129,10 +214,69 @@ public class SwtJarLoader {
         }
     }
 
-    private static boolean isValid(final File swtJar) {
+    /**
+     * @return whether {@code jar} is unchanged since it was last hashed and found intact.
+     */
+    private static boolean isVerified(final File jar, final long expectedCrc32) {
+        if (!jar.isFile()) {
+            return false;
+        }
+        final VerifiedJar candidate = new VerifiedJar(jar.getAbsolutePath(), jar.length(), jar.lastModified(), expectedCrc32);
+        if (candidate.equals(verifiedJar)) {
+            return true;
+        }
+        if (candidate.equals(readMarker(jar))) {
+            verifiedJar = candidate;
+            return true;
+        }
+        // not verified before (e.g. installed by hand), hash it once
+        if (isValid(jar, expectedCrc32)) {
+            markVerified(jar, expectedCrc32);
+            return true;
+        }
+        return false;
+    }
+
+    private static void markVerified(final File jar, final long crc32) {
+        final VerifiedJar verified = new VerifiedJar(jar.getAbsolutePath(), jar.length(), jar.lastModified(), crc32);
+        verifiedJar = verified;
+        try {
+            final OutputStream os = new FileOutputStream(jar.getPath() + VERIFIED_SUFFIX);
+            try {
+                os.write(StringHelper.UTF8GetBytes(verified.length + " " + verified.lastModified + " " + verified.crc32));
+            } finally {
+                IOHelper.closeQuietly(os);
+            }
+        } catch (final IOException e) {
+            // only costs a re-hash in the next process
+            logger.debug("Could not write verification marker for {}", jar, e);
+        }
+    }
+
+    private static VerifiedJar readMarker(final File jar) {
+        final File marker = new File(jar.getPath() + VERIFIED_SUFFIX);
+        if (!marker.isFile()) {
+            return null;
+        }
         try {
-            long hash = CRC32_HASHES.get(jarName);
+            final InputStream is = new FileInputStream(marker);
+            final String[] parts;
+            try {
+                parts = IOHelper.readToString(is).trim().split(" ");
+            } finally {
+                IOHelper.closeQuietly(is);
+            }
+            return new VerifiedJar(jar.getAbsolutePath(), Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (final IOException e) {
+            return null;
+        } catch (final RuntimeException e) {
+            // malformed marker
+            return null;
+        }
+    }
 
+    private static boolean isValid(final File swtJar, final long hash) {
+        try {
             // This only checks the file exists, and assert download didn't corrupt the file.
             return swtJar.isFile() && FileHashHelper.crc32Hash(swtJar) == hash;
         } catch (IOException e) {
@@ -142,4 +286,34 @@ public class SwtJarLoader {
         return false;
     }
 
+    private static final class VerifiedJar {
+        private final String path;
+        private final long length;
+        private final long lastModified;
+        private final long crc32;
+
+        VerifiedJar(final String path, final long length, final long lastModified, final long crc32) {
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.crc32 = crc32;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof VerifiedJar)) {
+                return false;
+            }
+            final VerifiedJar other = (VerifiedJar) obj;
+            return path.equals(other.path)
+                    && length == other.length
+                    && lastModified == other.lastModified
+                    && crc32 == other.crc32;
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode();
+        }
+    }
 }
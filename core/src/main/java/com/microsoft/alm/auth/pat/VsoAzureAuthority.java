@@ -5,6 +5,8 @@ package com.microsoft.alm.auth.pat;
 
 import com.microsoft.alm.auth.oauth.AzureAuthority;
 import com.microsoft.alm.auth.oauth.Global;
+import com.microsoft.alm.helpers.AuthMetrics;
+import com.microsoft.alm.helpers.AuthMetricsProvider;
 import com.microsoft.alm.helpers.Debug;
 import com.microsoft.alm.helpers.Guid;
 import com.microsoft.alm.helpers.HttpClient;
@@ -19,6 +21,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URI;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
@@ -54,6 +58,8 @@ class VsoAzureAuthority extends AzureAuthority {
 
         logger.debug("VsoAzureAuthority::generatePersonalAccessToken");
 
+        final AuthMetrics metrics = AuthMetricsProvider.get();
+        final long start = System.nanoTime();
         try {
             // TODO: 449524: create a `HttpClient` with a minimum number of redirects, default creds, and a reasonable timeout (access token generation seems to hang occasionally)
             final HttpClient client = Global.getHttpClientFactory().createHttpClient();
@@ -76,7 +82,10 @@ class VsoAzureAuthority extends AzureAuthority {
                 return token;
             }
         } catch (IOException e) {
+            metrics.recordError(AuthMetrics.GENERATE_PAT, targetUri.getHost(), e);
             throw new Error(e);
+        } finally {
+            metrics.recordLatency(AuthMetrics.GENERATE_PAT, targetUri.getHost(), System.nanoTime() - start);
         }
         return null;
     }
@@ -105,14 +114,14 @@ class VsoAzureAuthority extends AzureAuthority {
     }
 
     private URI getIdentityServiceUri(final HttpClient client, final URI targetUri) throws IOException {
-        final String locationServiceUrlFormat = "https://%1$s/_apis/ServiceDefinitions/LocationService2/951917AC-A960-4999-8464-E3F0AA25B381?api-version=1.0";
+        final String locationServiceUrlFormat = "%1$s/_apis/ServiceDefinitions/LocationService2/951917AC-A960-4999-8464-E3F0AA25B381?api-version=1.0";
 
         Debug.Assert(client != null, ("The client parameter is null."));
         Debug.Assert(targetUri != null && targetUri.isAbsolute(), "The targetUri parameter is null or invalid");
 
-        String host =  UriHelper.getFullAccount(targetUri);
+        final String accountUrl = UriHelper.getAccountBaseUrl(targetUri);
 
-        final String locationServiceUrl = String.format(locationServiceUrlFormat, host);
+        final String locationServiceUrl = String.format(locationServiceUrlFormat, accountUrl);
         URI identityServiceUri = null;
 
         final String responseText = client.getGetResponseText(URI.create(locationServiceUrl));
@@ -167,11 +176,32 @@ class VsoAzureAuthority extends AzureAuthority {
             if (matcher.find()) {
                 final String tokenValue = matcher.group(1);
                 token = new Token(tokenValue, TokenType.Personal);
+                token.setValidTo(parseValidToFromJson(json));
             }
         }
         return token;
     }
 
+    private static final Pattern VALID_TO_PATTERN = Pattern.compile(
+            "\"validTo\"\\s*:\\s*\"([^\"]+)\"",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    /**
+     * @return when the session token expires, in milliseconds since the epoch, or {@code 0} if unknown
+     */
+    static long parseValidToFromJson(final String json) {
+        final Matcher matcher = VALID_TO_PATTERN.matcher(json);
+        if (matcher.find()) {
+            try {
+                return OffsetDateTime.parse(matcher.group(1)).toInstant().toEpochMilli();
+            } catch (final DateTimeParseException e) {
+                logger.debug("   unable to parse validTo: {}", matcher.group(1));
+            }
+        }
+        return 0;
+    }
+
     private static final Pattern INSTANCE_ID_PATTERN = Pattern.compile(
             "\"instanceId\"\\s*:\\s*\"([^\"]+)\"",
             Pattern.CASE_INSENSITIVE
@@ -240,13 +270,13 @@ class VsoAzureAuthority extends AzureAuthority {
     }
 
     private URI createConnectionDataUri(final URI targetUri) {
-        final String VsoValidationUrlFormat = "https://%1$s/_apis/connectiondata";
+        final String VsoValidationUrlFormat = "%1$s/_apis/connectiondata";
 
         Debug.Assert(targetUri != null & targetUri.isAbsolute(), "The targetUri parameter is null or invalid");
 
-        String host = UriHelper.getFullAccount(targetUri);
+        final String accountUrl = UriHelper.getAccountBaseUrl(targetUri);
         // create a url to the connection data end-point, it's deployment level and "always on".
-        final String validationUrl = String.format(VsoValidationUrlFormat, host);
+        final String validationUrl = String.format(VsoValidationUrlFormat, accountUrl);
 
         final URI result = URI.create(validationUrl);
         return result;
@@ -12,6 +12,7 @@ import com.microsoft.alm.auth.oauth.OAuth2Authenticator;
 import com.microsoft.alm.helpers.Debug;
 import com.microsoft.alm.helpers.HttpClient;
 import com.microsoft.alm.helpers.HttpClientImpl;
+import com.microsoft.alm.helpers.SettingsHelper;
 import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.secret.TokenPair;
 import com.microsoft.alm.secret.VsoTokenScope;
@@ -42,6 +43,12 @@ public class VstsPatAuthenticator extends BaseAuthenticator {
 
     private final static String TYPE = "PersonalAccessToken";
 
+    /**
+     * Setting that replaces the format of the url of the user's first account, {@code https://%s.visualstudio.com/},
+     * where {@code %s} is the account name.
+     */
+    public static final String ACCOUNT_URL_FORMAT_PROPERTY = "AUTH_LIB_ACCOUNT_URL_FORMAT";
+
     private final VsoAzureAuthority vsoAzureAuthority;
 
     private final OAuth2Authenticator vstsOauthAuthenticator;
@@ -156,26 +163,27 @@ public class VstsPatAuthenticator extends BaseAuthenticator {
 
         final SecretRetriever<Token> secretRetriever = new SecretRetriever<Token>() {
             @Override
-            protected boolean tryGetValidated(final Token token, final AtomicReference<Token> holder) {
+            protected Validation validate(final Token token, final AtomicReference<Token> holder) {
                 Debug.Assert(token != null, "Token is null");
                 Debug.Assert(holder != null, "Holder is null");
 
                 final URI validationEndpoint = URI.create(uri + "/_apis/connectionData");
-                boolean valid = false;
+                Validation validation = Validation.INVALID;
 
                 if (token.Value != null) {
                     final HttpClient client = Global.getHttpClientFactory().createHttpClient();
                     token.contributeHeader(client.getHeaders());
                     try {
                         client.getGetResponseText(validationEndpoint);
-                        valid = true;
+                        validation = Validation.VALID;
                     } catch (IOException e) {
                         logger.debug("Validation failed with IOException.", e);
+                        validation = classify(e);
                     }
                 }
 
-                logger.debug("Personal Access Token is {}.", valid ? "valid" : "invalid.");
-                return valid;
+                logger.debug("Personal Access Token validation: {}.", validation);
+                return validation;
             }
 
             @Override
@@ -199,7 +207,7 @@ public class VstsPatAuthenticator extends BaseAuthenticator {
             }
         };
 
-        return secretRetriever.retrieve(key, getStore(), promptBehavior);
+        return secretRetriever.retrieve(key, getStore(), promptBehavior, revalidationPolicy);
     }
 
     private URI createAccountSpecificUri(final URI uri, final TokenPair tokenPair) {
@@ -226,7 +234,7 @@ public class VstsPatAuthenticator extends BaseAuthenticator {
     private String getProfileId(final HttpClient authenticatedClient) throws IOException {
         Debug.Assert(authenticatedClient != null, "authenticatedClient is null");
 
-        final URI profileUri = URI.create("https://app.vssps.visualstudio.com/_apis/profile/profiles/me?api-version=1.0");
+        final URI profileUri = URI.create(OAuth2Authenticator.getVsspsUrl() + "/_apis/profile/profiles/me?api-version=1.0");
         final HttpURLConnection response;
         logger.debug("Getting user profile...");
         final String responseText = authenticatedClient.getGetResponseText(profileUri);
@@ -260,10 +268,11 @@ public class VstsPatAuthenticator extends BaseAuthenticator {
         Debug.Assert(authenticatedClient != null, "authenticatedClient is null");
         Debug.Assert(profileId != null, "profileId is null");
 
-        final String accountApiUrlFormat = "https://app.vssps.visualstudio.com/_apis/Accounts?memberid=%s&api-version=1.0";
-        final URI accountApiUrl = URI.create(String.format(accountApiUrlFormat, profileId));
+        final String accountApiUrlFormat = "%s/_apis/Accounts?memberid=%s&api-version=1.0";
+        final URI accountApiUrl = URI.create(String.format(accountApiUrlFormat, OAuth2Authenticator.getVsspsUrl(), profileId));
 
-        final String vstsAccountUrlFormat = "https://%s.visualstudio.com/";
+        final String vstsAccountUrlFormat = SettingsHelper.getInstance()
+                .getProperty(ACCOUNT_URL_FORMAT_PROPERTY, "https://%s.visualstudio.com/");
 
         logger.debug("Account API URL: {}", accountApiUrl);
 
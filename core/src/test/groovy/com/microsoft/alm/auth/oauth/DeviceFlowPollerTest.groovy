@@ -0,0 +1,157 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.oauth
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule
+import com.github.tomakehurst.wiremock.stubbing.Scenario
+import com.microsoft.alm.oauth2.useragent.AuthorizationException
+import com.microsoft.alm.secret.TokenPair
+import com.microsoft.alm.secret.TokenType
+import groovy.transform.CompileStatic
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+
+import java.util.concurrent.CancellationException
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+
+/**
+ * A class to test {@see DeviceFlowPoller}.
+ */
+@CompileStatic
+public class DeviceFlowPollerTest {
+
+    private static final String PROTOCOL = "http";
+    private static final String CLIENT_ID = "contoso";
+    private static final String USER_CODE = "A1B2B4C1C5D1D3E3E5";
+    private static final URI VERIFICATION_URI = new URI("http://verification.example.com");
+    private static final String TOKEN_ENDPOINT_PATH = "/token";
+
+    @Rule public WireMockRule wireMockRule = new WireMockRule(0);
+
+    private ScheduledExecutorService scheduler;
+    private DeviceFlowPoller cut;
+    private URI tokenEndpoint;
+
+    @Before public void setUp() {
+        // a single thread proves that pending codes do not each need their own thread
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        cut = new DeviceFlowPoller(scheduler);
+        tokenEndpoint = new URI(PROTOCOL, null, "localhost", wireMockRule.port(), TOKEN_ENDPOINT_PATH, null, null);
+    }
+
+    @After public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private static void stubSequence(final String deviceCode, final String... outcomes) {
+        def state = Scenario.STARTED;
+        for (int i = 0; i < outcomes.length; i++) {
+            final def outcome = outcomes[i];
+            final def nextState = deviceCode + "-" + i;
+            final def response = "ok" == outcome
+                ? aResponse().withStatus(200).withBody("""{"access_token":"token-${deviceCode}","token_type":"bearer"}""")
+                : aResponse().withStatus(400).withBody("""{"error":"${outcome}"}""");
+            stubFor(
+                post(urlEqualTo(TOKEN_ENDPOINT_PATH))
+                .inScenario(deviceCode)
+                .whenScenarioStateIs(state)
+                .withRequestBody(containing("code=" + deviceCode + "&"))
+                .willReturn(response)
+                .willSetStateTo(nextState)
+            );
+            state = nextState;
+        }
+    }
+
+    private static DeviceFlowResponse createResponse(final String deviceCode, final int expiresIn, final int interval) {
+        return new DeviceFlowResponse(deviceCode, USER_CODE, VERIFICATION_URI, expiresIn, interval);
+    }
+
+    private static AuthorizationException unwrap(final CompletableFuture<TokenPair> future) {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        catch (final ExecutionException e) {
+            return (AuthorizationException) e.cause;
+        }
+        Assert.fail("The future should have completed exceptionally");
+        return null;
+    }
+
+    @Test public void poll_multiplexesPendingCodes() {
+        stubSequence("alpha", "authorization_pending", "ok");
+        stubSequence("bravo", "authorization_pending", "authorization_pending", "ok");
+        stubSequence("charlie", "access_denied");
+        final def alphaResponse = createResponse("alpha", 600, 1);
+        final def bravoResponse = createResponse("bravo", 600, 1);
+
+        final def alpha = cut.poll(new DeviceFlowImpl(), tokenEndpoint, CLIENT_ID, alphaResponse);
+        final def bravo = cut.poll(new DeviceFlowImpl(), tokenEndpoint, CLIENT_ID, bravoResponse);
+        final def charlie = cut.poll(new DeviceFlowImpl(), tokenEndpoint, CLIENT_ID, createResponse("charlie", 600, 1));
+
+        assert "access_denied" == unwrap(charlie).code;
+        final def alphaToken = alpha.get(10, TimeUnit.SECONDS).AccessToken;
+        assert TokenType.Access == alphaToken.Type;
+        assert "token-alpha" == alphaToken.Value;
+        assert "token-bravo" == bravo.get(10, TimeUnit.SECONDS).AccessToken.Value;
+        assert alphaResponse.isTokenAcquired();
+        assert bravoResponse.isTokenAcquired();
+        verify(6, postRequestedFor(urlEqualTo(TOKEN_ENDPOINT_PATH)));
+    }
+
+    @Test public void poll_backsOff() {
+        stubSequence("delta", "slow_down", "slow_down", "ok");
+        final def start = System.currentTimeMillis();
+
+        final def actual = cut.poll(new DeviceFlowImpl(), tokenEndpoint, CLIENT_ID, createResponse("delta", 600, 1));
+
+        assert "token-delta" == actual.get(20, TimeUnit.SECONDS).AccessToken.Value;
+        assert System.currentTimeMillis() - start >= (2 + 4) * 1000;
+    }
+
+    @Test public void poll_givesUpWhenCodeExpires() {
+        stubSequence("echo", "authorization_pending", "authorization_pending", "authorization_pending");
+
+        final def actual = cut.poll(new DeviceFlowImpl(), tokenEndpoint, CLIENT_ID, createResponse("echo", 2, 1));
+
+        assert "code_expired" == unwrap(actual).code;
+    }
+
+    @Test public void poll_stopsWhenUserCancels() {
+        stubSequence("foxtrot", "authorization_pending", "authorization_pending", "authorization_pending");
+        final def response = createResponse("foxtrot", 600, 1);
+
+        final def actual = cut.poll(new DeviceFlowImpl(), tokenEndpoint, CLIENT_ID, response);
+        response.requestCancel();
+
+        assert "request_cancelled" == unwrap(actual).code;
+        assert !response.isTokenAcquired();
+    }
+
+    @Test public void poll_cancellingFutureStopsPolling() {
+        stubSequence("golf", "authorization_pending", "authorization_pending", "authorization_pending");
+
+        final def actual = cut.poll(new DeviceFlowImpl(), tokenEndpoint, CLIENT_ID, createResponse("golf", 600, 1));
+        Thread.sleep(500);
+        actual.cancel(false);
+        Thread.sleep(1500);
+
+        try {
+            actual.get();
+            Assert.fail("The future should have been cancelled");
+        }
+        catch (final CancellationException ignored) {
+        }
+        verify(1, postRequestedFor(urlEqualTo(TOKEN_ENDPOINT_PATH)));
+    }
+}
@@ -0,0 +1,81 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth;
+
+import com.microsoft.alm.auth.basic.BasicAuthAuthenticator;
+import com.microsoft.alm.auth.basic.CredentialPrompt;
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.Secret;
+import com.microsoft.alm.storage.InsecureInMemoryStore;
+import com.microsoft.alm.storage.SecretStore;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AuthWarmerTest {
+
+    // nothing listens on port 1, so pre-connecting fails fast
+    private static final URI STORED = URI.create("http://127.0.0.1:1/stored");
+    private static final URI MISSING = URI.create("http://127.0.0.1:1/missing");
+
+    private final AtomicInteger prompts = new AtomicInteger();
+    private final Executor sameThread = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+    private BasicAuthAuthenticator authenticator;
+
+    @Before
+    public void setUp() {
+        final SecretStore<Credential> store = new InsecureInMemoryStore<Credential>();
+        authenticator = new BasicAuthAuthenticator(store, new CredentialPrompt() {
+            @Override
+            public Credential prompt(final URI target) {
+                prompts.incrementAndGet();
+                return new Credential("user", "pass");
+            }
+        });
+        // keys are per path, so that the two uris do not share a credential
+        authenticator.setUriToKeyConversion(new Secret.IUriNameConversion() {
+            @Override
+            public String convert(final URI targetUri, final String namespace) {
+                return namespace + ":" + targetUri.getPath();
+            }
+        });
+        store.add(authenticator.getKey(STORED), new Credential("stored", "secret"));
+    }
+
+    @Test
+    public void warm_reportsReadinessWithoutPrompting() throws Exception {
+        final AuthWarmer underTest = new AuthWarmer(authenticator, sameThread);
+
+        final Map<URI, CompletableFuture<AuthWarmer.Readiness>> result = underTest.warm(Arrays.asList(STORED, MISSING));
+
+        assertEquals(AuthWarmer.Readiness.READY, result.get(STORED).get());
+        assertEquals(AuthWarmer.Readiness.NO_SECRET, result.get(MISSING).get());
+        assertEquals(0, prompts.get());
+    }
+
+    @Test
+    public void warm_urisWithTheSameKeyShareOneWarmUp() throws Exception {
+        final URI sameKey = URI.create("http://127.0.0.1:2/stored");
+        final AuthWarmer underTest = new AuthWarmer(authenticator, sameThread);
+
+        final Map<URI, CompletableFuture<AuthWarmer.Readiness>> result = underTest.warm(Arrays.asList(STORED, sameKey));
+
+        assertSame(result.get(STORED), result.get(sameKey));
+        assertEquals(AuthWarmer.Readiness.READY, result.get(sameKey).get());
+    }
+}
@@ -0,0 +1,35 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth;
+
+import com.microsoft.alm.helpers.HttpClient;
+import com.microsoft.alm.helpers.RateLimitedHttpClient;
+import com.microsoft.alm.helpers.RateLimiter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HttpClientFactoryTest {
+
+    @Test
+    public void createHttpClient_notRateLimitedByDefault() {
+        final HttpClientFactory underTest = new HttpClientFactory();
+
+        final HttpClient actual = underTest.createHttpClient();
+
+        Assert.assertFalse(actual instanceof RateLimitedHttpClient);
+        Assert.assertNull(underTest.getRateLimiter());
+    }
+
+    @Test
+    public void createHttpClient_sharesTheGivenRateLimiter() {
+        final RateLimiter rateLimiter = new RateLimiter(10, 20, 64, 30 * 1000);
+        final HttpClientFactory underTest = new HttpClientFactory(rateLimiter);
+
+        final HttpClient first = underTest.createHttpClient();
+        final HttpClient second = underTest.createHttpClient();
+
+        Assert.assertSame(rateLimiter, ((RateLimitedHttpClient) first).getRateLimiter());
+        Assert.assertSame(rateLimiter, ((RateLimitedHttpClient) second).getRateLimiter());
+    }
+}
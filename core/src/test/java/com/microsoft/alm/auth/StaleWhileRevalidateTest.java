@@ -0,0 +1,148 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth;
+
+import com.microsoft.alm.helpers.HttpStatusException;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenType;
+import com.microsoft.alm.storage.InsecureInMemoryStore;
+import com.microsoft.alm.storage.SecretStore;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class StaleWhileRevalidateTest {
+
+    private static final String KEY = "PersonalAccessToken:https://account.visualstudio.com";
+
+    private final Token stored = new Token("stored", TokenType.Personal);
+    private final Token retrieved = new Token("retrieved", TokenType.Personal);
+
+    private final List<Runnable> background = new ArrayList<Runnable>();
+    private final Executor deferred = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            background.add(command);
+        }
+    };
+    private final AtomicInteger validations = new AtomicInteger();
+
+    private SecretStore<Token> store;
+    private IOException validationFailure;
+    private long now;
+    private StaleWhileRevalidate policy;
+
+    @Before
+    public void setUp() {
+        store = new InsecureInMemoryStore<Token>();
+        store.add(KEY, stored);
+        policy = new StaleWhileRevalidate(1000, 10000, deferred) {
+            @Override
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+    private BaseAuthenticator.SecretRetriever<Token> retriever() {
+        return new BaseAuthenticator.SecretRetriever<Token>() {
+            @Override
+            protected Validation validate(final Token token, final AtomicReference<Token> holder) {
+                validations.incrementAndGet();
+                return validationFailure == null ? Validation.VALID : classify(validationFailure);
+            }
+
+            @Override
+            protected Token doRetrieve() {
+                return retrieved;
+            }
+        };
+    }
+
+    @Test
+    public void retrieve_unreachableEndpointKeepsTheSecret() {
+        validationFailure = new SocketTimeoutException("Read timed out");
+
+        final Token actual = retriever().retrieve(KEY, store, PromptBehavior.AUTO);
+
+        assertEquals(stored, actual);
+        assertEquals(stored, store.get(KEY));
+    }
+
+    @Test
+    public void retrieve_rejectedSecretIsReplaced() {
+        validationFailure = new HttpStatusException("Unauthorized", 401, null);
+
+        final Token actual = retriever().retrieve(KEY, store, PromptBehavior.AUTO);
+
+        assertEquals(retrieved, actual);
+        assertEquals(retrieved, store.get(KEY));
+    }
+
+    @Test
+    public void retrieve_staleSecretIsServedAndRevalidatedInTheBackground() {
+        policy.confirm(KEY, stored);
+        now = 5000;
+
+        final Token actual = retriever().retrieve(KEY, store, PromptBehavior.AUTO, policy);
+
+        assertEquals(stored, actual);
+        assertEquals(0, validations.get());
+        assertEquals(1, background.size());
+
+        validationFailure = new HttpStatusException("Forbidden", 403, null);
+        background.get(0).run();
+
+        assertEquals(1, validations.get());
+        assertNull(store.get(KEY));
+    }
+
+    @Test
+    public void retrieve_freshSecretIsNotRevalidated() {
+        policy.confirm(KEY, stored);
+        now = 500;
+
+        retriever().retrieve(KEY, store, PromptBehavior.AUTO, policy);
+
+        assertEquals(0, validations.get());
+        assertEquals(0, background.size());
+    }
+
+    @Test
+    public void retrieve_secretPastMaxStalenessIsValidatedFirst() {
+        policy.confirm(KEY, stored);
+        now = 20000;
+
+        final Token actual = retriever().retrieve(KEY, store, PromptBehavior.AUTO, policy);
+
+        assertEquals(stored, actual);
+        assertEquals(1, validations.get());
+        assertEquals(0, background.size());
+        // confirmed again, so now it can be served without waiting
+        now = 25000;
+        retriever().retrieve(KEY, store, PromptBehavior.AUTO, policy);
+        assertEquals(1, background.size());
+    }
+
+    @Test
+    public void retrieve_onlyOneBackgroundRevalidationPerKey() {
+        policy.confirm(KEY, stored);
+        now = 5000;
+
+        retriever().retrieve(KEY, store, PromptBehavior.AUTO, policy);
+        retriever().retrieve(KEY, store, PromptBehavior.AUTO, policy);
+
+        assertEquals(1, background.size());
+    }
+}
@@ -5,6 +5,8 @@ package com.microsoft.alm.auth.basic;
 
 import com.microsoft.alm.auth.PromptBehavior;
 import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.PathScopedUriNameConversion;
+import com.microsoft.alm.storage.InsecureInMemoryStore;
 import com.microsoft.alm.storage.SecretStore;
 import org.junit.Before;
 import org.junit.Test;
@@ -94,4 +96,26 @@ public class BasicAuthAuthenticatorTest {
         assertFalse(underTest.isOAuth2TokenSupported());
         assertFalse(underTest.isPersonalAccessTokenSupported());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void pathScopedCredentials() {
+        final SecretStore<Credential> store = new InsecureInMemoryStore<Credential>();
+        final BasicAuthAuthenticator authenticator = new BasicAuthAuthenticator(store, new CredentialPrompt() {
+            @Override
+            public Credential prompt(final URI target) {
+                return null;
+            }
+        });
+        final PathScopedUriNameConversion conversion = new PathScopedUriNameConversion();
+        conversion.addScope(URI.create("https://dev.azure.com/org"));
+        conversion.addScope(URI.create("https://dev.azure.com/org/projectA"));
+        authenticator.setUriToKeyConversion(conversion);
+        store.add(authenticator.getKey(URI.create("https://dev.azure.com/org")), new Credential("org", "pass"));
+        store.add(authenticator.getKey(URI.create("https://dev.azure.com/org/projectA")), new Credential("a", "pass"));
+
+        assertEquals("a", authenticator.getCredential(
+                URI.create("https://dev.azure.com/org/projectA/_git/repo"), PromptBehavior.NEVER).Username);
+        assertEquals("org", authenticator.getCredential(
+                URI.create("https://dev.azure.com/org/projectB/_git/repo"), PromptBehavior.NEVER).Username);
+    }
+}
@@ -3,15 +3,23 @@
 
 package com.microsoft.alm.auth.oauth;
 
+import com.microsoft.alm.auth.HttpClientFactory;
 import com.microsoft.alm.auth.PromptBehavior;
 import com.microsoft.alm.helpers.Action;
+import com.microsoft.alm.helpers.HttpClient;
+import com.microsoft.alm.helpers.HttpResponse;
 import com.microsoft.alm.helpers.StringContent;
 import com.microsoft.alm.oauth2.useragent.AuthorizationException;
 import com.microsoft.alm.secret.TokenPair;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -268,4 +276,74 @@ public class AzureAuthorityTest {
                 "&client-request-id=519a4fa6-c18f-4230-8290-6c57407656c9" +
                 "&return-client-request-id=true", actual.getContent());
     }
+
+    @Test
+    public void detectTenantId_doesNotRememberAMissingHeader() throws Exception {
+        final URI targetUri = URI.create("https://tenant-detection.visualstudio.com/");
+        final UUID tenantId = UUID.fromString("519a4fa6-c18f-4230-8290-6c57407656c9");
+        final TenantHeaderClient client = new TenantHeaderClient(null, tenantId.toString(), "ignored");
+        Global.setHttpClientFactory(new HttpClientFactory() {
+            @Override
+            public HttpClient createHttpClient() {
+                return client;
+            }
+        });
+        try {
+            // e.g. a 503 or a proxy error page
+            Assert.assertNull(AzureAuthority.detectTenantId(targetUri));
+
+            Assert.assertEquals(tenantId, AzureAuthority.detectTenantId(targetUri));
+            Assert.assertEquals(tenantId, AzureAuthority.detectTenantId(targetUri));
+            Assert.assertEquals(2, client.calls);
+        }
+        finally {
+            Global.setHttpClientFactory(new HttpClientFactory());
+        }
+    }
+
+    /**
+     * Answers each HEAD with the next {@code X-VSS-ResourceTenant} value.
+     */
+    static class TenantHeaderClient implements HttpClient {
+        final Map<String, String> headers = new LinkedHashMap<String, String>();
+        final Queue<String> tenants = new LinkedList<String>();
+        int calls;
+
+        TenantHeaderClient(final String... tenants) {
+            for (final String tenant : tenants) {
+                this.tenants.add(tenant);
+            }
+        }
+
+        @Override
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public String getHeaderField(final URI uri, final String header) {
+            calls++;
+            return tenants.remove();
+        }
+
+        @Override
+        public String getGetResponseText(final URI uri) throws IOException {
+            throw new IOException("Not expected");
+        }
+
+        @Override
+        public String getGetResponseText(final URI uri, final int timeout) throws IOException {
+            throw new IOException("Not expected");
+        }
+
+        @Override
+        public String getPostResponseText(final URI uri, final StringContent content) throws IOException {
+            throw new IOException("Not expected");
+        }
+
+        @Override
+        public HttpResponse getPostResponse(final URI uri, final StringContent content) throws IOException {
+            throw new IOException("Not expected");
+        }
+    }
 }
@@ -3,15 +3,24 @@
 
 package com.microsoft.alm.auth.oauth;
 
+import com.microsoft.alm.auth.BaseAuthenticator;
+import com.microsoft.alm.auth.ChaosHttpClientFactory;
+import com.microsoft.alm.auth.HttpClientFactory;
+import com.microsoft.alm.auth.PromptBehavior;
 import com.microsoft.alm.auth.oauth.helper.AzureAuthorityProvider;
 import com.microsoft.alm.helpers.Action;
+import com.microsoft.alm.helpers.ChaosHttpClient;
+import com.microsoft.alm.helpers.HttpStatusException;
 import com.microsoft.alm.oauth2.useragent.AuthorizationException;
 import com.microsoft.alm.secret.TokenPair;
+import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.storage.SecretStore;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.UUID;
@@ -20,8 +29,13 @@ import java.util.concurrent.ExecutionException;
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class OAuth2AuthenticatorTest {
@@ -69,6 +83,11 @@ public class OAuth2AuthenticatorTest {
         underTest.setAzureAuthorityProvider(mockAzureAuthorityProvider);
     }
 
+    @After
+    public void tearDown() {
+        Global.setHttpClientFactory(new HttpClientFactory());
+    }
+
     @Test
     public void getTokenByAcquireToken_if_oauth2_useragent_available()
                 throws URISyntaxException, AuthorizationException {
@@ -139,4 +158,54 @@ public class OAuth2AuthenticatorTest {
         assertFalse(underTest.isPersonalAccessTokenSupported());
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void keepStoredTokenPair_if_refreshGetsNoAnswer() throws IOException {
+        final TokenPair stored = new TokenPair("expired", "refresh");
+        rejectAccessTokens();
+        when(mockStore.get(anyString())).thenReturn(stored);
+        when(mockAzureAuthority.redeemRefreshToken(any(String.class), any(String.class), any(Token.class)))
+                .thenThrow(new SocketTimeoutException("Read timed out"));
+
+        final TokenPair token = underTest.getOAuth2TokenPair(PromptBehavior.NEVER);
+
+        assertSame(stored, token);
+        verify(mockStore, never()).delete(anyString());
+    }
+
+    @Test
+    public void removeStoredTokenPair_if_refreshTokenIsRejected() throws IOException {
+        final TokenPair stored = new TokenPair("expired", "revoked");
+        rejectAccessTokens();
+        when(mockStore.get(anyString())).thenReturn(stored);
+        when(mockAzureAuthority.redeemRefreshToken(any(String.class), any(String.class), any(Token.class)))
+                .thenThrow(new HttpStatusException("HTTP request failed with code 400: invalid_grant", 400, null));
+
+        final TokenPair token = underTest.getOAuth2TokenPair(PromptBehavior.NEVER);
+
+        assertNull(token);
+        verify(mockStore).delete(anyString());
+    }
+
+    @Test
+    public void classifyRefresh() {
+        assertEquals(BaseAuthenticator.SecretRetriever.Validation.INVALID,
+                OAuth2Authenticator.classifyRefresh(new HttpStatusException("invalid_grant", 400, null)));
+        assertEquals(BaseAuthenticator.SecretRetriever.Validation.INVALID,
+                OAuth2Authenticator.classifyRefresh(new HttpStatusException("unauthorized", 401, null)));
+        assertEquals(BaseAuthenticator.SecretRetriever.Validation.UNKNOWN,
+                OAuth2Authenticator.classifyRefresh(new HttpStatusException("throttled", 429, "5")));
+        assertEquals(BaseAuthenticator.SecretRetriever.Validation.UNKNOWN,
+                OAuth2Authenticator.classifyRefresh(new HttpStatusException("unavailable", 503, null)));
+        assertEquals(BaseAuthenticator.SecretRetriever.Validation.UNKNOWN,
+                OAuth2Authenticator.classifyRefresh(new SocketTimeoutException("Read timed out")));
+    }
+
+    /**
+     * Answers every access token validation with a 401, without going to the network.
+     */
+    private static void rejectAccessTokens() {
+        Global.setHttpClientFactory(new ChaosHttpClientFactory(1,
+                new ChaosHttpClient.Rule("/_apis/connectionData").withStatus(401, 1.0, null)));
+    }
+}
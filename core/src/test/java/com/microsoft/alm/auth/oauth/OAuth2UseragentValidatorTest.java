@@ -0,0 +1,53 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.oauth;
+
+import com.microsoft.alm.oauth2.useragent.Provider;
+import com.microsoft.alm.oauth2.useragent.ProviderScanner;
+import com.microsoft.alm.oauth2.useragent.StandardWidgetToolkitProvider;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OAuth2UseragentValidatorTest {
+
+    @Test
+    public void scan_onlyMissingSwtRuntime() {
+        final ProviderScanner scanner = mock(ProviderScanner.class);
+        final Map<Provider, List<String>> unmet = new HashMap<Provider, List<String>>();
+        unmet.put(Provider.STANDARD_WIDGET_TOOLKIT, Collections.singletonList(
+                "The SWT runtime is missing from " + StandardWidgetToolkitProvider.getDefaultSwtJarPath()));
+        when(scanner.findCompatibleProvider()).thenReturn(null);
+        when(scanner.getUnmetProviderRequirements()).thenReturn(unmet);
+
+        final OAuth2UseragentValidator.Capabilities capabilities = OAuth2UseragentValidator.scan(scanner);
+
+        assertFalse(capabilities.providerAvailable);
+        assertTrue(capabilities.onlyMissingSwtRuntime);
+    }
+
+    @Test
+    public void scan_swtMissingMoreThanRuntime() {
+        final ProviderScanner scanner = mock(ProviderScanner.class);
+        final Map<Provider, List<String>> unmet = new HashMap<Provider, List<String>>();
+        unmet.put(Provider.STANDARD_WIDGET_TOOLKIT, Arrays.asList(
+                "No display", StandardWidgetToolkitProvider.getDefaultSwtJarPath()));
+        when(scanner.findCompatibleProvider()).thenReturn(Provider.JAVA_FX);
+        when(scanner.getUnmetProviderRequirements()).thenReturn(unmet);
+
+        final OAuth2UseragentValidator.Capabilities capabilities = OAuth2UseragentValidator.scan(scanner);
+
+        assertTrue(capabilities.providerAvailable);
+        assertFalse(capabilities.onlyMissingSwtRuntime);
+    }
+}
@@ -3,13 +3,168 @@
 
 package com.microsoft.alm.auth.oauth.helper;
 
+import com.microsoft.alm.helpers.IOHelper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class SwtJarLoaderTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final byte[] jar = new byte[200000];
+    private long jarCrc32;
+    private HttpServer server;
+    private URL jarUrl;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicReference<String> lastRange = new AtomicReference<String>();
+    private volatile boolean corrupt;
+
+    @Before
+    public void startServer() throws IOException {
+        new Random(42).nextBytes(jar);
+        jarCrc32 = FileHashHelper.crc32Hash(new ByteArrayInputStream(jar));
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/swt.jar", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                final byte[] body = corrupt ? new byte[jar.length] : jar;
+                final String range = exchange.getRequestHeaders().getFirst("Range");
+                lastRange.set(range);
+                int from = 0;
+                int status = 200;
+                if (range != null) {
+                    from = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                    status = 206;
+                }
+                exchange.sendResponseHeaders(status, body.length - from);
+                final OutputStream os = exchange.getResponseBody();
+                try {
+                    os.write(body, from, body.length - from);
+                } finally {
+                    IOHelper.closeQuietly(os);
+                }
+            }
+        });
+        server.start();
+        jarUrl = new URL("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getAddress().getPort() + "/swt.jar");
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private static byte[] read(final File file) throws IOException {
+        final FileInputStream is = new FileInputStream(file);
+        try {
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            IOHelper.copyStream(is, os);
+            return os.toByteArray();
+        } finally {
+            IOHelper.closeQuietly(is);
+        }
+    }
+
+    @Test
+    public void provision_downloadsAndVerifies() throws Exception {
+        final File target = new File(folder.getRoot(), "swt/swt.jar");
+
+        assertTrue(SwtJarLoader.provision(jarUrl, target, jarCrc32));
+
+        assertArrayEquals(jar, read(target));
+        assertFalse(new File(target.getPath() + SwtJarLoader.PARTIAL_SUFFIX).exists());
+        assertTrue(new File(target.getPath() + SwtJarLoader.VERIFIED_SUFFIX).isFile());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void provision_verifiedJarIsNotDownloadedAgain() throws Exception {
+        final File target = new File(folder.getRoot(), "swt.jar");
+        assertTrue(SwtJarLoader.provision(jarUrl, target, jarCrc32));
+
+        assertTrue(SwtJarLoader.provision(jarUrl, target, jarCrc32));
+        assertTrue(SwtJarLoader.provision(jarUrl, target, jarCrc32));
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void provision_resumesPartialDownload() throws Exception {
+        final File target = new File(folder.getRoot(), "swt.jar");
+        final File partial = new File(target.getPath() + SwtJarLoader.PARTIAL_SUFFIX);
+        final OutputStream os = new FileOutputStream(partial);
+        try {
+            os.write(Arrays.copyOf(jar, 50000));
+        } finally {
+            os.close();
+        }
+
+        assertTrue(SwtJarLoader.provision(jarUrl, target, jarCrc32));
+
+        assertEquals("bytes=50000-", lastRange.get());
+        assertArrayEquals(jar, read(target));
+    }
+
+    @Test
+    public void provision_corruptedDownloadIsDiscarded() throws Exception {
+        corrupt = true;
+        final File target = new File(folder.getRoot(), "swt.jar");
+
+        assertFalse(SwtJarLoader.provision(jarUrl, target, jarCrc32));
+
+        assertFalse(target.exists());
+        assertFalse(new File(target.getPath() + SwtJarLoader.PARTIAL_SUFFIX).exists());
+    }
+
+    @Test
+    public void provision_replacedJarIsVerifiedAgain() throws Exception {
+        final File target = new File(folder.getRoot(), "swt.jar");
+        assertTrue(SwtJarLoader.provision(jarUrl, target, jarCrc32));
+
+        // same size, different content and modification time
+        final OutputStream os = new FileOutputStream(target);
+        try {
+            os.write(new byte[jar.length]);
+        } finally {
+            os.close();
+        }
+        target.setLastModified(target.lastModified() - 10000);
+
+        assertTrue(SwtJarLoader.provision(jarUrl, target, jarCrc32));
+        assertEquals(2, requests.get());
+        assertArrayEquals(jar, read(target));
+    }
+
     @Test
     public void testGetJarName() throws Exception {
         /**
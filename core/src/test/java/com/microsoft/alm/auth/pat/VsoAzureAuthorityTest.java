@@ -0,0 +1,32 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.pat;
+
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.OffsetDateTime;
+
+public class VsoAzureAuthorityTest {
+
+    @Test
+    public void parsePersonalAccessTokenFromJson_readsValidity() {
+        final String json = "{\"clientId\":\"00000000-0000-0000-0000-000000000000\",\"validTo\":\"2017-06-05T19:04:17.5966667Z\","
+                + "\"displayName\":\"git: https://example.visualstudio.com\",\"token\":\"pat\"}";
+
+        final Token token = VsoAzureAuthority.parsePersonalAccessTokenFromJson(json);
+
+        Assert.assertEquals(new Token("pat", TokenType.Personal), token);
+        Assert.assertEquals(OffsetDateTime.parse("2017-06-05T19:04:17.596Z").toInstant().toEpochMilli(), token.getValidTo());
+    }
+
+    @Test
+    public void parsePersonalAccessTokenFromJson_validityIsOptional() {
+        final Token token = VsoAzureAuthority.parsePersonalAccessTokenFromJson("{\"validTo\":\"soon\",\"token\":\"pat\"}");
+
+        Assert.assertEquals(0, token.getValidTo());
+    }
+}
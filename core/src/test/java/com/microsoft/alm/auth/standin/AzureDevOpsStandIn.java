@@ -0,0 +1,349 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.standin;
+
+import com.microsoft.alm.auth.oauth.AzureAuthority;
+import com.microsoft.alm.auth.oauth.OAuth2Authenticator;
+import com.microsoft.alm.auth.pat.VstsPatAuthenticator;
+import com.microsoft.alm.helpers.IOHelper;
+import com.microsoft.alm.helpers.QueryString;
+import com.microsoft.alm.helpers.StringHelper;
+import com.microsoft.alm.helpers.UriHelper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process stand-in for Azure Active Directory and Azure DevOps, on the loopback interface, so that the
+ * authenticators can be exercised end to end without the network.
+ *
+ * It answers the requests the library makes: the AAD token and device code endpoints, {@code connectionData},
+ * LocationService2, session tokens, and the profile and accounts APIs.  The device code is approved as soon as it
+ * is polled.  Every organization listens on its own port, since ports are part of the keys secrets are stored
+ * under; the first one also plays AAD and {@code app.vssps.visualstudio.com}.
+ *
+ * Latency and errors can be injected, from a seeded random number generator so that runs can be repeated.
+ * {@link #install()} points the library at the stand-in through its settings.
+ */
+public class AzureDevOpsStandIn implements Closeable {
+
+    /**
+     * The APIs the stand-in serves, to count requests by.
+     */
+    public enum Endpoint {
+        TOKEN, DEVICE_CODE, CONNECTION_DATA, LOCATION_SERVICE, SESSION_TOKENS, PROFILE, ACCOUNTS, UNKNOWN
+    }
+
+    private static final String INSTANCE_ID = "1e2f5b8d-0b0a-4e6c-9c1b-6f2d0a4d3c11";
+    private static final String PROFILE_ID = "c5bd8e38-0e06-4ae4-8c07-5c4f4b5f2a0a";
+
+    private final List<HttpServer> servers = new ArrayList<HttpServer>();
+    private final ExecutorService executor;
+    private final Random random;
+    private final Map<Endpoint, AtomicLong> requestCounts = new ConcurrentHashMap<Endpoint, AtomicLong>();
+    private final Set<String> accessTokens = ConcurrentHashMap.newKeySet();
+    private final Set<String> refreshTokens = ConcurrentHashMap.newKeySet();
+    private final Set<String> personalAccessTokens = ConcurrentHashMap.newKeySet();
+    private final AtomicLong issued = new AtomicLong();
+
+    private volatile long minLatencyMillis;
+    private volatile long maxLatencyMillis;
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+
+    /**
+     * Starts a stand-in on ephemeral ports.
+     *
+     * @param organizations how many organizations to serve, at least one
+     * @param seed          the seed of the latency and error injection
+     */
+    public AzureDevOpsStandIn(final int organizations, final long seed) throws IOException {
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "azure-devops-stand-in-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.random = new Random(seed);
+        for (final Endpoint endpoint : Endpoint.values()) {
+            requestCounts.put(endpoint, new AtomicLong());
+        }
+
+        final HttpHandler handler = new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                try {
+                    serve(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        };
+        try {
+            for (int i = 0; i < Math.max(1, organizations); i++) {
+                final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+                server.createContext("/", handler);
+                server.setExecutor(executor);
+                server.start();
+                servers.add(server);
+            }
+        } catch (final IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Points the library at the stand-in, through the settings that replace the Microsoft hosts.
+     */
+    public void install() {
+        System.setProperty(AzureAuthority.AUTHORITY_HOST_URL_PROPERTY, getBaseUrl(0));
+        System.setProperty(OAuth2Authenticator.VSSPS_URL_PROPERTY, getBaseUrl(0));
+        System.setProperty(VstsPatAuthenticator.ACCOUNT_URL_FORMAT_PROPERTY, getBaseUrl(0) + "/%s/");
+    }
+
+    /**
+     * Reverts {@link #install()}.
+     */
+    public static void uninstall() {
+        System.clearProperty(AzureAuthority.AUTHORITY_HOST_URL_PROPERTY);
+        System.clearProperty(OAuth2Authenticator.VSSPS_URL_PROPERTY);
+        System.clearProperty(VstsPatAuthenticator.ACCOUNT_URL_FORMAT_PROPERTY);
+    }
+
+    public int getOrganizationCount() {
+        return servers.size();
+    }
+
+    /**
+     * @return the url of organization {@code index}, e.g. {@code http://127.0.0.1:50123/org0}
+     */
+    public URI getOrganizationUri(final int index) {
+        return URI.create(getBaseUrl(index) + "/org" + index);
+    }
+
+    private String getBaseUrl(final int index) {
+        final InetSocketAddress address = servers.get(index).getAddress();
+        return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort();
+    }
+
+    /**
+     * Delays every response by a duration picked uniformly between the two bounds.
+     */
+    public void setLatencyMillis(final long minLatencyMillis, final long maxLatencyMillis) {
+        this.minLatencyMillis = minLatencyMillis;
+        this.maxLatencyMillis = Math.max(minLatencyMillis, maxLatencyMillis);
+    }
+
+    /**
+     * Answers a share of the requests with {@code status} instead, e.g. 503 or 429.
+     */
+    public void setErrorRate(final double errorRate, final int status) {
+        this.errorRate = errorRate;
+        this.errorStatus = status;
+    }
+
+    /**
+     * Rejects the access tokens issued so far, so that the next validation has to refresh them.
+     */
+    public void expireAccessTokens() {
+        accessTokens.clear();
+    }
+
+    public long getRequestCount(final Endpoint endpoint) {
+        return requestCounts.get(endpoint).get();
+    }
+
+    @Override
+    public void close() {
+        for (final HttpServer server : servers) {
+            server.stop(0);
+        }
+        executor.shutdownNow();
+    }
+
+    static Endpoint classify(final String path) {
+        final String p = path.toLowerCase(Locale.ENGLISH);
+        if (p.endsWith("/oauth2/token")) {
+            return Endpoint.TOKEN;
+        }
+        if (p.endsWith("/oauth2/devicecode")) {
+            return Endpoint.DEVICE_CODE;
+        }
+        if (p.endsWith("/_apis/connectiondata")) {
+            return Endpoint.CONNECTION_DATA;
+        }
+        if (p.contains("/_apis/servicedefinitions/locationservice2/")) {
+            return Endpoint.LOCATION_SERVICE;
+        }
+        if (p.endsWith("/_apis/token/sessiontokens")) {
+            return Endpoint.SESSION_TOKENS;
+        }
+        if (p.endsWith("/_apis/profile/profiles/me")) {
+            return Endpoint.PROFILE;
+        }
+        if (p.endsWith("/_apis/accounts")) {
+            return Endpoint.ACCOUNTS;
+        }
+        return Endpoint.UNKNOWN;
+    }
+
+    private void serve(final HttpExchange exchange) throws IOException {
+        final Endpoint endpoint = classify(exchange.getRequestURI().getPath());
+        requestCounts.get(endpoint).incrementAndGet();
+        final String body = readBody(exchange.getRequestBody());
+
+        final long latency;
+        final boolean fail;
+        synchronized (random) {
+            latency = minLatencyMillis + (long) (random.nextDouble() * (maxLatencyMillis - minLatencyMillis));
+            fail = errorRate > 0 && random.nextDouble() < errorRate;
+        }
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (fail) {
+            respond(exchange, errorStatus, "{\"message\":\"injected failure\"}");
+            return;
+        }
+
+        switch (endpoint) {
+            case TOKEN:
+                serveToken(exchange, UriHelper.deserializeParameters(body));
+                break;
+            case DEVICE_CODE:
+                respond(exchange, 200, "{\"device_code\":\"device-" + issued.incrementAndGet() + "\","
+                        + "\"user_code\":\"STANDIN\",\"verification_url\":\"https://aka.ms/devicelogin\","
+                        + "\"expires_in\":\"900\",\"interval\":\"1\","
+                        + "\"message\":\"The stand-in approves device codes right away.\"}");
+                break;
+            case CONNECTION_DATA:
+                if (!isAuthorized(exchange)) {
+                    respond(exchange, 401, "{\"message\":\"unauthorized\"}");
+                } else {
+                    respond(exchange, 200, "{\"instanceId\":\"" + INSTANCE_ID + "\","
+                            + "\"authenticatedUser\":{\"id\":\"" + PROFILE_ID + "\"}}");
+                }
+                break;
+            case LOCATION_SERVICE:
+                // the identity service is the stand-in itself, on the port the request came in on
+                respond(exchange, 200, "{\"serviceType\":\"LocationService2\",\"location\":\"http://"
+                        + exchange.getLocalAddress().getAddress().getHostAddress() + ":"
+                        + exchange.getLocalAddress().getPort() + "/\"}");
+                break;
+            case SESSION_TOKENS:
+                if (!isAuthorized(exchange)) {
+                    respond(exchange, 401, "{\"message\":\"unauthorized\"}");
+                } else {
+                    final String pat = "pat-" + issued.incrementAndGet();
+                    personalAccessTokens.add(pat);
+                    respond(exchange, 200, "{\"token\":\"" + pat + "\",\"validTo\":\""
+                            + OffsetDateTime.now().plusYears(1) + "\"}");
+                }
+                break;
+            case PROFILE:
+                respond(exchange, 200, "{\"displayName\":\"Stand-in User\",\"id\":\"" + PROFILE_ID + "\"}");
+                break;
+            case ACCOUNTS:
+                final StringBuilder accounts = new StringBuilder("{\"count\":").append(servers.size()).append(",\"value\":[");
+                for (int i = 0; i < servers.size(); i++) {
+                    accounts.append(i == 0 ? "" : ",").append("{\"accountId\":\"").append(UUID.randomUUID())
+                            .append("\",\"accountUri\":\"").append(getOrganizationUri(i))
+                            .append("\",\"accountName\":\"org").append(i).append("\",\"accountStatus\":\"enabled\"}");
+                }
+                respond(exchange, 200, accounts.append("]}").toString());
+                break;
+            default:
+                respond(exchange, 404, "{\"message\":\"not found\"}");
+                break;
+        }
+    }
+
+    private void serveToken(final HttpExchange exchange, final QueryString parameters) throws IOException {
+        final String grantType = parameters.get("grant_type");
+        if ("refresh_token".equals(grantType) && !refreshTokens.remove(parameters.get("refresh_token"))) {
+            respond(exchange, 400, "{\"error\":\"invalid_grant\",\"error_description\":\"unknown refresh token\"}");
+            return;
+        }
+        final long n = issued.incrementAndGet();
+        final String accessToken = "access-" + n;
+        final String refreshToken = "refresh-" + n;
+        accessTokens.add(accessToken);
+        refreshTokens.add(refreshToken);
+        respond(exchange, 200, "{\"token_type\":\"Bearer\",\"expires_in\":\"3599\",\"resource\":\""
+                + parameters.get("resource") + "\",\"access_token\":\"" + accessToken + "\","
+                + "\"refresh_token\":\"" + refreshToken + "\"}");
+    }
+
+    private boolean isAuthorized(final HttpExchange exchange) {
+        final String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null) {
+            return false;
+        }
+        if (authorization.startsWith("Bearer ")) {
+            return accessTokens.contains(authorization.substring("Bearer ".length()));
+        }
+        if (authorization.startsWith("Basic ")) {
+            final String decoded = StringHelper.UTF8GetString(
+                    Base64.getDecoder().decode(authorization.substring("Basic ".length())));
+            final int colon = decoded.indexOf(':');
+            return colon >= 0 && personalAccessTokens.contains(decoded.substring(colon + 1));
+        }
+        return false;
+    }
+
+    private static String readBody(final InputStream is) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            IOHelper.copyStream(is, baos);
+        } finally {
+            IOHelper.closeQuietly(is);
+        }
+        return StringHelper.UTF8GetString(baos.toByteArray());
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String json) throws IOException {
+        final byte[] bytes = StringHelper.UTF8GetBytes(json);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        final OutputStream os = exchange.getResponseBody();
+        try {
+            os.write(bytes);
+        } finally {
+            os.close();
+        }
+    }
+}
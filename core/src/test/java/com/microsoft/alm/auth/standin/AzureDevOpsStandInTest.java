@@ -0,0 +1,141 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.standin;
+
+import com.microsoft.alm.auth.ChaosHttpClientFactory;
+import com.microsoft.alm.auth.HttpClientFactory;
+import com.microsoft.alm.auth.PromptBehavior;
+import com.microsoft.alm.auth.oauth.Global;
+import com.microsoft.alm.auth.pat.VstsPatAuthenticator;
+import com.microsoft.alm.helpers.Action;
+import com.microsoft.alm.helpers.ChaosHttpClient;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.VsoTokenScope;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.microsoft.alm.auth.standin.AzureDevOpsStandIn.Endpoint;
+
+public class AzureDevOpsStandInTest {
+
+    private AzureDevOpsStandIn standIn;
+    private VstsPatAuthenticator authenticator;
+
+    @Before
+    public void setUp() throws Exception {
+        standIn = new AzureDevOpsStandIn(2, 1);
+        standIn.install();
+        authenticator = LoadDriver.createPatAuthenticator();
+    }
+
+    @After
+    public void tearDown() {
+        Global.setHttpClientFactory(new HttpClientFactory());
+        AzureDevOpsStandIn.uninstall();
+        System.clearProperty(LoadDriver.USER_AGENT_PROVIDER_PROPERTY_NAME);
+        standIn.close();
+    }
+
+    @Test
+    public void getPersonalAccessToken_signsInOnceAndMintsATokenPerOrganization() {
+        final Token first = authenticator.getPersonalAccessToken(standIn.getOrganizationUri(0), VsoTokenScope.CodeRead,
+                "test", PromptBehavior.AUTO);
+        final Token second = authenticator.getPersonalAccessToken(standIn.getOrganizationUri(1), VsoTokenScope.CodeRead,
+                "test", PromptBehavior.AUTO);
+        final Token again = authenticator.getPersonalAccessToken(standIn.getOrganizationUri(0), VsoTokenScope.CodeRead,
+                "test", PromptBehavior.AUTO);
+
+        Assert.assertNotNull(first);
+        Assert.assertNotNull(second);
+        Assert.assertNotEquals(first.Value, second.Value);
+        Assert.assertEquals(first.Value, again.Value);
+        Assert.assertEquals(1, standIn.getRequestCount(Endpoint.DEVICE_CODE));
+        Assert.assertEquals(1, standIn.getRequestCount(Endpoint.TOKEN));
+        Assert.assertEquals(2, standIn.getRequestCount(Endpoint.LOCATION_SERVICE));
+        Assert.assertEquals(2, standIn.getRequestCount(Endpoint.SESSION_TOKENS));
+        Assert.assertEquals(0, standIn.getRequestCount(Endpoint.UNKNOWN));
+    }
+
+    @Test
+    public void getPersonalAccessToken_refreshesAnExpiredAccessToken() {
+        final URI organization = standIn.getOrganizationUri(0);
+        authenticator.getPersonalAccessToken(organization, VsoTokenScope.CodeRead, "test", PromptBehavior.AUTO);
+
+        standIn.expireAccessTokens();
+        final Token token = authenticator.getPersonalAccessToken(organization, VsoTokenScope.CodeRead, "test",
+                PromptBehavior.ALWAYS);
+
+        Assert.assertNotNull(token);
+        Assert.assertEquals(1, standIn.getRequestCount(Endpoint.DEVICE_CODE));
+        Assert.assertEquals(2, standIn.getRequestCount(Endpoint.TOKEN));
+    }
+
+    @Test
+    public void getGlobalPersonalAccessToken_looksUpTheAccount() {
+        final Token token = authenticator.getPersonalAccessToken(VsoTokenScope.CodeRead, "test", PromptBehavior.AUTO);
+
+        Assert.assertNotNull(token);
+        Assert.assertEquals(1, standIn.getRequestCount(Endpoint.PROFILE));
+        Assert.assertEquals(1, standIn.getRequestCount(Endpoint.ACCOUNTS));
+        Assert.assertEquals(1, standIn.getRequestCount(Endpoint.SESSION_TOKENS));
+    }
+
+    @Test
+    public void loadDriver_countsOperationsAndErrors() throws Exception {
+        authenticator.getPersonalAccessToken(standIn.getOrganizationUri(0), VsoTokenScope.CodeRead, "test",
+                PromptBehavior.AUTO);
+        final Action<URI> mint = new Action<URI>() {
+            @Override
+            public void call(final URI organization) {
+                LoadDriver.mintPersonalAccessToken(authenticator, organization);
+            }
+        };
+        final List<URI> organizations = Arrays.asList(standIn.getOrganizationUri(0), standIn.getOrganizationUri(1));
+
+        final LoadDriver.Report report = LoadDriver.run(4, organizations, 3, mint);
+
+        Assert.assertEquals(12, report.operations);
+        Assert.assertEquals(0, report.errors);
+        Assert.assertEquals(13, standIn.getRequestCount(Endpoint.SESSION_TOKENS));
+        Assert.assertTrue(report.toString(), report.getThroughput() > 0);
+        Assert.assertTrue(report.latencies.getPercentile(0.99) > 0);
+
+        // not 503, which would make the rate limiter back off from the host
+        standIn.setErrorRate(1, 500);
+        final LoadDriver.Report failing = LoadDriver.run(2, organizations, 2, mint);
+
+        Assert.assertEquals(4, failing.operations);
+        Assert.assertEquals(4, failing.errors);
+    }
+
+    @Test
+    public void chaosHttpClientFactory_failsOnlyTheRequestsItMatches() throws Exception {
+        final URI organization = standIn.getOrganizationUri(0);
+        authenticator.getPersonalAccessToken(organization, VsoTokenScope.CodeRead, "test", PromptBehavior.AUTO);
+        final ChaosHttpClient.Rule sessionTokens = new ChaosHttpClient.Rule("(?i)/_apis/token/sessiontokens$")
+                .withLatency(ChaosHttpClient.Latency.uniform(1, 5))
+                .withConnectionResets(0.5);
+        Global.setHttpClientFactory(new ChaosHttpClientFactory(7, sessionTokens));
+
+        final LoadDriver.Report report = LoadDriver.run(1, Arrays.asList(organization), 20, new Action<URI>() {
+            @Override
+            public void call(final URI organization) {
+                LoadDriver.mintPersonalAccessToken(authenticator, organization);
+            }
+        });
+
+        final long resets = sessionTokens.getInjectedCount(ChaosHttpClient.Fault.CONNECTION_RESET);
+        Assert.assertTrue(resets > 0 && resets < 20);
+        Assert.assertEquals(resets, report.errors);
+        Assert.assertEquals(20, sessionTokens.getInjectedCount(ChaosHttpClient.Fault.LATENCY));
+        Assert.assertEquals(1 + 20 - resets, standIn.getRequestCount(Endpoint.SESSION_TOKENS));
+        Assert.assertEquals(1, standIn.getRequestCount(Endpoint.TOKEN));
+    }
+}
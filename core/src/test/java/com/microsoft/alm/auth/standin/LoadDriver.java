@@ -0,0 +1,182 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.standin;
+
+import com.microsoft.alm.auth.PromptBehavior;
+import com.microsoft.alm.auth.oauth.DeviceFlowResponse;
+import com.microsoft.alm.auth.oauth.OAuth2Authenticator;
+import com.microsoft.alm.auth.pat.VstsPatAuthenticator;
+import com.microsoft.alm.helpers.Action;
+import com.microsoft.alm.helpers.LatencyHistogram;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenPair;
+import com.microsoft.alm.secret.VsoTokenScope;
+import com.microsoft.alm.storage.InsecureInMemoryStore;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs an operation from many threads against many organizations and reports the throughput and latencies, e.g.
+ * getting personal access tokens from {@link AzureDevOpsStandIn}:
+ *
+ * <pre>
+ *   LoadDriver &lt;threads&gt; &lt;organizations&gt; &lt;iterations per thread&gt; [latency ms] [error rate]
+ * </pre>
+ */
+public class LoadDriver {
+
+    static final String USER_AGENT_PROVIDER_PROPERTY_NAME = "userAgentProvider";
+
+    /**
+     * What a run measured.  Latencies are of the operations that completed, failed or not.
+     */
+    public static final class Report {
+        public final long operations;
+        public final long errors;
+        public final long elapsedNanos;
+        public final LatencyHistogram latencies;
+
+        Report(final long operations, final long errors, final long elapsedNanos, final LatencyHistogram latencies) {
+            this.operations = operations;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+        }
+
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : operations * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d operations, %d errors in %d ms: %.1f/s, p50=%.3f ms, p99=%.3f ms, max=%.3f ms",
+                    operations, errors, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getThroughput(),
+                    latencies.getPercentile(0.5) / 1e6, latencies.getPercentile(0.99) / 1e6, latencies.getMax() / 1e6);
+        }
+    }
+
+    /**
+     * Calls {@code operation} {@code iterations} times on each of {@code threads} threads, starting them together.
+     * Thread {@code t} goes round the organizations starting with organization {@code t}, so they are all busy.
+     */
+    public static Report run(final int threads, final List<URI> organizations, final int iterations,
+                             final Action<URI> operation) throws InterruptedException {
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < iterations; i++) {
+                            final URI organization = organizations.get((offset + i) % organizations.size());
+                            final long begin = System.nanoTime();
+                            try {
+                                operation.call(organization);
+                            } catch (final RuntimeException e) {
+                                errors.incrementAndGet();
+                            } catch (final Error e) {
+                                // the library wraps I/O errors in Error
+                                errors.incrementAndGet();
+                            } finally {
+                                latencies.record(System.nanoTime() - begin);
+                            }
+                        }
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "load-driver-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        final long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return new Report(latencies.getCount(), errors.get(), System.nanoTime() - begin, latencies);
+    }
+
+    /**
+     * @return an authenticator that signs in with the device flow, which the stand-in approves right away
+     */
+    static VstsPatAuthenticator createPatAuthenticator() {
+        System.setProperty(USER_AGENT_PROVIDER_PROPERTY_NAME, "none");
+        final OAuth2Authenticator oauth2Authenticator = OAuth2Authenticator.getAuthenticator(
+                "872cd9fa-d31f-45e0-9eab-6e460a02d1f1", "urn:ietf:wg:oauth:2.0:oob",
+                new InsecureInMemoryStore<TokenPair>(), new Action<DeviceFlowResponse>() {
+                    @Override
+                    public void call(final DeviceFlowResponse deviceFlowResponse) {
+                        // nobody to show the code to
+                    }
+                });
+        return new VstsPatAuthenticator(oauth2Authenticator, new InsecureInMemoryStore<Token>());
+    }
+
+    /**
+     * Gets a new personal access token for {@code organization}, failing if none could be had.
+     */
+    static Token mintPersonalAccessToken(final VstsPatAuthenticator authenticator, final URI organization) {
+        final Token token = authenticator.getPersonalAccessToken(organization, VsoTokenScope.CodeRead, "load",
+                PromptBehavior.ALWAYS);
+        if (token == null) {
+            throw new IllegalStateException("No personal access token for " + organization);
+        }
+        return token;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: LoadDriver <threads> <organizations> <iterations per thread> [latency ms] [error rate]");
+            System.exit(2);
+        }
+        final int threads = Integer.parseInt(args[0]);
+        final int organizationCount = Integer.parseInt(args[1]);
+        final int iterations = Integer.parseInt(args[2]);
+        final long latencyMillis = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        final double errorRate = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+
+        final AzureDevOpsStandIn standIn = new AzureDevOpsStandIn(organizationCount, 42);
+        try {
+            standIn.install();
+            final List<URI> organizations = new ArrayList<URI>();
+            for (int i = 0; i < standIn.getOrganizationCount(); i++) {
+                organizations.add(standIn.getOrganizationUri(i));
+            }
+            final VstsPatAuthenticator authenticator = createPatAuthenticator();
+            // sign in once, then every operation validates the OAuth2 token and mints a personal access token
+            authenticator.getPersonalAccessToken(organizations.get(0), VsoTokenScope.CodeRead, "load", PromptBehavior.AUTO);
+
+            standIn.setLatencyMillis(latencyMillis / 2, latencyMillis * 3 / 2);
+            standIn.setErrorRate(errorRate, 503);
+            final Report report = run(threads, organizations, iterations, new Action<URI>() {
+                @Override
+                public void call(final URI organization) {
+                    mintPersonalAccessToken(authenticator, organization);
+                }
+            });
+
+            System.out.println(threads + " threads x " + organizations.size() + " organizations: " + report);
+            for (final AzureDevOpsStandIn.Endpoint endpoint : AzureDevOpsStandIn.Endpoint.values()) {
+                System.out.println("  " + endpoint + ": " + standIn.getRequestCount(endpoint) + " requests");
+            }
+        } finally {
+            AzureDevOpsStandIn.uninstall();
+            System.clearProperty(USER_AGENT_PROVIDER_PROPERTY_NAME);
+            standIn.close();
+        }
+    }
+}
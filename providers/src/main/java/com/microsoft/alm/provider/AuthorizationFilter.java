@@ -0,0 +1,131 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.provider;
+
+import com.microsoft.alm.auth.PromptBehavior;
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.Func;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Adds the {@code Authorization} header to every request of a cached client, and when the server
+ * rejects it with a 401, asks the authenticator for a fresh secret and replays the request once.
+ *
+ * The header is resolved through the authenticator rather than captured when the client is created, so a
+ * long-lived client picks up refreshed tokens; it is re-resolved only after a 401, because resolving
+ * (and validating) a stored secret costs a round trip of its own.
+ */
+final class AuthorizationFilter implements ClientRequestFilter, ClientResponseFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthorizationFilter.class);
+
+    static final String REPLAYED_PROPERTY = AuthorizationFilter.class.getName() + ".replayed";
+
+    private final Func<PromptBehavior, String> resolver;
+    private final PromptBehavior reauthenticationBehavior;
+    private final AtomicReference<String> current = new AtomicReference<String>();
+
+    /**
+     * @param resolver                 returns the {@code Authorization} header value for the given prompt behavior,
+     *                                 or {@code null} if no secret could be obtained.
+     * @param initialValue             the header value resolved when the client was created.
+     * @param reauthenticationBehavior the prompt behavior to use after a 401.
+     */
+    AuthorizationFilter(final Func<PromptBehavior, String> resolver, final String initialValue, final PromptBehavior reauthenticationBehavior) {
+        Debug.Assert(resolver != null, "resolver cannot be null");
+        Debug.Assert(initialValue != null, "initialValue cannot be null");
+
+        this.resolver = resolver;
+        this.reauthenticationBehavior = reauthenticationBehavior;
+        this.current.set(initialValue);
+    }
+
+    @Override
+    public void filter(final ClientRequestContext requestContext) throws IOException {
+        requestContext.getHeaders().putSingle(HttpHeaders.AUTHORIZATION, current.get());
+    }
+
+    @Override
+    public void filter(final ClientRequestContext requestContext, final ClientResponseContext responseContext) throws IOException {
+        if (responseContext.getStatus() != Response.Status.UNAUTHORIZED.getStatusCode()
+                || requestContext.getProperty(REPLAYED_PROPERTY) != null) {
+            return;
+        }
+        final Object entity = requestContext.getEntity();
+        if (entity instanceof InputStream) {
+            logger.debug("Cannot replay a streamed request to {} after 401.", requestContext.getUri());
+            return;
+        }
+
+        final String stale = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
+        final String fresh = refresh(stale);
+        if (fresh == null || fresh.equals(stale)) {
+            logger.debug("No new secret available for {}; returning the 401.", requestContext.getUri());
+            return;
+        }
+
+        logger.info("Request to {} was rejected with 401; replaying with a renewed secret.", requestContext.getUri());
+        // give the connection back to the pool first, so a replay never needs two from the same route
+        final InputStream original = responseContext.getEntityStream();
+        if (original != null) {
+            try {
+                final byte[] buffer = new byte[1024];
+                while (original.read(buffer) != -1) {
+                    // the 401 body is discarded; reading it to the end lets the connection be reused
+                }
+            } finally {
+                original.close();
+            }
+        }
+        final Invocation.Builder builder = requestContext.getClient().target(requestContext.getUri()).request();
+        for (final Map.Entry<String, List<String>> header : requestContext.getStringHeaders().entrySet()) {
+            if (!HttpHeaders.AUTHORIZATION.equalsIgnoreCase(header.getKey())) {
+                for (final String value : header.getValue()) {
+                    builder.header(header.getKey(), value);
+                }
+            }
+        }
+        builder.property(REPLAYED_PROPERTY, Boolean.TRUE);
+        final Response replayed = entity == null
+                ? builder.method(requestContext.getMethod())
+                : builder.method(requestContext.getMethod(), Entity.entity(entity, requestContext.getMediaType()));
+
+        responseContext.setStatus(replayed.getStatus());
+        final MultivaluedMap<String, String> headers = responseContext.getHeaders();
+        headers.clear();
+        headers.putAll(replayed.getStringHeaders());
+        responseContext.setEntityStream(replayed.hasEntity() ? replayed.readEntity(InputStream.class) : null);
+    }
+
+    /**
+     * Only one caller re-authenticates after a burst of 401s; the others pick up its result.
+     */
+    private synchronized String refresh(final String stale) {
+        final String latest = current.get();
+        if (latest != null && !latest.equals(stale)) {
+            return latest;
+        }
+        final String renewed = resolver.call(reauthenticationBehavior);
+        if (renewed != null) {
+            current.set(renewed);
+        }
+        return renewed;
+    }
+}
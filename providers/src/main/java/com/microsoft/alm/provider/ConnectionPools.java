@@ -0,0 +1,168 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.provider;
+
+import com.microsoft.alm.helpers.SettingsHelper;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.SslConfigurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Apache connection pools shared by the clients {@link JaxrsClientProvider} creates, one per pool
+ * configuration, plus the background task that closes their idle connections.
+ */
+final class ConnectionPools {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPools.class);
+
+    private static final long EVICTION_PERIOD_MILLISECONDS = 5000;
+
+    private static final ConcurrentMap<PoolKey, SharedConnectionManager> POOLS = new ConcurrentHashMap<PoolKey, SharedConnectionManager>();
+
+    private static ScheduledExecutorService evictor;
+
+    private ConnectionPools() {
+    }
+
+    static SharedConnectionManager get(final Options.HttpOptions httpOptions) {
+        final PoolKey key = new PoolKey(httpOptions.maxConnectionsPerRoute, httpOptions.maxConnectionsTotal, httpOptions.idleConnectionTimeoutMillis);
+        SharedConnectionManager pool = POOLS.get(key);
+        if (pool == null) {
+            synchronized (POOLS) {
+                pool = POOLS.get(key);
+                if (pool == null) {
+                    pool = create(key);
+                    POOLS.put(key, pool);
+                }
+            }
+        }
+        return pool;
+    }
+
+    private static SharedConnectionManager create(final PoolKey key) {
+        logger.debug("Creating a connection pool with {} connections per route, {} in total.", key.maxPerRoute, key.maxTotal);
+
+        final SSLContext sslContext = getProxySslContext();
+        final PoolingHttpClientConnectionManager connectionManager;
+        if (sslContext == null) {
+            connectionManager = new PoolingHttpClientConnectionManager();
+        }
+        else {
+            // the connector ignores SSL_CONFIG once it is given a connection manager, so apply it here
+            final Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                    .register("https", new SSLConnectionSocketFactory(sslContext))
+                    .build();
+            connectionManager = new PoolingHttpClientConnectionManager(registry);
+        }
+        connectionManager.setDefaultMaxPerRoute(key.maxPerRoute);
+        connectionManager.setMaxTotal(key.maxTotal);
+
+        if (key.idleMilliseconds > 0) {
+            scheduleEviction(connectionManager, key.idleMilliseconds);
+        }
+        return new SharedConnectionManager(connectionManager);
+    }
+
+    private static synchronized void scheduleEviction(final PoolingHttpClientConnectionManager connectionManager, final long idleMilliseconds) {
+        if (evictor == null) {
+            evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "jaxrs-connection-evictor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        final long period = Math.min(EVICTION_PERIOD_MILLISECONDS, idleMilliseconds);
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                connectionManager.closeExpiredConnections();
+                connectionManager.closeIdleConnections(idleMilliseconds, TimeUnit.MILLISECONDS);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the SSL context built from the configured trust store, which is only used to reach the
+     *         server through a proxy; {@code null} if no proxy or no trust store is configured.
+     */
+    static SSLContext getProxySslContext() {
+        if (SettingsHelper.getInstance().getProperty("http.proxyHost") == null) {
+            return null;
+        }
+        final SslConfigurator sslConfigurator = getSslConfigurator();
+        if (sslConfigurator == null) {
+            return null;
+        }
+        logger.debug("Setting up ssl configurator.");
+        return sslConfigurator.createSSLContext();
+    }
+
+    private static SslConfigurator getSslConfigurator() {
+        final String trustStore = SettingsHelper.getInstance().getProperty("javax.net.ssl.trustStore");
+        final String trustStorePassword = SettingsHelper.getInstance().getProperty("javax.net.ssl.trustStorePassword");
+
+        final SslConfigurator sslConfigurator;
+        if (trustStore != null && trustStorePassword != null) {
+            logger.debug("Setting up ssl configurator with trustStore: {}", trustStore);
+            sslConfigurator = SslConfigurator.newInstance()
+                    .trustStoreFile(trustStore)
+                    .trustStorePassword(trustStorePassword)
+                    .trustStoreType("JKS")
+                    .trustManagerFactoryAlgorithm("PKIX")
+                    .securityProtocol("SSL");
+
+        } else {
+            logger.debug("trustStore exists? {}, trustStorePassword is specified? {}",
+                    trustStore != null,
+                    trustStorePassword != null);
+            sslConfigurator = null;
+        }
+
+        return sslConfigurator;
+    }
+
+    private static final class PoolKey {
+        private final int maxPerRoute;
+        private final int maxTotal;
+        private final long idleMilliseconds;
+
+        PoolKey(final int maxPerRoute, final int maxTotal, final long idleMilliseconds) {
+            this.maxPerRoute = maxPerRoute;
+            this.maxTotal = maxTotal;
+            this.idleMilliseconds = idleMilliseconds;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof PoolKey)) {
+                return false;
+            }
+            final PoolKey other = (PoolKey) obj;
+            return maxPerRoute == other.maxPerRoute && maxTotal == other.maxTotal && idleMilliseconds == other.idleMilliseconds;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * maxPerRoute + maxTotal) * 31 + (int) (idleMilliseconds ^ (idleMilliseconds >>> 32));
+        }
+    }
+}
@@ -11,12 +11,7 @@ import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.secret.TokenPair;
 import com.microsoft.alm.helpers.Debug;
 import com.microsoft.alm.helpers.ObjectExtensions;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.Credentials;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.glassfish.jersey.SslConfigurator;
+import com.microsoft.alm.helpers.Func;
 import org.glassfish.jersey.apache.connector.ApacheClientProperties;
 import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
 import org.glassfish.jersey.client.ClientConfig;
@@ -26,12 +21,15 @@ import org.glassfish.jersey.client.spi.ConnectorProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.net.ssl.SSLContext;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
-import javax.ws.rs.client.ClientRequestContext;
-import javax.ws.rs.client.ClientRequestFilter;
-import java.io.IOException;
+import javax.ws.rs.core.HttpHeaders;
 import java.net.URI;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Provides authenticated JAXRS client based on different authenticators
@@ -40,12 +38,36 @@ import java.net.URI;
  * name is hardcoded to identify Personal Access Token authentication type instead of the user.
  *
  * In case of OAuth2 token, we embedded the token as a "Bearer" token in the Authorization header.
+ *
+ * Clients are cached per authenticator, account and {@link Options.HttpOptions}, and clients with the same pool
+ * settings share one connection pool.  A cached client
+ * is handed out to every caller, so callers should not close it; when the server rejects the Authorization header
+ * with a 401, the client obtains a new one from the authenticator and replays the request once.
+ *
+ * At most {@value #MAX_CACHED_CLIENTS} clients are cached, least recently used first out.  A client dropped from
+ * the cache is not closed, since other callers may still be using it; its connections belong to the shared pool.
  */
 public class JaxrsClientProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(JaxrsClientProvider.class);
 
-    private Authenticator authenticator;
+    private static final String GLOBAL_ACCOUNT = "";
+
+    static final int MAX_CACHED_CLIENTS = 64;
+
+    /**
+     * Clients are expensive to bootstrap and hold on to pooled connections, so they are shared
+     * between providers backed by the same authenticator.  The keys hold on to their authenticators,
+     * so the cache is bounded; guarded by itself.
+     */
+    private static final Map<ClientCacheKey, Client> CLIENT_CACHE = new LinkedHashMap<ClientCacheKey, Client>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<ClientCacheKey, Client> eldest) {
+            return size() > MAX_CACHED_CLIENTS;
+        }
+    };
+
+    private final Authenticator authenticator;
 
     /**
      * Provides authenticated JAX RS clients based on {@link Authenticator} provided
@@ -96,27 +118,40 @@ public class JaxrsClientProvider {
         Debug.Assert(promptBehavior != null, "promptBehavior cannot be null");
         Debug.Assert(options != null, "options cannot be null");
 
-        Client client = null;
-
         logger.info("Getting a jaxrs client that works across multiple accounts.");
+        final ClientCacheKey cacheKey = new ClientCacheKey(authenticator, GLOBAL_ACCOUNT, options.httpOptions);
+        final Client cached = getCachedClient(cacheKey, promptBehavior);
+        if (cached != null) {
+            return cached;
+        }
+
+        Func<PromptBehavior, String> resolver = null;
         if (authenticator.isOAuth2TokenSupported()) {
             logger.debug("Getting a jaxrs client backed by OAuth2 token.");
-            final TokenPair tokenPair = authenticator.getOAuth2TokenPair(promptBehavior);
-            client = getClientWithOAuth2RequestFilter(tokenPair);
+            resolver = new Func<PromptBehavior, String>() {
+                @Override
+                public String call(final PromptBehavior behavior) {
+                    return toAuthorizationHeader(authenticator.getOAuth2TokenPair(behavior));
+                }
+            };
         }
         // Get a client backed by a global PAT
         else if (authenticator.isPersonalAccessTokenSupported()) {
             logger.debug("Getting a jaxrs client backed by PersonalAccessToken.");
-            final Token token = authenticator.getPersonalAccessToken(
-                    options.patGenerationOptions.tokenScope,
-                    options.patGenerationOptions.displayName,
-                    promptBehavior);
-
-            if (token != null) {
-                client = getClientWithUsernamePassword(authenticator.getAuthType(), token.Value);
-            }
+            resolver = new Func<PromptBehavior, String>() {
+                @Override
+                public String call(final PromptBehavior behavior) {
+                    final Token token = authenticator.getPersonalAccessToken(
+                            options.patGenerationOptions.tokenScope,
+                            options.patGenerationOptions.displayName,
+                            behavior);
+                    return toAuthorizationHeader(token);
+                }
+            };
         }
 
+        final Client client = createClient(cacheKey, resolver, promptBehavior, options.httpOptions);
+
         logger.info("Successfully created an authenticated client? {}", client != null);
 
         return client;
@@ -160,92 +195,178 @@ public class JaxrsClientProvider {
         Debug.Assert(promptBehavior != null, "promptBehavior cannot be null");
         Debug.Assert(options != null, "options cannot be null");
 
-        Client client = null;
         logger.info("Getting a jaxrs client for uri: {}.", uri);
+        final String account = authenticator.getUriToKeyConversion().convert(uri, authenticator.getAuthType());
+        final ClientCacheKey cacheKey = new ClientCacheKey(authenticator, account, options.httpOptions);
+        final Client cached = getCachedClient(cacheKey, promptBehavior);
+        if (cached != null) {
+            return cached;
+        }
 
+        Func<PromptBehavior, String> resolver = null;
         if (authenticator.isCredentialSupported()) {
 
             logger.debug("Getting a jaxrs client backed by basic auth.");
-            final Credential credential = authenticator.getCredential(uri, promptBehavior);
-            if (credential != null) {
-                client = getClientWithUsernamePassword(credential.Username, credential.Password);
-            }
+            resolver = new Func<PromptBehavior, String>() {
+                @Override
+                public String call(final PromptBehavior behavior) {
+                    return toAuthorizationHeader(authenticator.getCredential(uri, behavior));
+                }
+            };
 
         } else if (authenticator.isOAuth2TokenSupported()) {
             logger.debug("Getting a jaxrs client backed by OAuth2 token.");
-
-            final TokenPair tokenPair = authenticator.getOAuth2TokenPair(uri, promptBehavior);
-            client = getClientWithOAuth2RequestFilter(tokenPair);
+            resolver = new Func<PromptBehavior, String>() {
+                @Override
+                public String call(final PromptBehavior behavior) {
+                    return toAuthorizationHeader(authenticator.getOAuth2TokenPair(uri, behavior));
+                }
+            };
 
         } else if (authenticator.isPersonalAccessTokenSupported()) {
             logger.debug("Getting a jaxrs client backed by PersonalAccessToken.");
-
-            final Token token = authenticator.getPersonalAccessToken(
-                    uri,
-                    options.patGenerationOptions.tokenScope,
-                    options.patGenerationOptions.displayName,
-                    promptBehavior);
-
-            if (token != null) {
-                client = getClientWithUsernamePassword(authenticator.getAuthType(), token.Value);
-            }
+            resolver = new Func<PromptBehavior, String>() {
+                @Override
+                public String call(final PromptBehavior behavior) {
+                    final Token token = authenticator.getPersonalAccessToken(
+                            uri,
+                            options.patGenerationOptions.tokenScope,
+                            options.patGenerationOptions.displayName,
+                            behavior);
+                    return toAuthorizationHeader(token);
+                }
+            };
         }
 
+        final Client client = createClient(cacheKey, resolver, promptBehavior, options.httpOptions);
+
         logger.debug("Successfully created an authenticated client for uri: {}? {}", uri, client != null);
         return client;
     }
 
-    private Client getClientWithOAuth2RequestFilter(final TokenPair tokenPair) {
-        // default Jersey client with HttpURLConnection as the connector
-        final Client client;
-
-        // add proxy information
-        final ClientConfig clientConfig = new ClientConfig();
-        addProxySettings(clientConfig);
-
-        if (tokenPair != null && tokenPair.AccessToken != null) {
-            client = ClientBuilder.newClient(clientConfig);
-
-            client.register(new ClientRequestFilter() {
-                @Override
-                public void filter(final ClientRequestContext requestContext) throws IOException {
-                    requestContext.getHeaders().putSingle("Authorization", "Bearer " + tokenPair.AccessToken.Value);
+    /**
+     * Forgets the cached clients of this provider's authenticator, e.g. after signing out.
+     * Clients already handed out keep working.
+     */
+    public void evictCachedClients() {
+        synchronized (CLIENT_CACHE) {
+            final Iterator<Map.Entry<ClientCacheKey, Client>> iterator = CLIENT_CACHE.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<ClientCacheKey, Client> entry = iterator.next();
+                if (entry.getKey().authenticator == authenticator) {
+                    iterator.remove();
                 }
-            });
-        } else {
-            client = null;
+            }
+        }
+    }
+
+    static int getCachedClientCount() {
+        synchronized (CLIENT_CACHE) {
+            return CLIENT_CACHE.size();
         }
+    }
 
+    private static Client getCachedClient(final ClientCacheKey cacheKey, final PromptBehavior promptBehavior) {
+        // ALWAYS asks for a new secret, so it cannot be served from the cache
+        if (promptBehavior == PromptBehavior.ALWAYS) {
+            return null;
+        }
+        final Client client;
+        synchronized (CLIENT_CACHE) {
+            client = CLIENT_CACHE.get(cacheKey);
+        }
+        if (client != null) {
+            logger.debug("Reusing cached jaxrs client.");
+        }
         return client;
     }
 
-    private Client getClientWithUsernamePassword(final String username, final String password) {
-        final ClientConfig clientConfig = getClientConfig(username, password);
+    private Client createClient(final ClientCacheKey cacheKey, final Func<PromptBehavior, String> resolver,
+                                final PromptBehavior promptBehavior, final Options.HttpOptions httpOptions) {
+        if (resolver == null) {
+            return null;
+        }
+        final String authorization = resolver.call(promptBehavior);
+        if (authorization == null) {
+            return null;
+        }
 
-        return ClientBuilder.newClient(clientConfig);
+        // a fresh secret has just been obtained, later renewals should not prompt more than AUTO would
+        final PromptBehavior reauthenticationBehavior = promptBehavior == PromptBehavior.ALWAYS ? PromptBehavior.AUTO : promptBehavior;
+        final Client client = newClient(httpOptions);
+        client.register(new AuthorizationFilter(resolver, authorization, reauthenticationBehavior));
+
+        final Client previous;
+        synchronized (CLIENT_CACHE) {
+            previous = CLIENT_CACHE.get(cacheKey);
+            // keep the client another caller cached meanwhile, unless ALWAYS asked for a new secret
+            if (previous == null || promptBehavior == PromptBehavior.ALWAYS) {
+                CLIENT_CACHE.put(cacheKey, client);
+            }
+        }
+        if (previous == null || promptBehavior == PromptBehavior.ALWAYS) {
+            // a replaced client may still be in use elsewhere, so it is left open
+            return client;
+        }
+        // nobody else has seen this one
+        client.close();
+        return previous;
     }
 
-    private ClientConfig getClientConfig(final String username, final String password) {
-        Debug.Assert(username != null, "username cannot be null");
-        Debug.Assert(password != null, "password cannot be null");
+    private static String toAuthorizationHeader(final TokenPair tokenPair) {
+        if (tokenPair == null || tokenPair.AccessToken == null) {
+            return null;
+        }
+        final Map<String, String> headers = new HashMap<String, String>();
+        tokenPair.AccessToken.contributeHeader(headers);
+        return headers.get(HttpHeaders.AUTHORIZATION);
+    }
 
-        final Credentials credentials
-                = new UsernamePasswordCredentials(username, password);
+    private String toAuthorizationHeader(final Token token) {
+        if (token == null) {
+            return null;
+        }
+        // For PAT, the user name identifies the authentication type instead of the user
+        return toAuthorizationHeader(new Credential(authenticator.getAuthType(), token.Value));
+    }
 
-        final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-        credentialsProvider.setCredentials(AuthScope.ANY, credentials);
+    private static String toAuthorizationHeader(final Credential credential) {
+        if (credential == null) {
+            return null;
+        }
+        final Map<String, String> headers = new HashMap<String, String>();
+        credential.contributeHeader(headers);
+        return headers.get(HttpHeaders.AUTHORIZATION);
+    }
 
-        final ConnectorProvider connectorProvider = new ApacheConnectorProvider();
+    private Client newClient(final Options.HttpOptions httpOptions) {
+        final ClientConfig clientConfig = new ClientConfig();
+        clientConfig.property(ClientProperties.CONNECT_TIMEOUT, httpOptions.connectTimeoutMillis);
+        clientConfig.property(ClientProperties.READ_TIMEOUT, httpOptions.readTimeoutMillis);
+        if (httpOptions.chunkedEntityProcessing) {
+            clientConfig.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.CHUNKED);
+            clientConfig.property(ClientProperties.CHUNKED_ENCODING_SIZE, httpOptions.chunkSizeBytes);
+        } else {
+            clientConfig.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.BUFFERED);
+        }
 
-        final ClientConfig clientConfig = new ClientConfig().connectorProvider(connectorProvider);
-        clientConfig.property(ApacheClientProperties.CREDENTIALS_PROVIDER, credentialsProvider);
+        if (httpOptions.useApacheConnector) {
+            final ConnectorProvider connectorProvider = new ApacheConnectorProvider();
+            clientConfig.connectorProvider(connectorProvider);
+            clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER, ConnectionPools.get(httpOptions));
 
-        clientConfig.property(ApacheClientProperties.PREEMPTIVE_BASIC_AUTHENTICATION, true);
-        clientConfig.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.BUFFERED);
+            addProxySettings(clientConfig);
 
-        addProxySettings(clientConfig);
+            return ClientBuilder.newClient(clientConfig);
+        }
 
-        return clientConfig;
+        // HttpURLConnection picks up the proxy from the http.proxyHost system properties itself
+        final ClientBuilder builder = ClientBuilder.newBuilder().withConfig(clientConfig);
+        final SSLContext sslContext = ConnectionPools.getProxySslContext();
+        if (sslContext != null) {
+            builder.sslContext(sslContext);
+        }
+        return builder.build();
     }
 
     private void addProxySettings(final ClientConfig clientConfig) {
@@ -260,35 +381,36 @@ public class JaxrsClientProvider {
 
             clientConfig.property(ClientProperties.PROXY_URI, proxyUrl);
 
-            final SslConfigurator sslConfigurator = getSslConfigurator();
-            if (sslConfigurator != null) {
-                logger.debug("Setting up ssl configurator.");
-                clientConfig.property(ApacheClientProperties.SSL_CONFIG, sslConfigurator);
-            }
         }
     }
 
-    private SslConfigurator getSslConfigurator() {
-        final String trustStore = SettingsHelper.getInstance().getProperty("javax.net.ssl.trustStore");
-        final String trustStorePassword = SettingsHelper.getInstance().getProperty("javax.net.ssl.trustStorePassword");
+    private static final class ClientCacheKey {
+        private final Authenticator authenticator;
+        private final String account;
+        private final Options.HttpOptions httpOptions;
 
-        final SslConfigurator sslConfigurator;
-        if (trustStore != null && trustStorePassword != null) {
-            logger.debug("Setting up ssl configurator with trustStore: {}", trustStore);
-            sslConfigurator = SslConfigurator.newInstance()
-                    .trustStoreFile(trustStore)
-                    .trustStorePassword(trustStorePassword)
-                    .trustStoreType("JKS")
-                    .trustManagerFactoryAlgorithm("PKIX")
-                    .securityProtocol("SSL");
+        ClientCacheKey(final Authenticator authenticator, final String account, final Options.HttpOptions httpOptions) {
+            this.authenticator = authenticator;
+            this.account = account;
+            // copied, so that changing the caller's options later does not corrupt the cache
+            this.httpOptions = httpOptions.copy();
+        }
 
-        } else {
-            logger.debug("trustStore exists? {}, trustStorePassword is specified? {}",
-                    trustStore != null,
-                    trustStorePassword != null);
-            sslConfigurator = null;
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof ClientCacheKey)) {
+                return false;
+            }
+            final ClientCacheKey other = (ClientCacheKey) obj;
+            // authenticators are compared by identity: each instance owns its own store and settings
+            return authenticator == other.authenticator
+                    && account.equals(other.account)
+                    && httpOptions.equals(other.httpOptions);
         }
 
-        return sslConfigurator;
+        @Override
+        public int hashCode() {
+            return (31 * System.identityHashCode(authenticator) + account.hashCode()) * 31 + httpOptions.hashCode();
+        }
     }
 }
@@ -5,6 +5,8 @@ package com.microsoft.alm.provider;
 
 import com.microsoft.alm.secret.VsoTokenScope;
 
+import java.util.Arrays;
+
 public class Options {
 
     /**
@@ -18,6 +20,8 @@ public class Options {
         this.patGenerationOptions = new Options.PatGenerationOptions();
         this.patGenerationOptions.displayName = displayName;
         this.patGenerationOptions.tokenScope = scope;
+
+        this.httpOptions = new Options.HttpOptions();
     }
 
     public static Options getDefaultOptions() {
@@ -32,4 +36,86 @@ public class Options {
         public String displayName;
         public VsoTokenScope tokenScope;
     }
+
+    public final HttpOptions httpOptions;
+
+    /**
+     * Transport settings for the JAXRS clients created by {@link JaxrsClientProvider}.
+     *
+     * Clients are cached per set of values, so two Options with equal HttpOptions share a client.
+     * Neither Jersey connector speaks HTTP/2; both use HTTP/1.1 with keep-alive.
+     */
+    public static class HttpOptions {
+        /**
+         * Use the Apache HttpClient connector and its connection pool.  When {@code false}, the JDK's
+         * HttpURLConnection is used, whose keep-alive cache is sized by the {@code http.maxConnections}
+         * system property instead of the pool settings below.
+         */
+        public boolean useApacheConnector = true;
+
+        public int maxConnectionsPerRoute = 20;
+        public int maxConnectionsTotal = 100;
+
+        /**
+         * Pooled connections idle for longer than this are closed; 0 keeps them until the server drops them.
+         */
+        public long idleConnectionTimeoutMillis = 60000;
+
+        /**
+         * 0 means wait forever.
+         */
+        public int connectTimeoutMillis = 0;
+        public int readTimeoutMillis = 0;
+
+        /**
+         * Stream request entities with chunked transfer encoding instead of buffering them in memory to
+         * compute a Content-Length.  Off by default, since some proxies and servers reject chunked requests;
+         * turn it on for clients that upload large entities.
+         */
+        public boolean chunkedEntityProcessing = false;
+        public int chunkSizeBytes = 64 * 1024;
+
+        HttpOptions copy() {
+            final HttpOptions copy = new HttpOptions();
+            copy.useApacheConnector = useApacheConnector;
+            copy.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            copy.maxConnectionsTotal = maxConnectionsTotal;
+            copy.idleConnectionTimeoutMillis = idleConnectionTimeoutMillis;
+            copy.connectTimeoutMillis = connectTimeoutMillis;
+            copy.readTimeoutMillis = readTimeoutMillis;
+            copy.chunkedEntityProcessing = chunkedEntityProcessing;
+            copy.chunkSizeBytes = chunkSizeBytes;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof HttpOptions)) {
+                return false;
+            }
+            final HttpOptions other = (HttpOptions) obj;
+            return useApacheConnector == other.useApacheConnector
+                    && maxConnectionsPerRoute == other.maxConnectionsPerRoute
+                    && maxConnectionsTotal == other.maxConnectionsTotal
+                    && idleConnectionTimeoutMillis == other.idleConnectionTimeoutMillis
+                    && connectTimeoutMillis == other.connectTimeoutMillis
+                    && readTimeoutMillis == other.readTimeoutMillis
+                    && chunkedEntityProcessing == other.chunkedEntityProcessing
+                    && chunkSizeBytes == other.chunkSizeBytes;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(new Object[]{
+                    useApacheConnector,
+                    maxConnectionsPerRoute,
+                    maxConnectionsTotal,
+                    idleConnectionTimeoutMillis,
+                    connectTimeoutMillis,
+                    readTimeoutMillis,
+                    chunkedEntityProcessing,
+                    chunkSizeBytes,
+            });
+        }
+    }
 }
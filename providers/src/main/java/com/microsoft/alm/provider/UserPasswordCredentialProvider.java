@@ -13,6 +13,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Provides authentication data in the form of username / password combos
@@ -24,10 +39,30 @@ public class UserPasswordCredentialProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(UserPasswordCredentialProvider.class);
 
+    static final int DEFAULT_PARALLELISM = 8;
+    private static final String GLOBAL_KEY = "";
+
     private Authenticator authenticator;
+    private final Executor executor;
 
+    /**
+     * Resolves the credentials of {@link #getCredentialsFor(Collection)} on a pool of {@value #DEFAULT_PARALLELISM}
+     * daemon threads shared by all the providers created this way.
+     */
     public UserPasswordCredentialProvider(final Authenticator authenticator) {
+        this(authenticator, SharedExecutor.INSTANCE);
+    }
+
+    /**
+     * @param authenticator the authenticator credentials are obtained from.
+     * @param executor      runs the concurrent part of {@link #getCredentialsFor(Collection, PromptBehavior, Options, int)};
+     *                      it is not shut down by this provider.
+     */
+    public UserPasswordCredentialProvider(final Authenticator authenticator, final Executor executor) {
+        Debug.Assert(executor != null, "executor cannot be null");
+
         this.authenticator = authenticator;
+        this.executor = executor;
     }
 
     /**
@@ -174,8 +209,144 @@ public class UserPasswordCredentialProvider {
         return createCreds(username, password);
     }
 
+    /**
+     * Get credentials for many account uris at once with {@link PromptBehavior} AUTO and default {@link Options}.
+     *
+     * @param uris
+     *      account uris
+     *
+     * @return a map from every uri in {@code uris} to its credential, or to {@code null} when authentication failed.
+     */
+    public Map<URI, Credential> getCredentialsFor(final Collection<URI> uris) {
+        return getCredentialsFor(uris, PromptBehavior.AUTO, Options.getDefaultOptions(), DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Get credentials for many account uris at once.
+     *
+     * Uris that map to the same secret store key share a credential, so each distinct key is resolved only once,
+     * and up to {@code parallelism} keys are resolved concurrently.  Keys that cannot be resolved silently are then
+     * retried one at a time with the specified {@link PromptBehavior}, so the user is never shown several prompts at
+     * once.  With {@link PromptBehavior#ALWAYS}, every key is prompted for, one at a time.
+     *
+     * @param uris
+     *      account uris
+     * @param promptBehavior
+     *      dictates we allow prompting the user or not.  In case of VstsPatAuthenticator, prompting also means generate
+     *      a new PAT.
+     * @param options
+     *      options specified by users.
+     * @param parallelism
+     *      maximum number of keys resolved concurrently; the executor given to the constructor may allow fewer.
+     *
+     * @return a map from every uri in {@code uris} to its credential, or to {@code null} when authentication failed.
+     */
+    public Map<URI, Credential> getCredentialsFor(final Collection<URI> uris, final PromptBehavior promptBehavior,
+                                                  final Options options, final int parallelism) {
+        Debug.Assert(uris != null, "uris cannot be null");
+        Debug.Assert(promptBehavior != null, "promptBehavior cannot be null");
+        Debug.Assert(options != null, "options cannot be null");
+        Debug.Assert(parallelism > 0, "parallelism must be positive");
+
+        // the first uri of every key stands for all the others
+        final Map<String, URI> representatives = new LinkedHashMap<String, URI>();
+        final Map<URI, String> keys = new LinkedHashMap<URI, String>();
+        for (final URI uri : uris) {
+            Debug.Assert(uri != null, "uri cannot be null");
+            final String key = getStoreKey(uri);
+            keys.put(uri, key);
+            if (!representatives.containsKey(key)) {
+                representatives.put(key, uri);
+            }
+        }
+        logger.info("Getting credentials for {} uris, {} distinct keys.", keys.size(), representatives.size());
+
+        final Map<String, Credential> credentials = new HashMap<String, Credential>();
+        if (promptBehavior != PromptBehavior.ALWAYS) {
+            credentials.putAll(resolveConcurrently(representatives, options, parallelism));
+        }
+        if (promptBehavior != PromptBehavior.NEVER) {
+            for (final Map.Entry<String, URI> entry : representatives.entrySet()) {
+                if (credentials.get(entry.getKey()) == null) {
+                    credentials.put(entry.getKey(), getCredentialFor(entry.getValue(), promptBehavior, options));
+                }
+            }
+        }
+
+        final Map<URI, Credential> result = new LinkedHashMap<URI, Credential>();
+        for (final Map.Entry<URI, String> entry : keys.entrySet()) {
+            result.put(entry.getKey(), credentials.get(entry.getValue()));
+        }
+        return result;
+    }
+
+    private String getStoreKey(final URI uri) {
+        // OAuth2 credentials are global, see getCredentialFor
+        if (!authenticator.isCredentialSupported() && authenticator.isOAuth2TokenSupported()) {
+            return GLOBAL_KEY;
+        }
+        return authenticator.getUriToKeyConversion().convert(uri, authenticator.getAuthType());
+    }
+
+    private Map<String, Credential> resolveConcurrently(final Map<String, URI> representatives, final Options options,
+                                                       final int parallelism) {
+        final Map<String, Credential> credentials = Collections.synchronizedMap(new HashMap<String, Credential>());
+        if (representatives.isEmpty()) {
+            return credentials;
+        }
+
+        // no more than parallelism workers take keys off the queue, however many threads the executor has
+        final Queue<Map.Entry<String, URI>> pending =
+                new ConcurrentLinkedQueue<Map.Entry<String, URI>>(representatives.entrySet());
+        final Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                Map.Entry<String, URI> entry;
+                while ((entry = pending.poll()) != null) {
+                    Credential credential = null;
+                    try {
+                        credential = getCredentialFor(entry.getValue(), PromptBehavior.NEVER, options);
+                    } catch (final RuntimeException e) {
+                        logger.warn("Failed to get credential for {}.", entry.getValue(), e);
+                    }
+                    credentials.put(entry.getKey(), credential);
+                }
+            }
+        };
+        final List<CompletableFuture<Void>> workers = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < Math.min(parallelism, representatives.size()); i++) {
+            workers.add(CompletableFuture.runAsync(worker, executor));
+        }
+        for (final CompletableFuture<Void> future : workers) {
+            try {
+                future.get();
+            } catch (final ExecutionException e) {
+                // the keys that worker was resolving are left without a credential
+                logger.warn("Failed to get credentials.", e.getCause());
+            } catch (final InterruptedException e) {
+                pending.clear();
+                Thread.currentThread().interrupt();
+                throw new Error(e);
+            }
+        }
+        return credentials;
+    }
+
     private Credential createCreds(final String username, final String password) {
         logger.info("Username exist? {}, password exists? {}", username != null, password != null);
         return (username != null && password != null) ? new Credential(username, password) : null;
     }
+
+    private static final class SharedExecutor {
+        static final Executor INSTANCE = Executors.newFixedThreadPool(DEFAULT_PARALLELISM, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "credential-resolver-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
 }
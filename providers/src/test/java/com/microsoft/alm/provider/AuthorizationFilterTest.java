@@ -0,0 +1,162 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.provider;
+
+import com.microsoft.alm.auth.PromptBehavior;
+import com.microsoft.alm.helpers.Func;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class to test the 401 replay of {@link AuthorizationFilter} against a local server.
+ */
+public class AuthorizationFilterTest {
+
+    private static final String STALE = "Bearer stale";
+    private static final String FRESH = "Bearer fresh";
+
+    private HttpServer server;
+    private URI uri;
+    private final List<String> receivedAuthorizations = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> receivedBodies = Collections.synchronizedList(new ArrayList<String>());
+    private volatile String acceptedAuthorization = FRESH;
+    private Client client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                receivedAuthorizations.add(authorization);
+                receivedBodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                final int status = acceptedAuthorization.equals(authorization) ? 200 : 401;
+                final byte[] body = (status == 200 ? "ok" : "unauthorized").getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, body.length);
+                final OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+        });
+        server.start();
+        uri = URI.create("http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort() + "/_apis/projects");
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        server.stop(0);
+    }
+
+    private Client createClient(final String... renewals) {
+        return createClient(ClientBuilder.newClient(), renewals);
+    }
+
+    private Client createClient(final Client unauthenticated, final String... renewals) {
+        final List<String> queue = new ArrayList<String>();
+        Collections.addAll(queue, renewals);
+        final Func<PromptBehavior, String> resolver = new Func<PromptBehavior, String>() {
+            @Override
+            public String call(final PromptBehavior behavior) {
+                return queue.isEmpty() ? null : queue.remove(0);
+            }
+        };
+        client = unauthenticated.register(new AuthorizationFilter(resolver, STALE, PromptBehavior.AUTO));
+        return client;
+    }
+
+    @Test
+    public void get_replaysOnceWithARenewedSecret() {
+        final Response response = createClient(FRESH).target(uri).request().get();
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals("ok", response.readEntity(String.class));
+        Assert.assertEquals(2, receivedAuthorizations.size());
+        Assert.assertEquals(STALE, receivedAuthorizations.get(0));
+        Assert.assertEquals(FRESH, receivedAuthorizations.get(1));
+    }
+
+    @Test
+    public void post_replaysTheBody() {
+        final Response response = createClient(FRESH).target(uri).request()
+                .post(Entity.entity("{\"name\":\"project\"}", MediaType.APPLICATION_JSON_TYPE));
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals(2, receivedBodies.size());
+        Assert.assertEquals("{\"name\":\"project\"}", receivedBodies.get(1));
+    }
+
+    @Test
+    public void laterRequestsUseTheRenewedSecret() {
+        final Client authorized = createClient(FRESH);
+        authorized.target(uri).request().get().close();
+
+        final Response response = authorized.target(uri).request().get();
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals(3, receivedAuthorizations.size());
+        Assert.assertEquals(FRESH, receivedAuthorizations.get(2));
+    }
+
+    @Test
+    public void get_returnsThe401WhenNoNewSecretIsAvailable() {
+        final Response response = createClient(STALE).target(uri).request().get();
+
+        Assert.assertEquals(401, response.getStatus());
+        Assert.assertEquals(1, receivedAuthorizations.size());
+    }
+
+    @Test
+    public void get_replaysOnlyOnce() {
+        acceptedAuthorization = "Bearer never";
+
+        final Response response = createClient(FRESH, "Bearer newer").target(uri).request().get();
+
+        Assert.assertEquals(401, response.getStatus());
+        Assert.assertEquals(2, receivedAuthorizations.size());
+    }
+
+    @Test(timeout = 20000)
+    public void get_replaysWithASingleConnectionPerRoute() {
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(1);
+        connectionManager.setDefaultMaxPerRoute(1);
+        final ClientConfig clientConfig = new ClientConfig();
+        clientConfig.connectorProvider(new ApacheConnectorProvider());
+        clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
+
+        final Response response = createClient(ClientBuilder.newClient(clientConfig), FRESH).target(uri).request().get();
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals("ok", response.readEntity(String.class));
+        Assert.assertEquals(2, receivedAuthorizations.size());
+    }
+}
@@ -0,0 +1,126 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.provider;
+
+import com.microsoft.alm.auth.Authenticator;
+import com.microsoft.alm.auth.PromptBehavior;
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.Secret;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.RequestEntityProcessing;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.client.Client;
+import java.net.URI;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A class to test the client cache of {@link JaxrsClientProvider}.
+ */
+public class JaxrsClientProviderTest {
+
+    private static final URI ACCOUNT = URI.create("https://account.visualstudio.com/");
+
+    private Authenticator authenticator;
+    private JaxrsClientProvider underTest;
+
+    @Before
+    public void setUp() {
+        authenticator = mock(Authenticator.class);
+        when(authenticator.getAuthType()).thenReturn("basic");
+        when(authenticator.getUriToKeyConversion()).thenReturn(Secret.DefaultUriNameConversion);
+        when(authenticator.isCredentialSupported()).thenReturn(true);
+        when(authenticator.getCredential(any(URI.class), any(PromptBehavior.class))).thenReturn(new Credential("user", "secret"));
+        underTest = new JaxrsClientProvider(authenticator);
+    }
+
+    @After
+    public void tearDown() {
+        underTest.evictCachedClients();
+    }
+
+    @Test
+    public void getClientFor_reusesTheCachedClient() {
+        final Client first = underTest.getClientFor(ACCOUNT);
+        final Client second = underTest.getClientFor(ACCOUNT);
+
+        Assert.assertNotNull(first);
+        Assert.assertSame(first, second);
+    }
+
+    @Test
+    public void getClientFor_buffersRequestEntitiesUnlessAskedToChunk() {
+        final Client buffered = underTest.getClientFor(ACCOUNT);
+        final Options chunkedOptions = Options.getDefaultOptions();
+        chunkedOptions.httpOptions.chunkedEntityProcessing = true;
+
+        final Client chunked = underTest.getClientFor(ACCOUNT, PromptBehavior.AUTO, chunkedOptions);
+
+        Assert.assertEquals(RequestEntityProcessing.BUFFERED,
+                buffered.getConfiguration().getProperty(ClientProperties.REQUEST_ENTITY_PROCESSING));
+        Assert.assertEquals(RequestEntityProcessing.CHUNKED,
+                chunked.getConfiguration().getProperty(ClientProperties.REQUEST_ENTITY_PROCESSING));
+    }
+
+    @Test
+    public void getClientFor_alwaysReplacesTheCachedClientWithoutClosingIt() {
+        final Client first = underTest.getClientFor(ACCOUNT);
+
+        final Client second = underTest.getClientFor(ACCOUNT, PromptBehavior.ALWAYS, Options.getDefaultOptions());
+
+        Assert.assertNotSame(first, second);
+        Assert.assertFalse(isClosed(first));
+        Assert.assertFalse(isClosed(second));
+        Assert.assertSame(second, underTest.getClientFor(ACCOUNT));
+    }
+
+    @Test
+    public void evictCachedClients_forgetsOnlyThisAuthenticatorsClients() {
+        final JaxrsClientProvider other = new JaxrsClientProvider(authenticator);
+        final Client client = underTest.getClientFor(ACCOUNT);
+        final Authenticator otherAuthenticator = mock(Authenticator.class);
+        when(otherAuthenticator.getAuthType()).thenReturn("basic");
+        when(otherAuthenticator.getUriToKeyConversion()).thenReturn(Secret.DefaultUriNameConversion);
+        when(otherAuthenticator.isCredentialSupported()).thenReturn(true);
+        when(otherAuthenticator.getCredential(any(URI.class), any(PromptBehavior.class))).thenReturn(new Credential("other", "secret"));
+        final JaxrsClientProvider unrelated = new JaxrsClientProvider(otherAuthenticator);
+        final Client unrelatedClient = unrelated.getClientFor(ACCOUNT);
+
+        other.evictCachedClients();
+
+        Assert.assertFalse(isClosed(client));
+        Assert.assertNotSame(client, underTest.getClientFor(ACCOUNT));
+        Assert.assertSame(unrelatedClient, unrelated.getClientFor(ACCOUNT));
+        unrelated.evictCachedClients();
+    }
+
+    @Test
+    public void cacheIsBoundedAndDropsTheLeastRecentlyUsedClient() {
+        final Client first = underTest.getClientFor(URI.create("https://account0.visualstudio.com/"));
+        for (int i = 1; i <= JaxrsClientProvider.MAX_CACHED_CLIENTS; i++) {
+            underTest.getClientFor(URI.create("https://account" + i + ".visualstudio.com/"));
+        }
+
+        Assert.assertEquals(JaxrsClientProvider.MAX_CACHED_CLIENTS, JaxrsClientProvider.getCachedClientCount());
+        // dropped, but possibly still in use
+        Assert.assertFalse(isClosed(first));
+        Assert.assertNotSame(first, underTest.getClientFor(URI.create("https://account0.visualstudio.com/")));
+    }
+
+    private static boolean isClosed(final Client client) {
+        try {
+            client.target(ACCOUNT);
+            return false;
+        }
+        catch (final IllegalStateException e) {
+            return true;
+        }
+    }
+}
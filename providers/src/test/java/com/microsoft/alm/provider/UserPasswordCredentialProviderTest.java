@@ -0,0 +1,167 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.provider;
+
+import com.microsoft.alm.auth.Authenticator;
+import com.microsoft.alm.auth.PromptBehavior;
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.Secret;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A class to test {@link UserPasswordCredentialProvider#getCredentialsFor}.
+ */
+public class UserPasswordCredentialProviderTest {
+
+    private static final URI REPO_A1 = URI.create("https://tfs-a.example.com/tfs/DefaultCollection/_git/one");
+    private static final URI REPO_A2 = URI.create("https://tfs-a.example.com/tfs/DefaultCollection/_git/two");
+    private static final URI REPO_B = URI.create("https://tfs-b.example.com/tfs/DefaultCollection/_git/one");
+    private static final URI REPO_C = URI.create("https://tfs-c.example.com/tfs/DefaultCollection/_git/one");
+
+    private static final Credential CREDENTIAL_A = new Credential("a", "secret-a");
+    private static final Credential CREDENTIAL_B = new Credential("b", "secret-b");
+    private static final Credential CREDENTIAL_C = new Credential("c", "secret-c");
+
+    /**
+     * Runs every task on the calling thread, counting them.
+     */
+    static class CountingExecutor implements Executor {
+        final AtomicInteger executions = new AtomicInteger();
+
+        @Override
+        public void execute(final Runnable command) {
+            executions.incrementAndGet();
+            command.run();
+        }
+    }
+
+    private Authenticator authenticator;
+    private CountingExecutor executor;
+    private UserPasswordCredentialProvider underTest;
+
+    @Before
+    public void setUp() {
+        authenticator = mock(Authenticator.class);
+        when(authenticator.getAuthType()).thenReturn("basic");
+        when(authenticator.getUriToKeyConversion()).thenReturn(Secret.DefaultUriNameConversion);
+        when(authenticator.isCredentialSupported()).thenReturn(true);
+        executor = new CountingExecutor();
+        underTest = new UserPasswordCredentialProvider(authenticator, executor);
+    }
+
+    @Test
+    public void getCredentialsFor_resolvesEachKeyOnce() {
+        when(authenticator.getCredential(REPO_A1, PromptBehavior.NEVER)).thenReturn(CREDENTIAL_A);
+        when(authenticator.getCredential(REPO_B, PromptBehavior.NEVER)).thenReturn(CREDENTIAL_B);
+
+        final Map<URI, Credential> actual = underTest.getCredentialsFor(Arrays.asList(REPO_A1, REPO_B, REPO_A2),
+                PromptBehavior.NEVER, Options.getDefaultOptions(), 4);
+
+        Assert.assertEquals(CREDENTIAL_A, actual.get(REPO_A1));
+        Assert.assertEquals(CREDENTIAL_A, actual.get(REPO_A2));
+        Assert.assertEquals(CREDENTIAL_B, actual.get(REPO_B));
+        verify(authenticator, times(1)).getCredential(REPO_A1, PromptBehavior.NEVER);
+        verify(authenticator, never()).getCredential(eq(REPO_A2), any(PromptBehavior.class));
+        verify(authenticator, times(1)).getCredential(REPO_B, PromptBehavior.NEVER);
+    }
+
+    @Test
+    public void getCredentialsFor_promptsOnlyForKeysNotResolvedSilently() {
+        when(authenticator.getCredential(REPO_A1, PromptBehavior.NEVER)).thenReturn(CREDENTIAL_A);
+        when(authenticator.getCredential(REPO_B, PromptBehavior.NEVER)).thenReturn(null);
+        when(authenticator.getCredential(REPO_B, PromptBehavior.AUTO)).thenReturn(CREDENTIAL_B);
+
+        final Map<URI, Credential> actual = underTest.getCredentialsFor(Arrays.asList(REPO_A1, REPO_B, REPO_A2));
+
+        Assert.assertEquals(CREDENTIAL_A, actual.get(REPO_A2));
+        Assert.assertEquals(CREDENTIAL_B, actual.get(REPO_B));
+        verify(authenticator, never()).getCredential(REPO_A1, PromptBehavior.AUTO);
+        verify(authenticator, times(1)).getCredential(REPO_B, PromptBehavior.AUTO);
+    }
+
+    @Test
+    public void getCredentialsFor_alwaysPromptsForEveryKey() {
+        when(authenticator.getCredential(REPO_A1, PromptBehavior.ALWAYS)).thenReturn(CREDENTIAL_A);
+        when(authenticator.getCredential(REPO_B, PromptBehavior.ALWAYS)).thenReturn(CREDENTIAL_B);
+
+        final Map<URI, Credential> actual = underTest.getCredentialsFor(Arrays.asList(REPO_A1, REPO_A2, REPO_B),
+                PromptBehavior.ALWAYS, Options.getDefaultOptions(), 4);
+
+        Assert.assertEquals(CREDENTIAL_A, actual.get(REPO_A2));
+        Assert.assertEquals(CREDENTIAL_B, actual.get(REPO_B));
+        verify(authenticator, never()).getCredential(any(URI.class), eq(PromptBehavior.NEVER));
+        Assert.assertEquals(0, executor.executions.get());
+    }
+
+    @Test
+    public void getCredentialsFor_oneFailureDoesNotSpoilTheOthers() {
+        when(authenticator.getCredential(REPO_A1, PromptBehavior.NEVER)).thenReturn(CREDENTIAL_A);
+        when(authenticator.getCredential(REPO_B, PromptBehavior.NEVER)).thenThrow(new IllegalStateException("store is locked"));
+        when(authenticator.getCredential(REPO_C, PromptBehavior.NEVER)).thenReturn(CREDENTIAL_C);
+
+        final Map<URI, Credential> actual = underTest.getCredentialsFor(Arrays.asList(REPO_A1, REPO_B, REPO_C),
+                PromptBehavior.NEVER, Options.getDefaultOptions(), 1);
+
+        Assert.assertEquals(CREDENTIAL_A, actual.get(REPO_A1));
+        Assert.assertTrue(actual.containsKey(REPO_B));
+        Assert.assertNull(actual.get(REPO_B));
+        Assert.assertEquals(CREDENTIAL_C, actual.get(REPO_C));
+    }
+
+    @Test
+    public void getCredentialsFor_mapsEveryUriInOrder() {
+        when(authenticator.getCredential(REPO_C, PromptBehavior.NEVER)).thenReturn(CREDENTIAL_C);
+        final List<URI> uris = Arrays.asList(REPO_C, REPO_A2, REPO_B, REPO_A1);
+
+        final Map<URI, Credential> actual = underTest.getCredentialsFor(uris, PromptBehavior.NEVER, Options.getDefaultOptions(), 4);
+
+        Assert.assertEquals(uris, Arrays.asList(actual.keySet().toArray()));
+        Assert.assertEquals(CREDENTIAL_C, actual.get(REPO_C));
+        Assert.assertNull(actual.get(REPO_A1));
+        Assert.assertNull(actual.get(REPO_A2));
+        Assert.assertNull(actual.get(REPO_B));
+    }
+
+    @Test
+    public void getCredentialsFor_startsNoMoreWorkersThanTheParallelism() {
+        final Map<URI, Credential> actual = underTest.getCredentialsFor(Arrays.asList(REPO_A1, REPO_B, REPO_C),
+                PromptBehavior.NEVER, Options.getDefaultOptions(), 2);
+
+        Assert.assertEquals(3, actual.size());
+        Assert.assertEquals(2, executor.executions.get());
+        verify(authenticator, times(3)).getCredential(any(URI.class), eq(PromptBehavior.NEVER));
+    }
+
+    @Test
+    public void getCredentialsFor_sharedExecutor() {
+        when(authenticator.getCredential(REPO_A1, PromptBehavior.NEVER)).thenReturn(CREDENTIAL_A);
+        when(authenticator.getCredential(REPO_B, PromptBehavior.NEVER)).thenReturn(CREDENTIAL_B);
+        final UserPasswordCredentialProvider provider = new UserPasswordCredentialProvider(authenticator);
+
+        for (int i = 0; i < 3; i++) {
+            final Map<URI, Credential> actual = provider.getCredentialsFor(Arrays.asList(REPO_A1, REPO_B),
+                    PromptBehavior.NEVER, Options.getDefaultOptions(), 8);
+
+            Assert.assertEquals(CREDENTIAL_A, actual.get(REPO_A1));
+            Assert.assertEquals(CREDENTIAL_B, actual.get(REPO_B));
+        }
+    }
+}
@@ -0,0 +1,226 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.sample.daemon;
+
+import com.microsoft.alm.auth.Authenticator;
+import com.microsoft.alm.auth.basic.BasicAuthAuthenticator;
+import com.microsoft.alm.auth.basic.CredentialPrompt;
+import com.microsoft.alm.auth.basic.DefaultCredentialPrompt;
+import com.microsoft.alm.auth.pat.VstsPatAuthenticator;
+import com.microsoft.alm.provider.UserPasswordCredentialProvider;
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.storage.BoundedInMemoryStore;
+import com.microsoft.alm.storage.StorageProvider;
+import com.microsoft.alm.storage.StorageProvider.SecureOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A long running git credential helper.
+ *
+ * Started once, it keeps the authenticator, the secret stores and a bounded cache of recently returned credentials
+ * in memory and answers {@link CredentialDaemonClient} over a loopback socket, so a credential request no longer
+ * pays for JVM start up, class loading, keyring probing or token validation.
+ *
+ * Usage: {@code CredentialDaemon [oauthClientId oauthRedirectUrl]}.  Without arguments, basic auth credentials
+ * are used; with them, Personal Access Tokens.
+ */
+public class CredentialDaemon {
+
+    private static final Logger logger = LoggerFactory.getLogger(CredentialDaemon.class);
+
+    private static final int HANDLER_THREADS = 4;
+    private static final int SOCKET_TIMEOUT_MILLISECONDS = 10000;
+    private static final int MAX_CACHED_CREDENTIALS = 256;
+    private static final long MAX_CACHED_BYTES = 1024 * 1024;
+    private static final long CACHE_TTL_MILLISECONDS = TimeUnit.MINUTES.toMillis(10);
+
+    private final Authenticator authenticator;
+    private final UserPasswordCredentialProvider provider;
+    private final BoundedInMemoryStore<Credential> cache =
+            new BoundedInMemoryStore<Credential>(MAX_CACHED_CREDENTIALS, MAX_CACHED_BYTES, CACHE_TTL_MILLISECONDS);
+    private final String token;
+
+    public CredentialDaemon(final Authenticator authenticator) {
+        this(authenticator, createToken());
+    }
+
+    CredentialDaemon(final Authenticator authenticator, final String token) {
+        this.authenticator = authenticator;
+        this.provider = new UserPasswordCredentialProvider(authenticator);
+        this.token = token;
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final Authenticator authenticator;
+        if (args.length >= 2) {
+            authenticator = new VstsPatAuthenticator(args[0], args[1],
+                    StorageProvider.getTokenPairStorage(true, SecureOption.PREFER),
+                    StorageProvider.getTokenStorage(true, SecureOption.PREFER));
+        }
+        else {
+            authenticator = new BasicAuthAuthenticator(
+                    StorageProvider.getCredentialStorage(true, SecureOption.PREFER),
+                    new CredentialPrompt() {
+                        private DefaultCredentialPrompt prompt;
+
+                        // the dialog is only built when a prompt is needed, so the daemon can start headless
+                        @Override
+                        public synchronized Credential prompt(final URI target) {
+                            if (prompt == null) {
+                                prompt = new DefaultCredentialPrompt();
+                            }
+                            return prompt.prompt(target);
+                        }
+                    });
+        }
+        new CredentialDaemon(authenticator).serve();
+    }
+
+    /**
+     * Listens on an ephemeral loopback port, publishes it in {@link DaemonProtocol#DISCOVERY_FILE} and serves
+     * requests until the process is stopped.
+     */
+    public void serve() throws IOException {
+        final ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        publish(serverSocket.getLocalPort());
+        logger.info("Credential daemon listening on port {}.", serverSocket.getLocalPort());
+
+        final ExecutorService handlers = Executors.newFixedThreadPool(HANDLER_THREADS);
+        try {
+            while (true) {
+                final Socket socket = serverSocket.accept();
+                handlers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        handle(socket);
+                    }
+                });
+            }
+        } finally {
+            handlers.shutdownNow();
+            serverSocket.close();
+            DaemonProtocol.DISCOVERY_FILE.delete();
+        }
+    }
+
+    void handle(final Socket socket) {
+        try {
+            socket.setSoTimeout(SOCKET_TIMEOUT_MILLISECONDS);
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), DaemonProtocol.UTF8));
+            final Writer writer = new OutputStreamWriter(socket.getOutputStream(), DaemonProtocol.UTF8);
+
+            final Map<String, String> request = DaemonProtocol.readBlock(reader);
+            if (request == null || !isAuthorized(request.get(DaemonProtocol.TOKEN))) {
+                logger.warn("Rejected a request without a valid token.");
+                return;
+            }
+            DaemonProtocol.writeBlock(writer, respond(request));
+        } catch (final IOException e) {
+            logger.warn("Failed to serve a credential request.", e);
+        } finally {
+            try {
+                socket.close();
+            } catch (final IOException ignored) {
+                // nothing left to do with this connection
+            }
+        }
+    }
+
+    Map<String, String> respond(final Map<String, String> request) {
+        final Map<String, String> response = new LinkedHashMap<String, String>();
+        final URI uri = DaemonProtocol.toUri(request);
+        if (uri == null) {
+            return response;
+        }
+        final String key = authenticator.getUriToKeyConversion().convert(uri, authenticator.getAuthType());
+        final String action = request.get(DaemonProtocol.ACTION);
+
+        if (DaemonProtocol.GET.equals(action)) {
+            final Credential credential = getCredential(key, uri);
+            if (credential != null) {
+                response.put(DaemonProtocol.USERNAME, credential.Username);
+                response.put(DaemonProtocol.PASSWORD, credential.Password);
+            }
+        }
+        else if (DaemonProtocol.ERASE.equals(action)) {
+            // git rejected the credential
+            cache.delete(key);
+            authenticator.signOut(uri);
+        }
+        // "store" needs no work: the authenticator already saved what it handed out
+        return response;
+    }
+
+    private Credential getCredential(final String key, final URI uri) {
+        final Credential cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final Credential credential = provider.getCredentialFor(uri);
+        if (credential != null) {
+            cache.add(key, credential);
+        }
+        return credential;
+    }
+
+    private boolean isAuthorized(final String presented) {
+        return presented != null && MessageDigest.isEqual(token.getBytes(DaemonProtocol.UTF8), presented.getBytes(DaemonProtocol.UTF8));
+    }
+
+    private void publish(final int port) throws IOException {
+        final File file = DaemonProtocol.DISCOVERY_FILE;
+        // create the file empty and private before the token is written to it
+        file.delete();
+        if (!file.createNewFile()) {
+            throw new IOException("Could not create " + file);
+        }
+        try {
+            Files.setPosixFilePermissions(file.toPath(), EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE));
+        } catch (final UnsupportedOperationException e) {
+            // not a POSIX file system, e.g. Windows, where the user profile is private already
+            file.setReadable(false, false);
+            file.setReadable(true, true);
+        }
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), DaemonProtocol.UTF8);
+        try {
+            writer.write(port + "\n" + token + "\n");
+        } finally {
+            writer.close();
+        }
+        file.deleteOnExit();
+    }
+
+    private static String createToken() {
+        final byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
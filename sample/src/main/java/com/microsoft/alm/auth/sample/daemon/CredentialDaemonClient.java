@@ -0,0 +1,90 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.sample.daemon;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A git credential helper that forwards to a running {@link CredentialDaemon}.
+ *
+ * Configure it with {@code git config credential.helper "!java -cp <classpath>
+ * com.microsoft.alm.auth.sample.daemon.CredentialDaemonClient"}.  It loads none of the authentication
+ * classes, so it spends its time starting the JVM and nothing else.  If no daemon is running it answers
+ * nothing, and git falls back to its other helpers or prompts.
+ */
+public class CredentialDaemonClient {
+
+    private static final int SOCKET_TIMEOUT_MILLISECONDS = 5 * 60 * 1000;
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CredentialDaemonClient get|store|erase");
+            System.exit(1);
+        }
+
+        final BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in, DaemonProtocol.UTF8));
+        final Map<String, String> attributes = DaemonProtocol.readBlock(stdin);
+
+        if (!DaemonProtocol.DISCOVERY_FILE.isFile()) {
+            return;
+        }
+        final int port;
+        final String token;
+        final BufferedReader discovery = new BufferedReader(new InputStreamReader(new FileInputStream(DaemonProtocol.DISCOVERY_FILE), DaemonProtocol.UTF8));
+        try {
+            port = Integer.parseInt(discovery.readLine());
+            token = discovery.readLine();
+        } finally {
+            discovery.close();
+        }
+
+        final Map<String, String> request = createRequest(attributes, token, args[0]);
+
+        final Socket socket;
+        try {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        } catch (final IOException e) {
+            // a stale discovery file left behind by a daemon that was killed
+            return;
+        }
+        try {
+            // the daemon may have to prompt the user, so allow for a slow answer
+            socket.setSoTimeout(SOCKET_TIMEOUT_MILLISECONDS);
+            DaemonProtocol.writeBlock(new OutputStreamWriter(socket.getOutputStream(), DaemonProtocol.UTF8), request);
+            final Map<String, String> response = DaemonProtocol.readBlock(
+                    new BufferedReader(new InputStreamReader(socket.getInputStream(), DaemonProtocol.UTF8)));
+            if (response != null && !response.isEmpty()) {
+                final Writer stdout = new OutputStreamWriter(System.out, DaemonProtocol.UTF8);
+                DaemonProtocol.writeBlock(stdout, response);
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * @param attributes what git passed in on stdin, or {@code null}
+     */
+    static Map<String, String> createRequest(final Map<String, String> attributes, final String token, final String action) {
+        final Map<String, String> request = new LinkedHashMap<String, String>();
+        if (attributes != null) {
+            request.putAll(attributes);
+        }
+        // set last, and never from stdin, so that git's attributes cannot change the action or the token
+        request.remove(DaemonProtocol.TOKEN);
+        request.remove(DaemonProtocol.ACTION);
+        request.put(DaemonProtocol.TOKEN, token);
+        request.put(DaemonProtocol.ACTION, action);
+        return request;
+    }
+}
@@ -0,0 +1,95 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.sample.daemon;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The wire format shared by {@link CredentialDaemon} and {@link CredentialDaemonClient}.
+ *
+ * A request and a response are each a block of {@code key=value} lines ended by an empty line, the same
+ * format git uses to talk to credential helpers.  A request starts with the {@code token} read from the
+ * discovery file and the {@code action} (get, store or erase), followed by the attributes git passed in.
+ */
+final class DaemonProtocol {
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final String TOKEN = "token";
+    static final String ACTION = "action";
+    static final String PROTOCOL = "protocol";
+    static final String HOST = "host";
+    static final String PATH = "path";
+    static final String USERNAME = "username";
+    static final String PASSWORD = "password";
+
+    static final String GET = "get";
+    static final String STORE = "store";
+    static final String ERASE = "erase";
+
+    /**
+     * Where a running daemon publishes its port and token.  Only the current user can read it, which is what
+     * stops other local users from asking the daemon for credentials.
+     */
+    static final File DISCOVERY_FILE = new File(System.getProperty("user.home"), ".alm-credential-daemon");
+
+    private DaemonProtocol() {
+    }
+
+    /**
+     * @return the attributes of the next block, or {@code null} if the stream ended before any line was read.
+     */
+    static Map<String, String> readBlock(final BufferedReader reader) throws IOException {
+        final Map<String, String> attributes = new LinkedHashMap<String, String>();
+        String line;
+        boolean any = false;
+        while ((line = reader.readLine()) != null) {
+            any = true;
+            if (line.isEmpty()) {
+                break;
+            }
+            final int equals = line.indexOf('=');
+            if (equals > 0) {
+                attributes.put(line.substring(0, equals), line.substring(equals + 1));
+            }
+        }
+        return any ? attributes : null;
+    }
+
+    static void writeBlock(final Writer writer, final Map<String, String> attributes) throws IOException {
+        for (final Map.Entry<String, String> entry : attributes.entrySet()) {
+            writer.write(entry.getKey());
+            writer.write('=');
+            writer.write(entry.getValue());
+            writer.write('\n');
+        }
+        writer.write('\n');
+        writer.flush();
+    }
+
+    /**
+     * @return the uri git is asking about, or {@code null} if the attributes do not describe one.
+     */
+    static URI toUri(final Map<String, String> attributes) {
+        final String protocol = attributes.get(PROTOCOL);
+        final String host = attributes.get(HOST);
+        if (protocol == null || host == null) {
+            return null;
+        }
+        final String path = attributes.get(PATH);
+        try {
+            return new URI(protocol + "://" + host + "/" + (path == null ? "" : path));
+        } catch (final URISyntaxException e) {
+            return null;
+        }
+    }
+}
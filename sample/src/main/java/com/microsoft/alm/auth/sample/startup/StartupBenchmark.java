@@ -0,0 +1,105 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.sample.startup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Launches {@link StartupProbe} in cold JVMs, with and without a class-data-sharing archive, and reports
+ * the time to first credential.
+ *
+ * Usage: {@code StartupBenchmark <classpath> [archive] [runs]}.  The classpath must list jars only, since
+ * classes loaded from directories are never archived.  The {@code appcds} profile of this module builds the
+ * archive and runs this benchmark.
+ */
+public class StartupBenchmark {
+
+    private static final int DEFAULT_RUNS = 10;
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: StartupBenchmark <classpath> [archive] [runs]");
+            System.exit(1);
+        }
+        final String classpath = args[0];
+        final File archive = args.length > 1 ? new File(args[1]) : null;
+        final int runs = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_RUNS;
+
+        // one throw-away launch so that the OS file cache is equally warm for both configurations
+        launch(classpath, null);
+
+        report("default CDS", measure(classpath, null, runs));
+        if (archive != null && archive.isFile()) {
+            report("AppCDS", measure(classpath, archive, runs));
+        } else {
+            System.out.println("No archive at " + archive + ", skipped the AppCDS runs.");
+        }
+    }
+
+    private static List<long[]> measure(final String classpath, final File archive, final int runs) throws IOException, InterruptedException {
+        final List<long[]> samples = new ArrayList<long[]>(runs);
+        for (int i = 0; i < runs; i++) {
+            samples.add(launch(classpath, archive));
+        }
+        return samples;
+    }
+
+    /**
+     * @return the time to first credential reported by the probe and the wall time of the whole process, in ms.
+     */
+    private static long[] launch(final String classpath, final File archive) throws IOException, InterruptedException {
+        final List<String> command = new ArrayList<String>();
+        command.add(new File(System.getProperty("java.home"), "bin" + File.separator + "java").getPath());
+        if (archive != null) {
+            command.add("-Xshare:auto");
+            command.add("-XX:SharedArchiveFile=" + archive.getPath());
+        }
+        command.addAll(Arrays.asList("-cp", classpath, StartupProbe.class.getName()));
+
+        final long start = System.nanoTime();
+        final Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        long firstCredential = -1;
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(StartupProbe.RESULT_PREFIX)) {
+                    firstCredential = Long.parseLong(line.substring(StartupProbe.RESULT_PREFIX.length()));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        if (process.waitFor() != 0 || firstCredential < 0) {
+            throw new IOException("The probe failed: " + command);
+        }
+        final long wall = (System.nanoTime() - start) / 1000000;
+        return new long[]{firstCredential, wall};
+    }
+
+    private static void report(final String label, final List<long[]> samples) {
+        final List<Long> firstCredential = new ArrayList<Long>();
+        final List<Long> wall = new ArrayList<Long>();
+        for (final long[] sample : samples) {
+            firstCredential.add(sample[0]);
+            wall.add(sample[1]);
+        }
+        System.out.println(String.format("%-12s time to first credential: median %d ms, p90 %d ms; process: median %d ms (%d runs)",
+                label, percentile(firstCredential, 0.5), percentile(firstCredential, 0.9), percentile(wall, 0.5), samples.size()));
+    }
+
+    private static long percentile(final List<Long> values, final double percentile) {
+        final List<Long> sorted = new ArrayList<Long>(values);
+        Collections.sort(sorted);
+        final int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+}
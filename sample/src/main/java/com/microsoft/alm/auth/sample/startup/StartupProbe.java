@@ -0,0 +1,36 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.sample.startup;
+
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.storage.SecretStore;
+import com.microsoft.alm.storage.StorageProvider;
+import com.microsoft.alm.storage.StorageProvider.SecureOption;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Looks up one credential the way a credential helper would and prints how long after JVM launch the answer was
+ * available, as {@code time-to-first-credential-ms=<n>}.
+ *
+ * It is the workload the {@code appcds} profile records its class list from, and the process
+ * {@link StartupBenchmark} launches.
+ */
+public class StartupProbe {
+
+    static final String RESULT_PREFIX = "time-to-first-credential-ms=";
+
+    public static void main(final String[] args) {
+        final String key = args.length > 0 ? args[0] : "startup-probe";
+
+        final SecretStore<Credential> store = StorageProvider.getCredentialStorage(true, SecureOption.PREFER);
+        final Credential credential = store.get(key);
+        final long answeredAt = System.currentTimeMillis();
+
+        // only asked afterwards, so that loading the management classes is not counted
+        final long launchedAt = ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.println(RESULT_PREFIX + (answeredAt - launchedAt));
+        System.err.println("Credential found? " + (credential != null));
+    }
+}
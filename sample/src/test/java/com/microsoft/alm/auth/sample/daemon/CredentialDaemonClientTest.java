@@ -0,0 +1,49 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.sample.daemon;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A class to test the requests built by {@link CredentialDaemonClient}.
+ */
+public class CredentialDaemonClientTest {
+
+    @Test
+    public void createRequest_gitCannotChooseTheTokenOrTheAction() throws IOException {
+        final Map<String, String> attributes = new LinkedHashMap<String, String>();
+        attributes.put(DaemonProtocol.TOKEN, "guessed");
+        attributes.put(DaemonProtocol.ACTION, DaemonProtocol.ERASE);
+        attributes.put(DaemonProtocol.PROTOCOL, "https");
+        attributes.put(DaemonProtocol.HOST, "example.com");
+
+        final Map<String, String> request = CredentialDaemonClient.createRequest(attributes, "secret", DaemonProtocol.GET);
+
+        // what the daemon reads back, where the last line for a key wins
+        final StringWriter writer = new StringWriter();
+        DaemonProtocol.writeBlock(writer, request);
+        final Map<String, String> received = DaemonProtocol.readBlock(new BufferedReader(new StringReader(writer.toString())));
+        Assert.assertEquals("secret", received.get(DaemonProtocol.TOKEN));
+        Assert.assertEquals(DaemonProtocol.GET, received.get(DaemonProtocol.ACTION));
+        Assert.assertEquals("example.com", received.get(DaemonProtocol.HOST));
+        Assert.assertFalse(writer.toString().contains("guessed"));
+    }
+
+    @Test
+    public void createRequest_withoutAttributes() {
+        final Map<String, String> request = CredentialDaemonClient.createRequest(null, "secret", DaemonProtocol.STORE);
+
+        Assert.assertEquals(2, request.size());
+        Assert.assertEquals("secret", request.get(DaemonProtocol.TOKEN));
+        Assert.assertEquals(DaemonProtocol.STORE, request.get(DaemonProtocol.ACTION));
+    }
+}
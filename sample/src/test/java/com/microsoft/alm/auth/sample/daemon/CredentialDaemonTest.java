@@ -0,0 +1,140 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.sample.daemon;
+
+import com.microsoft.alm.auth.Authenticator;
+import com.microsoft.alm.auth.PromptBehavior;
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.Secret;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A class to test {@link CredentialDaemon}.
+ */
+public class CredentialDaemonTest {
+
+    private static final String TOKEN = "0123456789abcdef";
+    private static final URI REPO = URI.create("https://example.com/org/_git/repo");
+    private static final Credential CREDENTIAL = new Credential("user", "secret");
+
+    private Authenticator authenticator;
+    private CredentialDaemon underTest;
+    private ServerSocket serverSocket;
+
+    @Before
+    public void setUp() throws IOException {
+        authenticator = mock(Authenticator.class);
+        when(authenticator.getAuthType()).thenReturn("basic");
+        when(authenticator.getUriToKeyConversion()).thenReturn(Secret.DefaultUriNameConversion);
+        when(authenticator.isCredentialSupported()).thenReturn(true);
+        when(authenticator.getCredential(REPO, PromptBehavior.AUTO)).thenReturn(CREDENTIAL);
+        underTest = new CredentialDaemon(authenticator, TOKEN);
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        serverSocket.close();
+    }
+
+    private static Map<String, String> request(final String action) {
+        final Map<String, String> attributes = new LinkedHashMap<String, String>();
+        attributes.put(DaemonProtocol.PROTOCOL, "https");
+        attributes.put(DaemonProtocol.HOST, "example.com");
+        attributes.put(DaemonProtocol.PATH, "org/_git/repo");
+        return CredentialDaemonClient.createRequest(attributes, TOKEN, action);
+    }
+
+    /**
+     * Sends {@code request} to the daemon over a loopback connection, the way {@link CredentialDaemonClient} does.
+     */
+    private Map<String, String> send(final Map<String, String> request) throws IOException {
+        final Socket client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+        try {
+            DaemonProtocol.writeBlock(new OutputStreamWriter(client.getOutputStream(), DaemonProtocol.UTF8), request);
+            underTest.handle(serverSocket.accept());
+            return DaemonProtocol.readBlock(new BufferedReader(new InputStreamReader(client.getInputStream(), DaemonProtocol.UTF8)));
+        }
+        finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void get_answersWithTheCredential() throws IOException {
+        final Map<String, String> response = send(request(DaemonProtocol.GET));
+
+        Assert.assertEquals("user", response.get(DaemonProtocol.USERNAME));
+        Assert.assertEquals("secret", response.get(DaemonProtocol.PASSWORD));
+    }
+
+    @Test
+    public void get_cachesTheCredential() throws IOException {
+        send(request(DaemonProtocol.GET));
+        final Map<String, String> response = send(request(DaemonProtocol.GET));
+
+        Assert.assertEquals("secret", response.get(DaemonProtocol.PASSWORD));
+        verify(authenticator, times(1)).getCredential(REPO, PromptBehavior.AUTO);
+    }
+
+    @Test
+    public void erase_forgetsTheCredential() throws IOException {
+        send(request(DaemonProtocol.GET));
+
+        final Map<String, String> response = send(request(DaemonProtocol.ERASE));
+        send(request(DaemonProtocol.GET));
+
+        Assert.assertTrue(response.isEmpty());
+        verify(authenticator).signOut(REPO);
+        verify(authenticator, times(2)).getCredential(REPO, PromptBehavior.AUTO);
+    }
+
+    @Test
+    public void requestWithoutTheTokenIsRejected() throws IOException {
+        final Map<String, String> request = request(DaemonProtocol.GET);
+        request.remove(DaemonProtocol.TOKEN);
+
+        Assert.assertNull(send(request));
+        verify(authenticator, never()).getCredential(any(URI.class), any(PromptBehavior.class));
+    }
+
+    @Test
+    public void requestWithAWrongTokenIsRejected() throws IOException {
+        final Map<String, String> request = request(DaemonProtocol.ERASE);
+        request.put(DaemonProtocol.TOKEN, "0123456789abcdeF");
+
+        Assert.assertNull(send(request));
+        verify(authenticator, never()).signOut(any(URI.class));
+    }
+
+    @Test
+    public void requestWithoutAUriGetsAnEmptyAnswer() throws IOException {
+        final Map<String, String> request = request(DaemonProtocol.GET);
+        request.remove(DaemonProtocol.HOST);
+
+        Assert.assertTrue(send(request).isEmpty());
+        verify(authenticator, never()).getCredential(any(URI.class), any(PromptBehavior.class));
+    }
+}
@@ -0,0 +1,85 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.sample.daemon;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A class to test {@link DaemonProtocol}.
+ */
+public class DaemonProtocolTest {
+
+    private static Map<String, String> read(final String input) throws IOException {
+        return DaemonProtocol.readBlock(new BufferedReader(new StringReader(input)));
+    }
+
+    @Test
+    public void readBlock_stopsAtTheEmptyLine() throws IOException {
+        final BufferedReader reader = new BufferedReader(new StringReader(
+                "protocol=https\nhost=example.com\npassword=a=b\n\nhost=next.example.com\n"));
+
+        final Map<String, String> actual = DaemonProtocol.readBlock(reader);
+
+        Assert.assertEquals(3, actual.size());
+        Assert.assertEquals("https", actual.get("protocol"));
+        Assert.assertEquals("example.com", actual.get("host"));
+        Assert.assertEquals("a=b", actual.get("password"));
+        Assert.assertEquals("next.example.com", DaemonProtocol.readBlock(reader).get("host"));
+        Assert.assertNull(DaemonProtocol.readBlock(reader));
+    }
+
+    @Test
+    public void readBlock_skipsMalformedLinesAndLetsTheLastValueWin() throws IOException {
+        final Map<String, String> actual = read("no equals sign\n=nameless\nhost=one\nhost=two\n\n");
+
+        Assert.assertEquals(1, actual.size());
+        Assert.assertEquals("two", actual.get("host"));
+    }
+
+    @Test
+    public void readBlock_endOfStream() throws IOException {
+        Assert.assertNull(read(""));
+        Assert.assertTrue(read("\n").isEmpty());
+        Assert.assertEquals("example.com", read("host=example.com").get("host"));
+    }
+
+    @Test
+    public void writeBlock_roundTrip() throws IOException {
+        final Map<String, String> attributes = new LinkedHashMap<String, String>();
+        attributes.put("username", "user");
+        attributes.put("password", "p=ss wörd");
+        final StringWriter writer = new StringWriter();
+
+        DaemonProtocol.writeBlock(writer, attributes);
+
+        Assert.assertEquals("username=user\npassword=p=ss wörd\n\n", writer.toString());
+        Assert.assertEquals(attributes, read(writer.toString()));
+    }
+
+    @Test
+    public void toUri() {
+        final Map<String, String> attributes = new LinkedHashMap<String, String>();
+        attributes.put(DaemonProtocol.PROTOCOL, "https");
+        attributes.put(DaemonProtocol.HOST, "example.com:8443");
+        Assert.assertEquals(URI.create("https://example.com:8443/"), DaemonProtocol.toUri(attributes));
+
+        attributes.put(DaemonProtocol.PATH, "org/_git/repo");
+        Assert.assertEquals(URI.create("https://example.com:8443/org/_git/repo"), DaemonProtocol.toUri(attributes));
+
+        attributes.put(DaemonProtocol.PATH, "not a path");
+        Assert.assertNull(DaemonProtocol.toUri(attributes));
+
+        attributes.remove(DaemonProtocol.HOST);
+        Assert.assertNull(DaemonProtocol.toUri(attributes));
+    }
+}
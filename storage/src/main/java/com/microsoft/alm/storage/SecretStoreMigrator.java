@@ -0,0 +1,414 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.IOHelper;
+import com.microsoft.alm.secret.Secret;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Copies secrets from one store to another, e.g. from the insecure file store to the GNOME keyring.
+ *
+ * Keys are streamed in batches to a pool of worker threads, with at most two batches per worker in flight.  With a
+ * checkpoint file, every batch appends the keys it has dealt with, and a migration that is run again skips them,
+ * so an interrupted migration resumes where it stopped.  Keys that failed are not checkpointed and are retried.
+ *
+ * {@link #replicate(long)} keeps copying new and changed secrets, and deleting the ones removed from the source,
+ * until it is closed.
+ *
+ * @param <E> a secret
+ */
+public class SecretStoreMigrator<E extends Secret> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecretStoreMigrator.class);
+
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final SecretStore<E> source;
+    private final SecretStore<E> destination;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private File checkpointFile;
+    private boolean overwrite = true;
+
+    public SecretStoreMigrator(final SecretStore<E> source, final SecretStore<E> destination) {
+        Debug.Assert(source != null, "source cannot be null");
+        Debug.Assert(destination != null, "destination cannot be null");
+
+        this.source = source;
+        this.destination = destination;
+    }
+
+    public SecretStoreMigrator<E> withParallelism(final int parallelism) {
+        Debug.Assert(parallelism > 0, "parallelism must be positive");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public SecretStoreMigrator<E> withBatchSize(final int batchSize) {
+        Debug.Assert(batchSize > 0, "batchSize must be positive");
+
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @param checkpointFile where the keys that were dealt with are recorded; created if it does not exist
+     */
+    public SecretStoreMigrator<E> withCheckpoint(final File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+        return this;
+    }
+
+    /**
+     * @param overwrite {@code false} to leave the secrets the destination already has alone; {@code true} by default
+     */
+    public SecretStoreMigrator<E> overwriteExisting(final boolean overwrite) {
+        this.overwrite = overwrite;
+        return this;
+    }
+
+    /**
+     * Copies every secret of the source, which must be able to list its keys.
+     *
+     * @return what happened to the keys
+     * @throws InterruptedException if interrupted while waiting for the workers; the checkpoint is kept
+     */
+    public Result migrate() throws InterruptedException {
+        return migrate(getSourceKeys());
+    }
+
+    /**
+     * Copies the secrets of {@code keys}, e.g. for a source that cannot list its keys.
+     *
+     * @param keys the keys to copy, read as they are needed
+     *
+     * @return what happened to the keys
+     * @throws InterruptedException if interrupted while waiting for the workers; the checkpoint is kept
+     */
+    public Result migrate(final Iterable<String> keys) throws InterruptedException {
+        Debug.Assert(keys != null, "keys cannot be null");
+
+        final Set<String> done = checkpointFile == null ? Collections.<String>emptySet() : readCheckpoint(checkpointFile);
+        final Writer checkpoint = checkpointFile == null ? null : openCheckpoint(checkpointFile);
+        try {
+            return copy(keys, done, checkpoint, null);
+        } finally {
+            IOHelper.closeQuietly(checkpoint);
+        }
+    }
+
+    /**
+     * Starts copying the source to the destination every {@code intervalMillis}, on a daemon thread.  The first pass
+     * copies everything; later passes copy the secrets that are new or changed since the previous pass and delete
+     * the secrets that were removed from the source.  Secrets the destination got from elsewhere are left alone.
+     *
+     * @param intervalMillis the delay between the end of a pass and the start of the next
+     *
+     * @return the running replication, close it to stop
+     */
+    public Replication replicate(final long intervalMillis) {
+        Debug.Assert(intervalMillis > 0, "intervalMillis must be positive");
+        getSourceKeys();
+
+        final Replication replication = new Replication();
+        replication.scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                replication.runPass();
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        return replication;
+    }
+
+    private Set<String> getSourceKeys() {
+        if (!(source instanceof EnumerableSecretStore)) {
+            throw new IllegalStateException("The source store cannot list its keys, pass the keys to migrate.");
+        }
+        return ((EnumerableSecretStore<E>) source).getKeys();
+    }
+
+    private Result copy(final Iterable<String> keys, final Set<String> done, final Writer checkpoint,
+                        final ConcurrentMap<String, E> replicated) throws InterruptedException {
+        final long start = System.currentTimeMillis();
+        final Counters counters = new Counters();
+        final Semaphore inFlight = new Semaphore(2 * parallelism);
+        final ExecutorService workers = Executors.newFixedThreadPool(parallelism, newThreadFactory("secret-migrator-"));
+        try {
+            List<String> batch = new ArrayList<String>(batchSize);
+            for (final String key : keys) {
+                if (done.contains(key)) {
+                    counters.resumed.incrementAndGet();
+                    continue;
+                }
+                batch.add(key);
+                if (batch.size() == batchSize) {
+                    submit(workers, inFlight, batch, checkpoint, replicated, counters);
+                    batch = new ArrayList<String>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(workers, inFlight, batch, checkpoint, replicated, counters);
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            workers.shutdownNow();
+        }
+
+        if (counters.checkpointFailure.get() != null) {
+            throw new Error(counters.checkpointFailure.get());
+        }
+        final Result result = new Result(counters, System.currentTimeMillis() - start);
+        logger.info("Copied secrets: {}", result);
+        return result;
+    }
+
+    private void submit(final ExecutorService workers, final Semaphore inFlight, final List<String> batch,
+                        final Writer checkpoint, final ConcurrentMap<String, E> replicated, final Counters counters)
+            throws InterruptedException {
+        inFlight.acquire();
+        workers.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final List<String> dealtWith = new ArrayList<String>(batch.size());
+                    for (final String key : batch) {
+                        if (copy(key, replicated, counters)) {
+                            dealtWith.add(key);
+                        }
+                    }
+                    if (checkpoint != null) {
+                        appendCheckpoint(checkpoint, dealtWith, counters);
+                    }
+                } finally {
+                    inFlight.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return {@code false} if the key should be tried again
+     */
+    private boolean copy(final String key, final ConcurrentMap<String, E> replicated, final Counters counters) {
+        try {
+            final E secret = source.get(key);
+            if (secret == null
+                    || (replicated != null && secret.equals(replicated.get(key)))
+                    || (!overwrite && destination.get(key) != null)) {
+                counters.skipped.incrementAndGet();
+                return true;
+            }
+            if (destination.add(key, secret)) {
+                if (replicated != null) {
+                    replicated.put(key, secret);
+                }
+                counters.copied.incrementAndGet();
+                return true;
+            }
+            logger.warn("The destination store did not accept the secret for key: {}.", key);
+        } catch (final RuntimeException e) {
+            logger.warn("Failed to copy the secret for key: {}.", key, e);
+        }
+        counters.failedKeys.add(key);
+        return false;
+    }
+
+    private static void appendCheckpoint(final Writer checkpoint, final List<String> keys, final Counters counters) {
+        try {
+            synchronized (checkpoint) {
+                for (final String key : keys) {
+                    checkpoint.write(URLEncoder.encode(key, "UTF-8"));
+                    checkpoint.write('\n');
+                }
+                checkpoint.flush();
+            }
+        } catch (final IOException e) {
+            counters.checkpointFailure.compareAndSet(null, e);
+        }
+    }
+
+    private static Set<String> readCheckpoint(final File checkpointFile) {
+        final Set<String> done = new HashSet<String>();
+        if (!checkpointFile.isFile()) {
+            return done;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(checkpointFile), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    done.add(URLDecoder.decode(line, "UTF-8"));
+                }
+            }
+        } catch (final IOException e) {
+            throw new Error(e);
+        } finally {
+            IOHelper.closeQuietly(reader);
+        }
+        logger.info("Resuming from checkpoint {}, {} keys already done.", checkpointFile, done.size());
+        return done;
+    }
+
+    private static Writer openCheckpoint(final File checkpointFile) {
+        try {
+            return new OutputStreamWriter(new FileOutputStream(checkpointFile, true), StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            throw new Error(e);
+        }
+    }
+
+    private static ThreadFactory newThreadFactory(final String prefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private static final class Counters {
+        private final AtomicInteger copied = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger resumed = new AtomicInteger();
+        private final AtomicInteger deleted = new AtomicInteger();
+        private final ConcurrentLinkedQueue<String> failedKeys = new ConcurrentLinkedQueue<String>();
+        private final AtomicReference<IOException> checkpointFailure = new AtomicReference<IOException>();
+    }
+
+    /**
+     * What a migration, or a replication pass, did.
+     */
+    public static final class Result {
+        /**
+         * Secrets written to the destination.
+         */
+        public final int copied;
+        /**
+         * Keys the source had no secret for, secrets the destination already had and was not to overwrite,
+         * and, when replicating, secrets that had not changed.
+         */
+        public final int skipped;
+        /**
+         * Keys the checkpoint says an earlier run dealt with.
+         */
+        public final int resumed;
+        /**
+         * Secrets deleted from the destination because they were removed from the source, when replicating.
+         */
+        public final int deleted;
+        public final List<String> failedKeys;
+        public final long elapsedMillis;
+
+        Result(final Counters counters, final long elapsedMillis) {
+            this.copied = counters.copied.get();
+            this.skipped = counters.skipped.get();
+            this.resumed = counters.resumed.get();
+            this.deleted = counters.deleted.get();
+            this.failedKeys = Collections.unmodifiableList(new ArrayList<String>(counters.failedKeys));
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("copied=%d, skipped=%d, resumed=%d, deleted=%d, failed=%d in %d ms",
+                    copied, skipped, resumed, deleted, failedKeys.size(), elapsedMillis);
+        }
+    }
+
+    /**
+     * A running one-way replication, see {@link #replicate(long)}.
+     */
+    public final class Replication implements Closeable {
+
+        private final ScheduledExecutorService scheduler
+                = Executors.newSingleThreadScheduledExecutor(newThreadFactory("secret-replicator-"));
+        private final ConcurrentMap<String, E> replicated = new ConcurrentHashMap<String, E>();
+        private final AtomicInteger passes = new AtomicInteger();
+        private volatile Result lastResult;
+
+        private Replication() {
+        }
+
+        /**
+         * @return what the last pass did, {@code null} before the first pass completes
+         */
+        public Result getLastResult() {
+            return lastResult;
+        }
+
+        public int getPasses() {
+            return passes.get();
+        }
+
+        @Override
+        public void close() {
+            scheduler.shutdownNow();
+        }
+
+        private void runPass() {
+            try {
+                final Set<String> keys = getSourceKeys();
+                final Result copied = copy(keys, Collections.<String>emptySet(), null, replicated);
+
+                final Counters deletions = new Counters();
+                for (final String key : new ArrayList<String>(replicated.keySet())) {
+                    if (!keys.contains(key)) {
+                        destination.delete(key);
+                        replicated.remove(key);
+                        deletions.deleted.incrementAndGet();
+                    }
+                }
+                deletions.copied.set(copied.copied);
+                deletions.skipped.set(copied.skipped);
+                deletions.failedKeys.addAll(copied.failedKeys);
+                lastResult = new Result(deletions, copied.elapsedMillis);
+                passes.incrementAndGet();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final RuntimeException e) {
+                logger.warn("Replication pass failed, will try again.", e);
+            }
+        }
+    }
+}
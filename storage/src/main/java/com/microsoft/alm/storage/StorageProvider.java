@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class StorageProvider {
@@ -45,41 +46,69 @@ public class StorageProvider {
         PREFER
     }
 
-    private static final List<SecretStore<Token>> PERSISTED_TOKEN_STORE_CANDIDATES;
+    /*
+     * The candidate stores are built by initialization-on-demand holders, so only the kind of store that is
+     * asked for gets constructed, and the keyring is only probed when a persisted store is first needed.
+     */
 
-    private static final List<SecretStore<TokenPair>> PERSISTED_TOKENPAIR_STORE_CANDIDATES;
-
-    private static final List<SecretStore<Credential>> PERSISTED_CREDENTIAL_STORE_CANDIDATES;
+    private static final class GnomeKeyring {
+        static final boolean SUPPORTED = SystemHelper.isLinux() && GnomeKeyringBackedSecureStore.isGnomeKeyringSupported();
+    }
 
-    static {
-        List<SecretStore<Token>> tokenStoreCandidates = new ArrayList<SecretStore<Token>>();
-        List<SecretStore<TokenPair>> tokenPairStoreCandidates = new ArrayList<SecretStore<TokenPair>>();
-        List<SecretStore<Credential>> credentialStoreCandidates = new ArrayList<SecretStore<Credential>>();
+    private static final class TokenStores {
+        static final List<SecretStore<Token>> PERSISTED_CANDIDATES;
 
-        if (SystemHelper.isWindows()) {
-            tokenStoreCandidates.add(new CredManagerBackedTokenStore());
-            credentialStoreCandidates.add(new CredManagerBackedCredentialStore());
-            tokenPairStoreCandidates.add(new CredManagerBackedTokenPairStore());
+        static {
+            final List<SecretStore<Token>> candidates = new ArrayList<SecretStore<Token>>();
+            if (SystemHelper.isWindows()) {
+                candidates.add(new CredManagerBackedTokenStore());
+            }
+            if (SystemHelper.isMac()) {
+                candidates.add(new KeychainSecurityBackedTokenStore());
+            }
+            if (GnomeKeyring.SUPPORTED) {
+                candidates.add(new GnomeKeyringBackedTokenStore());
+            }
+            candidates.add(new InsecureFileBackedTokenStore());
+            PERSISTED_CANDIDATES = candidates;
         }
+    }
 
-        if (SystemHelper.isMac()) {
-            tokenStoreCandidates.add(new KeychainSecurityBackedTokenStore());
-            credentialStoreCandidates.add(new KeychainSecurityBackedCredentialStore());
-            tokenPairStoreCandidates.add(new KeychainSecurityBackedTokenPairStore());
-        }
+    private static final class TokenPairStores {
+        static final List<SecretStore<TokenPair>> PERSISTED_CANDIDATES;
 
-        if (SystemHelper.isLinux() && GnomeKeyringBackedSecureStore.isGnomeKeyringSupported()) {
-            tokenStoreCandidates.add(new GnomeKeyringBackedTokenStore());
-            credentialStoreCandidates.add(new GnomeKeyringBackedCredentialStore());
-            tokenPairStoreCandidates.add(new GnomeKeyringBackedTokenPairStore());
+        static {
+            final List<SecretStore<TokenPair>> candidates = new ArrayList<SecretStore<TokenPair>>();
+            if (SystemHelper.isWindows()) {
+                candidates.add(new CredManagerBackedTokenPairStore());
+            }
+            if (SystemHelper.isMac()) {
+                candidates.add(new KeychainSecurityBackedTokenPairStore());
+            }
+            if (GnomeKeyring.SUPPORTED) {
+                candidates.add(new GnomeKeyringBackedTokenPairStore());
+            }
+            PERSISTED_CANDIDATES = candidates;
         }
+    }
 
-        tokenStoreCandidates.add(new InsecureFileBackedTokenStore());
-        credentialStoreCandidates.add(new InsecureFileBackedCredentialStore());
+    private static final class CredentialStores {
+        static final List<SecretStore<Credential>> PERSISTED_CANDIDATES;
 
-        PERSISTED_TOKEN_STORE_CANDIDATES = tokenStoreCandidates;
-        PERSISTED_TOKENPAIR_STORE_CANDIDATES = tokenPairStoreCandidates;
-        PERSISTED_CREDENTIAL_STORE_CANDIDATES = credentialStoreCandidates;
+        static {
+            final List<SecretStore<Credential>> candidates = new ArrayList<SecretStore<Credential>>();
+            if (SystemHelper.isWindows()) {
+                candidates.add(new CredManagerBackedCredentialStore());
+            }
+            if (SystemHelper.isMac()) {
+                candidates.add(new KeychainSecurityBackedCredentialStore());
+            }
+            if (GnomeKeyring.SUPPORTED) {
+                candidates.add(new GnomeKeyringBackedCredentialStore());
+            }
+            candidates.add(new InsecureFileBackedCredentialStore());
+            PERSISTED_CANDIDATES = candidates;
+        }
     }
 
     public static SecretStore<Token> getTokenStorage(final boolean persist, final SecureOption secureOption) {
@@ -101,7 +130,10 @@ public class StorageProvider {
             }
         };
 
-        return getStore(persist, secureOption, PERSISTED_TOKEN_STORE_CANDIDATES, inMemoryStoreGenerator);
+        final List<SecretStore<Token>> candidates = persist
+                ? TokenStores.PERSISTED_CANDIDATES
+                : Collections.<SecretStore<Token>>emptyList();
+        return getStore(persist, secureOption, candidates, inMemoryStoreGenerator);
     }
 
     public static SecretStore<TokenPair> getTokenPairStorage(final boolean persist, final SecureOption secureOption) {
@@ -123,7 +155,10 @@ public class StorageProvider {
             }
         };
 
-        return getStore(persist, secureOption, PERSISTED_TOKENPAIR_STORE_CANDIDATES, inMemoryStoreGenerator);
+        final List<SecretStore<TokenPair>> candidates = persist
+                ? TokenPairStores.PERSISTED_CANDIDATES
+                : Collections.<SecretStore<TokenPair>>emptyList();
+        return getStore(persist, secureOption, candidates, inMemoryStoreGenerator);
     }
 
     public static SecretStore<Credential> getCredentialStorage(final boolean persist, final SecureOption secureOption) {
@@ -145,7 +180,10 @@ public class StorageProvider {
             }
         };
 
-        return getStore(persist, secureOption, PERSISTED_CREDENTIAL_STORE_CANDIDATES, inMemoryStoreGenerator);
+        final List<SecretStore<Credential>> candidates = persist
+                ? CredentialStores.PERSISTED_CANDIDATES
+                : Collections.<SecretStore<Credential>>emptyList();
+        return getStore(persist, secureOption, candidates, inMemoryStoreGenerator);
     }
 
     private static <E extends Secret> SecretStore<E> findSecureStore(final List<SecretStore<E>> stores) {
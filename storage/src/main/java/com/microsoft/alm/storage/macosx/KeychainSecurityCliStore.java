@@ -4,6 +4,7 @@
 package com.microsoft.alm.storage.macosx;
 
 
+import com.microsoft.alm.helpers.AuthEvents;
 import com.microsoft.alm.helpers.Func;
 import com.microsoft.alm.helpers.IOHelper;
 import com.microsoft.alm.helpers.StringHelper;
@@ -41,6 +42,7 @@ class KeychainSecurityCliStore {
     private static final int ITEM_NOT_FOUND_EXIT_CODE = 44;
     private static final int USER_INTERACTION_NOT_ALLOWED_EXIT_CODE = 36;
     private static final String INTERACTIVE_MODE = "-i";
+    private static final String SOURCE = "KeychainSecurityCliStore";
 
     protected boolean deleteByKind(final String targetName, final SecretKind kind) {
         try {
@@ -333,6 +335,9 @@ class KeychainSecurityCliStore {
 
     static Map<String, Object> read(final SecretKind secretKind, final TestableProcessFactory processFactory, final String serviceName) {
         final String stdOut, stdErr;
+        final AuthEvents.SecretStoreRead event = new AuthEvents.SecretStoreRead();
+        event.begin();
+        String status = "FAILED";
         try {
             final TestableProcess process = processFactory.create(
                 SECURITY,
@@ -348,10 +353,13 @@ class KeychainSecurityCliStore {
             if (result != 0 && result != ITEM_NOT_FOUND_EXIT_CODE) {
                 checkResult(result, stdOut, stdErr);
             }
+            status = result == ITEM_NOT_FOUND_EXIT_CODE ? "MISS" : "HIT";
         } catch (final IOException e) {
             throw new Error(e);
         } catch (final InterruptedException e) {
             throw new Error(e);
+        } finally {
+            event.finish(serviceName, SOURCE, status);
         }
 
         final Map<String, Object> metaData = parseKeychainMetaData(stdOut);
@@ -422,6 +430,9 @@ class KeychainSecurityCliStore {
 
     static void write(final SecretKind secretKind, final TestableProcessFactory processFactory, final String serviceName, final String accountName, final String password) {
         final String stdOut, stdErr;
+        final AuthEvents.SecretStoreWrite event = new AuthEvents.SecretStoreWrite();
+        event.begin();
+        String status = "FAILED";
         try {
             final TestableProcess addProcess = processFactory.create(
                 SECURITY,
@@ -442,10 +453,13 @@ class KeychainSecurityCliStore {
             stdOut = coordinator.getStdOut();
             stdErr = coordinator.getStdErr();
             checkResult(result, stdOut, stdErr);
+            status = "OK";
         } catch (final IOException e) {
             throw new Error(e);
         } catch (final InterruptedException e) {
             throw new Error(e);
+        } finally {
+            event.finish(serviceName, SOURCE, status);
         }
     }
 
@@ -6,7 +6,9 @@ package com.microsoft.alm.storage.posix;
 import com.microsoft.alm.helpers.Debug;
 import com.microsoft.alm.helpers.StringHelper;
 import com.microsoft.alm.helpers.XmlHelper;
+import com.microsoft.alm.secret.CompactSecretCodec;
 import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.SecretCodec;
 import com.microsoft.alm.storage.posix.internal.GnomeKeyringBackedSecureStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,11 +26,30 @@ public class GnomeKeyringBackedCredentialStore extends GnomeKeyringBackedSecureS
 
     private static final Logger logger = LoggerFactory.getLogger(GnomeKeyringBackedCredentialStore.class);
 
+    private final SecretCodec<Credential> codec;
+
+    public GnomeKeyringBackedCredentialStore() {
+        this(CompactSecretCodec.CREDENTIAL);
+    }
+
+    /**
+     * @param codec how credentials are saved; credentials saved as XML by earlier versions can always be read
+     */
+    public GnomeKeyringBackedCredentialStore(final SecretCodec<Credential> codec) {
+        Debug.Assert(codec != null, "codec cannot be null");
+
+        this.codec = codec;
+    }
+
     @Override
     protected Credential deserialize(final String secret) {
         Debug.Assert(secret != null, "secret cannot be null");
 
         try {
+            final Credential credential = codec.decode(secret);
+            if (credential != null) {
+                return credential;
+            }
             return fromXmlString(secret);
         } catch (final Exception e) {
             logError(logger, "Failed to deserialize credential.", e);
@@ -62,7 +83,7 @@ public class GnomeKeyringBackedCredentialStore extends GnomeKeyringBackedSecureS
     protected String serialize(final Credential credential) {
         Debug.Assert(credential != null, "Credential cannot be null");
 
-        return toXmlString(credential);
+        return codec.encode(credential);
     }
 
     static String toXmlString(final Credential credential) {
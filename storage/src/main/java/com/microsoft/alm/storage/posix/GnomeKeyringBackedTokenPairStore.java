@@ -6,6 +6,8 @@ package com.microsoft.alm.storage.posix;
 import com.microsoft.alm.helpers.Debug;
 import com.microsoft.alm.helpers.StringHelper;
 import com.microsoft.alm.helpers.XmlHelper;
+import com.microsoft.alm.secret.CompactSecretCodec;
+import com.microsoft.alm.secret.SecretCodec;
 import com.microsoft.alm.secret.TokenPair;
 import com.microsoft.alm.storage.posix.internal.GnomeKeyringBackedSecureStore;
 import org.slf4j.Logger;
@@ -24,11 +26,26 @@ public class GnomeKeyringBackedTokenPairStore extends GnomeKeyringBackedSecureSt
 
     private static final Logger logger = LoggerFactory.getLogger(GnomeKeyringBackedTokenPairStore.class);
 
+    private final SecretCodec<TokenPair> codec;
+
+    public GnomeKeyringBackedTokenPairStore() {
+        this(CompactSecretCodec.TOKEN_PAIR);
+    }
+
+    /**
+     * @param codec how token pairs are saved; token pairs saved as XML by earlier versions can always be read
+     */
+    public GnomeKeyringBackedTokenPairStore(final SecretCodec<TokenPair> codec) {
+        Debug.Assert(codec != null, "codec cannot be null");
+
+        this.codec = codec;
+    }
+
     @Override
     protected String serialize(final TokenPair tokenPair) {
         Debug.Assert(tokenPair != null, "TokenPair cannot be null");
 
-        return TokenPair.toXmlString(tokenPair);
+        return codec.encode(tokenPair);
     }
 
     @Override
@@ -36,6 +53,10 @@ public class GnomeKeyringBackedTokenPairStore extends GnomeKeyringBackedSecureSt
         Debug.Assert(secret != null, "secret cannot be null");
 
         try {
+            final TokenPair tokenPair = codec.decode(secret);
+            if (tokenPair != null) {
+                return tokenPair;
+            }
             return TokenPair.fromXmlString(secret);
         } catch (final Exception e) {
             logError(logger, "Failed to deserialize the stored secret. Return null.", e);
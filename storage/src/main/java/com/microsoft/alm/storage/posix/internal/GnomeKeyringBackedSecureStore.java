@@ -3,6 +3,8 @@
 
 package com.microsoft.alm.storage.posix.internal;
 
+import com.microsoft.alm.helpers.AuthEvents;
+import com.microsoft.alm.helpers.AuthMetricsProvider;
 import com.microsoft.alm.helpers.Debug;
 import com.microsoft.alm.helpers.SettingsHelper;
 import com.microsoft.alm.helpers.SystemHelper;
@@ -15,8 +17,15 @@ public abstract class GnomeKeyringBackedSecureStore<E extends Secret> implements
 
     private static final Logger logger = LoggerFactory.getLogger(GnomeKeyringBackedSecureStore.class);
 
-    private static final GnomeKeyringLibrary INSTANCE = getGnomeKeyringLibrary();
-    private static final GnomeKeyringLibrary.GnomeKeyringPasswordSchema SCHEMA = getGnomeKeyringPasswordSchema();
+    /**
+     * Initialization-on-demand holder: JNA only loads gnome-keyring the first time a keyring store is used,
+     * and the library is probed once for both the binding and the schema.
+     */
+    private static final class Native {
+        static final boolean AVAILABLE = isGnomeKeyringLibraryAvailable();
+        static final GnomeKeyringLibrary INSTANCE = AVAILABLE ? GnomeKeyringLibrary.INSTANCE : null;
+        static final GnomeKeyringLibrary.GnomeKeyringPasswordSchema SCHEMA = getGnomeKeyringPasswordSchema(AVAILABLE);
+    }
 
     public static final String ALLOW_UNLOCK_KEYRING = "AUTH_LIB_ALLOW_UNLOCK_GNOME_KEYRING";
 
@@ -55,22 +64,25 @@ public abstract class GnomeKeyringBackedSecureStore<E extends Secret> implements
 
         logger.info("Getting {} for {}", getType(), key);
 
+        final AuthEvents.SecretStoreRead event = new AuthEvents.SecretStoreRead();
+        event.begin();
         GnomeKeyringLibrary.PointerToPointer pPassword = new GnomeKeyringLibrary.PointerToPointer();
         String secret = null;
         try {
-            final int result = INSTANCE.gnome_keyring_find_password_sync(
-                        SCHEMA,
-                        pPassword,
-                        "Type", getType(),
-                        "Key", key,
-                        null);
+            final int result = Native.INSTANCE.gnome_keyring_find_password_sync(
+                    Native.SCHEMA,
+                    pPassword,
+                    "Type", getType(),
+                    "Key", key,
+                    null);
             if (checkResult(result, "Could not retrieve secret from storage.")) {
                 secret = pPassword.pointer.getString(0);
             }
         } finally {
             if (pPassword.pointer != null) {
-                    INSTANCE.gnome_keyring_free_password(pPassword.pointer);
+                Native.INSTANCE.gnome_keyring_free_password(pPassword.pointer);
             }
+            event.finish(key, AuthMetricsProvider.sourceOf(this), secret != null ? "HIT" : "MISS");
         }
 
         return secret != null ? deserialize(secret) : null;
@@ -81,8 +93,8 @@ public abstract class GnomeKeyringBackedSecureStore<E extends Secret> implements
         Debug.Assert(key != null, "key cannot be null");
         logger.info("Deleting {} for {}", getType(), key);
 
-        final int result = INSTANCE.gnome_keyring_delete_password_sync(
-                SCHEMA,
+        final int result = Native.INSTANCE.gnome_keyring_delete_password_sync(
+                Native.SCHEMA,
                 "Type", getType(),
                 "Key", key,
                 null);
@@ -97,8 +109,10 @@ public abstract class GnomeKeyringBackedSecureStore<E extends Secret> implements
 
         logger.info("Adding a {} for {}", getType(), key);
 
-        final int result = INSTANCE.gnome_keyring_store_password_sync(
-                SCHEMA,
+        final AuthEvents.SecretStoreWrite event = new AuthEvents.SecretStoreWrite();
+        event.begin();
+        final int result = Native.INSTANCE.gnome_keyring_store_password_sync(
+                Native.SCHEMA,
                 GnomeKeyringLibrary.GNOME_KEYRING_DEFAULT, // save to disk
                 key, //display name
                 serialize(secret),
@@ -108,7 +122,9 @@ public abstract class GnomeKeyringBackedSecureStore<E extends Secret> implements
                 null
         );
 
-        return checkResult(result, "Could not save secret to the storage.");
+        final boolean added = checkResult(result, "Could not save secret to the storage.");
+        event.finish(key, AuthMetricsProvider.sourceOf(this), added ? "OK" : "FAILED");
+        return added;
     }
 
     /**
@@ -128,14 +144,14 @@ public abstract class GnomeKeyringBackedSecureStore<E extends Secret> implements
      */
     public static boolean isGnomeKeyringSupported() {
         try {
-            if (INSTANCE != null && SCHEMA != null) {
+            if (Native.INSTANCE != null && Native.SCHEMA != null) {
                 // If we are here that means we have loaded gnome-keyring library
                 final GnomeKeyringLibrary.PointerToPointer keyring_info = getGnomeKeyringInfoStruct();
                 if (keyring_info != null) {
                     try {
                         return isSimplePasswordAPISupported() && isGnomeKeyringUnlocked(keyring_info);
                     } finally {
-                        INSTANCE.gnome_keyring_info_free(keyring_info.pointer);
+                        Native.INSTANCE.gnome_keyring_info_free(keyring_info.pointer);
                     }
                 }
             }
@@ -149,7 +165,7 @@ public abstract class GnomeKeyringBackedSecureStore<E extends Secret> implements
     private static GnomeKeyringLibrary.PointerToPointer getGnomeKeyringInfoStruct() { 
         // First make sure we can access gnome-keyring (ssh session may have trouble accessing gnome-keyring)     
         final GnomeKeyringLibrary.PointerToPointer keyring_info_container = new GnomeKeyringLibrary.PointerToPointer();
-        final int ret  = INSTANCE.gnome_keyring_get_info_sync(
+        final int ret  = Native.INSTANCE.gnome_keyring_get_info_sync(
                 GnomeKeyringLibrary.GNOME_KEYRING_DEFAULT, keyring_info_container);
 
         return checkResult(ret, "Could not get default keyring info. GNOME Keyring is not available.")
@@ -165,8 +181,8 @@ public abstract class GnomeKeyringBackedSecureStore<E extends Secret> implements
         logger.debug("Try access gnome-keyring with dummy data to make sure it's accessible...");
         try {
             GnomeKeyringLibrary.PointerToPointer pPassword = new GnomeKeyringLibrary.PointerToPointer();
-            INSTANCE.gnome_keyring_find_password_sync(
-                    SCHEMA,
+            Native.INSTANCE.gnome_keyring_find_password_sync(
+                    Native.SCHEMA,
                     pPassword,
                     // The following two values should not match anything, calling this method purely
                     // to determine existence of this function since we have no version information
@@ -187,7 +203,7 @@ public abstract class GnomeKeyringBackedSecureStore<E extends Secret> implements
     private static boolean isGnomeKeyringUnlocked(final GnomeKeyringLibrary.PointerToPointer keyring_info) {
         // Make sure it's not locked, and unlock it if user allows it (usually by popping up a dialog
         // asking for user's password
-        final boolean locked = INSTANCE.gnome_keyring_info_get_is_locked(keyring_info.pointer);
+        final boolean locked = Native.INSTANCE.gnome_keyring_info_get_is_locked(keyring_info.pointer);
 
         if (locked) {
             logger.info("Keyring is locked, most likely due to UI is unavailable or user logged in " +
@@ -195,7 +211,7 @@ public abstract class GnomeKeyringBackedSecureStore<E extends Secret> implements
 
             final boolean allowUnlock = Boolean.valueOf(SettingsHelper.getInstance().getProperty(ALLOW_UNLOCK_KEYRING));
             if (allowUnlock) {
-                final int ret = INSTANCE.gnome_keyring_unlock_sync(GnomeKeyringLibrary.GNOME_KEYRING_DEFAULT, null);
+                final int ret = Native.INSTANCE.gnome_keyring_unlock_sync(GnomeKeyringLibrary.GNOME_KEYRING_DEFAULT, null);
                 return checkResult(ret, "Could not unlock keyring. GNOME Keyring is not available.");
             } else {
                 logger.info("Keyring is locked and unavailable, please set variable {} to " +
@@ -233,13 +249,9 @@ public abstract class GnomeKeyringBackedSecureStore<E extends Secret> implements
         return false;
     }
 
-    private static GnomeKeyringLibrary getGnomeKeyringLibrary() {
-        return isGnomeKeyringLibraryAvailable() ? GnomeKeyringLibrary.INSTANCE : null;
-    }
-
-    private static GnomeKeyringLibrary.GnomeKeyringPasswordSchema getGnomeKeyringPasswordSchema() {
+    private static GnomeKeyringLibrary.GnomeKeyringPasswordSchema getGnomeKeyringPasswordSchema(final boolean libraryAvailable) {
         try {
-            if (isGnomeKeyringLibraryAvailable()) {
+            if (libraryAvailable) {
                 logger.info("gnome-keyring library loaded, creating a password SCHEMA");
                 GnomeKeyringLibrary.GnomeKeyringPasswordSchema schema
                         = new GnomeKeyringLibrary.GnomeKeyringPasswordSchema();
@@ -276,7 +288,7 @@ public abstract class GnomeKeyringBackedSecureStore<E extends Secret> implements
         if (retCode != GnomeKeyringLibrary.GNOME_KEYRING_RESULT_OK) {
             logger.error(message);
             try {
-                logger.error("Return code: {} description: {}", retCode, INSTANCE.gnome_keyring_result_to_message(retCode));
+                logger.error("Return code: {} description: {}", retCode, Native.INSTANCE.gnome_keyring_result_to_message(retCode));
             } catch (UnsatisfiedLinkError e) {
                 logger.error("Return code: {}", retCode);
             }
@@ -3,6 +3,8 @@
 
 package com.microsoft.alm.storage.windows.internal;
 
+import com.microsoft.alm.helpers.AuthEvents;
+import com.microsoft.alm.helpers.AuthMetricsProvider;
 import com.microsoft.alm.helpers.Debug;
 import com.microsoft.alm.helpers.StringHelper;
 import com.microsoft.alm.helpers.SystemHelper;
@@ -73,9 +75,11 @@ public abstract class CredManagerBackedSecureStore<E extends Secret> implements
 
         logger.info("Getting secret for {}", key);
 
+        final AuthEvents.SecretStoreRead event = new AuthEvents.SecretStoreRead();
+        event.begin();
         final CredAdvapi32.PCREDENTIAL pcredential = new CredAdvapi32.PCREDENTIAL();
         boolean read = false;
-        E cred;
+        E cred = null;
 
         try {
             // MSDN doc doesn't mention threading safety, so let's just be careful and synchronize the access
@@ -106,6 +110,7 @@ public abstract class CredManagerBackedSecureStore<E extends Secret> implements
                     INSTANCE.CredFree(pcredential.credential);
                 }
             }
+            event.finish(key, AuthMetricsProvider.sourceOf(this), cred != null ? "HIT" : "MISS");
         }
 
         return cred;
@@ -163,11 +168,15 @@ public abstract class CredManagerBackedSecureStore<E extends Secret> implements
 
         final CredAdvapi32.CREDENTIAL cred = buildCred(key, username, credBlob);
 
+        final AuthEvents.SecretStoreWrite event = new AuthEvents.SecretStoreWrite();
+        event.begin();
+        String status = "FAILED";
         try {
             synchronized (INSTANCE) {
                 INSTANCE.CredWrite(cred, 0);
             }
 
+            status = "OK";
             return true;
         }
         catch (LastErrorException e) {
@@ -176,6 +185,7 @@ public abstract class CredManagerBackedSecureStore<E extends Secret> implements
         } finally {
             cred.CredentialBlob.clear(credBlob.length);
             Arrays.fill(credBlob, (byte) 0);
+            event.finish(key, AuthMetricsProvider.sourceOf(this), status);
         }
     }
 
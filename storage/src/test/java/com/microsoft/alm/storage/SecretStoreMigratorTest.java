@@ -0,0 +1,154 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.secret.Credential;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SecretStoreMigratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static InsecureInMemoryStore<Credential> sourceWith(final int count) {
+        final InsecureInMemoryStore<Credential> source = new InsecureInMemoryStore<Credential>();
+        for (int i = 0; i < count; i++) {
+            source.add("git:https://server" + i + ".example.com", new Credential("user" + i, "password" + i));
+        }
+        return source;
+    }
+
+    @Test
+    public void migrate_copiesEverySecret() throws Exception {
+        final InsecureInMemoryStore<Credential> source = sourceWith(250);
+        final InsecureInMemoryStore<Credential> destination = new InsecureInMemoryStore<Credential>();
+
+        final SecretStoreMigrator.Result result = new SecretStoreMigrator<Credential>(source, destination)
+                .withParallelism(3)
+                .withBatchSize(7)
+                .migrate();
+
+        assertEquals(250, result.copied);
+        assertEquals(0, result.failedKeys.size());
+        assertEquals(source.getKeys(), destination.getKeys());
+        assertEquals(new Credential("user42", "password42"), destination.get("git:https://server42.example.com"));
+    }
+
+    @Test
+    public void migrate_keepsExistingSecretsWhenNotOverwriting() throws Exception {
+        final InsecureInMemoryStore<Credential> source = sourceWith(2);
+        final InsecureInMemoryStore<Credential> destination = new InsecureInMemoryStore<Credential>();
+        final Credential existing = new Credential("someone", "else");
+        destination.add("git:https://server0.example.com", existing);
+
+        final SecretStoreMigrator.Result result = new SecretStoreMigrator<Credential>(source, destination)
+                .overwriteExisting(false)
+                .migrate(Arrays.asList("git:https://server0.example.com", "git:https://server1.example.com", "missing"));
+
+        assertEquals(1, result.copied);
+        assertEquals(2, result.skipped);
+        assertEquals(existing, destination.get("git:https://server0.example.com"));
+    }
+
+    @Test
+    public void migrate_resumesFromCheckpointAndRetriesFailures() throws Exception {
+        final InsecureInMemoryStore<Credential> source = sourceWith(20);
+        final File checkpoint = new File(folder.getRoot(), "migration.checkpoint");
+        final InsecureInMemoryStore<Credential> flaky = new InsecureInMemoryStore<Credential>() {
+            @Override
+            public boolean add(final String key, final Credential secret) {
+                return !key.endsWith("server13.example.com") && super.add(key, secret);
+            }
+        };
+
+        final SecretStoreMigrator.Result first = new SecretStoreMigrator<Credential>(source, flaky)
+                .withBatchSize(3)
+                .withCheckpoint(checkpoint)
+                .migrate();
+
+        assertEquals(19, first.copied);
+        assertEquals(Arrays.asList("git:https://server13.example.com"), first.failedKeys);
+
+        final InsecureInMemoryStore<Credential> destination = new InsecureInMemoryStore<Credential>();
+        final SecretStoreMigrator.Result second = new SecretStoreMigrator<Credential>(source, destination)
+                .withBatchSize(3)
+                .withCheckpoint(checkpoint)
+                .migrate();
+
+        assertEquals(19, second.resumed);
+        assertEquals(1, second.copied);
+        assertEquals(new Credential("user13", "password13"), destination.get("git:https://server13.example.com"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void migrate_needsKeysForAStoreThatCannotListThem() throws Exception {
+        final SecretStore<Credential> source = new SecretStore<Credential>() {
+            @Override
+            public Credential get(final String key) {
+                return null;
+            }
+
+            @Override
+            public boolean delete(final String key) {
+                return true;
+            }
+
+            @Override
+            public boolean add(final String key, final Credential secret) {
+                return true;
+            }
+
+            @Override
+            public boolean isSecure() {
+                return true;
+            }
+        };
+
+        new SecretStoreMigrator<Credential>(source, new InsecureInMemoryStore<Credential>()).migrate();
+    }
+
+    @Test
+    public void replicate_copiesChangesAndDeletions() throws Exception {
+        final InsecureInMemoryStore<Credential> source = sourceWith(3);
+        final InsecureInMemoryStore<Credential> destination = new InsecureInMemoryStore<Credential>();
+        final Credential unrelated = new Credential("not", "replicated");
+        destination.add("git:https://elsewhere.example.com", unrelated);
+
+        final SecretStoreMigrator<Credential>.Replication replication
+                = new SecretStoreMigrator<Credential>(source, destination).replicate(10);
+        try {
+            awaitPasses(replication, 1);
+            assertEquals(3, replication.getLastResult().copied);
+
+            source.add("git:https://server1.example.com", new Credential("user1", "changed"));
+            source.delete("git:https://server2.example.com");
+            final int passes = replication.getPasses();
+            awaitPasses(replication, passes + 2);
+        } finally {
+            replication.close();
+        }
+
+        assertEquals(new Credential("user1", "changed"), destination.get("git:https://server1.example.com"));
+        assertNull(destination.get("git:https://server2.example.com"));
+        assertEquals(unrelated, destination.get("git:https://elsewhere.example.com"));
+    }
+
+    private static void awaitPasses(final SecretStoreMigrator<Credential>.Replication replication, final int passes)
+            throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (replication.getPasses() < passes) {
+            assertTrue("replication did not make progress", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+}
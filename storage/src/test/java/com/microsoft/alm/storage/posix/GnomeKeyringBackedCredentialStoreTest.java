@@ -29,4 +29,12 @@ public class GnomeKeyringBackedCredentialStoreTest {
         assertEquals(password, processedCred.Password);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void deserialize_legacyXml() {
+        final Credential cred = new Credential("user", "<pass>");
+
+        final Credential processedCred = underTest.deserialize(GnomeKeyringBackedCredentialStore.toXmlString(cred));
+
+        assertEquals(cred, processedCred);
+    }
+}
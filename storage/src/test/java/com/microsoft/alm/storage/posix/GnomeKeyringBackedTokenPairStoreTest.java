@@ -8,6 +8,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 
 public class GnomeKeyringBackedTokenPairStoreTest {
@@ -53,4 +54,21 @@ public class GnomeKeyringBackedTokenPairStoreTest {
         assertEquals(tokenPair.AccessToken, processed.AccessToken);
         assertEquals(tokenPair.RefreshToken, processed.RefreshToken);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void deserialize_legacyXml() {
+        final TokenPair tokenPair = new TokenPair(sampleAssessToken, sampleRefreshToken);
+
+        final TokenPair processed = underTest.deserialize(TokenPair.toXmlString(tokenPair));
+
+        assertEquals(tokenPair.AccessToken, processed.AccessToken);
+        assertEquals(tokenPair.RefreshToken, processed.RefreshToken);
+    }
+
+    @Test
+    public void serialize_isNotXml() {
+        final String serialized = underTest.serialize(new TokenPair(sampleAssessToken, sampleRefreshToken));
+
+        assertFalse(serialized.startsWith("<"));
+    }
+}